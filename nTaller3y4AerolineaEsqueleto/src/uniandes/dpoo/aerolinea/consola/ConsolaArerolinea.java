@@ -1,16 +1,88 @@
 package uniandes.dpoo.aerolinea.consola;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
 import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.AerolineaParticionada;
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.ReservaAsientos;
+import uniandes.dpoo.aerolinea.modelo.SerieVentas;
+import uniandes.dpoo.aerolinea.modelo.SolicitudEspera;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 import uniandes.dpoo.aerolinea.persistencia.CentralPersistencia;
+import uniandes.dpoo.aerolinea.persistencia.IngestorTiquetes;
 import uniandes.dpoo.aerolinea.persistencia.TipoInvalidoException;
+import uniandes.dpoo.aerolinea.replicacion.LiderReplicacion;
+import uniandes.dpoo.aerolinea.replicacion.SeguidorReplicacion;
+import uniandes.dpoo.aerolinea.tarifas.EstructuraTarifaria;
+import uniandes.dpoo.aerolinea.utilidades.Perfilador;
 
 public class ConsolaArerolinea extends ConsolaBasica
 {
+    /**
+     * El argumento con el que se indica que la consola debe ejecutar un script en lugar de funcionar de forma interactiva
+     */
+    public static final String ARGUMENTO_SCRIPT = "--script";
+
+    /**
+     * El nombre de archivo con el que se indica que el script se debe leer de la entrada estándar
+     */
+    public static final String ENTRADA_ESTANDAR = "-";
+
+    /**
+     * Los comandos que modifican la aerolínea. No se pueden usar cuando la aerolínea es un seguidor, porque sólo la replicación puede modificarla.
+     */
+    private static final Set<String> COMANDOS_ESCRITURA = new HashSet<String>( Arrays.asList( "cargarAerolinea", "cargarTiquetes", "cargarTiquetesArchivos", "ingerir",
+            "programarVuelo", "venderTiquetes", "esperar", "cancelar", "sobreventa", "clasesTarifa", "retener", "confirmar", "liberar", "vueloRealizado", "cierreDia",
+            "particionar" ) );
+
+    /**
+     * La cantidad de lotes (o de bloques de tiquetes) que caben en el buffer de cada etapa del IngestorTiquetes del comando ingerir
+     */
+    private static final int CAPACIDAD_INGESTOR = 16;
+
+    /**
+     * La cantidad de hilos de las etapas de análisis y de registro del comando ingerir. El comando sólo permite configurar los hilos de las etapas de validación y
+     * asignación, que son las que más trabajo tienen por tiquete.
+     */
+    private static final int HILOS_INGESTOR = 1;
+
     private Aerolinea unaAerolinea;
 
+    /**
+     * El líder de replicación de la aerolínea, o null si la aerolínea no se está replicando
+     */
+    private LiderReplicacion lider;
+
+    /**
+     * El seguidor que mantiene la aerolínea al día con un líder, o null si la aerolínea no es una réplica
+     */
+    private SeguidorReplicacion seguidor;
+
+    /**
+     * El modo particionado de la aerolínea, o null si las operaciones se hacen directamente sobre la aerolínea
+     */
+    private AerolineaParticionada particionada;
+
     /**
      * Es un método que corre la aplicación y realmente no hace nada interesante: sólo muestra cómo se podría utilizar la clase Aerolínea para hacer pruebas.
      */
@@ -20,7 +92,7 @@ public class ConsolaArerolinea extends ConsolaBasica
         {
             unaAerolinea = new Aerolinea( );
             // String archivo = this.pedirCadenaAlUsuario( "Digite el nombre del archivo json con la información de una aerolinea" );
-            String archivo = "tiquetes.json"; 
+            String archivo = "tiquetes.json";
             unaAerolinea.cargarTiquetes( "./datos/" + archivo, CentralPersistencia.JSON );
         }
         catch( TipoInvalidoException e )
@@ -37,9 +109,376 @@ public class ConsolaArerolinea extends ConsolaBasica
         }
     }
 
+    /**
+     * Ejecuta un script de comandos sobre una aerolínea nueva, una línea a la vez.
+     *
+     * Cada línea tiene el nombre de un comando seguido de sus argumentos, separados por espacios. Las líneas vacías y las que empiezan por '#' se ignoran. Un comando que
+     * falla no detiene el script: el error se reporta en la salida y se continúa con la siguiente línea. Al final se imprime un resumen con los tiempos de cada comando.
+     *
+     * Los comandos disponibles son:
+     * <ul>
+     * <li>cargarAerolinea archivo tipo</li>
+     * <li>salvarAerolinea archivo tipo</li>
+     * <li>cargarTiquetes archivo tipo</li>
+     * <li>cargarTiquetesArchivos ubicacion tipo hilos (carga los tiquetes de todos los archivos de un directorio, o de los que cumplen un patrón como
+     * 'datos/tiquetes-*.json', leyendo varios archivos al tiempo)</li>
+     * <li>ingerir hilos archivo... (agrega los tiquetes de uno o más lotes JSON con IngestorTiquetes, usando la cantidad de hilos dada en las etapas de validación y
+     * asignación)</li>
+     * <li>salvarTiquetes archivo tipo</li>
+     * <li>programarVuelo fecha codigoRuta nombreAvion</li>
+     * <li>venderTiquetes identificadorCliente fecha codigoRuta cantidad</li>
+     * <li>esperar identificadorCliente fecha codigoRuta cantidad</li>
+     * <li>cancelar fecha codigoRuta codigoTiquete</li>
+     * <li>sobreventa codigoRuta margen</li>
+     * <li>clasesTarifa codigoRuta activar (true usa las clases tarifarias por defecto, false las quita)</li>
+     * <li>retener identificadorCliente fecha codigoRuta cantidad</li>
+     * <li>confirmar identificadorReserva</li>
+     * <li>liberar identificadorReserva</li>
+     * <li>cercanos codigoAeropuerto cantidad</li>
+     * <li>radio codigoAeropuerto kilometros</li>
+     * <li>vueloRealizado fecha codigoRuta</li>
+     * <li>cierreDia fecha</li>
+     * <li>saldo identificadorCliente</li>
+     * <li>buscarClientes cantidad prefijo... (los clientes cuyo nombre tiene una palabra que empieza por el prefijo, que puede tener varias palabras)</li>
+     * <li>pasivo</li>
+     * <li>ventasRuta codigoRuta fechaFinal dias (tiquetes, ingresos, promedio diario y percentiles 50 y 90 de los tiquetes por día)</li>
+     * <li>lider puerto archivoRegistro</li>
+     * <li>seguidor servidor puerto (a partir de este comando, los comandos que modifican la aerolínea fallan: sólo la replicación la modifica)</li>
+     * <li>replicacion (muestra el estado de la replicación)</li>
+     * <li>esperarReplicacion milisegundos (espera a que el seguidor esté al día con el líder)</li>
+     * <li>compactarRegistro (borra los segmentos del registro del líder que ya aplicaron todos los seguidores conectados)</li>
+     * <li>pausa milisegundos</li>
+     * <li>perfilar iniciar|detener|resumen (graba el tiempo, el tiempo de CPU y la memoria asignada de cada operación de la aerolínea; ver Perfilador)</li>
+     * <li>particionar cantidad (a partir de este comando, programarVuelo, venderTiquetes, esperar, cancelar, cierreDia, saldo y pasivo se atienden con
+     * AerolineaParticionada, repartiendo las rutas entre la cantidad de particiones dada; con 0 se vuelve a usar la aerolínea directamente)</li>
+     * </ul>
+     * @param comandos El lector del que se leen los comandos
+     * @param salida El lugar donde se escriben los resultados. No se vacía después de cada comando.
+     * @return El resumen de la ejecución
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el script
+     */
+    public ResumenEjecucion ejecutarScript( BufferedReader comandos, PrintWriter salida ) throws IOException
+    {
+        unaAerolinea = new Aerolinea( );
+        ResumenEjecucion resumen = new ResumenEjecucion( );
+
+        int numeroLinea = 0;
+        String linea = comandos.readLine( );
+        while( linea != null )
+        {
+            numeroLinea++;
+            StringTokenizer tokens = new StringTokenizer( linea );
+            if( tokens.hasMoreTokens( ) )
+            {
+                String comando = tokens.nextToken( );
+                if( !comando.startsWith( "#" ) )
+                {
+                    String[] argumentos = new String[tokens.countTokens( )];
+                    for( int i = 0; i < argumentos.length; i++ )
+                        argumentos[ i ] = tokens.nextToken( );
+
+                    long inicio = System.nanoTime( );
+                    boolean exitoso = true;
+                    try
+                    {
+                        ejecutarComando( comando, argumentos, salida );
+                    }
+                    catch( Exception e )
+                    {
+                        exitoso = false;
+                        salida.println( "ERROR línea " + numeroLinea + " (" + comando + "): " + e.getMessage( ) );
+                    }
+                    resumen.registrar( comando, System.nanoTime( ) - inicio, exitoso );
+                }
+            }
+            linea = comandos.readLine( );
+        }
+
+        resumen.imprimir( salida );
+        salida.flush( );
+        return resumen;
+    }
+
+    /**
+     * Ejecuta un comando de un script
+     * @param comando El nombre del comando
+     * @param args Los argumentos del comando
+     * @param salida El lugar donde se escriben los resultados del comando
+     * @throws Exception Se lanza esta excepción si el comando no existe, si tiene una cantidad incorrecta de argumentos o si falla su ejecución
+     */
+    private void ejecutarComando( String comando, String[] args, PrintWriter salida ) throws Exception
+    {
+        if( seguidor != null && COMANDOS_ESCRITURA.contains( comando ) )
+            throw new Exception( "La aerolínea es un seguidor de replicación y sólo se puede consultar" );
+        switch( comando )
+        {
+            case "cargarAerolinea":
+                verificarArgumentos( args, 2 );
+                unaAerolinea.cargarAerolinea( args[ 0 ], args[ 1 ] );
+                break;
+            case "salvarAerolinea":
+                verificarArgumentos( args, 2 );
+                unaAerolinea.salvarAerolinea( args[ 0 ], args[ 1 ] );
+                break;
+            case "cargarTiquetes":
+                verificarArgumentos( args, 2 );
+                unaAerolinea.cargarTiquetes( args[ 0 ], args[ 1 ] );
+                break;
+            case "cargarTiquetesArchivos":
+                verificarArgumentos( args, 3 );
+                salida.println( "cargarTiquetesArchivos " + args[ 0 ] + ": " + unaAerolinea.cargarTiquetesArchivos( args[ 0 ], args[ 1 ], Integer.parseInt( args[ 2 ] ) )
+                        + " archivos" );
+                break;
+            case "ingerir":
+                if( args.length < 2 )
+                    throw new Exception( "Se esperaban la cantidad de hilos y al menos un archivo" );
+                int hilos = Integer.parseInt( args[ 0 ] );
+                IngestorTiquetes ingestor = new IngestorTiquetes( unaAerolinea, CAPACIDAD_INGESTOR, HILOS_INGESTOR, hilos, hilos, HILOS_INGESTOR );
+                try
+                {
+                    for( int i = 1; i < args.length; i++ )
+                        ingestor.enviar( new String( Files.readAllBytes( Paths.get( args[ i ] ) ), StandardCharsets.UTF_8 ) );
+                    ingestor.terminar( );
+                }
+                finally
+                {
+                    ingestor.cancelar( );
+                    salida.println( "ingerir: " + ingestor.getRecibidos( ) + " recibidos, " + ingestor.getRegistrados( ) + " registrados, " + ingestor.getRechazados( )
+                            + " rechazados" );
+                }
+                break;
+            case "salvarTiquetes":
+                verificarArgumentos( args, 2 );
+                unaAerolinea.salvarTiquetes( args[ 0 ], args[ 1 ] );
+                break;
+            case "programarVuelo":
+                verificarArgumentos( args, 3 );
+                if( particionada != null )
+                    particionada.programarVuelo( args[ 0 ], args[ 1 ], args[ 2 ] );
+                else
+                    unaAerolinea.programarVuelo( args[ 0 ], args[ 1 ], args[ 2 ] );
+                salida.println( "vuelo " + args[ 1 ] + " " + args[ 0 ] + ": programado en " + args[ 2 ] );
+                break;
+            case "venderTiquetes":
+                verificarArgumentos( args, 4 );
+                int valor = particionada != null ? esperarResultado( particionada.venderTiquetes( args[ 0 ], args[ 1 ], args[ 2 ], Integer.parseInt( args[ 3 ] ) ) )
+                        : unaAerolinea.venderTiquetes( args[ 0 ], args[ 1 ], args[ 2 ], Integer.parseInt( args[ 3 ] ) );
+                salida.println( "venta " + args[ 0 ] + " " + args[ 2 ] + " " + args[ 1 ] + ": " + valor );
+                break;
+            case "esperar":
+                verificarArgumentos( args, 4 );
+                SolicitudEspera solicitud = particionada != null
+                        ? esperarResultado( particionada.agregarAListaEspera( args[ 0 ], args[ 1 ], args[ 2 ], Integer.parseInt( args[ 3 ] ) ) )
+                        : unaAerolinea.agregarAListaEspera( args[ 0 ], args[ 1 ], args[ 2 ], Integer.parseInt( args[ 3 ] ) );
+                salida.println( "espera " + args[ 0 ] + " " + args[ 2 ] + " " + args[ 1 ] + ": " + ( solicitud.estaAtendida( ) ? "atendida" : "en espera" ) );
+                break;
+            case "cancelar":
+                verificarArgumentos( args, 3 );
+                boolean cancelado = particionada != null ? esperarResultado( particionada.cancelarTiquete( args[ 0 ], args[ 1 ], args[ 2 ] ) )
+                        : unaAerolinea.cancelarTiquete( args[ 0 ], args[ 1 ], args[ 2 ] );
+                salida.println( "cancelar " + args[ 2 ] + ": " + ( cancelado ? "cancelado" : "no encontrado" ) );
+                break;
+            case "sobreventa":
+                verificarArgumentos( args, 2 );
+                unaAerolinea.configurarSobreventa( args[ 0 ], Double.parseDouble( args[ 1 ] ) );
+                break;
+            case "clasesTarifa":
+                verificarArgumentos( args, 2 );
+                unaAerolinea.configurarClasesTarifa( args[ 0 ], Boolean.parseBoolean( args[ 1 ] ) ? EstructuraTarifaria.crearPorDefecto( ) : null );
+                break;
+            case "retener":
+                verificarArgumentos( args, 4 );
+                ReservaAsientos reserva = unaAerolinea.retenerAsientos( args[ 0 ], args[ 1 ], args[ 2 ], Integer.parseInt( args[ 3 ] ) );
+                salida.println( "reserva " + reserva.getIdentificador( ) + ": " + args[ 3 ] + " asientos en " + args[ 2 ] + " " + args[ 1 ] );
+                break;
+            case "confirmar":
+                verificarArgumentos( args, 1 );
+                salida.println( "confirmar " + args[ 0 ] + ": " + unaAerolinea.confirmarReserva( Long.parseLong( args[ 0 ] ) ) );
+                break;
+            case "liberar":
+                verificarArgumentos( args, 1 );
+                salida.println( "liberar " + args[ 0 ] + ": " + ( unaAerolinea.liberarReserva( Long.parseLong( args[ 0 ] ) ) ? "liberada" : "no encontrada" ) );
+                break;
+            case "cercanos":
+                verificarArgumentos( args, 2 );
+                salida.println( "cercanos " + args[ 0 ] + ": " + codigos( unaAerolinea.buscarAeropuertosCercanos( args[ 0 ], Integer.parseInt( args[ 1 ] ) ) ) );
+                break;
+            case "radio":
+                verificarArgumentos( args, 2 );
+                salida.println( "radio " + args[ 0 ] + ": " + codigos( unaAerolinea.buscarAeropuertosEnRadio( args[ 0 ], Double.parseDouble( args[ 1 ] ) ) ) );
+                break;
+            case "vueloRealizado":
+                verificarArgumentos( args, 2 );
+                int usadosVuelo = unaAerolinea.registrarVueloRealizado( LocalDate.parse( args[ 0 ] ), args[ 1 ] );
+                salida.println( "vueloRealizado " + args[ 1 ] + " " + args[ 0 ] + ": " + usadosVuelo + " tiquetes usados" );
+                break;
+            case "cierreDia":
+                verificarArgumentos( args, 1 );
+                LocalDate fechaCierre = LocalDate.parse( args[ 0 ] );
+                int usados = particionada != null ? particionada.registrarVuelosRealizados( fechaCierre ) : unaAerolinea.registrarVuelosRealizados( fechaCierre );
+                salida.println( "cierre " + args[ 0 ] + ": " + usados + " tiquetes usados" );
+                break;
+            case "saldo":
+                verificarArgumentos( args, 1 );
+                String saldo = particionada != null ? String.valueOf( particionada.consultarSaldoPendienteCliente( args[ 0 ] ) )
+                        : unaAerolinea.consultarSaldoPendienteCliente( args[ 0 ] );
+                salida.println( "saldo " + args[ 0 ] + ": " + saldo );
+                break;
+            case "buscarClientes":
+                if( args.length < 2 )
+                    throw new Exception( "Se esperaban la cantidad de clientes y el prefijo" );
+                String prefijo = String.join( " ", Arrays.copyOfRange( args, 1, args.length ) );
+                StringBuilder encontrados = new StringBuilder( );
+                for( Cliente cliente : unaAerolinea.buscarClientesPorPrefijo( prefijo, Integer.parseInt( args[ 0 ] ) ) )
+                    encontrados.append( encontrados.length( ) == 0 ? "" : ", " ).append( cliente.getIdentificador( ) );
+                salida.println( "clientes '" + prefijo + "': " + encontrados );
+                break;
+            case "pasivo":
+                verificarArgumentos( args, 0 );
+                salida.println( "pasivo: " + ( particionada != null ? particionada.calcularPasivoTiquetesSinUsar( ) : unaAerolinea.calcularPasivoTiquetesSinUsar( ) ) );
+                break;
+            case "ventasRuta":
+                verificarArgumentos( args, 3 );
+                SerieVentas serie = unaAerolinea.consultarVentasRuta( args[ 0 ] );
+                LocalDate hasta = LocalDate.parse( args[ 1 ] );
+                int dias = Integer.parseInt( args[ 2 ] );
+                LocalDate desde = hasta.minusDays( dias - 1 );
+                salida.println( "ventas " + args[ 0 ] + " " + desde + " a " + hasta + ": " + serie.sumarTiquetes( desde, hasta ) + " tiquetes, "
+                        + serie.sumarIngresos( desde, hasta ) + " ingresos, " + Math.round( serie.calcularPromedioTiquetes( hasta, dias ) * 100 ) / 100.0
+                        + " por dia, p50 " + serie.calcularPercentilTiquetes( desde, hasta, 50 ) + ", p90 " + serie.calcularPercentilTiquetes( desde, hasta, 90 ) );
+                break;
+            case "lider":
+                verificarArgumentos( args, 2 );
+                if( lider != null || seguidor != null )
+                    throw new Exception( "La aerolínea ya participa en la replicación" );
+                lider = new LiderReplicacion( unaAerolinea, args[ 1 ], Integer.parseInt( args[ 0 ] ) );
+                salida.println( "lider en el puerto " + lider.getPuerto( ) );
+                break;
+            case "seguidor":
+                verificarArgumentos( args, 2 );
+                if( lider != null || seguidor != null )
+                    throw new Exception( "La aerolínea ya participa en la replicación" );
+                seguidor = new SeguidorReplicacion( unaAerolinea, args[ 0 ], Integer.parseInt( args[ 1 ] ) );
+                break;
+            case "replicacion":
+                verificarArgumentos( args, 0 );
+                if( lider != null )
+                    salida.println( "replicacion: registrado hasta " + lider.getSecuenciaRegistrada( ) + ", " + lider.getCantidadSeguidores( ) + " seguidores" );
+                else if( seguidor != null )
+                    salida.println( "replicacion: aplicado hasta " + seguidor.getUltimaSecuenciaAplicada( ) + " de " + seguidor.getSecuenciaLider( ) + ", retraso "
+                            + seguidor.getRetrasoEventos( ) + " eventos " + seguidor.getRetrasoMilisegundos( ) + " ms" + ( seguidor.estaDesfasado( ) ? ", desfasado" : "" ) );
+                else
+                    throw new Exception( "La aerolínea no participa en la replicación" );
+                break;
+            case "esperarReplicacion":
+                verificarArgumentos( args, 1 );
+                if( seguidor == null )
+                    throw new Exception( "La aerolínea no es un seguidor" );
+                if( !seguidor.esperarAlDia( Long.parseLong( args[ 0 ] ) ) )
+                {
+                    if( seguidor.estaDesfasado( ) )
+                        throw new Exception( "El líder ya no tiene los eventos que necesita el seguidor" );
+                    throw new Exception( "El seguidor no se puso al día con el líder" );
+                }
+                break;
+            case "compactarRegistro":
+                verificarArgumentos( args, 0 );
+                if( lider == null )
+                    throw new Exception( "La aerolínea no es un líder" );
+                salida.println( "compactarRegistro: " + lider.compactarRegistro( ) + " bytes liberados" );
+                break;
+            case "perfilar":
+                verificarArgumentos( args, 1 );
+                if( "iniciar".equals( args[ 0 ] ) )
+                    Perfilador.iniciar( );
+                else if( "detener".equals( args[ 0 ] ) )
+                    Perfilador.detener( );
+                else if( "resumen".equals( args[ 0 ] ) )
+                    Perfilador.imprimirResumen( salida );
+                else
+                    throw new Exception( "Se esperaba iniciar, detener o resumen" );
+                break;
+            case "particionar":
+                verificarArgumentos( args, 1 );
+                int cantidadParticiones = Integer.parseInt( args[ 0 ] );
+                if( particionada != null )
+                    particionada.close( );
+                particionada = cantidadParticiones == 0 ? null : new AerolineaParticionada( unaAerolinea, cantidadParticiones );
+                break;
+            case "pausa":
+                verificarArgumentos( args, 1 );
+                Thread.sleep( Long.parseLong( args[ 0 ] ) );
+                break;
+            default:
+                throw new Exception( "Comando desconocido" );
+        }
+    }
+
+    /**
+     * Espera el resultado de una operación de AerolineaParticionada
+     * @return El resultado
+     * @throws Exception Se lanza la misma excepción con la que terminó la operación
+     */
+    private static <T> T esperarResultado( CompletableFuture<T> resultado ) throws Exception
+    {
+        try
+        {
+            return resultado.join( );
+        }
+        catch( CompletionException e )
+        {
+            if( e.getCause( ) instanceof Exception )
+                throw ( Exception )e.getCause( );
+            throw e;
+        }
+    }
+
+    private static String codigos( List<Aeropuerto> aeropuertos )
+    {
+        StringBuilder codigos = new StringBuilder( );
+        for( Aeropuerto aeropuerto : aeropuertos )
+            codigos.append( codigos.length( ) == 0 ? "" : " " ).append( aeropuerto.getCodigo( ) );
+        return codigos.toString( );
+    }
+
+    /**
+     * Verifica que un comando haya recibido la cantidad esperada de argumentos
+     * @param args Los argumentos que recibió el comando
+     * @param cantidad La cantidad de argumentos que espera el comando
+     * @throws Exception Se lanza esta excepción si la cantidad de argumentos no es la esperada
+     */
+    private static void verificarArgumentos( String[] args, int cantidad ) throws Exception
+    {
+        if( args.length != cantidad )
+            throw new Exception( "Se esperaban " + cantidad + " argumentos pero se recibieron " + args.length );
+    }
+
+    /**
+     * Si recibe los argumentos '--script archivo', ejecuta los comandos del archivo (o de la entrada estándar si el archivo es '-'). De lo contrario, corre la aplicación
+     * normalmente.
+     * @param args
+     */
     public static void main( String[] args )
     {
         ConsolaArerolinea ca = new ConsolaArerolinea( );
-        ca.correrAplicacion( );
+        if( args.length == 2 && ARGUMENTO_SCRIPT.equals( args[ 0 ] ) )
+        {
+            try
+            {
+                InputStream entrada = ENTRADA_ESTANDAR.equals( args[ 1 ] ) ? System.in : new FileInputStream( args[ 1 ] );
+                BufferedReader comandos = new BufferedReader( new InputStreamReader( entrada, StandardCharsets.UTF_8 ), 1 << 16 );
+                PrintWriter salida = new PrintWriter( new BufferedWriter( new OutputStreamWriter( System.out, StandardCharsets.UTF_8 ), 1 << 16 ) );
+                ca.ejecutarScript( comandos, salida );
+                comandos.close( );
+            }
+            catch( IOException e )
+            {
+                e.printStackTrace( );
+            }
+        }
+        else
+        {
+            ca.correrAplicacion( );
+        }
     }
 }
@@ -11,6 +11,36 @@ import java.util.Iterator;
  */
 public abstract class ConsolaBasica
 {
+    /**
+     * El lector que se usa para todas las preguntas que se le hacen al usuario.
+     * 
+     * Se comparte entre todas las preguntas: si se creara un lector nuevo en cada pregunta, el buffer del lector anterior se quedaría con líneas que todavía no se habían
+     * leído, y no funcionaría la entrada que llega por un pipe o desde un archivo.
+     */
+    private BufferedReader entrada = new BufferedReader( new InputStreamReader( System.in ) );
+
+    /**
+     * Cambia el lector del que se leen las respuestas del usuario
+     * @param entrada El nuevo lector
+     */
+    protected void setEntrada( BufferedReader entrada )
+    {
+        this.entrada = entrada;
+    }
+
+    /**
+     * Lee la siguiente línea que escribió el usuario
+     * @return La línea leída, sin el salto de línea
+     * @throws IOException Se lanza esta excepción si hay un problema leyendo o si ya no hay más líneas para leer
+     */
+    protected String leerLinea( ) throws IOException
+    {
+        String linea = entrada.readLine( );
+        if( linea == null )
+            throw new IOException( "Se llegó al final de la entrada" );
+        return linea;
+    }
+
     /**
      * Le pide al usuario que ingrese una cadena de caracteres
      * @param mensaje El mensaje con el que se solicita la información
@@ -21,8 +51,7 @@ public abstract class ConsolaBasica
         try
         {
             System.out.print( mensaje + ": " );
-            BufferedReader reader = new BufferedReader( new InputStreamReader( System.in ) );
-            String input = reader.readLine( );
+            String input = leerLinea( );
             return input;
         }
         catch( IOException e )
@@ -42,8 +71,7 @@ public abstract class ConsolaBasica
         try
         {
             System.out.print( mensaje + " (Responda 'si' o 'no' ) " );
-            BufferedReader reader = new BufferedReader( new InputStreamReader( System.in ) );
-            String input = reader.readLine( ).toLowerCase( );
+            String input = leerLinea( ).toLowerCase( );
             boolean respuesta = false;
             if( input.equals( "si" ) || input.equals( "sí" ) || input.equals( "s" ) )
                 respuesta = true;
@@ -70,8 +98,7 @@ public abstract class ConsolaBasica
             try
             {
                 System.out.print( mensaje + ": " );
-                BufferedReader reader = new BufferedReader( new InputStreamReader( System.in ) );
-                String input = reader.readLine( );
+                String input = leerLinea( );
                 int numero = Integer.parseInt( input );
                 valorResultado = numero;
             }
@@ -82,6 +109,7 @@ public abstract class ConsolaBasica
             catch( IOException e )
             {
                 System.out.println( "Error leyendo de la consola" );
+                break;
             }
         }
         return valorResultado;
@@ -100,8 +128,7 @@ public abstract class ConsolaBasica
             try
             {
                 System.out.print( mensaje + ": " );
-                BufferedReader reader = new BufferedReader( new InputStreamReader( System.in ) );
-                String input = reader.readLine( );
+                String input = leerLinea( );
                 double numero = Double.parseDouble( input );
                 valorResultado = numero;
             }
@@ -112,6 +139,7 @@ public abstract class ConsolaBasica
             catch( IOException e )
             {
                 System.out.println( "Error leyendo de la consola" );
+                break;
             }
         }
         return valorResultado;
@@ -0,0 +1,93 @@
+package uniandes.dpoo.aerolinea.consola;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Esta clase acumula los tiempos de ejecución de los comandos de un script, agrupados por el nombre del comando, y sabe imprimir un resumen con esa información.
+ */
+public class ResumenEjecucion
+{
+    /**
+     * Las estadísticas de cada comando. Las llaves son los nombres de los comandos.
+     *
+     * Cada arreglo tiene cuatro posiciones: la cantidad de ejecuciones, la cantidad de ejecuciones que fallaron, el tiempo total y el tiempo máximo (en nanosegundos).
+     */
+    private Map<String, long[]> estadisticas;
+
+    /**
+     * El momento en el que se empezó a ejecutar el script, en nanosegundos
+     */
+    private long inicio;
+
+    public ResumenEjecucion( )
+    {
+        estadisticas = new TreeMap<String, long[]>( );
+        inicio = System.nanoTime( );
+    }
+
+    /**
+     * Registra una ejecución de un comando
+     * @param comando El nombre del comando
+     * @param nanos El tiempo que tomó la ejecución, en nanosegundos
+     * @param exitoso Indica si el comando terminó sin errores
+     */
+    public void registrar( String comando, long nanos, boolean exitoso )
+    {
+        long[] datos = estadisticas.get( comando );
+        if( datos == null )
+        {
+            datos = new long[4];
+            estadisticas.put( comando, datos );
+        }
+        datos[ 0 ]++;
+        if( !exitoso )
+            datos[ 1 ]++;
+        datos[ 2 ] += nanos;
+        datos[ 3 ] = Math.max( datos[ 3 ], nanos );
+    }
+
+    /**
+     * Retorna la cantidad total de comandos ejecutados
+     * @return
+     */
+    public long getTotalComandos( )
+    {
+        long total = 0;
+        for( long[] datos : estadisticas.values( ) )
+            total += datos[ 0 ];
+        return total;
+    }
+
+    /**
+     * Retorna la cantidad total de comandos que fallaron
+     * @return
+     */
+    public long getTotalErrores( )
+    {
+        long total = 0;
+        for( long[] datos : estadisticas.values( ) )
+            total += datos[ 1 ];
+        return total;
+    }
+
+    /**
+     * Imprime una tabla con la cantidad de ejecuciones, los errores y los tiempos (total, promedio y máximo) de cada comando
+     * @param salida El lugar donde se escribe el resumen
+     */
+    public void imprimir( PrintWriter salida )
+    {
+        long totalNanos = System.nanoTime( ) - inicio;
+        salida.println( "---------------------" );
+        salida.println( "Resumen de la ejecución" );
+        salida.println( "---------------------" );
+        salida.printf( "%-20s %10s %8s %12s %12s %12s%n", "comando", "veces", "errores", "total(ms)", "prom(us)", "max(us)" );
+        for( Map.Entry<String, long[]> entrada : estadisticas.entrySet( ) )
+        {
+            long[] datos = entrada.getValue( );
+            salida.printf( "%-20s %10d %8d %12.2f %12.2f %12.2f%n", entrada.getKey( ), datos[ 0 ], datos[ 1 ], datos[ 2 ] / 1e6, datos[ 2 ] / 1e3 / datos[ 0 ], datos[ 3 ] / 1e3 );
+        }
+        salida.printf( "%d comandos (%d con errores) en %.2f ms%n", getTotalComandos( ), getTotalErrores( ), totalNanos / 1e6 );
+    }
+}
@@ -0,0 +1,423 @@
+package uniandes.dpoo.aerolinea.eventos;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Esta clase es el bus por el que pasan los eventos de dominio de la aerolínea hacia las proyecciones.
+ *
+ * Los eventos se guardan en un anillo de entradas que se crean todas al construir el bus (al estilo del Disruptor), así que publicar un evento no crea objetos: se
+ * reclama la siguiente secuencia con una operación atómica, se llenan los datos de la entrada que le corresponde y se marca la entrada como disponible. Varios hilos
+ * pueden publicar al mismo tiempo sin tomar ningún candado. Cada proyección suscrita tiene un hilo propio que lee las entradas en orden de secuencia, desde su última
+ * secuencia procesada hasta la primera que todavía no está disponible, de forma que quien publica (por ejemplo, una venta) no espera a que las proyecciones se
+ * actualicen.
+ *
+ * Reclamar una secuencia y publicar el evento se pueden hacer por separado (ver reclamar y publicarTiquete con secuencia): un vuelo reclama las secuencias de sus eventos
+ * con su candado tomado, para que queden en el orden en el que ocurrieron, y los publica después de soltarlo.
+ *
+ * Una entrada sólo se vuelve a usar cuando todas las proyecciones suscritas ya la procesaron. Si alguna proyección se atrasa una vuelta completa del anillo, quien
+ * publica espera a que avance; sin proyecciones suscritas, publicar sólo espera si otro hilo no ha terminado de escribir el evento de una vuelta anterior.
+ *
+ * Los eventos de una proyección se confirman después de cada lote (ver IProyeccion.finLote), así que las últimas entradas del anillo siempre contienen los eventos
+ * que alguna proyección todavía no ha terminado de procesar. Esto es lo que permite reconstruir una proyección a partir del diario (ver reconstruir).
+ */
+public class BusEventos
+{
+    /**
+     * La cantidad de entradas del anillo por defecto
+     */
+    public static final int CAPACIDAD_POR_DEFECTO = 1 << 14;
+
+    /**
+     * La cantidad de veces que un hilo revisa si hay eventos nuevos sin ceder el procesador antes de empezar a dormir
+     */
+    private static final int INTENTOS_ACTIVOS = 100;
+
+    /**
+     * El tiempo que duerme un hilo que está esperando, en nanosegundos
+     */
+    private static final long ESPERA_NANOS = 200_000;
+
+    private final Evento[] entradas;
+
+    /**
+     * La máscara que se usa para calcular la posición de una secuencia en el anillo (la cantidad de entradas menos 1)
+     */
+    private final int mascara;
+
+    /**
+     * El logaritmo en base 2 de la cantidad de entradas, que se usa para calcular en qué vuelta del anillo está una secuencia
+     */
+    private final int desplazamiento;
+
+    /**
+     * La secuencia del último evento reclamado, o -1 si no se ha reclamado ninguno
+     */
+    private final AtomicLong reclamada;
+
+    /**
+     * Para cada entrada del anillo, la vuelta del último evento que se terminó de escribir en ella, o -1 si no se ha escrito ninguno. Una secuencia está publicada
+     * cuando su entrada tiene su vuelta.
+     */
+    private final AtomicIntegerArray vueltas;
+
+    /**
+     * Una secuencia hasta la cual se sabe que todos los eventos están publicados. Sólo avanza.
+     */
+    private final AtomicLong publicada;
+
+    /**
+     * La menor secuencia procesada por las proyecciones la última vez que se calculó. Permite no recorrer las proyecciones en cada publicación. Al suscribir una
+     * proyección se baja hasta la secuencia desde la que se suscribió.
+     */
+    private final AtomicLong minimoConocido;
+
+    private final List<Consumidor> consumidores;
+
+    /**
+     * La cantidad de veces que una proyección lanzó una excepción al aplicar un evento
+     */
+    private final AtomicLong errores;
+
+    /**
+     * Construye un bus con la capacidad por defecto
+     */
+    public BusEventos( )
+    {
+        this( CAPACIDAD_POR_DEFECTO );
+    }
+
+    /**
+     * Construye un bus
+     * @param capacidad La cantidad de entradas del anillo. Se redondea hacia arriba a una potencia de 2.
+     */
+    public BusEventos( int capacidad )
+    {
+        if( capacidad <= 0 || capacidad > 1 << 30 )
+            throw new IllegalArgumentException( "La capacidad del bus debe ser positiva" );
+
+        int tamano = Integer.highestOneBit( capacidad );
+        if( tamano < capacidad )
+            tamano <<= 1;
+
+        this.entradas = new Evento[tamano];
+        for( int i = 0; i < tamano; i++ )
+            entradas[ i ] = new Evento( );
+        this.mascara = tamano - 1;
+        this.desplazamiento = Integer.numberOfTrailingZeros( tamano );
+        this.reclamada = new AtomicLong( -1 );
+        this.vueltas = new AtomicIntegerArray( tamano );
+        for( int i = 0; i < tamano; i++ )
+            vueltas.set( i, -1 );
+        this.publicada = new AtomicLong( -1 );
+        this.minimoConocido = new AtomicLong( -1 );
+        this.consumidores = new CopyOnWriteArrayList<Consumidor>( );
+        this.errores = new AtomicLong( );
+    }
+
+    public int getCapacidad( )
+    {
+        return entradas.length;
+    }
+
+    /**
+     * Retorna la secuencia del último evento publicado, o -1 si no se ha publicado ninguno. Todos los eventos anteriores también están publicados.
+     * @return
+     */
+    public long getSecuencia( )
+    {
+        long conocida = publicada.get( );
+        long maxima = maximaPublicada( conocida, reclamada.get( ) );
+        if( maxima > conocida )
+            publicada.accumulateAndGet( maxima, Math::max );
+        return maxima;
+    }
+
+    /**
+     * Busca hasta dónde están publicados los eventos a partir de una secuencia
+     * @param desde Una secuencia que ya se sabe que está publicada (o -1)
+     * @param hasta La última secuencia reclamada
+     * @return La mayor secuencia, entre desde y hasta, tal que todos los eventos desde desde hasta ella están publicados
+     */
+    private long maximaPublicada( long desde, long hasta )
+    {
+        for( long secuencia = desde + 1; secuencia <= hasta; secuencia++ )
+        {
+            if( vueltas.get( ( int )secuencia & mascara ) != ( int )( secuencia >>> desplazamiento ) )
+                return secuencia - 1;
+        }
+        return hasta;
+    }
+
+    public long getCantidadErrores( )
+    {
+        return errores.get( );
+    }
+
+    /**
+     * Publica un evento que no es de un tiquete. Ver Evento para el significado de los datos según el tipo.
+     * @return La secuencia del evento
+     */
+    public long publicar( int tipo, String codigoRuta, String fecha, String identificador, String detalle, int cantidad, long valor )
+    {
+        return publicar( tipo, codigoRuta, fecha, identificador, detalle, -1, cantidad, valor );
+    }
+
+    /**
+     * Publica un evento de un tiquete (vendido, cargado o cancelado). Ver Evento para el significado de los datos según el tipo.
+     * @return La secuencia del evento
+     */
+    public long publicarTiquete( int tipo, String codigoRuta, String fecha, String identificador, int codigoTiquete, int cantidad, long valor )
+    {
+        return publicar( tipo, codigoRuta, fecha, identificador, null, codigoTiquete, cantidad, valor );
+    }
+
+    /**
+     * Reclama las secuencias de varios eventos que se van a publicar más adelante con publicarTiquete. Las proyecciones reciben los eventos en el orden de las
+     * secuencias, así que quien reclama con un candado tomado fija el orden de sus eventos aunque los publique después de soltarlo.
+     *
+     * Cada secuencia reclamada se debe publicar: mientras no se publique, las proyecciones no pasan de ella.
+     * @param cantidad La cantidad de eventos
+     * @return La secuencia del primero de los eventos. Los demás tienen las secuencias siguientes.
+     */
+    public long reclamar( int cantidad )
+    {
+        return reclamada.getAndAdd( cantidad ) + 1;
+    }
+
+    /**
+     * Publica un evento de un tiquete cuya secuencia se reclamó antes con reclamar. Ver Evento para el significado de los datos según el tipo.
+     * @param secuencia La secuencia reclamada para el evento
+     */
+    public void publicarTiquete( long secuencia, int tipo, String codigoRuta, String fecha, String identificador, int codigoTiquete, int cantidad, long valor )
+    {
+        escribir( secuencia, tipo, codigoRuta, fecha, identificador, null, codigoTiquete, cantidad, valor );
+    }
+
+    private long publicar( int tipo, String codigoRuta, String fecha, String identificador, String detalle, int codigoTiquete, int cantidad, long valor )
+    {
+        long secuencia = reclamada.incrementAndGet( );
+        escribir( secuencia, tipo, codigoRuta, fecha, identificador, detalle, codigoTiquete, cantidad, valor );
+        return secuencia;
+    }
+
+    private void escribir( long secuencia, int tipo, String codigoRuta, String fecha, String identificador, String detalle, int codigoTiquete, int cantidad, long valor )
+    {
+        esperarEntrada( secuencia );
+        int posicion = ( int )secuencia & mascara;
+        entradas[ posicion ].llenar( secuencia, tipo, codigoRuta, fecha, identificador, detalle, codigoTiquete, cantidad, valor );
+        // La escritura de la vuelta es la que hace visibles los datos de la entrada para los consumidores
+        vueltas.lazySet( posicion, ( int )( secuencia >>> desplazamiento ) );
+    }
+
+    /**
+     * Espera hasta que la entrada que corresponde a una secuencia ya no tenga un evento que alguna proyección no haya procesado (o, sin proyecciones, que no se haya
+     * terminado de publicar)
+     */
+    private void esperarEntrada( long secuencia )
+    {
+        long anterior = secuencia - entradas.length;
+        int intentos = 0;
+        long conocido = minimoConocido.get( );
+        while( anterior > conocido )
+        {
+            long minimo = minimoProcesado( getSecuencia( ) );
+            if( minimo >= anterior )
+            {
+                // Si falla es porque se suscribió una proyección mientras tanto; el mínimo calculado sigue sirviendo para esta secuencia (ver agregarConsumidor)
+                minimoConocido.compareAndSet( conocido, minimo );
+                return;
+            }
+            esperar( intentos++ );
+            conocido = minimoConocido.get( );
+        }
+    }
+
+    /**
+     * Calcula la menor secuencia procesada por las proyecciones suscritas
+     * @param maximo El valor que se retorna si no hay proyecciones suscritas
+     */
+    private long minimoProcesado( long maximo )
+    {
+        long minimo = maximo;
+        for( Consumidor consumidor : consumidores )
+            minimo = Math.min( minimo, consumidor.procesado.get( ) );
+        return minimo;
+    }
+
+    /**
+     * Suscribe una proyección al bus. La proyección recibe todos los eventos que se publiquen desde ahora, desde un hilo de fondo propio.
+     * @param proyeccion La proyección
+     */
+    public synchronized void suscribir( IProyeccion proyeccion )
+    {
+        while( !agregarConsumidor( proyeccion, getSecuencia( ) ) )
+            Thread.yield( );
+    }
+
+    /**
+     * Suscribe una proyección a partir de una secuencia que ya se publicó, si los eventos posteriores a esa secuencia siguen en el anillo.
+     *
+     * Quien publica pudo haber revisado las proyecciones antes de que se agregara esta. Por eso, después de agregarla y de bajar el mínimo conocido, se revisa que
+     * ninguna secuencia reclamada hasta ese momento pueda sobrescribir un evento posterior a desde. Las secuencias que se reclamen después ya tienen en cuenta a la
+     * nueva proyección.
+     * @return Retorna false si algún evento posterior a desde ya se pudo haber sobrescrito. En ese caso la proyección no queda suscrita.
+     */
+    private boolean agregarConsumidor( IProyeccion proyeccion, long desde )
+    {
+        Consumidor consumidor = new Consumidor( proyeccion, desde );
+        consumidores.add( consumidor );
+        long conocido = minimoConocido.get( );
+        while( conocido > desde && !minimoConocido.compareAndSet( conocido, desde ) )
+            conocido = minimoConocido.get( );
+        if( reclamada.get( ) - entradas.length > desde )
+        {
+            consumidores.remove( consumidor );
+            return false;
+        }
+        Thread hilo = new Thread( consumidor, "proyeccion-" + proyeccion.getClass( ).getSimpleName( ) );
+        hilo.setDaemon( true );
+        consumidor.hilo = hilo;
+        hilo.start( );
+        return true;
+    }
+
+    /**
+     * Reconstruye una proyección leyendo un diario de eventos (ver DiarioEventos) y la suscribe al bus para que siga recibiendo los eventos que vienen después de los del
+     * diario.
+     *
+     * El diario se puede estar escribiendo mientras tanto: la lectura se repite hasta que los eventos que faltan en el archivo todavía estén en el anillo. Para que esto
+     * funcione, el diario debe estar suscrito a este mismo bus.
+     * @param proyeccion Una proyección que no está suscrita, normalmente vacía
+     * @param archivoDiario El archivo del diario
+     * @return La secuencia del último evento que se leyó del diario
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el diario
+     */
+    public long reconstruir( IProyeccion proyeccion, String archivoDiario ) throws IOException
+    {
+        long ultima = -1;
+        while( true )
+        {
+            ultima = DiarioEventos.reproducir( archivoDiario, proyeccion, ultima );
+            synchronized( this )
+            {
+                if( ultima > getSecuencia( ) )
+                    throw new IllegalStateException( "El diario " + archivoDiario + " no corresponde a este bus" );
+                if( agregarConsumidor( proyeccion, ultima ) )
+                    return ultima;
+            }
+        }
+    }
+
+    /**
+     * Cancela la suscripción de una proyección y detiene su hilo. Los eventos que la proyección no alcanzó a procesar se pierden para ella.
+     * @param proyeccion La proyección
+     * @return Retorna false si la proyección no estaba suscrita
+     */
+    public boolean cancelarSuscripcion( IProyeccion proyeccion )
+    {
+        for( Consumidor consumidor : consumidores )
+        {
+            if( consumidor.proyeccion == proyeccion )
+            {
+                consumidor.activo = false;
+                consumidores.remove( consumidor );
+                LockSupport.unpark( consumidor.hilo );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Espera hasta que todas las proyecciones suscritas hayan procesado los eventos publicados hasta ahora
+     */
+    public void esperarProyecciones( )
+    {
+        long objetivo = getSecuencia( );
+        int intentos = 0;
+        while( minimoProcesado( objetivo ) < objetivo )
+            esperar( intentos++ );
+    }
+
+    /**
+     * Hace esperar al hilo actual: primero sólo vuelve a intentar, después cede el procesador y al final duerme un rato
+     * @param intentos La cantidad de veces que el hilo ya esperó
+     */
+    private static void esperar( int intentos )
+    {
+        if( intentos < INTENTOS_ACTIVOS )
+            return;
+        else if( intentos < 2 * INTENTOS_ACTIVOS )
+            Thread.yield( );
+        else
+            LockSupport.parkNanos( ESPERA_NANOS );
+    }
+
+    /**
+     * El hilo que entrega los eventos a una proyección
+     */
+    private class Consumidor implements Runnable
+    {
+        private final IProyeccion proyeccion;
+
+        /**
+         * La secuencia del último evento que la proyección terminó de procesar
+         */
+        private final AtomicLong procesado;
+
+        private volatile boolean activo;
+
+        private Thread hilo;
+
+        private Consumidor( IProyeccion proyeccion, long desde )
+        {
+            this.proyeccion = proyeccion;
+            this.procesado = new AtomicLong( desde );
+            this.activo = true;
+        }
+
+        @Override
+        public void run( )
+        {
+            long siguiente = procesado.get( ) + 1;
+            int intentos = 0;
+            while( activo )
+            {
+                long disponible = maximaPublicada( siguiente - 1, reclamada.get( ) );
+                if( disponible < siguiente )
+                {
+                    esperar( intentos++ );
+                    continue;
+                }
+
+                for( ; siguiente <= disponible; siguiente++ )
+                {
+                    try
+                    {
+                        proyeccion.aplicar( entradas[ ( int )siguiente & mascara ] );
+                    }
+                    catch( RuntimeException e )
+                    {
+                        // Una proyección con problemas no debe detener a las demás ni a quien publica
+                        errores.incrementAndGet( );
+                    }
+                }
+                try
+                {
+                    proyeccion.finLote( );
+                }
+                catch( RuntimeException e )
+                {
+                    errores.incrementAndGet( );
+                }
+                procesado.set( disponible );
+                intentos = 0;
+            }
+        }
+    }
+}
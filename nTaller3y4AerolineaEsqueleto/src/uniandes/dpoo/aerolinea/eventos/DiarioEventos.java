@@ -0,0 +1,260 @@
+package uniandes.dpoo.aerolinea.eventos;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Esta proyección escribe en un archivo de texto todos los eventos que recibe, en orden, para poder reconstruir después cualquier otra proyección (ver reproducir y
+ * BusEventos.reconstruir).
+ *
+ * Cada evento ocupa una línea, con sus datos separados por tabuladores: secuencia, tipo, código de la ruta, fecha, identificador, detalle, código del tiquete (con sus 7
+ * dígitos), cantidad y valor. En los textos, los tabuladores, los saltos de línea y las barras invertidas se escriben con una barra invertida adelante (\t, \n, \r, \\), y un valor null se escribe como \N.
+ *
+ * Las líneas se acumulan en un buffer y se escriben en el archivo al final de cada lote de eventos, así que el archivo nunca tiene eventos que el bus no haya
+ * confirmado como procesados por el diario.
+ */
+public class DiarioEventos implements IProyeccion, Closeable
+{
+    private static final char SEPARADOR = '\t';
+
+    private static final String NULO = "\\N";
+
+    private final String archivo;
+
+    private final Writer escritor;
+
+    /**
+     * El primer problema que hubo escribiendo el archivo, o null si no ha habido problemas. Después de un problema el diario deja de escribir.
+     */
+    private volatile IOException error;
+
+    /**
+     * Crea un diario nuevo. Si el archivo ya existía, se reemplaza.
+     * @param archivo La ruta del archivo
+     * @throws IOException Se lanza esta excepción si no se puede crear el archivo
+     */
+    public DiarioEventos( String archivo ) throws IOException
+    {
+        this.archivo = archivo;
+        this.escritor = Files.newBufferedWriter( Paths.get( archivo ), StandardCharsets.UTF_8 );
+    }
+
+    public String getArchivo( )
+    {
+        return archivo;
+    }
+
+    public IOException getError( )
+    {
+        return error;
+    }
+
+    @Override
+    public void aplicar( Evento evento )
+    {
+        if( error != null )
+            return;
+        try
+        {
+            escritor.write( Long.toString( evento.getSecuencia( ) ) );
+            escritor.write( SEPARADOR );
+            escritor.write( Evento.getNombreTipo( evento.getTipo( ) ) );
+            escribirTexto( evento.getCodigoRuta( ) );
+            escribirTexto( evento.getFecha( ) );
+            escribirTexto( evento.getIdentificador( ) );
+            escribirTexto( evento.getDetalle( ) );
+            escritor.write( SEPARADOR );
+            if( evento.getCodigoTiquete( ) < 0 )
+                escritor.write( NULO );
+            else
+                GeneradorTiquetes.escribirCodigo( evento.getCodigoTiquete( ), escritor );
+            escritor.write( SEPARADOR );
+            escritor.write( Integer.toString( evento.getCantidad( ) ) );
+            escritor.write( SEPARADOR );
+            escritor.write( Long.toString( evento.getValor( ) ) );
+            escritor.write( '\n' );
+        }
+        catch( IOException e )
+        {
+            error = e;
+        }
+    }
+
+    private void escribirTexto( String texto ) throws IOException
+    {
+        escritor.write( SEPARADOR );
+        if( texto == null )
+        {
+            escritor.write( NULO );
+            return;
+        }
+        for( int i = 0; i < texto.length( ); i++ )
+        {
+            char c = texto.charAt( i );
+            switch( c )
+            {
+                case '\t':
+                    escritor.write( "\\t" );
+                    break;
+                case '\n':
+                    escritor.write( "\\n" );
+                    break;
+                case '\r':
+                    escritor.write( "\\r" );
+                    break;
+                case '\\':
+                    escritor.write( "\\\\" );
+                    break;
+                default:
+                    escritor.write( c );
+            }
+        }
+    }
+
+    @Override
+    public void finLote( )
+    {
+        if( error != null )
+            return;
+        try
+        {
+            escritor.flush( );
+        }
+        catch( IOException e )
+        {
+            error = e;
+        }
+    }
+
+    /**
+     * Cierra el archivo. El diario debe haber dejado de recibir eventos (ver BusEventos.cancelarSuscripcion).
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        escritor.close( );
+    }
+
+    /**
+     * Lee un diario y le entrega a una proyección, en orden, los eventos que tengan una secuencia mayor a una dada.
+     *
+     * El diario se puede estar escribiendo mientras se lee: una última línea incompleta se ignora.
+     * @param archivo La ruta del archivo del diario
+     * @param proyeccion La proyección que recibe los eventos
+     * @param desde Sólo se entregan los eventos con una secuencia mayor a esta. Para leer todo el diario se usa -1.
+     * @return La secuencia del último evento entregado, o desde si no se entregó ninguno
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo, si una línea no tiene el formato esperado o si faltan eventos en el diario
+     */
+    public static long reproducir( String archivo, IProyeccion proyeccion, long desde ) throws IOException
+    {
+        Evento evento = new Evento( );
+        long ultima = desde;
+        boolean primera = true;
+        try( BufferedReader lector = Files.newBufferedReader( Paths.get( archivo ), StandardCharsets.UTF_8 ) )
+        {
+            StringBuilder linea = new StringBuilder( );
+            char[] buffer = new char[8192];
+            int leidos;
+            while( ( leidos = lector.read( buffer ) ) != -1 )
+            {
+                for( int i = 0; i < leidos; i++ )
+                {
+                    char c = buffer[ i ];
+                    if( c != '\n' )
+                    {
+                        linea.append( c );
+                        continue;
+                    }
+
+                    leerEvento( linea, evento );
+                    linea.setLength( 0 );
+                    long secuencia = evento.getSecuencia( );
+                    if( secuencia <= ultima )
+                    {
+                        primera = false;
+                        continue;
+                    }
+                    if( !primera && secuencia != ultima + 1 )
+                        throw new IOException( "Faltan eventos en el diario " + archivo + " entre las secuencias " + ultima + " y " + secuencia );
+                    proyeccion.aplicar( evento );
+                    ultima = secuencia;
+                    primera = false;
+                }
+            }
+        }
+        proyeccion.finLote( );
+        return ultima;
+    }
+
+    /**
+     * Llena un evento con los datos de una línea del diario
+     */
+    private static void leerEvento( CharSequence linea, Evento evento ) throws IOException
+    {
+        String[] campos = new String[9];
+        StringBuilder campo = new StringBuilder( );
+        int cantidadCampos = 0;
+        boolean escapado = false;
+        boolean nulo = false;
+        for( int i = 0; i <= linea.length( ); i++ )
+        {
+            char c = i < linea.length( ) ? linea.charAt( i ) : SEPARADOR;
+            if( escapado )
+            {
+                escapado = false;
+                if( c == 't' )
+                    campo.append( '\t' );
+                else if( c == 'n' )
+                    campo.append( '\n' );
+                else if( c == 'r' )
+                    campo.append( '\r' );
+                else if( c == 'N' )
+                    nulo = true;
+                else
+                    campo.append( c );
+            }
+            else if( c == '\\' )
+            {
+                escapado = true;
+            }
+            else if( c == SEPARADOR )
+            {
+                if( cantidadCampos == campos.length )
+                    throw new IOException( "La línea del diario tiene demasiados campos: " + linea );
+                campos[ cantidadCampos++ ] = nulo ? null : campo.toString( );
+                campo.setLength( 0 );
+                nulo = false;
+            }
+            else
+            {
+                campo.append( c );
+            }
+        }
+        if( cantidadCampos != campos.length )
+            throw new IOException( "La línea del diario no tiene todos los campos: " + linea );
+
+        int tipo = Evento.getTipo( campos[ 1 ] );
+        if( tipo < 0 )
+            throw new IOException( "Tipo de evento desconocido en el diario: " + campos[ 1 ] );
+        int codigoTiquete = campos[ 6 ] == null ? -1 : GeneradorTiquetes.leerCodigo( campos[ 6 ] );
+        if( campos[ 6 ] != null && codigoTiquete < 0 )
+            throw new IOException( "La línea del diario tiene un código de tiquete inválido: " + linea );
+        try
+        {
+            evento.llenar( Long.parseLong( campos[ 0 ] ), tipo, campos[ 2 ], campos[ 3 ], campos[ 4 ], campos[ 5 ], codigoTiquete, Integer.parseInt( campos[ 7 ] ),
+                    Long.parseLong( campos[ 8 ] ) );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IOException( "La línea del diario tiene un número inválido: " + linea );
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package uniandes.dpoo.aerolinea.eventos;
+
+/**
+ * Esta clase representa un evento de dominio: un cambio en el estado de la aerolínea (una ruta nueva, una venta, una cancelación, etc.).
+ *
+ * Los objetos de esta clase son las entradas del anillo del bus de eventos (BusEventos): se crean una sola vez, cuando se crea el bus, y se reutilizan para todos los
+ * eventos que pasan por la misma posición del anillo. Por eso una proyección no debe guardar una referencia a un evento después de procesarlo; si necesita algún dato
+ * debe copiarlo.
+ *
+ * El significado de los atributos depende del tipo del evento:
+ * <ul>
+ * <li>RUTA_AGREGADA: codigoRuta, y en detalle los códigos de los aeropuertos de origen y destino separados por un guión.</li>
+ * <li>AVION_AGREGADO: identificador es el nombre del avión y cantidad su capacidad.</li>
+ * <li>CLIENTE_AGREGADO: identificador es el identificador del cliente, detalle su tipo, y cantidad el tamaño de la empresa si es un cliente corporativo.</li>
+ * <li>VUELO_PROGRAMADO: codigoRuta y fecha del vuelo, identificador es el nombre del avión y cantidad su capacidad.</li>
+ * <li>TIQUETE_VENDIDO: se publica uno por cada tiquete de una venta. codigoRuta y fecha del vuelo, identificador es el cliente, codigoTiquete es el código del tiquete,
+ * cantidad es 1 y valor es la tarifa.</li>
+ * <li>TIQUETE_CARGADO: un tiquete que se agregó a un vuelo sin venderlo, por ejemplo al cargarlo de un archivo. codigoRuta y fecha del vuelo, identificador es el cliente,
+ * codigoTiquete es el código del tiquete, valor es la tarifa, y cantidad es 1 si el tiquete ya estaba usado o 0 si no.</li>
+ * <li>TIQUETE_CANCELADO: codigoRuta y fecha del vuelo, identificador es el cliente, codigoTiquete es el código del tiquete y valor es la tarifa que se devuelve.</li>
+ * <li>VUELO_REALIZADO: codigoRuta y fecha del vuelo, cantidad es la cantidad de tiquetes que se marcaron como usados.</li>
+ * </ul>
+ * En los eventos que no son de un tiquete, codigoTiquete es -1. El código viaja como número (ver GeneradorTiquetes) para que publicar una venta no tenga que construir
+ * su representación de 7 dígitos.
+ */
+public class Evento
+{
+    public static final int RUTA_AGREGADA = 1;
+    public static final int AVION_AGREGADO = 2;
+    public static final int CLIENTE_AGREGADO = 3;
+    public static final int VUELO_PROGRAMADO = 4;
+    public static final int TIQUETE_VENDIDO = 5;
+    public static final int TIQUETE_CARGADO = 6;
+    public static final int TIQUETE_CANCELADO = 7;
+    public static final int VUELO_REALIZADO = 8;
+
+    /**
+     * Los nombres de los tipos de evento, en la posición que corresponde a cada tipo
+     */
+    private static final String[] NOMBRES = { null, "RUTA_AGREGADA", "AVION_AGREGADO", "CLIENTE_AGREGADO", "VUELO_PROGRAMADO", "TIQUETE_VENDIDO", "TIQUETE_CARGADO",
+            "TIQUETE_CANCELADO", "VUELO_REALIZADO" };
+
+    /**
+     * La posición del evento en el flujo de eventos del bus. Empieza en 0 y aumenta de uno en uno.
+     */
+    private long secuencia;
+
+    private int tipo;
+    private String codigoRuta;
+    private String fecha;
+    private String identificador;
+    private String detalle;
+    private int codigoTiquete;
+    private int cantidad;
+    private long valor;
+
+    /**
+     * Construye una entrada vacía. La usan el bus para su anillo y quienes leen eventos de un archivo o de la red, que reutilizan una misma entrada para todos.
+     */
+    public Evento( )
+    {
+        this.secuencia = -1;
+        this.codigoTiquete = -1;
+    }
+
+    /**
+     * Reemplaza todos los datos de la entrada
+     */
+    public void llenar( long secuencia, int tipo, String codigoRuta, String fecha, String identificador, String detalle, int codigoTiquete, int cantidad, long valor )
+    {
+        this.secuencia = secuencia;
+        this.tipo = tipo;
+        this.codigoRuta = codigoRuta;
+        this.fecha = fecha;
+        this.identificador = identificador;
+        this.detalle = detalle;
+        this.codigoTiquete = codigoTiquete;
+        this.cantidad = cantidad;
+        this.valor = valor;
+    }
+
+    public long getSecuencia( )
+    {
+        return secuencia;
+    }
+
+    public int getTipo( )
+    {
+        return tipo;
+    }
+
+    public String getCodigoRuta( )
+    {
+        return codigoRuta;
+    }
+
+    public String getFecha( )
+    {
+        return fecha;
+    }
+
+    public String getIdentificador( )
+    {
+        return identificador;
+    }
+
+    public String getDetalle( )
+    {
+        return detalle;
+    }
+
+    /**
+     * Retorna el código del tiquete del evento, o -1 si el evento no es de un tiquete
+     * @return
+     */
+    public int getCodigoTiquete( )
+    {
+        return codigoTiquete;
+    }
+
+    public int getCantidad( )
+    {
+        return cantidad;
+    }
+
+    public long getValor( )
+    {
+        return valor;
+    }
+
+    /**
+     * Retorna el nombre de un tipo de evento
+     * @param tipo El tipo del evento
+     * @return El nombre, o null si el tipo no existe
+     */
+    public static String getNombreTipo( int tipo )
+    {
+        return tipo > 0 && tipo < NOMBRES.length ? NOMBRES[ tipo ] : null;
+    }
+
+    /**
+     * Busca el tipo de evento que tiene un nombre
+     * @param nombre El nombre del tipo
+     * @return El tipo, o -1 si no hay un tipo con ese nombre
+     */
+    public static int getTipo( String nombre )
+    {
+        for( int i = 1; i < NOMBRES.length; i++ )
+        {
+            if( NOMBRES[ i ].equals( nombre ) )
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString( )
+    {
+        return secuencia + " " + getNombreTipo( tipo ) + " " + codigoRuta + " " + fecha + " " + identificador + " " + detalle + " " + codigoTiquete + " " + cantidad + " " + valor;
+    }
+}
@@ -0,0 +1,27 @@
+package uniandes.dpoo.aerolinea.eventos;
+
+/**
+ * Esta interfaz la implementan los objetos que construyen una vista derivada del estado de la aerolínea (saldos, ocupación, índices, el diario de eventos) a partir del
+ * flujo de eventos.
+ *
+ * Cuando una proyección se suscribe a un bus (BusEventos), el bus le entrega los eventos en orden desde un hilo propio de la proyección, así que los métodos de esta
+ * interfaz nunca se llaman desde dos hilos a la vez. Si otros hilos consultan el estado de la proyección, la proyección debe publicarlo de forma segura.
+ */
+public interface IProyeccion
+{
+    /**
+     * Actualiza la proyección con un evento.
+     *
+     * El evento es una entrada del anillo del bus que se va a reutilizar: no se debe guardar una referencia al evento después de que este método termine.
+     * @param evento El evento
+     */
+    public void aplicar( Evento evento );
+
+    /**
+     * Se llama después de aplicar un grupo de eventos, cuando la proyección alcanzó el último evento publicado. Sirve, por ejemplo, para escribir en disco lo que se
+     * acumuló en un buffer.
+     */
+    public default void finLote( )
+    {
+    }
+}
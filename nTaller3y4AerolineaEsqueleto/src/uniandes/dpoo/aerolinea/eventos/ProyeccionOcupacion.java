@@ -0,0 +1,87 @@
+package uniandes.dpoo.aerolinea.eventos;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Esta proyección mantiene el factor de ocupación de cada vuelo: la cantidad de tiquetes vendidos sobre la capacidad del avión.
+ */
+public class ProyeccionOcupacion implements IProyeccion
+{
+    /**
+     * La ocupación de cada vuelo. La llave es el código de la ruta y la fecha del vuelo.
+     */
+    private final Map<String, Ocupacion> vuelos;
+
+    public ProyeccionOcupacion( )
+    {
+        this.vuelos = new ConcurrentHashMap<String, Ocupacion>( );
+    }
+
+    @Override
+    public void aplicar( Evento evento )
+    {
+        switch( evento.getTipo( ) )
+        {
+            case Evento.VUELO_PROGRAMADO:
+                ocupacion( evento ).capacidad = evento.getCantidad( );
+                break;
+            case Evento.TIQUETE_VENDIDO:
+                ocupacion( evento ).vendidos += evento.getCantidad( );
+                break;
+            case Evento.TIQUETE_CARGADO:
+                ocupacion( evento ).vendidos++;
+                break;
+            case Evento.TIQUETE_CANCELADO:
+                ocupacion( evento ).vendidos--;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Ocupacion ocupacion( Evento evento )
+    {
+        return vuelos.computeIfAbsent( llaveVuelo( evento.getCodigoRuta( ), evento.getFecha( ) ), v -> new Ocupacion( ) );
+    }
+
+    private static String llaveVuelo( String codigoRuta, String fecha )
+    {
+        return codigoRuta + "|" + fecha;
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes vendidos en un vuelo según los eventos procesados hasta ahora
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param fecha La fecha del vuelo
+     * @return
+     */
+    public int getTiquetesVendidos( String codigoRuta, String fecha )
+    {
+        Ocupacion ocupacion = vuelos.get( llaveVuelo( codigoRuta, fecha ) );
+        return ocupacion == null ? 0 : ocupacion.vendidos;
+    }
+
+    /**
+     * Retorna el factor de ocupación de un vuelo según los eventos procesados hasta ahora
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param fecha La fecha del vuelo
+     * @return Los tiquetes vendidos sobre la capacidad del avión. Puede ser mayor a 1 si la ruta permite sobreventa. Si no se conoce el vuelo, retorna 0.
+     */
+    public double getFactorOcupacion( String codigoRuta, String fecha )
+    {
+        Ocupacion ocupacion = vuelos.get( llaveVuelo( codigoRuta, fecha ) );
+        if( ocupacion == null || ocupacion.capacidad == 0 )
+            return 0;
+        return ( double )ocupacion.vendidos / ocupacion.capacidad;
+    }
+
+    /**
+     * La ocupación de un vuelo. Sólo el hilo de la proyección la modifica; los demás hilos la leen.
+     */
+    private static class Ocupacion
+    {
+        private volatile int capacidad;
+        private volatile int vendidos;
+    }
+}
@@ -0,0 +1,81 @@
+package uniandes.dpoo.aerolinea.eventos;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Esta proyección mantiene el saldo pendiente de cada cliente: el valor de sus tiquetes que todavía no se han usado.
+ *
+ * Las ventas y los tiquetes cargados sin usar suman al saldo, las cancelaciones restan, y cuando un vuelo se realiza se resta lo que cada cliente tenía en ese vuelo. Para
+ * esto último la proyección lleva, por vuelo, el valor pendiente de cada cliente.
+ */
+public class ProyeccionSaldos implements IProyeccion
+{
+    /**
+     * Los saldos pendientes, por identificador de cliente. Se puede consultar desde cualquier hilo.
+     */
+    private final Map<String, Long> saldos;
+
+    /**
+     * Para cada vuelo que no se ha realizado (la llave es el código de la ruta y la fecha), el valor pendiente de cada cliente. Sólo lo usa el hilo de la proyección.
+     */
+    private final Map<String, Map<String, Long>> pendientesPorVuelo;
+
+    public ProyeccionSaldos( )
+    {
+        this.saldos = new ConcurrentHashMap<String, Long>( );
+        this.pendientesPorVuelo = new HashMap<String, Map<String, Long>>( );
+    }
+
+    @Override
+    public void aplicar( Evento evento )
+    {
+        switch( evento.getTipo( ) )
+        {
+            case Evento.TIQUETE_VENDIDO:
+                sumar( evento, evento.getValor( ) );
+                break;
+            case Evento.TIQUETE_CARGADO:
+                if( evento.getCantidad( ) == 0 )
+                    sumar( evento, evento.getValor( ) );
+                break;
+            case Evento.TIQUETE_CANCELADO:
+                sumar( evento, -evento.getValor( ) );
+                break;
+            case Evento.VUELO_REALIZADO:
+                Map<String, Long> pendientes = pendientesPorVuelo.remove( llaveVuelo( evento ) );
+                if( pendientes != null )
+                {
+                    for( Map.Entry<String, Long> pendiente : pendientes.entrySet( ) )
+                        saldos.merge( pendiente.getKey( ), -pendiente.getValue( ), Long::sum );
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void sumar( Evento evento, long valor )
+    {
+        String cliente = evento.getIdentificador( );
+        saldos.merge( cliente, valor, Long::sum );
+        pendientesPorVuelo.computeIfAbsent( llaveVuelo( evento ), v -> new HashMap<String, Long>( ) ).merge( cliente, valor, Long::sum );
+    }
+
+    private static String llaveVuelo( Evento evento )
+    {
+        return evento.getCodigoRuta( ) + "|" + evento.getFecha( );
+    }
+
+    /**
+     * Retorna el saldo pendiente de un cliente según los eventos procesados hasta ahora
+     * @param identificadorCliente El identificador del cliente
+     * @return El valor de los tiquetes sin usar del cliente, o 0 si el cliente no tiene tiquetes
+     */
+    public long getSaldoPendiente( String identificadorCliente )
+    {
+        Long saldo = saldos.get( identificadorCliente );
+        return saldo == null ? 0 : saldo;
+    }
+}
@@ -0,0 +1,47 @@
+package uniandes.dpoo.aerolinea.exceptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esta excepción se usa para reportar, al final de la carga de un archivo, todas las inconsistencias que se encontraron en él.
+ */
+@SuppressWarnings("serial")
+public class CargaInconsistenteException extends InformacionInconsistenteException
+{
+    /**
+     * La cantidad máxima de inconsistencias que se incluyen en el mensaje de la excepción
+     */
+    private static final int ERRORES_EN_MENSAJE = 20;
+
+    /**
+     * La descripción de cada una de las inconsistencias encontradas, en el orden en el que se encontraron
+     */
+    private List<String> errores;
+
+    public CargaInconsistenteException( List<String> errores )
+    {
+        super( construirMensaje( errores ) );
+        this.errores = new ArrayList<String>( errores );
+    }
+
+    private static String construirMensaje( List<String> errores )
+    {
+        StringBuilder mensaje = new StringBuilder( "Se encontraron " + errores.size( ) + " inconsistencias:" );
+        for( int i = 0; i < errores.size( ) && i < ERRORES_EN_MENSAJE; i++ )
+            mensaje.append( "\n - " ).append( errores.get( i ) );
+        if( errores.size( ) > ERRORES_EN_MENSAJE )
+            mensaje.append( "\n - ... y " ).append( errores.size( ) - ERRORES_EN_MENSAJE ).append( " más" );
+        return mensaje.toString( );
+    }
+
+    /**
+     * Retorna la descripción de todas las inconsistencias encontradas
+     * @return
+     */
+    public List<String> getErrores( )
+    {
+        return Collections.unmodifiableList( errores );
+    }
+}
@@ -1,6 +1,6 @@
 package uniandes.dpoo.aerolinea.exceptions;
 
-import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
 
 /**
  * Esta clase se usa para anunciar que se intentó vender un tiquete para un vuelo que ya está lleno
@@ -9,9 +9,9 @@ import uniandes.dpoo.aerolinea.modelo.Vuelo;
 public class VueloSobrevendidoException extends Exception
 {
 
-    public VueloSobrevendidoException( String string )
+    public VueloSobrevendidoException( Vuelos vuelo )
     {
-        super( "El vuelo " + string.getRuta( ).getCodigoRuta( ) + " del " + string.getFecha( ) + " no tiene cupo" );
+        super( "El vuelo " + vuelo.getRuta( ).getCodigoRuta( ) + " del " + vuelo.getFecha( ) + " no tiene cupo" );
     }
 
 }
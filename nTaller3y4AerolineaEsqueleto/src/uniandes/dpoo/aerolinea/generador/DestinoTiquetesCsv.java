@@ -0,0 +1,84 @@
+package uniandes.dpoo.aerolinea.generador;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.persistencia.PersistenciaTiquetesCsv;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Escribe los clientes y tiquetes generados en el formato de PersistenciaTiquetesCsv, una línea a la vez
+ */
+public class DestinoTiquetesCsv implements IDestinoTiquetes
+{
+    private static final char SEPARADOR = ( char )PersistenciaTiquetesCsv.SEPARADOR;
+
+    private final Writer salida;
+
+    /**
+     * Crea el archivo y escribe su encabezado
+     * @param archivo La ruta al archivo
+     * @throws IOException Se lanza esta excepción si no se puede crear el archivo
+     */
+    public DestinoTiquetesCsv( String archivo ) throws IOException
+    {
+        salida = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( archivo ), StandardCharsets.UTF_8 ), 1 << 16 );
+        salida.write( PersistenciaTiquetesCsv.ENCABEZADO );
+        salida.write( '\n' );
+    }
+
+    @Override
+    public void agregarClienteNatural( String nombre ) throws IOException
+    {
+        salida.write( PersistenciaTiquetesCsv.REGISTRO_CLIENTE );
+        salida.write( SEPARADOR );
+        salida.write( ClienteNatural.NATURAL );
+        salida.write( SEPARADOR );
+        salida.write( nombre );
+        salida.write( '\n' );
+    }
+
+    @Override
+    public void agregarClienteCorporativo( String nombreEmpresa, int tamanoEmpresa ) throws IOException
+    {
+        salida.write( PersistenciaTiquetesCsv.REGISTRO_CLIENTE );
+        salida.write( SEPARADOR );
+        salida.write( ClienteCorporativo.CORPORATIVO );
+        salida.write( SEPARADOR );
+        salida.write( nombreEmpresa );
+        salida.write( SEPARADOR );
+        salida.write( Integer.toString( tamanoEmpresa ) );
+        salida.write( '\n' );
+    }
+
+    @Override
+    public void agregarTiquete( String codigoRuta, String fecha, int codigoTiquete, int tarifa, boolean usado, String identificadorCliente ) throws IOException
+    {
+        salida.write( PersistenciaTiquetesCsv.REGISTRO_TIQUETE );
+        salida.write( SEPARADOR );
+        salida.write( codigoRuta );
+        salida.write( SEPARADOR );
+        salida.write( fecha );
+        salida.write( SEPARADOR );
+        GeneradorTiquetes.escribirCodigo( codigoTiquete, salida );
+        salida.write( SEPARADOR );
+        salida.write( Integer.toString( tarifa ) );
+        salida.write( SEPARADOR );
+        salida.write( usado ? "true" : "false" );
+        salida.write( SEPARADOR );
+        salida.write( identificadorCliente );
+        salida.write( '\n' );
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        salida.close( );
+    }
+}
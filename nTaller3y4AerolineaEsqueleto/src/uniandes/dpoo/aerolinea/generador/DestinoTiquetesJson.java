@@ -0,0 +1,131 @@
+package uniandes.dpoo.aerolinea.generador;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONObject;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.persistencia.PersistenciaTiquetesJson;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Escribe los clientes y tiquetes generados con el mismo esquema JSON de PersistenciaTiquetesJson.
+ *
+ * El documento se escribe a medida que llegan los clientes y los tiquetes, sin construir nunca un JSONObject con todo su contenido, así que la memoria que se usa no
+ * depende de la cantidad de datos.
+ */
+public class DestinoTiquetesJson implements IDestinoTiquetes
+{
+    private static final int CLIENTES = 0;
+    private static final int TIQUETES = 1;
+
+    private final Writer salida;
+
+    /**
+     * El arreglo que se está escribiendo: CLIENTES o TIQUETES
+     */
+    private int seccion;
+
+    /**
+     * Indica si ya se escribió algún elemento en el arreglo actual
+     */
+    private boolean hayElementos;
+
+    /**
+     * Crea el archivo y abre el arreglo de clientes
+     * @param archivo La ruta al archivo
+     * @throws IOException Se lanza esta excepción si no se puede crear el archivo
+     */
+    public DestinoTiquetesJson( String archivo ) throws IOException
+    {
+        salida = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( archivo ), StandardCharsets.UTF_8 ), 1 << 16 );
+        salida.write( "{\n  \"clientes\": [" );
+        seccion = CLIENTES;
+    }
+
+    @Override
+    public void agregarClienteNatural( String nombre ) throws IOException
+    {
+        iniciarElemento( CLIENTES );
+        escribirPropiedad( PersistenciaTiquetesJson.TIPO_CLIENTE, ClienteNatural.NATURAL, true );
+        escribirPropiedad( PersistenciaTiquetesJson.NOMBRE_CLIENTE, nombre, false );
+        salida.write( '}' );
+    }
+
+    @Override
+    public void agregarClienteCorporativo( String nombreEmpresa, int tamanoEmpresa ) throws IOException
+    {
+        // Las llaves son las mismas que usa ClienteCorporativo.salvarEnJSON
+        iniciarElemento( CLIENTES );
+        escribirPropiedad( PersistenciaTiquetesJson.TIPO_CLIENTE, ClienteCorporativo.CORPORATIVO, true );
+        escribirPropiedad( "nombreEmpresa", nombreEmpresa, false );
+        salida.write( ", \"tamanoEmpresa\": " );
+        salida.write( Integer.toString( tamanoEmpresa ) );
+        salida.write( '}' );
+    }
+
+    @Override
+    public void agregarTiquete( String codigoRuta, String fecha, int codigoTiquete, int tarifa, boolean usado, String identificadorCliente ) throws IOException
+    {
+        iniciarElemento( TIQUETES );
+        escribirPropiedad( PersistenciaTiquetesJson.CODIGO_RUTA, codigoRuta, true );
+        escribirPropiedad( PersistenciaTiquetesJson.FECHA, fecha, false );
+        salida.write( ", \"" + PersistenciaTiquetesJson.CODIGO_TIQUETE + "\": \"" );
+        GeneradorTiquetes.escribirCodigo( codigoTiquete, salida );
+        salida.write( '"' );
+        salida.write( ", \"" + PersistenciaTiquetesJson.TARIFA + "\": " );
+        salida.write( Integer.toString( tarifa ) );
+        salida.write( ", \"" + PersistenciaTiquetesJson.USADO + "\": " );
+        salida.write( usado ? "true" : "false" );
+        escribirPropiedad( PersistenciaTiquetesJson.CLIENTE, identificadorCliente, false );
+        salida.write( '}' );
+    }
+
+    /**
+     * Escribe lo necesario antes de un nuevo elemento de un arreglo. Si el elemento es el primer tiquete, primero cierra el arreglo de clientes.
+     */
+    private void iniciarElemento( int seccionElemento ) throws IOException
+    {
+        if( seccionElemento != seccion )
+        {
+            if( seccionElemento < seccion )
+                throw new IllegalStateException( "Los clientes se deben agregar antes que los tiquetes" );
+            cerrarSeccion( );
+            salida.write( ",\n  \"tiquetes\": [" );
+            seccion = seccionElemento;
+            hayElementos = false;
+        }
+        salida.write( hayElementos ? ",\n    {" : "\n    {" );
+        hayElementos = true;
+    }
+
+    private void cerrarSeccion( ) throws IOException
+    {
+        salida.write( hayElementos ? "\n  ]" : "]" );
+    }
+
+    private void escribirPropiedad( String llave, String valor, boolean primera ) throws IOException
+    {
+        if( !primera )
+            salida.write( ", " );
+        salida.write( JSONObject.quote( llave ) );
+        salida.write( ": " );
+        salida.write( JSONObject.quote( valor ) );
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        cerrarSeccion( );
+        if( seccion == CLIENTES )
+            salida.write( ",\n  \"tiquetes\": []" );
+        salida.write( "\n}\n" );
+        salida.close( );
+    }
+}
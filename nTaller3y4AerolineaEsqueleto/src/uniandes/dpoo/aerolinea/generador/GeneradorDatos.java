@@ -0,0 +1,433 @@
+package uniandes.dpoo.aerolinea.generador;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.persistencia.PersistenciaAerolineaPlaintext;
+import uniandes.dpoo.aerolinea.tarifas.CalculadoraTarifas;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Esta clase genera datos sintéticos de una aerolínea para hacer pruebas de carga: aeropuertos, aviones, rutas, una temporada de vuelos, clientes y tiquetes.
+ *
+ * Los datos dependen únicamente de la semilla y de los tamaños pedidos, así que dos ejecuciones con los mismos parámetros producen exactamente los mismos archivos.
+ *
+ * La estructura de la aerolínea se escribe en el formato de PersistenciaAerolineaPlaintext. Los clientes y los tiquetes se envían a uno o varios destinos
+ * (IDestinoTiquetes) a medida que se generan: ni los clientes ni los tiquetes se guardan en memoria, así que se pueden generar millones de ellos con memoria constante.
+ * Lo único que se guarda es la información de las rutas, que es pequeña.
+ *
+ * Los aeropuertos salen de una tabla de aeropuertos reales, con sus coordenadas, para que las distancias (y por lo tanto las tarifas) sean realistas. Si se piden más
+ * aeropuertos de los que hay en la tabla, los demás se ubican cerca de alguno de los reales.
+ */
+public class GeneradorDatos
+{
+    /**
+     * Los aeropuertos reales: código;nombre;ciudad;latitud;longitud
+     */
+    private static final String[] AEROPUERTOS = { "BOG;El Dorado;Bogota;4.7016;-74.1469", "MDE;Jose Maria Cordova;Medellin;6.1645;-75.4231",
+            "CLO;Alfonso Bonilla Aragon;Cali;3.5432;-76.3816", "CTG;Rafael Nunez;Cartagena;10.4424;-75.5130", "BAQ;Ernesto Cortissoz;Barranquilla;10.8896;-74.7808",
+            "SMR;Simon Bolivar;Santa Marta;11.1196;-74.2306", "BGA;Palonegro;Bucaramanga;7.1265;-73.1848", "PEI;Matecana;Pereira;4.8127;-75.7395",
+            "ADZ;Gustavo Rojas Pinilla;San Andres;12.5836;-81.7112", "LET;Alfredo Vasquez Cobo;Leticia;-4.1935;-69.9432", "UIO;Mariscal Sucre;Quito;-0.1292;-78.3575",
+            "GYE;Jose Joaquin de Olmedo;Guayaquil;-2.1574;-79.8836", "LIM;Jorge Chavez;Lima;-12.0219;-77.1143", "SCL;Arturo Merino Benitez;Santiago;-33.3930;-70.7858",
+            "EZE;Ministro Pistarini;Buenos Aires;-34.8222;-58.5358", "GRU;Guarulhos;Sao Paulo;-23.4356;-46.4731", "GIG;Galeao;Rio de Janeiro;-22.8100;-43.2506",
+            "CCS;Simon Bolivar;Caracas;10.6031;-66.9906", "PTY;Tocumen;Panama;9.0714;-79.3835", "SJO;Juan Santamaria;San Jose;9.9939;-84.2088",
+            "MEX;Benito Juarez;Ciudad de Mexico;19.4363;-99.0721", "CUN;Cancun;Cancun;21.0365;-86.8771", "MIA;Miami;Miami;25.7959;-80.2870",
+            "FLL;Fort Lauderdale;Fort Lauderdale;26.0742;-80.1506", "MCO;Orlando;Orlando;28.4312;-81.3081", "JFK;John F. Kennedy;Nueva York;40.6413;-73.7781",
+            "ATL;Hartsfield-Jackson;Atlanta;33.6407;-84.4277", "IAH;George Bush;Houston;29.9902;-95.3368", "LAX;Los Angeles;Los Angeles;33.9416;-118.4085",
+            "YYZ;Pearson;Toronto;43.6777;-79.6248", "MAD;Barajas;Madrid;40.4983;-3.5676", "BCN;El Prat;Barcelona;41.2974;2.0833",
+            "CDG;Charles de Gaulle;Paris;49.0097;2.5479", "LHR;Heathrow;Londres;51.4700;-0.4543", "FRA;Frankfurt;Frankfurt;50.0379;8.5622",
+            "AMS;Schiphol;Amsterdam;52.3105;4.7683", "FCO;Fiumicino;Roma;41.8003;12.2389", "LIS;Humberto Delgado;Lisboa;38.7742;-9.1342",
+            "IST;Estambul;Estambul;41.2753;28.7519", "DXB;Dubai;Dubai;25.2532;55.3657" };
+
+    /**
+     * Los modelos de avión de la flota: los primeros se usan en rutas cortas y los últimos en rutas largas
+     */
+    private static final String[] MODELOS = { "E190", "B737", "A320", "B787", "A330" };
+    private static final int[] CAPACIDADES = { 100, 160, 180, 250, 290 };
+
+    /**
+     * La distancia, en kilómetros, a partir de la cual una ruta se vuela con aviones de fuselaje ancho
+     */
+    private static final int DISTANCIA_RUTA_LARGA = 2500;
+
+    /**
+     * La cantidad máxima de tiquetes: los códigos de tiquete tienen 7 dígitos
+     */
+    public static final long MAXIMO_TIQUETES = GeneradorTiquetes.CANTIDAD_CODIGOS;
+
+    /**
+     * Un número primo relativo con 10^7. Multiplicar el número de un tiquete por este número (módulo 10^7) produce códigos distintos que no se ven consecutivos.
+     */
+    private static final long MULTIPLICADOR_CODIGOS = 7654321L;
+
+    /**
+     * Cada cuántos clientes hay un cliente corporativo
+     */
+    private static final int PERIODO_CORPORATIVOS = 4;
+
+    private final long semilla;
+    private final int cantidadAeropuertos;
+    private final int cantidadRutas;
+    private final LocalDate fechaInicial;
+    private final int dias;
+    private final int cantidadClientes;
+    private final long cantidadTiquetes;
+
+    // La información de las rutas, indexada por el número de la ruta
+    private final String[] codigosRutas;
+    private final int[] distancias;
+    private final int[] capacidades;
+    private final int[] modelos;
+
+    /**
+     * Las líneas AEROPUERTO, AVION y RUTA del archivo de la aerolínea
+     */
+    private final List<String> registrosEstructura;
+
+    /**
+     * Prepara un generador. La información de las rutas se calcula en este momento; los vuelos, clientes y tiquetes se generan al escribirlos.
+     * @param semilla La semilla de los números aleatorios
+     * @param cantidadAeropuertos La cantidad de aeropuertos (al menos 2)
+     * @param cantidadRutas La cantidad de rutas. Cada ruta tiene su propio avión.
+     * @param fechaInicial La fecha del primer día de la temporada
+     * @param dias La cantidad de días de la temporada. Cada ruta tiene un vuelo cada día.
+     * @param cantidadClientes La cantidad de clientes (al menos 1 si hay tiquetes)
+     * @param cantidadTiquetes La cantidad de tiquetes. Si es mayor que la cantidad de sillas de todos los vuelos, se genera un tiquete por silla.
+     */
+    public GeneradorDatos( long semilla, int cantidadAeropuertos, int cantidadRutas, LocalDate fechaInicial, int dias, int cantidadClientes, long cantidadTiquetes )
+    {
+        if( cantidadAeropuertos < 2 || cantidadRutas < 0 || dias < 0 || cantidadClientes < 0 || cantidadTiquetes < 0 )
+            throw new IllegalArgumentException( "Los tamaños de los datos no son válidos" );
+        if( cantidadTiquetes > MAXIMO_TIQUETES )
+            throw new IllegalArgumentException( "No se pueden generar más de " + MAXIMO_TIQUETES + " tiquetes" );
+        if( cantidadTiquetes > 0 && cantidadClientes == 0 )
+            throw new IllegalArgumentException( "Se necesita al menos un cliente para generar tiquetes" );
+
+        this.semilla = semilla;
+        this.cantidadAeropuertos = cantidadAeropuertos;
+        this.cantidadRutas = cantidadRutas;
+        this.fechaInicial = fechaInicial;
+        this.dias = dias;
+        this.cantidadClientes = cantidadClientes;
+        this.codigosRutas = new String[cantidadRutas];
+        this.distancias = new int[cantidadRutas];
+        this.capacidades = new int[cantidadRutas];
+        this.modelos = new int[cantidadRutas];
+        this.registrosEstructura = new ArrayList<String>( );
+        generarEstructura( new SplittableRandom( semilla ) );
+
+        long sillas = 0;
+        for( int capacidad : capacidades )
+            sillas += capacidad;
+        this.cantidadTiquetes = Math.min( cantidadTiquetes, sillas * dias );
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes que realmente se generan
+     * @return
+     */
+    public long getCantidadTiquetes( )
+    {
+        return cantidadTiquetes;
+    }
+
+    // ************************************************************************************
+    //
+    // Estructura de la aerolínea
+    //
+    // ************************************************************************************
+
+    /**
+     * Genera los aeropuertos, las rutas y los aviones
+     */
+    private void generarEstructura( SplittableRandom aleatorio )
+    {
+        String separador = String.valueOf( ( char )PersistenciaAerolineaPlaintext.SEPARADOR );
+        String[] codigos = new String[cantidadAeropuertos];
+        double[] latitudes = new double[cantidadAeropuertos];
+        double[] longitudes = new double[cantidadAeropuertos];
+
+        Set<String> codigosReales = new HashSet<String>( );
+        for( String aeropuerto : AEROPUERTOS )
+            codigosReales.add( aeropuerto.substring( 0, 3 ) );
+
+        int siguienteCodigo = 0;
+        for( int i = 0; i < cantidadAeropuertos; i++ )
+        {
+            String[] real = AEROPUERTOS[ i % AEROPUERTOS.length ].split( ";" );
+            String nombre = real[ 1 ];
+            String ciudad = real[ 2 ];
+            latitudes[ i ] = Double.parseDouble( real[ 3 ] );
+            longitudes[ i ] = Double.parseDouble( real[ 4 ] );
+            if( i < AEROPUERTOS.length )
+            {
+                codigos[ i ] = real[ 0 ];
+            }
+            else
+            {
+                // Un aeropuerto sintético a menos de 2 grados de un aeropuerto real
+                do
+                {
+                    codigos[ i ] = codigoSintetico( siguienteCodigo++ );
+                } while( codigosReales.contains( codigos[ i ] ) );
+                nombre = "Regional " + codigos[ i ];
+                ciudad = ciudad + " " + ( i / AEROPUERTOS.length );
+                latitudes[ i ] += aleatorio.nextDouble( -2, 2 );
+                longitudes[ i ] += aleatorio.nextDouble( -2, 2 );
+            }
+            registrosEstructura.add( PersistenciaAerolineaPlaintext.AEROPUERTO + separador + codigos[ i ] + separador + nombre + separador + ciudad + separador
+                    + redondear( latitudes[ i ] ) + separador + redondear( longitudes[ i ] ) );
+        }
+
+        List<String> rutas = new ArrayList<String>( cantidadRutas );
+        for( int r = 0; r < cantidadRutas; r++ )
+        {
+            int origen = aleatorio.nextInt( cantidadAeropuertos );
+            int destino = aleatorio.nextInt( cantidadAeropuertos - 1 );
+            if( destino >= origen )
+                destino++;
+
+            codigosRutas[ r ] = Integer.toString( 1000 + r );
+            distancias[ r ] = Aeropuerto.calcularDistancia( latitudes[ origen ], longitudes[ origen ], latitudes[ destino ], longitudes[ destino ] );
+
+            int primerModelo = distancias[ r ] < DISTANCIA_RUTA_LARGA ? 0 : 3;
+            modelos[ r ] = primerModelo + aleatorio.nextInt( distancias[ r ] < DISTANCIA_RUTA_LARGA ? 3 : 2 );
+            capacidades[ r ] = CAPACIDADES[ modelos[ r ] ];
+            registrosEstructura.add( PersistenciaAerolineaPlaintext.AVION + separador + nombreAvion( r ) + separador + capacidades[ r ] );
+
+            // Salidas entre las 5:00 y las 22:55, y una velocidad promedio de 800 km/h más media hora de despegue y aterrizaje
+            int salida = 5 * 60 + 5 * aleatorio.nextInt( 18 * 12 );
+            int llegada = ( salida + 30 + distancias[ r ] * 60 / 800 ) % ( 24 * 60 );
+            rutas.add( PersistenciaAerolineaPlaintext.RUTA + separador + codigosRutas[ r ] + separador + codigos[ origen ] + separador + codigos[ destino ] + separador
+                    + formatearHora( salida ) + separador + formatearHora( llegada ) );
+        }
+        // Los aviones van antes que las rutas en el archivo
+        registrosEstructura.addAll( rutas );
+    }
+
+    /**
+     * Construye un código de tres letras a partir de un número
+     */
+    private static String codigoSintetico( int numero )
+    {
+        char[] letras = new char[3];
+        for( int i = 2; i >= 0; i-- )
+        {
+            letras[ i ] = ( char )( 'A' + numero % 26 );
+            numero /= 26;
+        }
+        return new String( letras );
+    }
+
+    private static String redondear( double coordenada )
+    {
+        return Double.toString( Math.round( coordenada * 10000 ) / 10000.0 );
+    }
+
+    private static String formatearHora( int minutos )
+    {
+        int horas = minutos / 60;
+        int resto = minutos % 60;
+        return ( horas < 10 ? "0" : "" ) + horas + ( resto < 10 ? "0" : "" ) + resto;
+    }
+
+    private String nombreAvion( int ruta )
+    {
+        return MODELOS[ modelos[ ruta ] ] + "-" + codigosRutas[ ruta ];
+    }
+
+    /**
+     * Escribe la estructura de la aerolínea (aeropuertos, aviones, rutas y vuelos) en el formato de PersistenciaAerolineaPlaintext
+     * @param archivo La ruta al archivo
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public void generarAerolinea( String archivo ) throws IOException
+    {
+        char separador = ( char )PersistenciaAerolineaPlaintext.SEPARADOR;
+        try( Writer salida = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( archivo ), StandardCharsets.UTF_8 ), 1 << 16 ) )
+        {
+            salida.write( PersistenciaAerolineaPlaintext.ENCABEZADO );
+            salida.write( '\n' );
+            salida.write( "# generado con semilla " + semilla + "\n" );
+            for( String registro : registrosEstructura )
+            {
+                salida.write( registro );
+                salida.write( '\n' );
+            }
+
+            String[] aviones = new String[cantidadRutas];
+            for( int r = 0; r < cantidadRutas; r++ )
+                aviones[ r ] = nombreAvion( r );
+            for( int d = 0; d < dias; d++ )
+            {
+                String fecha = fechaInicial.plusDays( d ).toString( );
+                for( int r = 0; r < cantidadRutas; r++ )
+                {
+                    salida.write( PersistenciaAerolineaPlaintext.VUELO );
+                    salida.write( separador );
+                    salida.write( codigosRutas[ r ] );
+                    salida.write( separador );
+                    salida.write( fecha );
+                    salida.write( separador );
+                    salida.write( aviones[ r ] );
+                    salida.write( '\n' );
+                }
+            }
+        }
+    }
+
+    // ************************************************************************************
+    //
+    // Clientes y tiquetes
+    //
+    // ************************************************************************************
+
+    /**
+     * Genera los clientes y los tiquetes y los envía a todos los destinos. Los destinos se cierran al final.
+     *
+     * Los tiquetes se reparten entre los vuelos en proporción a la capacidad de cada avión, así que todos los vuelos quedan con una ocupación parecida. Cada tiquete se le
+     * asigna a un cliente al azar y su tarifa es la que calcularía la aerolínea para ese cliente en ese vuelo.
+     * @param destinos Los destinos de los datos
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo en alguno de los destinos
+     */
+    public void generarTiquetes( List<IDestinoTiquetes> destinos ) throws IOException
+    {
+        try
+        {
+            for( int c = 0; c < cantidadClientes; c++ )
+            {
+                if( esCorporativo( c ) )
+                {
+                    for( IDestinoTiquetes destino : destinos )
+                        destino.agregarClienteCorporativo( identificadorCliente( c ), tamanoEmpresa( c ) );
+                }
+                else
+                {
+                    for( IDestinoTiquetes destino : destinos )
+                        destino.agregarClienteNatural( identificadorCliente( c ) );
+                }
+            }
+
+            // Un cliente de cada tipo para calcular las tarifas: la tarifa sólo depende del tipo de cliente y del tamaño de la empresa
+            Cliente[] prototipos = { new ClienteNatural( "natural" ), new ClienteCorporativo( "grande", ClienteCorporativo.GRANDE ),
+                    new ClienteCorporativo( "mediana", ClienteCorporativo.MEDIANA ), new ClienteCorporativo( "pequena", ClienteCorporativo.PEQUENA ) };
+
+            SplittableRandom aleatorio = new SplittableRandom( semilla ).split( );
+            long sillasPorDia = 0;
+            for( int capacidad : capacidades )
+                sillasPorDia += capacidad;
+            long sillasTotales = sillasPorDia * dias;
+
+            long numeroTiquete = 0;
+            long sillasAnteriores = 0;
+            int[] tarifas = new int[prototipos.length];
+            for( int d = 0; d < dias && numeroTiquete < cantidadTiquetes; d++ )
+            {
+                String fecha = fechaInicial.plusDays( d ).toString( );
+                CalculadoraTarifas calculadora = CalculadoraTarifas.seleccionarPorFecha( fecha );
+                for( int r = 0; r < cantidadRutas; r++ )
+                {
+                    sillasAnteriores += capacidades[ r ];
+                    long hasta = cantidadTiquetes * sillasAnteriores / sillasTotales;
+                    for( int t = 0; t < prototipos.length; t++ )
+                        tarifas[ t ] = calculadora.calcularTarifa( distancias[ r ], prototipos[ t ] );
+
+                    for( ; numeroTiquete < hasta; numeroTiquete++ )
+                    {
+                        int c = aleatorio.nextInt( cantidadClientes );
+                        int tarifa = tarifas[ esCorporativo( c ) ? tamanoEmpresa( c ) : 0 ];
+                        int codigo = codigoTiquete( numeroTiquete );
+                        String cliente = identificadorCliente( c );
+                        for( IDestinoTiquetes destino : destinos )
+                            destino.agregarTiquete( codigosRutas[ r ], fecha, codigo, tarifa, false, cliente );
+                    }
+                }
+            }
+        }
+        finally
+        {
+            for( IDestinoTiquetes destino : destinos )
+                destino.close( );
+        }
+    }
+
+    private static boolean esCorporativo( int cliente )
+    {
+        return cliente % PERIODO_CORPORATIVOS == 0;
+    }
+
+    /**
+     * Retorna el tamaño de la empresa de un cliente corporativo: GRANDE, MEDIANA o PEQUENA
+     */
+    private static int tamanoEmpresa( int cliente )
+    {
+        return ClienteCorporativo.GRANDE + ( cliente / PERIODO_CORPORATIVOS ) % 3;
+    }
+
+    private static String identificadorCliente( int cliente )
+    {
+        return ( esCorporativo( cliente ) ? "Empresa" : "Cliente" ) + cliente;
+    }
+
+    /**
+     * Calcula el código de un tiquete a partir de su número. Los destinos lo escriben con sus 7 dígitos.
+     */
+    private static int codigoTiquete( long numero )
+    {
+        return ( int )( ( numero + 1 ) * MULTIPLICADOR_CODIGOS % MAXIMO_TIQUETES );
+    }
+
+    // ************************************************************************************
+    //
+    // Ejecución desde la línea de comandos
+    //
+    // ************************************************************************************
+
+    /**
+     * Genera los archivos aerolinea.txt, tiquetes.json y tiquetes.csv dentro de un directorio.
+     *
+     * Los argumentos son: directorio [semilla aeropuertos rutas fechaInicial dias clientes tiquetes]
+     * @param args
+     * @throws IOException
+     */
+    public static void main( String[] args ) throws IOException
+    {
+        if( args.length != 1 && args.length != 8 )
+        {
+            System.out.println( "Uso: GeneradorDatos directorio [semilla aeropuertos rutas fechaInicial dias clientes tiquetes]" );
+            return;
+        }
+
+        File directorio = new File( args[ 0 ] );
+        directorio.mkdirs( );
+        GeneradorDatos generador;
+        if( args.length == 1 )
+            generador = new GeneradorDatos( 42, 40, 200, LocalDate.parse( "2024-06-01" ), 90, 1000000, 2000000 );
+        else
+            generador = new GeneradorDatos( Long.parseLong( args[ 1 ] ), Integer.parseInt( args[ 2 ] ), Integer.parseInt( args[ 3 ] ), LocalDate.parse( args[ 4 ] ),
+                    Integer.parseInt( args[ 5 ] ), Integer.parseInt( args[ 6 ] ), Long.parseLong( args[ 7 ] ) );
+
+        long inicio = System.nanoTime( );
+        generador.generarAerolinea( new File( directorio, "aerolinea.txt" ).getPath( ) );
+        List<IDestinoTiquetes> destinos = new ArrayList<IDestinoTiquetes>( );
+        destinos.add( new DestinoTiquetesJson( new File( directorio, "tiquetes.json" ).getPath( ) ) );
+        destinos.add( new DestinoTiquetesCsv( new File( directorio, "tiquetes.csv" ).getPath( ) ) );
+        generador.generarTiquetes( destinos );
+        System.out.println( "Se generaron " + generador.getCantidadTiquetes( ) + " tiquetes en " + ( System.nanoTime( ) - inicio ) / 1000000 + " ms" );
+    }
+}
@@ -0,0 +1,18 @@
+package uniandes.dpoo.aerolinea.generador;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Un lugar al que el generador de datos envía los clientes y tiquetes que genera, a medida que los genera. Cada implementación los escribe en un formato de archivo.
+ *
+ * El generador siempre envía primero todos los clientes y después todos los tiquetes. Los códigos de los tiquetes llegan como números (ver GeneradorTiquetes).
+ */
+public interface IDestinoTiquetes extends Closeable
+{
+    public void agregarClienteNatural( String nombre ) throws IOException;
+
+    public void agregarClienteCorporativo( String nombreEmpresa, int tamanoEmpresa ) throws IOException;
+
+    public void agregarTiquete( String codigoRuta, String fecha, int codigoTiquete, int tarifa, boolean usado, String identificadorCliente ) throws IOException;
+}
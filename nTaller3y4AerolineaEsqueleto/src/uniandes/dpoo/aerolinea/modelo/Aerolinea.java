@@ -1,33 +1,36 @@
 package uniandes.dpoo.aerolinea.modelo;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutput;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import uniandes.dpoo.aerolinea.modelo.Ruta;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import uniandes.dpoo.aerolinea.eventos.BusEventos;
+import uniandes.dpoo.aerolinea.eventos.Evento;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
 import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.DirectorioClientes;
+import uniandes.dpoo.aerolinea.persistencia.CargaArchivosTiquetes;
 import uniandes.dpoo.aerolinea.persistencia.CentralPersistencia;
+import uniandes.dpoo.aerolinea.persistencia.IPersistenciaAerolinea;
 import uniandes.dpoo.aerolinea.persistencia.IPersistenciaTiquetes;
+import uniandes.dpoo.aerolinea.persistencia.PersistenciaSeriesVentas;
 import uniandes.dpoo.aerolinea.persistencia.TipoInvalidoException;
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
-import uniandes.dpoo.aerolinea.modelo.Vuelos;
-import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
-import uniandes.dpoo.aerolinea.exceptions.ClienteRepetidoException;
-import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
-import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
-import java.util.Date;
+import uniandes.dpoo.aerolinea.reportes.AnalizadorVentas;
+import uniandes.dpoo.aerolinea.tarifas.EstructuraTarifaria;
+import uniandes.dpoo.aerolinea.utilidades.CacheLRU;
+import uniandes.dpoo.aerolinea.utilidades.Perfilador;
 
 /**
  * En esta clase se organizan todos los aspectos relacionados con una Aerolínea.
@@ -41,38 +44,103 @@ import java.util.Date;
 public class Aerolinea
 {
 	/**
-	 * Una lista con los aviones de los que dispone la aerolínea
+	 * Una lista con los aviones de los que dispone la aerolínea.
+	 * 
+	 * Como los aviones casi nunca cambian y se recorren con frecuencia, la lista es de tipo copy-on-write: quien la recorre ve una versión fija de la lista, sin bloquear a
+	 * quien la modifica.
 	 */
 	private List<Avion> aviones;
 
 	/**
 	 * Un mapa con las rutas que cubre la aerolínea.
 	 * 
-	 * Las llaves del mapa son el código de la ruta, mientras que los valores son las rutas
+	 * Las llaves del mapa son el código de la ruta, mientras que los valores son las rutas.
+	 * 
+	 * El mapa es concurrente para que las consultas y los recorridos no bloqueen ni fallen mientras se agregan rutas.
 	 */
 	private Map<String, Ruta> rutas;
 
 	/**
-	 * Una lista de los vuelos programados por la aerolínea
+	 * Una lista de los vuelos programados por la aerolínea.
+	 * 
+	 * La lista es de tipo copy-on-write: programar un vuelo es poco frecuente, mientras que los reportes y las búsquedas la recorren todo el tiempo. Los tiquetes de cada
+	 * vuelo se guardan en un mapa concurrente dentro del vuelo.
 	 */
 	private List<Vuelos> vuelos;
 
 	/**
-	 * Un mapa con los clientes de la aerolínea.
+	 * Un índice de los vuelos programados, organizados por fecha.
 	 * 
-	 * Las llaves del mapa son los identificadores de los clientes, mientras que los valores son los clientes
+	 * Las llaves del mapa son las fechas en formato yyyy-MM-dd, mientras que los valores son los vuelos programados para esa fecha
+	 */
+	private Map<String, List<Vuelos>> vuelosPorFecha;
+
+	/**
+	 * El directorio con los clientes de la aerolínea, tanto naturales como corporativos.
+	 * 
+	 * El directorio encuentra a los clientes por su identificador y por el comienzo de su nombre, y es concurrente para que las consultas y los recorridos no bloqueen
+	 * ni fallen mientras se agregan clientes.
+	 */
+	private DirectorioClientes clientes;
+
+	/**
+	 * La cantidad máxima de vuelos que se mantienen en el caché de búsquedas de vuelos
+	 */
+	private static final int CAPACIDAD_CACHE_VUELOS = 512;
+
+	/**
+	 * Un caché con los vuelos consultados más recientemente a través de getVuelo.
+	 * 
+	 * Las llaves del caché se construyen a partir del código de la ruta y la fecha del vuelo (ver llaveVuelo)
+	 */
+	private CacheLRU<String, Vuelos> cacheVuelos;
+
+	/**
+	 * El objeto que calcula los reportes de ingresos y ocupación de la aerolínea
+	 */
+	private AnalizadorVentas analizador;
+
+	/**
+	 * El objeto que maneja las retenciones temporales de asientos. Se crea la primera vez que se necesita, porque tiene un hilo de fondo.
+	 */
+	private GestorReservas gestorReservas;
+
+	/**
+	 * El índice espacial de los aeropuertos que aparecen en las rutas de la aerolínea. Se construye la primera vez que se necesita y se descarta cuando se agrega una ruta.
+	 */
+	private volatile IndiceAeropuertos indiceAeropuertos;
+
+	/**
+	 * El bus al que se publican todos los cambios en el estado de la aerolínea, para que las proyecciones (saldos, ocupación, el diario de eventos) se actualicen sin
+	 * alargar las ventas
+	 */
+	private BusEventos busEventos;
+
+	/**
+	 * La cantidad de veces que se intenta tomar una instantánea sin detener los cambios antes de detenerlos (ver tomarInstantanea)
 	 */
-	private Map<String, ClienteCorporativo> clientes;
+	private static final int INTENTOS_INSTANTANEA = 3;
+
+	/**
+	 * El candado de cambios de la aerolínea. Todas las operaciones que cambian un vuelo toman su parte compartida (ver Vuelos.setCandadoCambios), así que no se bloquean
+	 * entre ellas; tomarInstantanea toma la parte exclusiva cuando no logra una instantánea consistente sin detener los cambios.
+	 */
+	private ReadWriteLock candadoCambios;
 
 	/**
 	 * Construye una nueva aerolínea con un nombre e inicializa todas las contenedoras con estructuras vacías
 	 */
 	public Aerolinea( )
 	{
-		aviones = new LinkedList<Avion>( );
-		rutas = new HashMap<String, Ruta>( );
-		vuelos = new LinkedList<Vuelos>( );
-		clientes = new HashMap<String, ClienteCorporativo>( );
+		aviones = new CopyOnWriteArrayList<Avion>( );
+		rutas = new ConcurrentHashMap<String, Ruta>( );
+		vuelos = new CopyOnWriteArrayList<Vuelos>( );
+		vuelosPorFecha = new ConcurrentHashMap<String, List<Vuelos>>( );
+		clientes = new DirectorioClientes( );
+		cacheVuelos = new CacheLRU<String, Vuelos>( CAPACIDAD_CACHE_VUELOS );
+		analizador = new AnalizadorVentas( );
+		busEventos = new BusEventos( );
+		candadoCambios = new ReentrantReadWriteLock( );
 	}
 
 	// ************************************************************************************
@@ -89,6 +157,8 @@ public class Aerolinea
 	public void agregarRuta( Ruta ruta )
 	{
 		this.rutas.put( ruta.getCodigoRuta( ), ruta );
+		indiceAeropuertos = null;
+		busEventos.publicar( Evento.RUTA_AGREGADA, ruta.getCodigoRuta( ), null, null, ruta.getOrigen( ).getCodigo( ) + "-" + ruta.getDestino( ).getCodigo( ), 0, 0 );
 	}
 
 	/**
@@ -98,6 +168,7 @@ public class Aerolinea
 	public void agregarAvion( Avion avion )
 	{
 		this.aviones.add( avion );
+		busEventos.publicar( Evento.AVION_AGREGADO, null, null, avion.getNombre( ), null, avion.getCapacidad( ), 0 );
 	}
 
 	/**
@@ -106,7 +177,40 @@ public class Aerolinea
 	 */
 	public void agregarCliente( Cliente cliente )
 	{
-		this.clientes.put( cliente.getIdentificador( ), (ClienteCorporativo) cliente );
+		this.clientes.agregar( cliente );
+		int tamanoEmpresa = cliente instanceof ClienteCorporativo ? ( ( ClienteCorporativo )cliente ).getTamanoEmpresa( ) : 0;
+		busEventos.publicar( Evento.CLIENTE_AGREGADO, null, null, cliente.getIdentificador( ), cliente.getTipoCliente( ), tamanoEmpresa, 0 );
+	}
+
+	/**
+	 * Agrega un vuelo a la aerolínea, sin hacer ninguna verificación, y lo registra en el índice de vuelos por fecha
+	 * 
+	 * El vuelo se conecta al bus y se anuncia antes de quedar en la lista y en el índice: desde que otro hilo lo puede encontrar ya publica sus ventas, y ninguna de
+	 * ellas llega al bus antes que el evento que programa el vuelo.
+	 * @param vuelo
+	 */
+	public void agregarVuelo( Vuelos vuelo )
+	{
+		vuelo.setBusEventos( busEventos );
+		vuelo.setCandadoCambios( candadoCambios.readLock( ) );
+		busEventos.publicar( Evento.VUELO_PROGRAMADO, vuelo.getRuta( ).getCodigoRuta( ), vuelo.getFecha( ), vuelo.getAvion( ).getNombre( ), null,
+				vuelo.getAvion( ).getCapacidad( ), 0 );
+		this.vuelos.add( vuelo );
+		List<Vuelos> delDia = this.vuelosPorFecha.computeIfAbsent( vuelo.getFecha( ), f -> new CopyOnWriteArrayList<Vuelos>( ) );
+		delDia.add( vuelo );
+	}
+
+	/**
+	 * Retorna los vuelos programados para una fecha
+	 * @param fecha La fecha en formato yyyy-MM-dd
+	 * @return Una colección que no se puede modificar con los vuelos de la fecha. Si no hay vuelos, la colección es vacía.
+	 */
+	public Collection<Vuelos> getVuelosFecha( String fecha )
+	{
+		List<Vuelos> delDia = this.vuelosPorFecha.get( fecha );
+		if( delDia == null )
+			return Collections.emptyList( );
+		return Collections.unmodifiableList( delDia );
 	}
 
 	/**
@@ -116,7 +220,7 @@ public class Aerolinea
 	 */
 	public boolean existeCliente( String identificadorCliente )
 	{
-		return this.clientes.containsKey( identificadorCliente );
+		return this.clientes.existe( identificadorCliente );
 	}
 
 	/**
@@ -130,21 +234,36 @@ public class Aerolinea
 	}
 
 	/**
-	 * Retorna todos los aviones de la aerolínea
+	 * Busca los clientes cuyo nombre (el de la persona o el de la empresa) tiene alguna palabra que empieza por el prefijo dado, sin distinguir mayúsculas ni tildes
+	 * @param prefijo El comienzo del nombre
+	 * @param cantidad La cantidad máxima de clientes que se retornan
+	 * @return Los clientes encontrados, en orden alfabético
+	 */
+	public List<Cliente> buscarClientesPorPrefijo( String prefijo, int cantidad )
+	{
+		return this.clientes.buscarPorPrefijo( prefijo, cantidad );
+	}
+
+	/**
+	 * Retorna todos los aviones de la aerolínea.
+	 * 
+	 * La colección no se puede modificar, y recorrerla nunca genera una ConcurrentModificationException aunque otro hilo agregue aviones al mismo tiempo.
 	 * @return
 	 */
 	public Collection<Avion> getAviones( )
 	{
-		return aviones;
+		return Collections.unmodifiableList( aviones );
 	}
 
 	/**
-	 * Retorna todas las rutas disponibles para la aerolínea
+	 * Retorna todas las rutas disponibles para la aerolínea.
+	 * 
+	 * La colección no se puede modificar, y recorrerla nunca genera una ConcurrentModificationException aunque otro hilo agregue rutas al mismo tiempo.
 	 * @return
 	 */
 	public Collection<Ruta> getRutas( )
 	{
-		return rutas.values( );
+		return Collections.unmodifiableCollection( rutas.values( ) );
 	}
 
 	/**
@@ -158,12 +277,14 @@ public class Aerolinea
 	}
 
 	/**
-	 * Retorna todos los vuelos de la aerolínea
+	 * Retorna todos los vuelos de la aerolínea.
+	 * 
+	 * La colección no se puede modificar, y recorrerla nunca genera una ConcurrentModificationException aunque otro hilo programe vuelos al mismo tiempo.
 	 * @return
 	 */
 	public Collection<Vuelos> getVuelos( )
 	{
-		return getVuelos();
+		return Collections.unmodifiableList( vuelos );
 	}
 
 	/**
@@ -174,38 +295,92 @@ public class Aerolinea
 	 */
 	public Vuelos getVuelo( String codigoRuta, String fechaVuelo )
 	{
-		// TODO implementar
-		for (Vuelos vuelo : vuelos) {
-			if (vuelo.getRuta().equals(codigoRuta) && vuelo.getFecha().equals(fechaVuelo)) {
+		String llave = llaveVuelo( codigoRuta, fechaVuelo );
+		Vuelos enCache = cacheVuelos.obtener( llave );
+		if( enCache != null )
+			return enCache;
+
+		for (Vuelos vuelo : getVuelosFecha( fechaVuelo )) {
+			if (vuelo.getRuta().getCodigoRuta().equals(codigoRuta)) {
+				cacheVuelos.guardar( llave, vuelo );
 				return vuelo;
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Construye la llave con la que se identifica un vuelo dentro del caché de vuelos
+	 * @param codigoRuta
+	 * @param fechaVuelo
+	 * @return
+	 */
+	static String llaveVuelo( String codigoRuta, String fechaVuelo )
+	{
+		return codigoRuta + "|" + fechaVuelo;
+	}
+
+	/**
+	 * Retorna el caché que se usa para las búsquedas de vuelos, con el fin de poder consultar sus estadísticas (aciertos, fallos y desalojos)
+	 * @return
+	 */
+	public CacheLRU<String, Vuelos> getCacheVuelos( )
+	{
+		return cacheVuelos;
+	}
+
 
 
 	/**
-	 * Retorna todos los clientes de la aerolínea
+	 * Retorna todos los clientes de la aerolínea.
+	 * 
+	 * La colección no se puede modificar, y recorrerla nunca genera una ConcurrentModificationException aunque otro hilo agregue clientes al mismo tiempo.
 	 * @return
 	 */
 	public Collection<Cliente> getClientes( )
 	{
-		return getClientes();
+		return clientes.getClientes( );
 	}
 
 	/**
-	 * Retorna todos los tiquetes de la aerolínea, los cuales se recolectan vuelo por vuelo
+	 * Retorna todos los tiquetes de la aerolínea, los cuales se recolectan vuelo por vuelo.
+	 * 
+	 * La colección retornada es una copia tomada de una instantánea de la aerolínea, así que se puede recorrer sin problema mientras se siguen vendiendo tiquetes.
 	 * @return
 	 */
 	public Collection<Tiquete> getTiquetes( )
 	{
-		// TODO implementar
-		List<Tiquete> tiquetes = new ArrayList<>();
-		for (Vuelos vuelo : vuelos) {
-			tiquetes.addAll(vuelo.getTiquetes());
+		return tomarInstantanea( ).getTiquetes( );
+	}
+
+	/**
+	 * Toma una instantánea de los vuelos y los clientes de la aerolínea. La instantánea es un estado en el que la aerolínea realmente estuvo en algún momento mientras se
+	 * tomaba. Las ventas pueden continuar mientras se recorre la instantánea, y nada de lo que pase después de tomarla se ve reflejado en ella.
+	 * 
+	 * La instantánea se toma primero sin detener las ventas, y se revisa que ningún vuelo haya cambiado mientras se armaba (ver InstantaneaAerolinea.sigueVigente). Si
+	 * después de INTENTOS_INSTANTANEA intentos siempre cambió alguno, se toma el candado de cambios de la aerolínea para detener los cambios mientras se copian los vuelos.
+	 * 
+	 * Sólo se copian los tiquetes de los vuelos que cambiaron desde la instantánea anterior.
+	 * @return
+	 */
+	public InstantaneaAerolinea tomarInstantanea( )
+	{
+		for( int intento = 0; intento < INTENTOS_INSTANTANEA; intento++ )
+		{
+			InstantaneaAerolinea instantanea = new InstantaneaAerolinea( vuelos, getClientes( ) );
+			if( instantanea.sigueVigente( vuelos ) )
+				return instantanea;
+		}
+
+		candadoCambios.writeLock( ).lock( );
+		try
+		{
+			return new InstantaneaAerolinea( vuelos, getClientes( ) );
+		}
+		finally
+		{
+			candadoCambios.writeLock( ).unlock( );
 		}
-		return tiquetes;
 	}
 
 	// ************************************************************************************
@@ -217,43 +392,56 @@ public class Aerolinea
 	/**
 	 * Carga toda la información de la aerolínea a partir de un archivo
 	 * @param archivo El nombre del archivo.
-	 * @param tipoArchivo El tipo del archivo. Puede ser CentralPersistencia.JSON o CentralPersistencia.PLAIN.
+	 * @param tipoArchivo El tipo del archivo. Puede ser cualquiera de los tipos registrados en CentralPersistencia (por ejemplo CentralPersistencia.PLAIN), o
+	 *        CentralPersistencia.AUTO para que el tipo se detecte a partir del contenido del archivo.
 	 * @throws TipoInvalidoException Se lanza esta excepción si se indica un tipo de archivo inválido
 	 * @throws IOException Lanza esta excepción si hay problemas leyendo el archivo
 	 * @throws InformacionInconsistenteException Lanza esta excepción si durante la carga del archivo se encuentra información que no es consistente
 	 */
 	public void cargarAerolinea( String archivo, String tipoArchivo ) throws TipoInvalidoException, IOException, InformacionInconsistenteException
 	{
-		// TODO implementar
+		IPersistenciaAerolinea cargador = CentralPersistencia.getPersistenciaAerolinea( tipoArchivo, archivo );
+		Perfilador.Medicion medicion = Perfilador.medir( "cargarAerolinea" );
+		int antes = medicion == null ? 0 : rutas.size( ) + vuelos.size( );
+		try
+		{
+			cargador.cargarAerolinea( archivo, this );
+		}
+		finally
+		{
+			Perfilador.terminar( medicion, medicion == null ? 0 : rutas.size( ) + vuelos.size( ) - antes );
+		}
 	}
 
 	/**
 	 * Salva la información de la aerlínea en un archivo
 	 * @param archivo El nombre del archivo.
-	 * @param tipoArchivo El tipo del archivo. Puede ser CentralPersistencia.JSON o CentralPersistencia.PLAIN.
+	 * @param tipoArchivo El tipo del archivo. Puede ser cualquiera de los tipos registrados en CentralPersistencia (por ejemplo CentralPersistencia.PLAIN).
 	 * @throws TipoInvalidoException Se lanza esta excepción si se indica un tipo de archivo inválido
 	 * @throws IOException Lanza esta excepción si hay problemas escribiendo en el archivo
 	 */
 	public void salvarAerolinea( String archivo, String tipoArchivo ) throws TipoInvalidoException, IOException
 	{
-		// TODO implementar
-		if (!tipoArchivo.equals("CentralPersistencia.JSON") && !tipoArchivo.equals("CentralPersistencia.PLAIN")) {
-			throw new TipoInvalidoException("Tipo de archivo inválido");
+		IPersistenciaAerolinea cargador = CentralPersistencia.getPersistenciaAerolinea( tipoArchivo );
+		Perfilador.Medicion medicion = Perfilador.medir( "salvarAerolinea" );
+		try
+		{
+			cargador.salvarAerolinea( archivo, this );
 		}
-
-		try (ObjectOutput oos = new ObjectOutput()
-	
-		(new FileOutputStream(archivo))) {
-			oos.writeObject(this);
-		} catch (IOException e) {
-			throw new IOException("Error al escribir en el archivo", e);
+		finally
+		{
+			Perfilador.terminar( medicion, medicion == null ? 0 : rutas.size( ) + vuelos.size( ) );
 		}
 	}
 
 	/**
-	 * Carga toda la información de sobre los clientes y tiquetes de una aerolínea a partir de un archivo
+	 * Carga toda la información de sobre los clientes y tiquetes de una aerolínea a partir de un archivo.
+	 * 
+	 * Si junto al archivo está el archivo con las series de ventas de las rutas (ver PersistenciaSeriesVentas), también se cargan las series, después de los tiquetes y
+	 * sólo si los tiquetes se cargaron sin inconsistencias.
 	 * @param archivo El nombre del archivo.
-	 * @param tipoArchivo El tipo del archivo. Puede ser CentralPersistencia.JSON o CentralPersistencia.PLAIN.
+	 * @param tipoArchivo El tipo del archivo. Puede ser cualquiera de los tipos registrados en CentralPersistencia, o CentralPersistencia.AUTO para que el tipo se
+	 *        detecte a partir del contenido del archivo.
 	 * @throws TipoInvalidoException Se lanza esta excepción si se indica un tipo de archivo inválido
 	 * @throws IOException Lanza esta excepción si hay problemas leyendo el archivo
 	 * @throws InformacionInconsistenteException Lanza esta excepción si durante la carga del archivo se encuentra información que no es consistente con la información de la
@@ -261,21 +449,82 @@ public class Aerolinea
 	 */
 	public void cargarTiquetes( String archivo, String tipoArchivo ) throws TipoInvalidoException, IOException, InformacionInconsistenteException
 	{
-		IPersistenciaTiquetes cargador = CentralPersistencia.getPersistenciaTiquetes( tipoArchivo );
-		cargador.cargarTiquetes( archivo, this );
+		IPersistenciaTiquetes cargador = CentralPersistencia.getPersistenciaTiquetes( tipoArchivo, archivo );
+		Perfilador.Medicion medicion = Perfilador.medir( "cargarTiquetes" );
+		int antes = medicion == null ? 0 : contarTiquetes( );
+		try
+		{
+			cargador.cargarTiquetes( archivo, this );
+			PersistenciaSeriesVentas.cargarSeriesDeTiquetes( archivo, this );
+		}
+		finally
+		{
+			Perfilador.terminar( medicion, medicion == null ? 0 : contarTiquetes( ) - antes );
+		}
 	}
 
 	/**
-	 * Salva la información de la aerlínea en un archivo
-	 * @param archivo El nombre del archivo.
-	 * @param tipoArchivo El tipo del archivo. Puede ser CentralPersistencia.JSON o CentralPersistencia.PLAIN.
+	 * Carga los clientes y tiquetes de una aerolínea que están repartidos en varios archivos, por ejemplo un archivo por mes.
+	 * 
+	 * Los archivos se leen en paralelo y luego se agregan a la aerolínea en el orden de sus nombres, de forma que los conflictos entre archivos (tiquetes o clientes
+	 * repetidos) siempre se resuelven igual (ver CargaArchivosTiquetes).
+	 * @param ubicacion Un directorio, del que se cargan todos los archivos, o un patrón como 'datos/tiquetes-*.json'
+	 * @param tipoArchivo El tipo de los archivos. Con CentralPersistencia.AUTO el tipo se detecta para cada archivo.
+	 * @param hilos La cantidad máxima de archivos que se leen al mismo tiempo
+	 * @return La cantidad de archivos cargados
 	 * @throws TipoInvalidoException Se lanza esta excepción si se indica un tipo de archivo inválido
+	 * @throws IOException Lanza esta excepción si hay problemas leyendo alguno de los archivos. En ese caso no se carga nada.
+	 * @throws InformacionInconsistenteException Lanza esta excepción si en los archivos se encuentra información que no es consistente con la información de la
+	 *         aerolínea o entre ellos
+	 */
+	public int cargarTiquetesArchivos( String ubicacion, String tipoArchivo, int hilos ) throws TipoInvalidoException, IOException, InformacionInconsistenteException
+	{
+		Perfilador.Medicion medicion = Perfilador.medir( "cargarTiquetesArchivos" );
+		int antes = medicion == null ? 0 : contarTiquetes( );
+		try
+		{
+			return CargaArchivosTiquetes.cargarTiquetes( ubicacion, tipoArchivo, this, hilos );
+		}
+		finally
+		{
+			Perfilador.terminar( medicion, medicion == null ? 0 : contarTiquetes( ) - antes );
+		}
+	}
+
+	/**
+	 * Salva la información de la aerlínea en un archivo. Las series de ventas de las rutas se salvan en un archivo aparte, junto al archivo de tiquetes (ver
+	 * PersistenciaSeriesVentas).
+	 * @param archivo El nombre del archivo.
+	 * @param tipoArchivo El tipo del archivo. Puede ser cualquiera de los tipos de tiquetes registrados en CentralPersistencia (CentralPersistencia.JSON, JSON_STREAMING,
+	 *        CSV, BINARIO o COMPRIMIDO, además de los que se registren después). CentralPersistencia.AUTO no sirve para salvar, porque no hay un archivo del cual
+	 *        detectar el formato.
+	 * @throws TipoInvalidoException Se lanza esta excepción si se indica un tipo de archivo inválido, incluyendo CentralPersistencia.AUTO
 	 * @throws IOException Lanza esta excepción si hay problemas escribiendo en el archivo
 	 */
 	public void salvarTiquetes( String archivo, String tipoArchivo ) throws TipoInvalidoException, IOException
 	{
 		IPersistenciaTiquetes cargador = CentralPersistencia.getPersistenciaTiquetes( tipoArchivo );
-		cargador.salvarTiquetes( archivo, this );
+		Perfilador.Medicion medicion = Perfilador.medir( "salvarTiquetes" );
+		try
+		{
+			cargador.salvarTiquetes( archivo, this );
+			PersistenciaSeriesVentas.salvarSeries( PersistenciaSeriesVentas.getArchivoSeries( archivo ), this );
+		}
+		finally
+		{
+			Perfilador.terminar( medicion, medicion == null ? 0 : contarTiquetes( ) );
+		}
+	}
+
+	/**
+	 * Cuenta los tiquetes de todos los vuelos, sin copiarlos
+	 */
+	private int contarTiquetes( )
+	{
+		int cantidad = 0;
+		for( Vuelos vuelo : vuelos )
+			cantidad += vuelo.getTiquetes( ).size( );
+		return cantidad;
 	}
 
 	// ************************************************************************************
@@ -297,15 +546,16 @@ public class Aerolinea
 	 */
 	public void programarVuelo( String fecha, String codigoRuta, String nombreAvion ) throws Exception
 	{
+		Perfilador.Medicion medicion = Perfilador.medir( "programarVuelo" );
+		int programados = 0;
 		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
         dateFormat.setLenient(false);  
 
         try {
             Date fechaVuelo = dateFormat.parse(fecha);
 
-            for (Vuelos vueloExistente : vuelos) {
-                if (vueloExistente.getNombre().equals(nombreAvion) &&
-                        vueloExistente.getFecha().equals(dateFormat.format(fechaVuelo))) {
+            for (Vuelos vueloExistente : getVuelosFecha(dateFormat.format(fechaVuelo))) {
+                if (vueloExistente.getAvion().getNombre().equals(nombreAvion)) {
                     throw new Exception("El avión ya está ocupado en esa fecha.");
                 }
             }
@@ -320,9 +570,9 @@ public class Aerolinea
             if (avionSeleccionado != null) {
                 Ruta rutaSeleccionada = rutas.get(codigoRuta);
                 if (rutaSeleccionada != null) {
-                    Vuelos nuevoVuelo = new Vuelos(dateFormat.format(fechaVuelo), codigoRuta, nombreAvion, avionSeleccionado, rutaSeleccionada);
-                    vuelos.add(nuevoVuelo);
-                    System.out.println("Vuelo programado con éxito.");
+                    Vuelos nuevoVuelo = new Vuelos(rutaSeleccionada, dateFormat.format(fechaVuelo), avionSeleccionado);
+                    agregarVuelo(nuevoVuelo);
+                    programados = 1;
                 } else {
                     throw new Exception("La ruta especificada no existe.");
                 }
@@ -332,6 +582,8 @@ public class Aerolinea
 
         } catch (ParseException e) {
             throw new Exception("Formato de fecha incorrecto. Se esperaba 'yyyy-MM-dd'.");
+        } finally {
+            Perfilador.terminar(medicion, programados);
         }
     }
 
@@ -348,60 +600,337 @@ public class Aerolinea
 	 * @param codigoRuta El código de la ruta para el que se van a vender los tiquetes
 	 * @param cantidad La cantidad de tiquetes que se quieren comprar
 	 * @return El valor total de los tiquetes vendidos
-	 * @throws VueloSobrevendidoException Se lanza esta excepción si no hay suficiente espacio en el vuelo para todos los pasajeros
+	 * @throws VueloSobrevendidoException Se lanza esta excepción si no hay suficiente espacio en el vuelo para todos los pasajeros, o si el vuelo tiene solicitudes en
+	 *         su lista de espera (los asientos que se liberen son para ellas)
 	 * @throws Exception Se lanza esta excepción para indicar que no se pudieron vender los tiquetes por algún otro motivo
 	 */
 	public int venderTiquetes( String identificadorCliente, String fecha, String codigoRuta, int cantidad ) throws VueloSobrevendidoException, Exception
 	{
-		// TODO Implementar el método
-		return -1;
+		Perfilador.Medicion medicion = Perfilador.medir( "venderTiquetes" );
+		int vendidos = 0;
+		try
+		{
+			Cliente cliente = buscarClienteVenta( identificadorCliente, cantidad );
+			int valor = buscarVueloVenta( fecha, codigoRuta ).venderTiquetes( cliente, cantidad );
+			vendidos = cantidad;
+			return valor;
+		}
+		finally
+		{
+			Perfilador.terminar( medicion, vendidos );
+		}
 	}
 
 	/**
-	 * Registra que un cierto vuelo fue realizado
+	 * Agrega una solicitud de tiquetes a la lista de espera de un vuelo. La solicitud se atiende automáticamente cuando se libere cupo en el vuelo, respetando la
+	 * prioridad de los clientes (ver SolicitudEspera).
+	 * @param identificadorCliente El identificador del cliente que solicita los tiquetes
 	 * @param fecha La fecha del vuelo
-	 * @param codigoRuta El código de la ruta que recorrió el vuelo
+	 * @param codigoRuta El código de la ruta del vuelo
+	 * @param cantidad La cantidad de tiquetes solicitados
+	 * @return La solicitud, que se puede consultar para saber si ya fue atendida
+	 * @throws VueloSobrevendidoException Se lanza esta excepción si la cantidad solicitada supera el cupo máximo del vuelo, o si el vuelo ya se realizó
+	 * @throws Exception Se lanza esta excepción si el cliente o el vuelo no existen, o si la cantidad no es válida
 	 */
-	public void registrarVueloRealizado( LocalDate fecha, String codigoRuta) {
-
-		Vuelos vueloRealizado = buscarVuelo(fecha, codigoRuta);
+	public SolicitudEspera agregarAListaEspera( String identificadorCliente, String fecha, String codigoRuta, int cantidad ) throws VueloSobrevendidoException, Exception
+	{
+		Cliente cliente = buscarClienteVenta( identificadorCliente, cantidad );
+		return buscarVueloVenta( fecha, codigoRuta ).agregarAListaEspera( cliente, cantidad );
+	}
 
-		if (vueloRealizado != null) {
+	/**
+	 * Cancela un tiquete sin usar. El cupo que se libera en el vuelo se usa para atender su lista de espera.
+	 * @param fecha La fecha del vuelo
+	 * @param codigoRuta El código de la ruta del vuelo
+	 * @param codigoTiquete El código del tiquete
+	 * @return Retorna false si el vuelo no tiene un tiquete sin usar con ese código
+	 * @throws Exception Se lanza esta excepción si el vuelo no existe
+	 */
+	public boolean cancelarTiquete( String fecha, String codigoRuta, String codigoTiquete ) throws Exception
+	{
+		return buscarVueloVenta( fecha, codigoRuta ).cancelarTiquete( codigoTiquete );
+	}
 
-			vueloRealizado.registrarComoRealizado(); 
-		} else {
+	/**
+	 * Retorna las ventas diarias de una ruta, para consultar las ventas en una ventana de días sin recorrer los tiquetes
+	 * @param codigoRuta El código de la ruta
+	 * @return La serie de ventas de la ruta
+	 * @throws Exception Se lanza esta excepción si la ruta no existe
+	 */
+	public SerieVentas consultarVentasRuta( String codigoRuta ) throws Exception
+	{
+		Ruta ruta = rutas.get( codigoRuta );
+		if( ruta == null )
+			throw new Exception( "No existe la ruta " + codigoRuta );
+		return ruta.getSerieVentas( );
+	}
 
-			System.out.println("No se encontró el vuelo correspondiente a la fecha y código de ruta proporcionados.");
+	/**
+	 * Cambia el margen de sobreventa de una ruta. Si el margen aumenta, se atienden de inmediato las listas de espera de los vuelos de la ruta.
+	 * @param codigoRuta El código de la ruta
+	 * @param margenSobreventa La fracción de la capacidad de los aviones que se puede vender por encima de su capacidad
+	 * @throws Exception Se lanza esta excepción si la ruta no existe o si el margen es negativo
+	 */
+	public void configurarSobreventa( String codigoRuta, double margenSobreventa ) throws Exception
+	{
+		Ruta ruta = rutas.get( codigoRuta );
+		if( ruta == null )
+			throw new Exception( "No existe la ruta " + codigoRuta );
+		ruta.setMargenSobreventa( margenSobreventa );
+		for( Vuelos vuelo : vuelos )
+		{
+			if( vuelo.getRuta( ) == ruta )
+				vuelo.atenderListaEspera( );
 		}
 	}
-	private Vuelos buscarVuelo(LocalDate fecha, String codigoRuta) {
-		for (Vuelos vuelo : vuelos) {
-			if (vuelo.getFecha().equals(fecha) && vuelo.getRuta().getCodigoRuta().equals(codigoRuta)) {
-				return vuelo;
+
+	/**
+	 * Cambia las clases tarifarias de una ruta. Los vuelos de la ruta recalculan su clase abierta la próxima vez que venden o cotizan un tiquete; los tiquetes que ya se
+	 * vendieron conservan su tarifa.
+	 * @param codigoRuta El código de la ruta
+	 * @param estructura Las clases tarifarias de la ruta, o null para cobrar sólo la tarifa normal
+	 * @throws Exception Se lanza esta excepción si la ruta no existe
+	 */
+	public void configurarClasesTarifa( String codigoRuta, EstructuraTarifaria estructura ) throws Exception
+	{
+		Ruta ruta = rutas.get( codigoRuta );
+		if( ruta == null )
+			throw new Exception( "No existe la ruta " + codigoRuta );
+		ruta.setEstructuraTarifaria( estructura );
+	}
+
+	/**
+	 * Retiene asientos de un vuelo durante GestorReservas.DURACION_RESERVA, mientras se confirma el pago de la venta. Los asientos retenidos cuentan contra el cupo del
+	 * vuelo; si la reserva no se confirma ni se libera antes de vencer, los asientos se liberan automáticamente.
+	 * @param identificadorCliente El identificador del cliente para el que se retienen los asientos
+	 * @param fecha La fecha del vuelo
+	 * @param codigoRuta El código de la ruta del vuelo
+	 * @param cantidad La cantidad de asientos
+	 * @return La reserva
+	 * @throws VueloSobrevendidoException Se lanza esta excepción si el vuelo no tiene cupo para los asientos, o si tiene solicitudes en su lista de espera
+	 * @throws Exception Se lanza esta excepción si el cliente o el vuelo no existen, o si la cantidad no es válida
+	 */
+	public ReservaAsientos retenerAsientos( String identificadorCliente, String fecha, String codigoRuta, int cantidad ) throws VueloSobrevendidoException, Exception
+	{
+		Cliente cliente = buscarClienteVenta( identificadorCliente, cantidad );
+		return getGestorReservas( ).retener( buscarVueloVenta( fecha, codigoRuta ), cliente, cantidad, GestorReservas.DURACION_RESERVA );
+	}
+
+	/**
+	 * Confirma una reserva de asientos, vendiendo los tiquetes correspondientes
+	 * @param identificadorReserva El identificador de la reserva
+	 * @return El valor total de los tiquetes vendidos
+	 * @throws Exception Se lanza esta excepción si no hay una reserva activa con ese identificador
+	 */
+	public int confirmarReserva( long identificadorReserva ) throws Exception
+	{
+		ReservaAsientos reserva = getGestorReservas( ).getReserva( identificadorReserva );
+		if( reserva == null )
+			throw new Exception( "No hay una reserva activa con el identificador " + identificadorReserva );
+		return getGestorReservas( ).confirmar( reserva );
+	}
+
+	/**
+	 * Libera los asientos de una reserva antes de que venza
+	 * @param identificadorReserva El identificador de la reserva
+	 * @return Retorna false si no había una reserva activa con ese identificador
+	 */
+	public boolean liberarReserva( long identificadorReserva )
+	{
+		ReservaAsientos reserva = getGestorReservas( ).getReserva( identificadorReserva );
+		return reserva != null && getGestorReservas( ).liberar( reserva );
+	}
+
+	/**
+	 * Retorna el índice espacial de los aeropuertos que aparecen en las rutas de la aerolínea, para buscar los aeropuertos más cercanos a un punto o dentro de un radio
+	 * @return
+	 */
+	public IndiceAeropuertos getIndiceAeropuertos( )
+	{
+		IndiceAeropuertos indice = indiceAeropuertos;
+		if( indice == null )
+		{
+			List<Aeropuerto> aeropuertos = new ArrayList<Aeropuerto>( );
+			for( Ruta ruta : rutas.values( ) )
+			{
+				aeropuertos.add( ruta.getOrigen( ) );
+				aeropuertos.add( ruta.getDestino( ) );
 			}
+			indice = new IndiceAeropuertos( aeropuertos );
+			indiceAeropuertos = indice;
 		}
-		return null; 
+		return indice;
+	}
+
+	/**
+	 * Busca los aeropuertos más cercanos a un aeropuerto, por ejemplo para planear un desvío
+	 * @param codigoAeropuerto El código del aeropuerto
+	 * @param cantidad La cantidad de aeropuertos que se buscan
+	 * @return Los aeropuertos más cercanos, del más cercano al más lejano, sin incluir el aeropuerto dado
+	 * @throws Exception Se lanza esta excepción si ninguna ruta de la aerolínea pasa por el aeropuerto
+	 */
+	public List<Aeropuerto> buscarAeropuertosCercanos( String codigoAeropuerto, int cantidad ) throws Exception
+	{
+		IndiceAeropuertos indice = getIndiceAeropuertos( );
+		return indice.buscarMasCercanos( buscarAeropuerto( indice, codigoAeropuerto ), cantidad );
+	}
+
+	/**
+	 * Busca los aeropuertos que están a lo sumo a cierta distancia de un aeropuerto
+	 * @param codigoAeropuerto El código del aeropuerto
+	 * @param radio La distancia máxima, en kilómetros
+	 * @return Los aeropuertos, del más cercano al más lejano, sin incluir el aeropuerto dado
+	 * @throws Exception Se lanza esta excepción si ninguna ruta de la aerolínea pasa por el aeropuerto
+	 */
+	public List<Aeropuerto> buscarAeropuertosEnRadio( String codigoAeropuerto, double radio ) throws Exception
+	{
+		IndiceAeropuertos indice = getIndiceAeropuertos( );
+		return indice.buscarEnRadio( buscarAeropuerto( indice, codigoAeropuerto ), radio );
+	}
+
+	private static Aeropuerto buscarAeropuerto( IndiceAeropuertos indice, String codigoAeropuerto ) throws Exception
+	{
+		Aeropuerto aeropuerto = indice.getAeropuerto( codigoAeropuerto );
+		if( aeropuerto == null )
+			throw new Exception( "Ninguna ruta de la aerolínea pasa por el aeropuerto " + codigoAeropuerto );
+		return aeropuerto;
+	}
+
+	/**
+	 * Retorna el objeto que maneja las retenciones temporales de asientos de la aerolínea
+	 * @return
+	 */
+	public synchronized GestorReservas getGestorReservas( )
+	{
+		if( gestorReservas == null )
+			gestorReservas = new GestorReservas( );
+		return gestorReservas;
+	}
+
+	/**
+	 * Retorna el bus en el que se publican los eventos de la aerolínea. Las proyecciones que se suscriban reciben los eventos publicados a partir de ese momento.
+	 * @return
+	 */
+	public BusEventos getBusEventos( )
+	{
+		return busEventos;
+	}
+
+	private Cliente buscarClienteVenta( String identificadorCliente, int cantidad ) throws Exception
+	{
+		if( cantidad <= 0 )
+			throw new Exception( "La cantidad de tiquetes debe ser positiva" );
+		Cliente cliente = getCliente( identificadorCliente );
+		if( cliente == null )
+			throw new Exception( "No existe el cliente " + identificadorCliente );
+		return cliente;
+	}
+
+	private Vuelos buscarVueloVenta( String fecha, String codigoRuta ) throws Exception
+	{
+		Vuelos vuelo = getVuelo( codigoRuta, fecha );
+		if( vuelo == null )
+			throw new Exception( "No existe un vuelo de la ruta " + codigoRuta + " el " + fecha );
+		return vuelo;
+	}
+
+	/**
+	 * Registra que un cierto vuelo fue realizado
+	 * @param fecha La fecha del vuelo
+	 * @param codigoRuta El código de la ruta que recorrió el vuelo
+	 * @return La cantidad de tiquetes que se marcaron como usados. Si el vuelo ya se había registrado como realizado, retorna 0.
+	 * @throws Exception Se lanza esta excepción si no existe un vuelo de la ruta en esa fecha
+	 */
+	public int registrarVueloRealizado( LocalDate fecha, String codigoRuta ) throws Exception
+	{
+		return buscarVueloVenta( fecha.toString( ), codigoRuta ).registrarComoRealizado( );
+	}
+
+	/**
+	 * Registra que todos los vuelos programados para una fecha fueron realizados. Es la operación de cierre del día.
+	 * 
+	 * Los vuelos del día se encuentran con el índice de vuelos por fecha y se procesan en paralelo. En cada vuelo se marcan como usados sus tiquetes, y sólo esos tiquetes
+	 * pasan de la lista de tiquetes sin usar a la de tiquetes usados de cada cliente.
+	 * @param fecha La fecha de los vuelos
+	 * @return La cantidad de tiquetes que se marcaron como usados
+	 */
+	public int registrarVuelosRealizados( LocalDate fecha )
+	{
+		return getVuelosFecha( fecha.toString( ) ).parallelStream( ).mapToInt( Vuelos::registrarComoRealizado ).sum( );
 	}
 
 	/**
 	 * Calcula cuánto valen los tiquetes que ya compró un cliente dado y que todavía no ha utilizado
 	 * @param identificadorCliente El identificador del cliente
-	 * @return La suma de lo que pagó el cliente por los tiquetes sin usar
+	 * @return La suma de lo que pagó el cliente por los tiquetes sin usar, como texto
 	 */
 	public String consultarSaldoPendienteCliente( String identificadorCliente )
 	{
-
-		 int saldo = 0;
-
-		for (Vuelos vuelo : vuelos) {
-			for (Tiquete tiquete : vuelo.getTiquetes()) {
-				if (tiquete.getCliente().equals(identificadorCliente) && !tiquete.esUsado()) {
-					saldo += tiquete.getTarifa();  
-				}
+		long saldo = 0;
+		for( InstantaneaVuelo vuelo : tomarInstantanea( ).getVuelos( ) )
+		{
+			for( int i = 0; i < vuelo.getCantidadTiquetes( ); i++ )
+			{
+				Tiquete tiquete = vuelo.getTiquete( i );
+				if( !vuelo.esUsado( i ) && tiquete.getCliente( ).getIdentificador( ).equals( identificadorCliente ) )
+					saldo += tiquete.getTarifa( );
 			}
 		}
+		return Long.toString( saldo );
+	}
 
-		return saldo;
+	// ************************************************************************************
+	//
+	// Estos son los métodos que están relacionados con los reportes de la aerolínea
+	//
+	// ************************************************************************************
+
+	/**
+	 * Calcula el total vendido en cada una de las rutas de la aerolínea
+	 * @return Un mapa donde las llaves son los códigos de las rutas y los valores son lo que se ha vendido en vuelos de esa ruta
+	 */
+	public Map<String, Long> calcularIngresosPorRuta( )
+	{
+		return analizador.calcularIngresosPorRuta( tomarInstantanea( ).getVuelos( ) );
+	}
+
+	/**
+	 * Calcula el total vendido a cada tipo de cliente
+	 * @return Un mapa donde las llaves son los tipos de cliente y los valores son lo que han comprado los clientes de ese tipo
+	 */
+	public Map<String, Long> calcularIngresosPorTipoCliente( )
+	{
+		return analizador.calcularIngresosPorTipoCliente( tomarInstantanea( ).getVuelos( ) );
+	}
+
+	/**
+	 * Calcula el total vendido en los vuelos que se realizan dentro de un rango de fechas
+	 * @param fechaInicial La primera fecha del rango (incluida), en formato yyyy-MM-dd
+	 * @param fechaFinal La última fecha del rango (incluida), en formato yyyy-MM-dd
+	 * @return El total vendido en los vuelos del rango
+	 */
+	public long calcularIngresos( String fechaInicial, String fechaFinal )
+	{
+		return analizador.calcularIngresos( tomarInstantanea( ).getVuelos( ), fechaInicial, fechaFinal );
+	}
+
+	/**
+	 * Calcula cuánto suman todos los tiquetes vendidos que todavía no se han usado
+	 * @return La suma de las tarifas de los tiquetes sin usar
+	 */
+	public long calcularPasivoTiquetesSinUsar( )
+	{
+		return analizador.calcularPasivoTiquetesSinUsar( tomarInstantanea( ).getVuelos( ) );
+	}
+
+	/**
+	 * Calcula la ocupación de cada avión, considerando todos los vuelos que tiene programados
+	 * @return Un mapa donde las llaves son los nombres de los aviones y los valores son su ocupación, desde 0. Puede ser mayor que 1 si alguna de sus rutas permite
+	 *         sobreventa (ver AnalizadorVentas.calcularOcupacionPorAvion).
+	 */
+	public Map<String, Double> calcularOcupacionPorAvion( )
+	{
+		return analizador.calcularOcupacionPorAvion( tomarInstantanea( ).getVuelos( ) );
 	}
 
 }
@@ -0,0 +1,397 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.reportes.AnalizadorVentas;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Esta clase permite operar una aerolínea en modo particionado: las rutas (y con ellas sus vuelos) se reparten entre varias particiones, y cada partición tiene un
+ * único hilo que atiende, en orden, las solicitudes que llegan a su buzón.
+ *
+ * Cada solicitud de venta, cancelación o lista de espera se envía a la partición que es dueña de la ruta del vuelo, y se retorna un CompletableFuture con el resultado.
+ * Como sólo el hilo de la partición toca sus vuelos, las ventas de particiones distintas no compiten por ningún candado de vuelo, y las de una misma partición se
+ * atienden una tras otra sin contención. Cada partición genera los códigos de sus tiquetes en su propia franja (ver GeneradorTiquetes.asignarFranja) y publica sus
+ * eventos en el bus sin tomar candados (ver BusEventos). Los clientes y el catálogo (rutas, aviones) se siguen compartiendo a través de la aerolínea.
+ *
+ * Las consultas que cruzan particiones (saldos de clientes, reportes) se le piden a todas las particiones y sus resultados parciales se combinan en el momento de la
+ * consulta. Cada partición toma las instantáneas de sus vuelos entre dos solicitudes, así que lo que reporta una partición siempre corresponde a ventas completas.
+ * Las particiones no toman sus instantáneas al mismo tiempo, así que un reporte que cruza particiones es consistente partición por partición, pero no entre ellas.
+ *
+ * Los vuelos se registran en su partición a partir de la lista de vuelos de la aerolínea: antes de cada consulta que cruza particiones, cada partición revisa si la
+ * aerolínea tiene vuelos nuevos (por ejemplo, vuelos cargados de un archivo o programados directamente en la aerolínea) y registra los suyos. Las operaciones sobre un
+ * vuelo registran el vuelo la primera vez que lo usan.
+ */
+public class AerolineaParticionada implements Closeable
+{
+    private final Aerolinea aerolinea;
+
+    private final Particion[] particiones;
+
+    private final AnalizadorVentas analizador;
+
+    /**
+     * Construye el modo particionado de una aerolínea y reparte entre las particiones los vuelos que ya tiene
+     * @param aerolinea La aerolínea
+     * @param cantidadParticiones La cantidad de particiones, normalmente la cantidad de procesadores disponibles
+     */
+    public AerolineaParticionada( Aerolinea aerolinea, int cantidadParticiones )
+    {
+        if( cantidadParticiones <= 0 )
+            throw new IllegalArgumentException( "La cantidad de particiones debe ser positiva" );
+
+        this.aerolinea = aerolinea;
+        this.analizador = new AnalizadorVentas( );
+        this.particiones = new Particion[cantidadParticiones];
+        for( int i = 0; i < cantidadParticiones; i++ )
+            particiones[ i ] = new Particion( i );
+        enviarATodas( p -> {
+            p.sincronizar( );
+            return null;
+        } );
+    }
+
+    public Aerolinea getAerolinea( )
+    {
+        return aerolinea;
+    }
+
+    public int getCantidadParticiones( )
+    {
+        return particiones.length;
+    }
+
+    /**
+     * Calcula la partición que es dueña de una ruta
+     * @param codigoRuta El código de la ruta
+     * @return La posición de la partición, entre 0 y la cantidad de particiones menos 1
+     */
+    public int getParticion( String codigoRuta )
+    {
+        return Math.floorMod( codigoRuta.hashCode( ), particiones.length );
+    }
+
+    private Particion particion( String codigoRuta )
+    {
+        return particiones[ getParticion( codigoRuta ) ];
+    }
+
+    // ************************************************************************************
+    //
+    // Operaciones sobre un vuelo: se envían a la partición dueña de la ruta
+    //
+    // ************************************************************************************
+
+    /**
+     * Programa un nuevo vuelo en la aerolínea (ver Aerolinea.programarVuelo) y lo registra en su partición.
+     *
+     * La verificación de que el avión esté libre necesita ver los vuelos de todas las rutas, así que se hace en el hilo que llama y no en una partición.
+     * @throws Exception Se lanza esta excepción si hay algún problema con los datos del vuelo
+     */
+    public void programarVuelo( String fecha, String codigoRuta, String nombreAvion ) throws Exception
+    {
+        aerolinea.programarVuelo( fecha, codigoRuta, nombreAvion );
+        particion( codigoRuta ).enviar( p -> p.buscarVuelo( codigoRuta, fecha ) );
+    }
+
+    /**
+     * Vende tiquetes de un vuelo (ver Aerolinea.venderTiquetes) en la partición dueña de la ruta
+     * @return El valor total de los tiquetes vendidos. Si no se pudieron vender, el resultado termina con la misma excepción que lanzaría Aerolinea.venderTiquetes.
+     */
+    public CompletableFuture<Integer> venderTiquetes( String identificadorCliente, String fecha, String codigoRuta, int cantidad )
+    {
+        return particion( codigoRuta ).enviar( p -> {
+            Cliente cliente = buscarClienteVenta( identificadorCliente, cantidad );
+            return p.buscarVueloVenta( codigoRuta, fecha ).venderTiquetes( cliente, cantidad );
+        } );
+    }
+
+    /**
+     * Agrega una solicitud a la lista de espera de un vuelo (ver Aerolinea.agregarAListaEspera) en la partición dueña de la ruta
+     * @return La solicitud
+     */
+    public CompletableFuture<SolicitudEspera> agregarAListaEspera( String identificadorCliente, String fecha, String codigoRuta, int cantidad )
+    {
+        return particion( codigoRuta ).enviar( p -> {
+            Cliente cliente = buscarClienteVenta( identificadorCliente, cantidad );
+            return p.buscarVueloVenta( codigoRuta, fecha ).agregarAListaEspera( cliente, cantidad );
+        } );
+    }
+
+    /**
+     * Cancela un tiquete sin usar (ver Aerolinea.cancelarTiquete) en la partición dueña de la ruta
+     * @return false si el vuelo no tiene un tiquete sin usar con ese código
+     */
+    public CompletableFuture<Boolean> cancelarTiquete( String fecha, String codigoRuta, String codigoTiquete )
+    {
+        return particion( codigoRuta ).enviar( p -> p.buscarVueloVenta( codigoRuta, fecha ).cancelarTiquete( codigoTiquete ) );
+    }
+
+    private Cliente buscarClienteVenta( String identificadorCliente, int cantidad ) throws Exception
+    {
+        if( cantidad <= 0 )
+            throw new Exception( "La cantidad de tiquetes debe ser positiva" );
+        Cliente cliente = aerolinea.getCliente( identificadorCliente );
+        if( cliente == null )
+            throw new Exception( "No existe el cliente " + identificadorCliente );
+        return cliente;
+    }
+
+    // ************************************************************************************
+    //
+    // Operaciones que cruzan particiones: cada partición calcula su parte y se combinan
+    //
+    // ************************************************************************************
+
+    /**
+     * Registra como realizados todos los vuelos de una fecha. Cada partición registra los suyos.
+     * @param fecha La fecha de los vuelos
+     * @return La cantidad de tiquetes que se marcaron como usados
+     */
+    public int registrarVuelosRealizados( LocalDate fecha )
+    {
+        String dia = fecha.toString( );
+        int usados = 0;
+        for( CompletableFuture<Integer> parcial : enviarATodas( p -> {
+            p.sincronizar( );
+            int suma = 0;
+            for( Vuelos vuelo : p.vuelos.values( ) )
+            {
+                if( vuelo.getFecha( ).equals( dia ) )
+                    suma += vuelo.registrarComoRealizado( );
+            }
+            return suma;
+        } ) )
+            usados += parcial.join( );
+        return usados;
+    }
+
+    /**
+     * Toma las instantáneas de los vuelos de todas las particiones. Cada partición toma las de sus vuelos entre dos solicitudes, y las particiones no las toman al mismo
+     * tiempo: el resultado sólo es consistente dentro de cada partición.
+     * @return
+     */
+    public List<InstantaneaVuelo> tomarInstantaneas( )
+    {
+        List<InstantaneaVuelo> instantaneas = new ArrayList<InstantaneaVuelo>( );
+        for( CompletableFuture<List<InstantaneaVuelo>> parcial : enviarATodas( p -> {
+            p.sincronizar( );
+            List<InstantaneaVuelo> propias = new ArrayList<InstantaneaVuelo>( p.vuelos.size( ) );
+            for( Vuelos vuelo : p.vuelos.values( ) )
+                propias.add( vuelo.getInstantanea( ) );
+            return propias;
+        } ) )
+            instantaneas.addAll( parcial.join( ) );
+        return instantaneas;
+    }
+
+    /**
+     * Calcula cuánto valen los tiquetes sin usar de un cliente, sumando lo que calcula cada partición sobre sus vuelos
+     * @param identificadorCliente El identificador del cliente
+     * @return La suma de las tarifas de los tiquetes sin usar del cliente
+     */
+    public long consultarSaldoPendienteCliente( String identificadorCliente )
+    {
+        long saldo = 0;
+        for( CompletableFuture<Long> parcial : enviarATodas( p -> {
+            p.sincronizar( );
+            long suma = 0;
+            for( Vuelos vuelo : p.vuelos.values( ) )
+            {
+                InstantaneaVuelo instantanea = vuelo.getInstantanea( );
+                for( int i = 0; i < instantanea.getCantidadTiquetes( ); i++ )
+                {
+                    if( !instantanea.esUsado( i ) && instantanea.getTiquete( i ).getCliente( ).getIdentificador( ).equals( identificadorCliente ) )
+                        suma += instantanea.getTiquete( i ).getTarifa( );
+                }
+            }
+            return suma;
+        } ) )
+            saldo += parcial.join( );
+        return saldo;
+    }
+
+    /**
+     * Ver Aerolinea.calcularIngresosPorRuta
+     */
+    public Map<String, Long> calcularIngresosPorRuta( )
+    {
+        return analizador.calcularIngresosPorRuta( tomarInstantaneas( ) );
+    }
+
+    /**
+     * Ver Aerolinea.calcularIngresosPorTipoCliente
+     */
+    public Map<String, Long> calcularIngresosPorTipoCliente( )
+    {
+        return analizador.calcularIngresosPorTipoCliente( tomarInstantaneas( ) );
+    }
+
+    /**
+     * Ver Aerolinea.calcularIngresos
+     */
+    public long calcularIngresos( String fechaInicial, String fechaFinal )
+    {
+        return analizador.calcularIngresos( tomarInstantaneas( ), fechaInicial, fechaFinal );
+    }
+
+    /**
+     * Ver Aerolinea.calcularPasivoTiquetesSinUsar
+     */
+    public long calcularPasivoTiquetesSinUsar( )
+    {
+        return analizador.calcularPasivoTiquetesSinUsar( tomarInstantaneas( ) );
+    }
+
+    /**
+     * Ver Aerolinea.calcularOcupacionPorAvion
+     */
+    public Map<String, Double> calcularOcupacionPorAvion( )
+    {
+        return analizador.calcularOcupacionPorAvion( tomarInstantaneas( ) );
+    }
+
+    /**
+     * Envía la misma tarea a todas las particiones, sin esperar a que ninguna termine
+     * @return Los resultados parciales, en el orden de las particiones
+     */
+    private <T> List<CompletableFuture<T>> enviarATodas( Tarea<T> tarea )
+    {
+        List<CompletableFuture<T>> parciales = new ArrayList<CompletableFuture<T>>( particiones.length );
+        for( Particion particion : particiones )
+            parciales.add( particion.enviar( tarea ) );
+        return parciales;
+    }
+
+    /**
+     * Detiene los hilos de las particiones. Las solicitudes que ya estaban en los buzones se terminan de atender.
+     */
+    @Override
+    public void close( )
+    {
+        for( Particion particion : particiones )
+            particion.buzon.shutdown( );
+    }
+
+    /**
+     * Una operación que se ejecuta en el hilo de una partición
+     * @param <T> El tipo del resultado
+     */
+    private interface Tarea<T>
+    {
+        public T ejecutar( Particion particion ) throws Exception;
+    }
+
+    /**
+     * Una partición: un buzón atendido por un único hilo, y los vuelos de las rutas que le corresponden
+     */
+    private class Particion
+    {
+        private final int numero;
+
+        /**
+         * El hilo de la partición, con su cola de solicitudes pendientes
+         */
+        private final ExecutorService buzon;
+
+        /**
+         * Los vuelos de la partición. Las llaves son el código de la ruta y la fecha (ver Aerolinea.llaveVuelo). Sólo el hilo de la partición usa este mapa.
+         */
+        private final Map<String, Vuelos> vuelos;
+
+        /**
+         * La cantidad de vuelos de la aerolínea que ya se revisaron en sincronizar. La lista de vuelos de la aerolínea sólo crece, así que si no cambió de tamaño no
+         * tiene vuelos nuevos.
+         */
+        private int vuelosRevisados;
+
+        private Particion( int numero )
+        {
+            this.numero = numero;
+            this.vuelos = new HashMap<String, Vuelos>( );
+            int cantidadParticiones = particiones.length;
+            this.buzon = Executors.newSingleThreadExecutor( r -> {
+                Thread hilo = new Thread( ( ) -> {
+                    GeneradorTiquetes.asignarFranja( numero, cantidadParticiones );
+                    r.run( );
+                }, "particion-" + numero );
+                hilo.setDaemon( true );
+                return hilo;
+            } );
+        }
+
+        /**
+         * Pone una tarea en el buzón de la partición
+         * @return El resultado de la tarea. Si la tarea lanza una excepción, el resultado termina con esa excepción.
+         */
+        private <T> CompletableFuture<T> enviar( Tarea<T> tarea )
+        {
+            CompletableFuture<T> resultado = new CompletableFuture<T>( );
+            buzon.execute( ( ) -> {
+                try
+                {
+                    resultado.complete( tarea.ejecutar( this ) );
+                }
+                catch( Exception e )
+                {
+                    resultado.completeExceptionally( e );
+                }
+            } );
+            return resultado;
+        }
+
+        /**
+         * Registra los vuelos de la partición que la aerolínea tiene y que todavía no estaban registrados
+         */
+        private void sincronizar( )
+        {
+            Collection<Vuelos> todos = aerolinea.getVuelos( );
+            if( todos.size( ) == vuelosRevisados )
+                return;
+            int revisados = 0;
+            for( Vuelos vuelo : todos )
+            {
+                String codigoRuta = vuelo.getRuta( ).getCodigoRuta( );
+                if( getParticion( codigoRuta ) == numero )
+                    vuelos.putIfAbsent( Aerolinea.llaveVuelo( codigoRuta, vuelo.getFecha( ) ), vuelo );
+                revisados++;
+            }
+            vuelosRevisados = revisados;
+        }
+
+        /**
+         * Busca un vuelo de la partición. Si no está registrado, lo busca en la aerolínea y lo registra.
+         * @return El vuelo, o null si la aerolínea no tiene ese vuelo
+         */
+        private Vuelos buscarVuelo( String codigoRuta, String fecha )
+        {
+            String llave = Aerolinea.llaveVuelo( codigoRuta, fecha );
+            Vuelos vuelo = vuelos.get( llave );
+            if( vuelo == null )
+            {
+                vuelo = aerolinea.getVuelo( codigoRuta, fecha );
+                if( vuelo != null )
+                    vuelos.put( llave, vuelo );
+            }
+            return vuelo;
+        }
+
+        private Vuelos buscarVueloVenta( String codigoRuta, String fecha ) throws Exception
+        {
+            Vuelos vuelo = buscarVuelo( codigoRuta, fecha );
+            if( vuelo == null )
+                throw new Exception( "No existe un vuelo de la ruta " + codigoRuta + " el " + fecha );
+            return vuelo;
+        }
+    }
+}
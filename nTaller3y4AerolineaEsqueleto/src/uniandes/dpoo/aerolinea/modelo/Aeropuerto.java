@@ -1,7 +1,7 @@
 package uniandes.dpoo.aerolinea.modelo;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
 
@@ -12,8 +12,85 @@ import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
  */
 public class Aeropuerto
 {
-    // TODO completar
+	/**
+	 * Todos los aeropuertos que se han creado, por código
+	 */
+	private static Map<String, Aeropuerto> aeropuertosCreados = new ConcurrentHashMap<String, Aeropuerto>( );
+
 	  private static final int RADIO_TERRESTRE = 6371;
+
+	private String nombre;
+	private String codigo;
+	private String nombreCiudad;
+	private double latitud;
+	private double longitud;
+
+	/**
+	 * Construye un nuevo aeropuerto
+	 * @param nombre El nombre del aeropuerto
+	 * @param codigo El código del aeropuerto, que no puede estar repetido
+	 * @param nombreCiudad El nombre de la ciudad donde queda el aeropuerto
+	 * @param latitud La latitud del aeropuerto, en grados
+	 * @param longitud La longitud del aeropuerto, en grados
+	 * @throws AeropuertoDuplicadoException Se lanza esta excepción si ya se había creado otro aeropuerto con el mismo código
+	 */
+	public Aeropuerto( String nombre, String codigo, String nombreCiudad, double latitud, double longitud ) throws AeropuertoDuplicadoException
+	{
+		this.nombre = nombre;
+		this.codigo = codigo;
+		this.nombreCiudad = nombreCiudad;
+		this.latitud = latitud;
+		this.longitud = longitud;
+
+		if( aeropuertosCreados.putIfAbsent( codigo, this ) != null )
+			throw new AeropuertoDuplicadoException( codigo );
+	}
+
+	/**
+	 * Busca el aeropuerto que se creó con un código
+	 * @param codigo El código del aeropuerto
+	 * @return El aeropuerto, o null si no se ha creado ningún aeropuerto con ese código
+	 */
+	public static Aeropuerto buscarAeropuerto( String codigo )
+	{
+		return aeropuertosCreados.get( codigo );
+	}
+
+	/**
+	 * Libera el código de un aeropuerto que se descartó (por ejemplo, porque falló la carga del archivo que lo definía), para que se pueda volver a crear un aeropuerto
+	 * con ese código. Si el código ya corresponde a otro aeropuerto, no se hace nada.
+	 * @param aeropuerto El aeropuerto que se descartó
+	 */
+	public static void liberarCodigo( Aeropuerto aeropuerto )
+	{
+		aeropuertosCreados.remove( aeropuerto.codigo, aeropuerto );
+	}
+
+	public String getNombre( )
+	{
+		return nombre;
+	}
+
+	public String getCodigo( )
+	{
+		return codigo;
+	}
+
+	public String getNombreCiudad( )
+	{
+		return nombreCiudad;
+	}
+
+	public double getLatitud( )
+	{
+		return latitud;
+	}
+
+	public double getLongitud( )
+	{
+		return longitud;
+	}
+
 	    /**
 	     * Este método calcula la distancia *aproximada* entre dos aeropuertos. Hay fórmulas más precisas pero esta es suficientemente buena para el caso de la aerolínea.
 	     * 
@@ -29,10 +106,23 @@ public class Aeropuerto
 	     */
 	    public static int calcularDistancia( Aeropuerto aeropuerto1, Aeropuerto aeropuerto2 )
 	    {
-	        double latAeropuerto1 = Math.toRadians( aeropuerto1.getLatitud( ) );
-	        double lonAeropuerto1 = Math.toRadians( aeropuerto1.getLongitud( ) );
-	        double latAeropuerto2 = Math.toRadians( aeropuerto2.getLatitud( ) );
-	        double lonAeropuerto2 = Math.toRadians( aeropuerto2.getLongitud( ) );
+	        return calcularDistancia( aeropuerto1.getLatitud( ), aeropuerto1.getLongitud( ), aeropuerto2.getLatitud( ), aeropuerto2.getLongitud( ) );
+	    }
+
+	    /**
+	     * Calcula la distancia aproximada entre dos puntos, con la misma fórmula que se usa para calcular la distancia entre dos aeropuertos
+	     * @param latitud1 La latitud del primer punto, en grados
+	     * @param longitud1 La longitud del primer punto, en grados
+	     * @param latitud2 La latitud del segundo punto, en grados
+	     * @param longitud2 La longitud del segundo punto, en grados
+	     * @return La distancia en kilómetros entre los puntos
+	     */
+	    public static int calcularDistancia( double latitud1, double longitud1, double latitud2, double longitud2 )
+	    {
+	        double latAeropuerto1 = Math.toRadians( latitud1 );
+	        double lonAeropuerto1 = Math.toRadians( longitud1 );
+	        double latAeropuerto2 = Math.toRadians( latitud2 );
+	        double lonAeropuerto2 = Math.toRadians( longitud2 );
 
 	        double deltaX = ( lonAeropuerto2 - lonAeropuerto1 ) * Math.cos( ( latAeropuerto1 + latAeropuerto2 ) / 2 );
 	        double deltaY = ( latAeropuerto2 - latAeropuerto1 );
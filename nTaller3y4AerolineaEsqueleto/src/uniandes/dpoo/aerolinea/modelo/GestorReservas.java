@@ -0,0 +1,259 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.utilidades.RuedaTemporizadores;
+
+/**
+ * Esta clase maneja las retenciones temporales de asientos de todos los vuelos de una aerolínea.
+ *
+ * Los vencimientos se manejan con una sola rueda de temporizadores (RuedaTemporizadores) en lugar de usar un temporizador por reserva, de forma que crear, confirmar o
+ * liberar una reserva toma tiempo constante aunque haya millones de reservas activas. Un hilo de fondo avanza la rueda en cada tick y libera los asientos de las reservas
+ * vencidas.
+ *
+ * Un error al vencer una reserva no detiene el hilo de fondo: el error se cuenta, se registra en el log y se sigue con las demás reservas.
+ */
+public class GestorReservas
+{
+    /**
+     * La duración por defecto de una reserva: 5 minutos
+     */
+    public static final long DURACION_RESERVA = 5 * 60 * 1000;
+
+    /**
+     * La duración de cada tick de la rueda, en milisegundos
+     */
+    private static final long DURACION_TICK = 100;
+
+    /**
+     * La cantidad de ranuras de la rueda. Con ticks de 100ms la rueda da una vuelta cada 6.5 segundos aproximadamente.
+     */
+    private static final int RANURAS = 64;
+
+    private static final Logger LOG = Logger.getLogger( GestorReservas.class.getName( ) );
+
+    private final RuedaTemporizadores<ReservaAsientos> rueda;
+
+    /**
+     * Las reservas activas, por identificador
+     */
+    private final Map<Long, ReservaAsientos> activas;
+
+    private final AtomicLong siguienteIdentificador;
+
+    /**
+     * La cantidad de errores que se han presentado al vencer reservas
+     */
+    private final AtomicLong erroresVencimiento;
+
+    /**
+     * El hilo que avanza la rueda, o null si la rueda se avanza manualmente
+     */
+    private final ScheduledExecutorService reloj;
+
+    /**
+     * Construye un gestor cuya rueda avanza automáticamente en un hilo de fondo
+     */
+    public GestorReservas( )
+    {
+        this( true );
+    }
+
+    /**
+     * Construye un gestor de reservas
+     * @param automatico Si es true, un hilo de fondo avanza la rueda en cada tick. Si es false, las reservas sólo vencen cuando se llama a expirarVencidas.
+     */
+    public GestorReservas( boolean automatico )
+    {
+        this.rueda = new RuedaTemporizadores<ReservaAsientos>( DURACION_TICK, RANURAS, ahora( ) );
+        this.activas = new ConcurrentHashMap<Long, ReservaAsientos>( );
+        this.siguienteIdentificador = new AtomicLong( 1 );
+        this.erroresVencimiento = new AtomicLong( );
+        if( automatico )
+        {
+            reloj = Executors.newSingleThreadScheduledExecutor( r -> {
+                Thread hilo = new Thread( r, "vencimiento-reservas" );
+                hilo.setDaemon( true );
+                return hilo;
+            } );
+            // Si la tarea lanzara una excepción, el ejecutor la cancelaría sin avisar y ninguna reserva volvería a vencer
+            reloj.scheduleAtFixedRate( ( ) -> {
+                try
+                {
+                    expirarVencidas( ahora( ) );
+                }
+                catch( RuntimeException e )
+                {
+                    registrarErrorVencimiento( "Error avanzando la rueda de reservas", e );
+                }
+            }, DURACION_TICK, DURACION_TICK, TimeUnit.MILLISECONDS );
+        }
+        else
+        {
+            reloj = null;
+        }
+    }
+
+    /**
+     * Retorna el momento actual en milisegundos, según un reloj que no se ve afectado por los cambios de la hora del sistema
+     */
+    private static long ahora( )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) );
+    }
+
+    /**
+     * Retiene asientos de un vuelo durante un tiempo
+     * @param vuelo El vuelo
+     * @param cliente El cliente para el que se retienen los asientos
+     * @param cantidad La cantidad de asientos
+     * @param duracion La duración de la reserva, en milisegundos
+     * @return La reserva
+     * @throws VueloSobrevendidoException Se lanza esta excepción si el vuelo no tiene cupo para los asientos
+     */
+    public ReservaAsientos retener( Vuelos vuelo, Cliente cliente, int cantidad, long duracion ) throws VueloSobrevendidoException
+    {
+        vuelo.retenerAsientos( cantidad );
+        ReservaAsientos reserva = new ReservaAsientos( siguienteIdentificador.getAndIncrement( ), vuelo, cliente, cantidad );
+        reserva.setTemporizador( rueda.programar( reserva, ahora( ) + duracion ) );
+        activas.put( reserva.getIdentificador( ), reserva );
+        // Si la reserva era muy corta pudo haber vencido antes de quedar entre las activas
+        if( !reserva.estaActiva( ) )
+            activas.remove( reserva.getIdentificador( ) );
+        return reserva;
+    }
+
+    /**
+     * Confirma una reserva: vende los tiquetes de los asientos retenidos
+     * @param reserva La reserva
+     * @return El valor total de los tiquetes vendidos
+     * @throws VueloSobrevendidoException Se lanza esta excepción si el vuelo se realizó mientras la reserva estaba activa
+     * @throws Exception Se lanza esta excepción si la reserva ya no está activa
+     */
+    public int confirmar( ReservaAsientos reserva ) throws VueloSobrevendidoException, Exception
+    {
+        if( !reserva.terminar( ReservaAsientos.CONFIRMADA ) )
+            throw new Exception( "La reserva " + reserva.getIdentificador( ) + " ya no está activa" );
+        retirar( reserva );
+        try
+        {
+            return reserva.getVuelo( ).confirmarAsientos( reserva.getCliente( ), reserva.getCantidad( ) );
+        }
+        catch( VueloSobrevendidoException e )
+        {
+            reserva.cambiarEstado( ReservaAsientos.LIBERADA );
+            throw e;
+        }
+    }
+
+    /**
+     * Libera los asientos de una reserva antes de que venza
+     * @param reserva La reserva
+     * @return Retorna false si la reserva ya no estaba activa
+     */
+    public boolean liberar( ReservaAsientos reserva )
+    {
+        if( !reserva.terminar( ReservaAsientos.LIBERADA ) )
+            return false;
+        retirar( reserva );
+        reserva.getVuelo( ).liberarAsientos( reserva.getCantidad( ) );
+        return true;
+    }
+
+    /**
+     * Hace vencer las reservas cuyo tiempo ya terminó y libera sus asientos
+     * @param momento El momento actual, en milisegundos
+     * @return La cantidad de reservas que vencieron
+     */
+    public int expirarVencidas( long momento )
+    {
+        List<ReservaAsientos> vencidas = rueda.avanzar( momento );
+        int cantidad = 0;
+        for( ReservaAsientos reserva : vencidas )
+        {
+            try
+            {
+                if( reserva.terminar( ReservaAsientos.VENCIDA ) )
+                {
+                    activas.remove( reserva.getIdentificador( ) );
+                    reserva.getVuelo( ).liberarAsientos( reserva.getCantidad( ) );
+                    cantidad++;
+                }
+            }
+            catch( RuntimeException e )
+            {
+                // Las reservas ya salieron de la rueda: si no se siguiera con las demás, nunca vencerían
+                registrarErrorVencimiento( "Error venciendo la reserva " + reserva.getIdentificador( ), e );
+            }
+        }
+        return cantidad;
+    }
+
+    private void registrarErrorVencimiento( String mensaje, RuntimeException e )
+    {
+        erroresVencimiento.incrementAndGet( );
+        LOG.log( Level.WARNING, mensaje, e );
+    }
+
+    /**
+     * Retorna la cantidad de errores que se han presentado al vencer reservas
+     * @return
+     */
+    public long getErroresVencimiento( )
+    {
+        return erroresVencimiento.get( );
+    }
+
+    /**
+     * Hace vencer las reservas cuyo tiempo ya terminó, según el reloj del gestor
+     * @return La cantidad de reservas que vencieron
+     */
+    public int expirarVencidas( )
+    {
+        return expirarVencidas( ahora( ) );
+    }
+
+    private void retirar( ReservaAsientos reserva )
+    {
+        activas.remove( reserva.getIdentificador( ) );
+        rueda.cancelar( reserva.getTemporizador( ) );
+    }
+
+    /**
+     * Busca una reserva activa
+     * @param identificador El identificador de la reserva
+     * @return La reserva, o null si no hay una reserva activa con ese identificador
+     */
+    public ReservaAsientos getReserva( long identificador )
+    {
+        return activas.get( identificador );
+    }
+
+    /**
+     * Retorna la cantidad de reservas activas
+     * @return
+     */
+    public int getCantidadActivas( )
+    {
+        return activas.size( );
+    }
+
+    /**
+     * Detiene el hilo que avanza la rueda. Las reservas activas sólo vencerán si se llama a expirarVencidas.
+     */
+    public void detener( )
+    {
+        if( reloj != null )
+            reloj.shutdownNow( );
+    }
+}
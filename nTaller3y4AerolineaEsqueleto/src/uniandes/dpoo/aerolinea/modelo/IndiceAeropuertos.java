@@ -0,0 +1,431 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase es un índice espacial sobre un conjunto de aeropuertos, que permite encontrar los aeropuertos más cercanos a un punto y los aeropuertos que están a menos de
+ * cierta distancia, sin calcular la distancia a todos los aeropuertos.
+ *
+ * Cada aeropuerto se representa como un punto sobre la esfera unitaria, con coordenadas x, y, z calculadas una sola vez a partir de su latitud y longitud en radianes. La
+ * distancia en línea recta entre dos de esos puntos (la cuerda) crece con la distancia sobre la superficie de la Tierra, así que los aeropuertos más cercanos según la
+ * cuerda son también los más cercanos sobre la superficie, sin importar la longitud de la ruta ni si cruza el antimeridiano. Los puntos se organizan en un árbol k-d de
+ * tres dimensiones, guardado en arreglos: cada nodo es la mediana de su rango según uno de los ejes, y sus hijos son las dos mitades del rango.
+ *
+ * Las distancias que retorna el índice son distancias sobre la superficie de la Tierra (de círculo máximo), que pueden diferir un poco de las que calcula
+ * Aeropuerto.calcularDistancia, porque ese método usa una aproximación.
+ *
+ * El índice es inmutable: si cambian los aeropuertos se debe construir uno nuevo.
+ */
+public class IndiceAeropuertos
+{
+    private static final double RADIO_TERRESTRE = 6371;
+
+    /**
+     * Los aeropuertos, en el orden del árbol
+     */
+    private final Aeropuerto[] aeropuertos;
+
+    /**
+     * Las coordenadas de cada aeropuerto sobre la esfera unitaria, en el orden del árbol
+     */
+    private final double[][] coordenadas;
+
+    /**
+     * El eje (0, 1 o 2) según el cual divide su rango el nodo que está en cada posición
+     */
+    private final byte[] ejes;
+
+    /**
+     * La posición en el árbol de cada aeropuerto, según su código
+     */
+    private final Map<String, Integer> posiciones;
+
+    /**
+     * Construye el índice
+     * @param aeropuertosIndice Los aeropuertos. Si un aeropuerto aparece varias veces, sólo se tiene en cuenta una vez.
+     */
+    public IndiceAeropuertos( Collection<Aeropuerto> aeropuertosIndice )
+    {
+        Map<String, Aeropuerto> unicos = new HashMap<String, Aeropuerto>( );
+        for( Aeropuerto aeropuerto : aeropuertosIndice )
+            unicos.put( aeropuerto.getCodigo( ), aeropuerto );
+
+        int cantidad = unicos.size( );
+        aeropuertos = unicos.values( ).toArray( new Aeropuerto[cantidad] );
+        coordenadas = new double[cantidad][];
+        for( int i = 0; i < cantidad; i++ )
+            coordenadas[ i ] = aPuntoUnitario( aeropuertos[ i ].getLatitud( ), aeropuertos[ i ].getLongitud( ) );
+        ejes = new byte[cantidad];
+        construir( 0, cantidad );
+
+        posiciones = new HashMap<String, Integer>( );
+        for( int i = 0; i < cantidad; i++ )
+            posiciones.put( aeropuertos[ i ].getCodigo( ), i );
+    }
+
+    /**
+     * Convierte una latitud y una longitud en grados en un punto sobre la esfera unitaria
+     */
+    private static double[] aPuntoUnitario( double latitud, double longitud )
+    {
+        double lat = Math.toRadians( latitud );
+        double lon = Math.toRadians( longitud );
+        double cosLat = Math.cos( lat );
+        return new double[]{ cosLat * Math.cos( lon ), cosLat * Math.sin( lon ), Math.sin( lat ) };
+    }
+
+    // ************************************************************************************
+    //
+    // Construcción del árbol
+    //
+    // ************************************************************************************
+
+    /**
+     * Organiza el rango [inicio, fin) como un subárbol: deja en la mitad del rango la mediana según el eje de mayor extensión, los menores a la izquierda y los mayores a
+     * la derecha, y luego organiza cada mitad
+     */
+    private void construir( int inicio, int fin )
+    {
+        if( fin - inicio <= 0 )
+            return;
+        int mitad = ( inicio + fin ) >>> 1;
+        int eje = ejeMasExtenso( inicio, fin );
+        seleccionar( inicio, fin - 1, mitad, eje );
+        ejes[ mitad ] = ( byte )eje;
+        construir( inicio, mitad );
+        construir( mitad + 1, fin );
+    }
+
+    private int ejeMasExtenso( int inicio, int fin )
+    {
+        int mejorEje = 0;
+        double mejorExtension = -1;
+        for( int eje = 0; eje < 3; eje++ )
+        {
+            double minimo = Double.MAX_VALUE;
+            double maximo = -Double.MAX_VALUE;
+            for( int i = inicio; i < fin; i++ )
+            {
+                minimo = Math.min( minimo, coordenadas[ i ][ eje ] );
+                maximo = Math.max( maximo, coordenadas[ i ][ eje ] );
+            }
+            if( maximo - minimo > mejorExtension )
+            {
+                mejorExtension = maximo - minimo;
+                mejorEje = eje;
+            }
+        }
+        return mejorEje;
+    }
+
+    /**
+     * Reorganiza el rango [izquierda, derecha] de forma que en la posición k quede el elemento que iría ahí si el rango estuviera ordenado según el eje (quickselect)
+     */
+    private void seleccionar( int izquierda, int derecha, int k, int eje )
+    {
+        while( izquierda < derecha )
+        {
+            double pivote = coordenadas[ ( izquierda + derecha ) >>> 1 ][ eje ];
+            int i = izquierda;
+            int j = derecha;
+            while( i <= j )
+            {
+                while( coordenadas[ i ][ eje ] < pivote )
+                    i++;
+                while( coordenadas[ j ][ eje ] > pivote )
+                    j--;
+                if( i <= j )
+                    intercambiar( i++, j-- );
+            }
+            if( k <= j )
+                derecha = j;
+            else if( k >= i )
+                izquierda = i;
+            else
+                return;
+        }
+    }
+
+    private void intercambiar( int i, int j )
+    {
+        Aeropuerto aeropuerto = aeropuertos[ i ];
+        aeropuertos[ i ] = aeropuertos[ j ];
+        aeropuertos[ j ] = aeropuerto;
+        double[] punto = coordenadas[ i ];
+        coordenadas[ i ] = coordenadas[ j ];
+        coordenadas[ j ] = punto;
+    }
+
+    // ************************************************************************************
+    //
+    // Consultas
+    //
+    // ************************************************************************************
+
+    public int getCantidadAeropuertos( )
+    {
+        return aeropuertos.length;
+    }
+
+    /**
+     * Busca un aeropuerto del índice
+     * @param codigo El código del aeropuerto
+     * @return El aeropuerto, o null si no está en el índice
+     */
+    public Aeropuerto getAeropuerto( String codigo )
+    {
+        Integer posicion = posiciones.get( codigo );
+        return posicion == null ? null : aeropuertos[ posicion ];
+    }
+
+    /**
+     * Busca los aeropuertos más cercanos a un punto
+     * @param latitud La latitud del punto, en grados
+     * @param longitud La longitud del punto, en grados
+     * @param cantidad La cantidad de aeropuertos que se buscan
+     * @return Los aeropuertos más cercanos, del más cercano al más lejano. Si el índice tiene menos aeropuertos, se retornan todos.
+     */
+    public List<Aeropuerto> buscarMasCercanos( double latitud, double longitud, int cantidad )
+    {
+        return buscarMasCercanos( aPuntoUnitario( latitud, longitud ), cantidad, -1 );
+    }
+
+    /**
+     * Busca los aeropuertos más cercanos a otro aeropuerto, sin incluirlo a él
+     * @param aeropuerto El aeropuerto
+     * @param cantidad La cantidad de aeropuertos que se buscan
+     * @return Los aeropuertos más cercanos, del más cercano al más lejano
+     */
+    public List<Aeropuerto> buscarMasCercanos( Aeropuerto aeropuerto, int cantidad )
+    {
+        Integer posicion = posiciones.get( aeropuerto.getCodigo( ) );
+        double[] punto = aPuntoUnitario( aeropuerto.getLatitud( ), aeropuerto.getLongitud( ) );
+        return buscarMasCercanos( punto, cantidad, posicion == null ? -1 : posicion );
+    }
+
+    /**
+     * Busca los aeropuertos que están a lo sumo a cierta distancia de un punto
+     * @param latitud La latitud del punto, en grados
+     * @param longitud La longitud del punto, en grados
+     * @param radio La distancia máxima, en kilómetros
+     * @return Los aeropuertos, del más cercano al más lejano
+     */
+    public List<Aeropuerto> buscarEnRadio( double latitud, double longitud, double radio )
+    {
+        return buscarEnRadio( aPuntoUnitario( latitud, longitud ), radio, -1 );
+    }
+
+    /**
+     * Busca los aeropuertos que están a lo sumo a cierta distancia de otro aeropuerto, sin incluirlo a él
+     * @param aeropuerto El aeropuerto
+     * @param radio La distancia máxima, en kilómetros
+     * @return Los aeropuertos, del más cercano al más lejano
+     */
+    public List<Aeropuerto> buscarEnRadio( Aeropuerto aeropuerto, double radio )
+    {
+        Integer posicion = posiciones.get( aeropuerto.getCodigo( ) );
+        double[] punto = aPuntoUnitario( aeropuerto.getLatitud( ), aeropuerto.getLongitud( ) );
+        return buscarEnRadio( punto, radio, posicion == null ? -1 : posicion );
+    }
+
+    /**
+     * Calcula la distancia sobre la superficie de la Tierra entre dos aeropuertos del índice
+     * @param codigo1 El código del primer aeropuerto
+     * @param codigo2 El código del segundo aeropuerto
+     * @return La distancia en kilómetros
+     */
+    public double calcularDistancia( String codigo1, String codigo2 )
+    {
+        Integer posicion1 = posiciones.get( codigo1 );
+        Integer posicion2 = posiciones.get( codigo2 );
+        if( posicion1 == null || posicion2 == null )
+            throw new IllegalArgumentException( "El aeropuerto " + ( posicion1 == null ? codigo1 : codigo2 ) + " no está en el índice" );
+        return aKilometros( distanciaCuadrada( coordenadas[ posicion1 ], posicion2 ) );
+    }
+
+    /**
+     * Convierte el cuadrado de la cuerda entre dos puntos de la esfera unitaria en la distancia sobre la superficie de la Tierra
+     */
+    private static double aKilometros( double cuerdaCuadrada )
+    {
+        return 2 * RADIO_TERRESTRE * Math.asin( Math.min( 1, Math.sqrt( cuerdaCuadrada ) / 2 ) );
+    }
+
+    /**
+     * Convierte una distancia sobre la superficie de la Tierra en el cuadrado de la cuerda entre los dos puntos
+     */
+    private static double aCuerdaCuadrada( double kilometros )
+    {
+        double angulo = Math.min( Math.PI, kilometros / RADIO_TERRESTRE );
+        double cuerda = 2 * Math.sin( angulo / 2 );
+        return cuerda * cuerda;
+    }
+
+    private double distanciaCuadrada( double[] punto, int posicion )
+    {
+        double[] otro = coordenadas[ posicion ];
+        double dx = punto[ 0 ] - otro[ 0 ];
+        double dy = punto[ 1 ] - otro[ 1 ];
+        double dz = punto[ 2 ] - otro[ 2 ];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private List<Aeropuerto> buscarMasCercanos( double[] punto, int cantidad, int excluido )
+    {
+        if( cantidad <= 0 )
+            return new ArrayList<Aeropuerto>( );
+        Candidatos candidatos = new Candidatos( Math.min( cantidad, aeropuertos.length ) );
+        buscarMasCercanos( punto, 0, aeropuertos.length, excluido, candidatos );
+        return candidatos.ordenar( );
+    }
+
+    private void buscarMasCercanos( double[] punto, int inicio, int fin, int excluido, Candidatos candidatos )
+    {
+        if( fin - inicio <= 0 )
+            return;
+        int mitad = ( inicio + fin ) >>> 1;
+        if( mitad != excluido )
+            candidatos.considerar( mitad, distanciaCuadrada( punto, mitad ) );
+
+        // Primero se visita la mitad donde está el punto; la otra sólo si el plano que las separa está más cerca que el peor candidato
+        double diferencia = punto[ ejes[ mitad ] ] - coordenadas[ mitad ][ ejes[ mitad ] ];
+        if( diferencia < 0 )
+        {
+            buscarMasCercanos( punto, inicio, mitad, excluido, candidatos );
+            if( diferencia * diferencia < candidatos.peorDistancia( ) )
+                buscarMasCercanos( punto, mitad + 1, fin, excluido, candidatos );
+        }
+        else
+        {
+            buscarMasCercanos( punto, mitad + 1, fin, excluido, candidatos );
+            if( diferencia * diferencia < candidatos.peorDistancia( ) )
+                buscarMasCercanos( punto, inicio, mitad, excluido, candidatos );
+        }
+    }
+
+    private List<Aeropuerto> buscarEnRadio( double[] punto, double radio, int excluido )
+    {
+        Candidatos encontrados = new Candidatos( aeropuertos.length );
+        buscarEnRadio( punto, aCuerdaCuadrada( radio ), 0, aeropuertos.length, excluido, encontrados );
+        return encontrados.ordenar( );
+    }
+
+    private void buscarEnRadio( double[] punto, double limite, int inicio, int fin, int excluido, Candidatos encontrados )
+    {
+        if( fin - inicio <= 0 )
+            return;
+        int mitad = ( inicio + fin ) >>> 1;
+        if( mitad != excluido )
+        {
+            double distancia = distanciaCuadrada( punto, mitad );
+            if( distancia <= limite )
+                encontrados.considerar( mitad, distancia );
+        }
+
+        double diferencia = punto[ ejes[ mitad ] ] - coordenadas[ mitad ][ ejes[ mitad ] ];
+        if( diferencia < 0 || diferencia * diferencia <= limite )
+            buscarEnRadio( punto, limite, inicio, mitad, excluido, encontrados );
+        if( diferencia >= 0 || diferencia * diferencia <= limite )
+            buscarEnRadio( punto, limite, mitad + 1, fin, excluido, encontrados );
+    }
+
+    /**
+     * Los mejores candidatos de una búsqueda: un max-heap de a lo sumo 'limite' posiciones, ordenado por distancia, de forma que el peor candidato siempre está en la
+     * raíz y se puede reemplazar en tiempo logarítmico. Los arreglos del heap crecen a medida que se necesita, para no reservar espacio para todo el índice en cada
+     * búsqueda por radio.
+     */
+    private class Candidatos
+    {
+        private final int limite;
+        private int[] posicionesHeap;
+        private double[] distancias;
+        private int tamano;
+
+        Candidatos( int limite )
+        {
+            this.limite = limite;
+            posicionesHeap = new int[Math.min( limite, 16 )];
+            distancias = new double[posicionesHeap.length];
+        }
+
+        /**
+         * Retorna la distancia del peor candidato, o infinito si todavía caben más candidatos
+         */
+        double peorDistancia( )
+        {
+            return tamano < limite ? Double.POSITIVE_INFINITY : distancias[ 0 ];
+        }
+
+        void considerar( int posicion, double distancia )
+        {
+            if( tamano < limite )
+            {
+                if( tamano == posicionesHeap.length )
+                {
+                    posicionesHeap = Arrays.copyOf( posicionesHeap, Math.min( limite, 2 * tamano ) );
+                    distancias = Arrays.copyOf( distancias, posicionesHeap.length );
+                }
+                int i = tamano++;
+                while( i > 0 && distancias[ ( i - 1 ) / 2 ] < distancia )
+                {
+                    posicionesHeap[ i ] = posicionesHeap[ ( i - 1 ) / 2 ];
+                    distancias[ i ] = distancias[ ( i - 1 ) / 2 ];
+                    i = ( i - 1 ) / 2;
+                }
+                posicionesHeap[ i ] = posicion;
+                distancias[ i ] = distancia;
+            }
+            else if( tamano > 0 && distancia < distancias[ 0 ] )
+            {
+                hundir( posicion, distancia );
+            }
+        }
+
+        /**
+         * Reemplaza la raíz por un nuevo candidato y lo baja hasta su lugar
+         */
+        private void hundir( int posicion, double distancia )
+        {
+            int i = 0;
+            while( true )
+            {
+                int hijo = 2 * i + 1;
+                if( hijo >= tamano )
+                    break;
+                if( hijo + 1 < tamano && distancias[ hijo + 1 ] > distancias[ hijo ] )
+                    hijo++;
+                if( distancias[ hijo ] <= distancia )
+                    break;
+                posicionesHeap[ i ] = posicionesHeap[ hijo ];
+                distancias[ i ] = distancias[ hijo ];
+                i = hijo;
+            }
+            posicionesHeap[ i ] = posicion;
+            distancias[ i ] = distancia;
+        }
+
+        /**
+         * Vacía el heap y retorna los aeropuertos del más cercano al más lejano
+         */
+        List<Aeropuerto> ordenar( )
+        {
+            Aeropuerto[] ordenados = new Aeropuerto[tamano];
+            while( tamano > 0 )
+            {
+                ordenados[ tamano - 1 ] = aeropuertos[ posicionesHeap[ 0 ] ];
+                tamano--;
+                if( tamano > 0 )
+                    hundir( posicionesHeap[ tamano ], distancias[ tamano ] );
+            }
+            List<Aeropuerto> lista = new ArrayList<Aeropuerto>( ordenados.length );
+            for( Aeropuerto aeropuerto : ordenados )
+                lista.add( aeropuerto );
+            return lista;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase representa el estado de los vuelos y los clientes de una aerolínea en un momento dado. Es la vista que usan los reportes y la persistencia para poder
+ * recorrer todos los tiquetes sin detener las ventas.
+ *
+ * La instantánea se arma con una instantánea de cada vuelo, tomadas una después de otra. Por sí solas no forman un estado en el que la aerolínea haya estado: si un
+ * cliente cancela un tiquete de un vuelo que ya se copió y después compra en otro que todavía no, la instantánea tendría los dos tiquetes. Por eso la aerolínea
+ * revisa con sigueVigente que ningún vuelo haya cambiado mientras se armaba la instantánea, y si alguno cambió la vuelve a tomar (ver Aerolinea.tomarInstantanea).
+ */
+public class InstantaneaAerolinea
+{
+    private final List<InstantaneaVuelo> vuelos;
+    private final List<Cliente> clientes;
+    private final int cantidadTiquetes;
+
+    InstantaneaAerolinea( Collection<Vuelos> vuelosAerolinea, Collection<Cliente> clientesAerolinea )
+    {
+        List<InstantaneaVuelo> lista = new ArrayList<InstantaneaVuelo>( vuelosAerolinea.size( ) );
+        int tiquetes = 0;
+        for( Vuelos vuelo : vuelosAerolinea )
+        {
+            InstantaneaVuelo instantanea = vuelo.getInstantanea( );
+            lista.add( instantanea );
+            tiquetes += instantanea.getCantidadTiquetes( );
+        }
+        this.vuelos = Collections.unmodifiableList( lista );
+        // Los clientes se copian después de los vuelos: como nunca se eliminan clientes, todo cliente que tenga un tiquete en la instantánea también queda en ella
+        this.clientes = Collections.unmodifiableList( new ArrayList<Cliente>( clientesAerolinea ) );
+        this.cantidadTiquetes = tiquetes;
+    }
+
+    /**
+     * Indica si la instantánea todavía corresponde al estado de los vuelos: si la aerolínea no tiene vuelos nuevos y ninguno de sus vuelos cambió desde que se copió.
+     *
+     * Si es así, la instantánea es el estado que tenía la aerolínea cuando se terminó de armar: cada vuelo tuvo el estado copiado desde que se copió hasta esta revisión,
+     * así que todos lo tenían al mismo tiempo.
+     * @param vuelosAerolinea Los vuelos de la aerolínea, en el mismo orden en el que se copiaron. Los vuelos nunca se retiran de la aerolínea.
+     * @return
+     */
+    boolean sigueVigente( Collection<Vuelos> vuelosAerolinea )
+    {
+        if( vuelosAerolinea.size( ) != vuelos.size( ) )
+            return false;
+        for( InstantaneaVuelo vuelo : vuelos )
+        {
+            if( vuelo.getVuelo( ).getVersion( ) != vuelo.getVersion( ) )
+                return false;
+        }
+        return true;
+    }
+
+    public List<InstantaneaVuelo> getVuelos( )
+    {
+        return vuelos;
+    }
+
+    public List<Cliente> getClientes( )
+    {
+        return clientes;
+    }
+
+    public int getCantidadTiquetes( )
+    {
+        return cantidadTiquetes;
+    }
+
+    /**
+     * Retorna todos los tiquetes de la instantánea, vuelo por vuelo
+     * @return Una lista nueva
+     */
+    public List<Tiquete> getTiquetes( )
+    {
+        List<Tiquete> tiquetes = new ArrayList<Tiquete>( cantidadTiquetes );
+        for( InstantaneaVuelo vuelo : vuelos )
+            tiquetes.addAll( vuelo.getTiquetes( ) );
+        return tiquetes;
+    }
+}
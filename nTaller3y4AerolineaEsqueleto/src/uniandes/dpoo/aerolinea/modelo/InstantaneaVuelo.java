@@ -0,0 +1,111 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase representa el estado de un vuelo en un momento dado: los tiquetes que tenía vendidos y cuáles de ellos estaban usados.
+ *
+ * Los objetos de esta clase son inmutables. Cada vuelo lleva un número de versión que aumenta cada vez que cambian sus tiquetes, y guarda la última instantánea que
+ * se tomó; si el vuelo no ha cambiado desde entonces, tomar una nueva instantánea no copia nada.
+ *
+ * Los tiquetes se guardan por referencia. Lo único que puede cambiar de un tiquete después de venderse es si está usado, y por eso ese valor se copia aparte: se debe
+ * consultar con esUsado(int) y no con Tiquete.esUsado.
+ */
+public class InstantaneaVuelo
+{
+    private final Vuelos vuelo;
+    private final long version;
+    private final boolean realizado;
+    private final Tiquete[] tiquetes;
+    private final boolean[] usados;
+
+    InstantaneaVuelo( Vuelos vuelo, long version, boolean realizado, Tiquete[] tiquetes )
+    {
+        this.vuelo = vuelo;
+        this.version = version;
+        this.realizado = realizado;
+        this.tiquetes = tiquetes;
+        this.usados = new boolean[tiquetes.length];
+        for( int i = 0; i < tiquetes.length; i++ )
+            usados[ i ] = tiquetes[ i ].esUsado( );
+    }
+
+    public Vuelos getVuelo( )
+    {
+        return vuelo;
+    }
+
+    public Ruta getRuta( )
+    {
+        return vuelo.getRuta( );
+    }
+
+    public String getFecha( )
+    {
+        return vuelo.getFecha( );
+    }
+
+    public Avion getAvion( )
+    {
+        return vuelo.getAvion( );
+    }
+
+    /**
+     * Retorna la versión del vuelo que corresponde a esta instantánea
+     * @return
+     */
+    public long getVersion( )
+    {
+        return version;
+    }
+
+    public boolean esRealizado( )
+    {
+        return realizado;
+    }
+
+    public int getCantidadTiquetes( )
+    {
+        return tiquetes.length;
+    }
+
+    public Tiquete getTiquete( int posicion )
+    {
+        return tiquetes[ posicion ];
+    }
+
+    /**
+     * Indica si un tiquete estaba usado en el momento de la instantánea
+     * @param posicion La posición del tiquete, entre 0 y getCantidadTiquetes() - 1
+     * @return
+     */
+    public boolean esUsado( int posicion )
+    {
+        return usados[ posicion ];
+    }
+
+    /**
+     * Retorna los tiquetes del vuelo en el momento de la instantánea, en el mismo orden de las posiciones
+     * @return Una lista que no se puede modificar
+     */
+    public List<Tiquete> getTiquetes( )
+    {
+        return new AbstractList<Tiquete>( )
+        {
+            @Override
+            public Tiquete get( int posicion )
+            {
+                return tiquetes[ posicion ];
+            }
+
+            @Override
+            public int size( )
+            {
+                return tiquetes.length;
+            }
+        };
+    }
+}
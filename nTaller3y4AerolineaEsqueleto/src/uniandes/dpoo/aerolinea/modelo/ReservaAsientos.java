@@ -0,0 +1,111 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.utilidades.RuedaTemporizadores.Temporizador;
+
+/**
+ * Esta clase representa una retención temporal de asientos en un vuelo, mientras se confirma el pago de la venta.
+ *
+ * Los asientos retenidos cuentan contra el cupo del vuelo. Una reserva activa termina de una de tres formas: se confirma (y se venden los tiquetes), se libera, o vence.
+ * El cambio de estado es atómico, así que sólo una de esas tres cosas puede ocurrir y los asientos se devuelven o se venden exactamente una vez.
+ */
+public class ReservaAsientos
+{
+    public static final int ACTIVA = 0;
+    public static final int CONFIRMADA = 1;
+    public static final int LIBERADA = 2;
+    public static final int VENCIDA = 3;
+
+    private final long identificador;
+    private final Vuelos vuelo;
+    private final Cliente cliente;
+    private final int cantidad;
+    private final AtomicInteger estado;
+
+    /**
+     * El temporizador que hace vencer la reserva
+     */
+    private volatile Temporizador<ReservaAsientos> temporizador;
+
+    ReservaAsientos( long identificador, Vuelos vuelo, Cliente cliente, int cantidad )
+    {
+        this.identificador = identificador;
+        this.vuelo = vuelo;
+        this.cliente = cliente;
+        this.cantidad = cantidad;
+        this.estado = new AtomicInteger( ACTIVA );
+    }
+
+    public long getIdentificador( )
+    {
+        return identificador;
+    }
+
+    public Vuelos getVuelo( )
+    {
+        return vuelo;
+    }
+
+    public Cliente getCliente( )
+    {
+        return cliente;
+    }
+
+    public int getCantidad( )
+    {
+        return cantidad;
+    }
+
+    /**
+     * Retorna el estado de la reserva: ACTIVA, CONFIRMADA, LIBERADA o VENCIDA
+     * @return
+     */
+    public int getEstado( )
+    {
+        return estado.get( );
+    }
+
+    public boolean estaActiva( )
+    {
+        return estado.get( ) == ACTIVA;
+    }
+
+    /**
+     * Retorna el momento, en milisegundos, en el que vence la reserva
+     * @return
+     */
+    public long getVencimiento( )
+    {
+        return temporizador.getVencimiento( );
+    }
+
+    Temporizador<ReservaAsientos> getTemporizador( )
+    {
+        return temporizador;
+    }
+
+    void setTemporizador( Temporizador<ReservaAsientos> temporizador )
+    {
+        this.temporizador = temporizador;
+    }
+
+    /**
+     * Termina la reserva si todavía está activa
+     * @param nuevoEstado CONFIRMADA, LIBERADA o VENCIDA
+     * @return Retorna true si la reserva estaba activa y quedó en el nuevo estado
+     */
+    boolean terminar( int nuevoEstado )
+    {
+        return estado.compareAndSet( ACTIVA, nuevoEstado );
+    }
+
+    /**
+     * Cambia el estado de una reserva que ya había terminado, por ejemplo cuando una confirmación falla y los asientos se terminan liberando
+     */
+    void cambiarEstado( int nuevoEstado )
+    {
+        estado.set( nuevoEstado );
+    }
+}
@@ -1,6 +1,6 @@
 package uniandes.dpoo.aerolinea.modelo;
 
-import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tarifas.EstructuraTarifaria;
 
 /**
  * Esta clase tiene la información de una ruta entre dos aeropuertos que cubre una aerolínea.
@@ -15,6 +15,22 @@ public class Ruta
 	private String codigoRuta;
 	private Aeropuerto origen;
 
+	/**
+	 * La fracción de la capacidad de los aviones que se puede vender por encima de su capacidad en los vuelos de esta ruta (por ejemplo 0.05 para vender 5% más). Por
+	 * defecto es 0, es decir que no hay sobreventa.
+	 */
+	private volatile double margenSobreventa;
+
+	/**
+	 * Las clases tarifarias que se venden en los vuelos de esta ruta, o null si los tiquetes se venden siempre a la tarifa normal
+	 */
+	private volatile EstructuraTarifaria estructuraTarifaria;
+
+	/**
+	 * Las ventas diarias de los vuelos de esta ruta
+	 */
+	private final SerieVentas serieVentas = new SerieVentas();
+
 	public Ruta(Aeropuerto origen, Aeropuerto destino, String horaSalida, String horaLlegada, String codigoRuta) {
 		this.origen = origen;
 		this.destino = destino;
@@ -23,6 +39,45 @@ public class Ruta
 		this.codigoRuta = codigoRuta;
 	}
 
+	public double getMargenSobreventa() {
+		return margenSobreventa;
+	}
+
+	/**
+	 * Cambia el margen de sobreventa de la ruta
+	 * @param margenSobreventa La fracción de la capacidad que se puede vender por encima de la capacidad de los aviones. No puede ser negativa.
+	 */
+	public void setMargenSobreventa(double margenSobreventa) {
+		if (margenSobreventa < 0 || Double.isNaN(margenSobreventa))
+			throw new IllegalArgumentException("El margen de sobreventa no puede ser negativo");
+		this.margenSobreventa = margenSobreventa;
+	}
+
+	public EstructuraTarifaria getEstructuraTarifaria() {
+		return estructuraTarifaria;
+	}
+
+	/**
+	 * Cambia las clases tarifarias de la ruta
+	 * @param estructuraTarifaria Las clases tarifarias, o null para vender siempre a la tarifa normal
+	 */
+	public void setEstructuraTarifaria(EstructuraTarifaria estructuraTarifaria) {
+		this.estructuraTarifaria = estructuraTarifaria;
+	}
+
+	/**
+	 * Calcula la cantidad máxima de tiquetes que se pueden vender en un vuelo de esta ruta, teniendo en cuenta el margen de sobreventa
+	 * @param capacidad La capacidad del avión que realiza el vuelo
+	 * @return La capacidad más la sobreventa permitida, redondeada hacia abajo
+	 */
+	public int calcularCupoMaximo(int capacidad) {
+		return capacidad + (int) Math.floor(capacidad * margenSobreventa);
+	}
+
+	public SerieVentas getSerieVentas() {
+		return serieVentas;
+	}
+
 	public String getCodigoRuta() {
 		return codigoRuta;
 	}
@@ -79,9 +134,4 @@ public class Ruta
 	        int duracionMinutos = minutosLlegada - minutosSalida;
 	        return duracionHoras * 60 + duracionMinutos;
 	    }
-
-		public int calcularTarifa(Cliente cliente, String fecha) {
-
-			return 0;
-		}
 	}
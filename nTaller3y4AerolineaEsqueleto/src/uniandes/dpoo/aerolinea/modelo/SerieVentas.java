@@ -0,0 +1,282 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Esta clase guarda las ventas diarias de una ruta (cantidad de tiquetes e ingresos) durante una cantidad fija de días, para responder consultas sobre ventanas de tiempo
+ * ("ventas por día en los últimos 90 días") sin recorrer los tiquetes.
+ *
+ * Los días se guardan en un anillo: el día d ocupa la posición d % capacidad, junto con el número del día al que corresponden los datos. Cuando llega una venta de un día
+ * nuevo, los datos del día que ocupaba la misma posición (capacidad días antes) se descartan. La memoria que ocupa la serie depende sólo de su capacidad.
+ *
+ * Las ventas son netas: cuando se cancela un tiquete, se descuenta del día en que se vendió (ver anular).
+ *
+ * Los días se identifican por su número desde el 1 de enero de 1970 (ver LocalDate.toEpochDay). Una ventana incluye los días de sus dos extremos; los días de la ventana
+ * en los que no hubo ventas cuentan como días con 0 tiquetes.
+ *
+ * Todos los métodos se sincronizan sobre la serie, que es compartida por todos los vuelos de la ruta.
+ */
+public class SerieVentas
+{
+    /**
+     * La cantidad de días que guarda una serie por defecto: poco más de un año
+     */
+    public static final int CAPACIDAD_POR_DEFECTO = 400;
+
+    /**
+     * El valor que indica que una posición del anillo no tiene datos
+     */
+    private static final long SIN_DIA = Long.MIN_VALUE;
+
+    /**
+     * El día al que corresponden los datos de cada posición, o SIN_DIA
+     */
+    private final long[] dias;
+
+    private final int[] tiquetes;
+
+    private final long[] ingresos;
+
+    /**
+     * El día más reciente con ventas, o SIN_DIA si no ha habido ventas
+     */
+    private long ultimoDia;
+
+    public SerieVentas( )
+    {
+        this( CAPACIDAD_POR_DEFECTO );
+    }
+
+    /**
+     * Construye una serie vacía
+     * @param capacidad La cantidad de días que se guardan
+     */
+    public SerieVentas( int capacidad )
+    {
+        if( capacidad <= 0 )
+            throw new IllegalArgumentException( "La capacidad de la serie debe ser positiva" );
+        this.dias = new long[capacidad];
+        this.tiquetes = new int[capacidad];
+        this.ingresos = new long[capacidad];
+        Arrays.fill( dias, SIN_DIA );
+        this.ultimoDia = SIN_DIA;
+    }
+
+    public int getCapacidad( )
+    {
+        return dias.length;
+    }
+
+    private int posicion( long dia )
+    {
+        return ( int )Math.floorMod( dia, ( long )dias.length );
+    }
+
+    /**
+     * Indica si un día ya salió de la serie (o nunca va a estar en ella) porque es demasiado antiguo respecto al día más reciente
+     */
+    private boolean descartado( long dia )
+    {
+        return ultimoDia != SIN_DIA && dia <= ultimoDia - dias.length;
+    }
+
+    /**
+     * Registra una venta
+     * @param dia El día de la venta
+     * @param cantidad La cantidad de tiquetes vendidos
+     * @param ingreso El valor total de los tiquetes
+     * @return Retorna false si el día es demasiado antiguo para la serie. En ese caso la venta no se registra.
+     */
+    public synchronized boolean registrar( long dia, int cantidad, long ingreso )
+    {
+        if( descartado( dia ) )
+            return false;
+        int i = posicion( dia );
+        if( dias[ i ] != dia )
+        {
+            dias[ i ] = dia;
+            tiquetes[ i ] = 0;
+            ingresos[ i ] = 0;
+        }
+        tiquetes[ i ] += cantidad;
+        ingresos[ i ] += ingreso;
+        if( ultimoDia == SIN_DIA || dia > ultimoDia )
+            ultimoDia = dia;
+        return true;
+    }
+
+    public boolean registrar( LocalDate dia, int cantidad, long ingreso )
+    {
+        return registrar( dia.toEpochDay( ), cantidad, ingreso );
+    }
+
+    /**
+     * Descuenta una venta cancelada del día en que se registró. Las ventas del día nunca quedan negativas.
+     * @param dia El día de la venta
+     * @param cantidad La cantidad de tiquetes cancelados
+     * @param ingreso El valor total de los tiquetes cancelados
+     * @return Retorna false si el día ya no está en la serie. En ese caso no se descuenta nada.
+     */
+    public synchronized boolean anular( long dia, int cantidad, long ingreso )
+    {
+        int i = posicion( dia );
+        if( descartado( dia ) || dias[ i ] != dia )
+            return false;
+        tiquetes[ i ] = Math.max( 0, tiquetes[ i ] - cantidad );
+        ingresos[ i ] = Math.max( 0, ingresos[ i ] - ingreso );
+        return true;
+    }
+
+    /**
+     * Reemplaza las ventas de un día por otras, por ejemplo al cargarlas de un archivo
+     * @param dia El día
+     * @param cantidad La cantidad de tiquetes vendidos ese día
+     * @param ingreso El valor total de los tiquetes vendidos ese día
+     * @return Retorna false si el día es demasiado antiguo para la serie. En ese caso las ventas no se guardan.
+     */
+    public synchronized boolean reemplazar( long dia, int cantidad, long ingreso )
+    {
+        if( descartado( dia ) )
+            return false;
+        int i = posicion( dia );
+        dias[ i ] = dia;
+        tiquetes[ i ] = cantidad;
+        ingresos[ i ] = ingreso;
+        if( ultimoDia == SIN_DIA || dia > ultimoDia )
+            ultimoDia = dia;
+        return true;
+    }
+
+    public boolean reemplazar( LocalDate dia, int cantidad, long ingreso )
+    {
+        return reemplazar( dia.toEpochDay( ), cantidad, ingreso );
+    }
+
+    /**
+     * Retorna el día más reciente con ventas, o null si no ha habido ventas
+     * @return
+     */
+    public synchronized LocalDate getUltimoDia( )
+    {
+        return ultimoDia == SIN_DIA ? null : LocalDate.ofEpochDay( ultimoDia );
+    }
+
+    public synchronized int getTiquetes( long dia )
+    {
+        int i = posicion( dia );
+        return dias[ i ] == dia && !descartado( dia ) ? tiquetes[ i ] : 0;
+    }
+
+    public synchronized long getIngresos( long dia )
+    {
+        int i = posicion( dia );
+        return dias[ i ] == dia && !descartado( dia ) ? ingresos[ i ] : 0;
+    }
+
+    /**
+     * Retorna los días que tienen ventas guardadas en la serie, en orden cronológico
+     * @return
+     */
+    public synchronized long[] getDiasConVentas( )
+    {
+        long[] conVentas = new long[dias.length];
+        int cantidad = 0;
+        for( long dia : dias )
+        {
+            if( dia != SIN_DIA && !descartado( dia ) )
+                conVentas[ cantidad++ ] = dia;
+        }
+        conVentas = Arrays.copyOf( conVentas, cantidad );
+        Arrays.sort( conVentas );
+        return conVentas;
+    }
+
+    // ************************************************************************************
+    //
+    // Consultas sobre ventanas de días
+    //
+    // ************************************************************************************
+
+    /**
+     * Suma los tiquetes vendidos en una ventana de días
+     * @param desde El primer día de la ventana
+     * @param hasta El último día de la ventana
+     * @return
+     */
+    public synchronized long sumarTiquetes( LocalDate desde, LocalDate hasta )
+    {
+        long total = 0;
+        for( long dia = inicioVentana( desde.toEpochDay( ), hasta.toEpochDay( ) ); dia <= hasta.toEpochDay( ); dia++ )
+            total += getTiquetes( dia );
+        return total;
+    }
+
+    /**
+     * Suma los ingresos por ventas de una ventana de días
+     * @param desde El primer día de la ventana
+     * @param hasta El último día de la ventana
+     * @return
+     */
+    public synchronized long sumarIngresos( LocalDate desde, LocalDate hasta )
+    {
+        long total = 0;
+        for( long dia = inicioVentana( desde.toEpochDay( ), hasta.toEpochDay( ) ); dia <= hasta.toEpochDay( ); dia++ )
+            total += getIngresos( dia );
+        return total;
+    }
+
+    /**
+     * Calcula el promedio de tiquetes vendidos por día en los días que terminan en un día dado
+     * @param hasta El último día de la ventana
+     * @param cantidadDias La cantidad de días de la ventana
+     * @return
+     */
+    public double calcularPromedioTiquetes( LocalDate hasta, int cantidadDias )
+    {
+        return ( double )sumarTiquetes( hasta.minusDays( cantidadDias - 1 ), hasta ) / cantidadDias;
+    }
+
+    /**
+     * Calcula el promedio de ingresos por día en los días que terminan en un día dado
+     * @param hasta El último día de la ventana
+     * @param cantidadDias La cantidad de días de la ventana
+     * @return
+     */
+    public double calcularPromedioIngresos( LocalDate hasta, int cantidadDias )
+    {
+        return ( double )sumarIngresos( hasta.minusDays( cantidadDias - 1 ), hasta ) / cantidadDias;
+    }
+
+    /**
+     * Calcula un percentil de los tiquetes vendidos por día en una ventana de días, usando el método del rango más cercano
+     * @param desde El primer día de la ventana
+     * @param hasta El último día de la ventana
+     * @param percentil El percentil, entre 0 y 100. Por ejemplo, 50 es la mediana.
+     * @return La cantidad de tiquetes del día que corresponde al percentil
+     */
+    public synchronized int calcularPercentilTiquetes( LocalDate desde, LocalDate hasta, double percentil )
+    {
+        if( percentil < 0 || percentil > 100 )
+            throw new IllegalArgumentException( "El percentil debe estar entre 0 y 100" );
+        long inicio = inicioVentana( desde.toEpochDay( ), hasta.toEpochDay( ) );
+        long fin = hasta.toEpochDay( );
+        if( fin < inicio )
+            return 0;
+
+        int[] porDia = new int[( int )( fin - inicio + 1 )];
+        for( int i = 0; i < porDia.length; i++ )
+            porDia[ i ] = getTiquetes( inicio + i );
+        Arrays.sort( porDia );
+        int rango = ( int )Math.ceil( percentil / 100 * porDia.length );
+        return porDia[ Math.max( 0, rango - 1 ) ];
+    }
+
+    /**
+     * Recorta el inicio de una ventana a los días que la serie puede tener, para que una ventana muy larga no recorra días que ya se descartaron
+     */
+    private long inicioVentana( long desde, long hasta )
+    {
+        return Math.max( desde, hasta - dias.length + 1 );
+    }
+}
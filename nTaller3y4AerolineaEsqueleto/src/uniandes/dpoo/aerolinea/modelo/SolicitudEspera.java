@@ -0,0 +1,131 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import java.util.Collections;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase representa una solicitud de tiquetes que quedó en la lista de espera de un vuelo porque el vuelo no tenía cupo.
+ *
+ * Las solicitudes se atienden primero según el tipo de cliente (clientes corporativos grandes, luego medianos, luego pequeños y finalmente clientes naturales), y entre
+ * clientes con la misma prioridad, según el orden de llegada.
+ */
+public class SolicitudEspera implements Comparable<SolicitudEspera>
+{
+    /**
+     * La prioridad de los clientes naturales. Los clientes corporativos usan el tamaño de la empresa como prioridad, y todos los tamaños son menores que este valor.
+     */
+    public static final int PRIORIDAD_NATURAL = ClienteCorporativo.PEQUENA + 1;
+
+    private final Cliente cliente;
+    private final int cantidad;
+
+    /**
+     * La prioridad de la solicitud. Un valor menor indica que la solicitud se debe atender antes.
+     */
+    private final int prioridad;
+
+    /**
+     * El orden de llegada de la solicitud a la lista de espera del vuelo
+     */
+    private final long secuencia;
+
+    /**
+     * Los tiquetes que se vendieron cuando se atendió la solicitud, o null si todavía no se ha atendido
+     */
+    private volatile List<Tiquete> tiquetes;
+
+    /**
+     * Indica si la solicitud se descartó sin atenderse porque el vuelo se realizó
+     */
+    private volatile boolean vencida;
+
+    SolicitudEspera( Cliente cliente, int cantidad, long secuencia )
+    {
+        this.cliente = cliente;
+        this.cantidad = cantidad;
+        this.prioridad = calcularPrioridad( cliente );
+        this.secuencia = secuencia;
+    }
+
+    /**
+     * Calcula la prioridad que tiene un cliente en las listas de espera
+     * @param cliente El cliente
+     * @return El tamaño de la empresa para los clientes corporativos, o PRIORIDAD_NATURAL para los demás clientes
+     */
+    public static int calcularPrioridad( Cliente cliente )
+    {
+        if( cliente instanceof ClienteCorporativo )
+            return ( ( ClienteCorporativo )cliente ).getTamanoEmpresa( );
+        return PRIORIDAD_NATURAL;
+    }
+
+    public Cliente getCliente( )
+    {
+        return cliente;
+    }
+
+    public int getCantidad( )
+    {
+        return cantidad;
+    }
+
+    public int getPrioridad( )
+    {
+        return prioridad;
+    }
+
+    public long getSecuencia( )
+    {
+        return secuencia;
+    }
+
+    /**
+     * Indica si la solicitud ya fue atendida, es decir si ya se le vendieron los tiquetes
+     * @return
+     */
+    public boolean estaAtendida( )
+    {
+        return tiquetes != null;
+    }
+
+    /**
+     * Indica si la solicitud se descartó sin atenderse porque el vuelo se realizó antes de que hubiera cupo para ella. Una solicitud vencida nunca se va a atender.
+     * @return
+     */
+    public boolean estaVencida( )
+    {
+        return vencida;
+    }
+
+    /**
+     * Retorna los tiquetes que se vendieron al atender la solicitud
+     * @return Los tiquetes, o una lista vacía si la solicitud todavía no se ha atendido
+     */
+    public List<Tiquete> getTiquetes( )
+    {
+        List<Tiquete> vendidos = tiquetes;
+        return vendidos == null ? Collections.<Tiquete> emptyList( ) : vendidos;
+    }
+
+    void marcarAtendida( List<Tiquete> vendidos )
+    {
+        this.tiquetes = Collections.unmodifiableList( vendidos );
+    }
+
+    void marcarVencida( )
+    {
+        this.vencida = true;
+    }
+
+    @Override
+    public int compareTo( SolicitudEspera otra )
+    {
+        if( prioridad != otra.prioridad )
+            return Integer.compare( prioridad, otra.prioridad );
+        return Long.compare( secuencia, otra.secuencia );
+    }
+}
@@ -1,24 +1,110 @@
 package uniandes.dpoo.aerolinea.modelo;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.*;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
+import uniandes.dpoo.aerolinea.eventos.BusEventos;
+import uniandes.dpoo.aerolinea.eventos.Evento;
 import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tarifas.CalculadoraTarifas;
+import uniandes.dpoo.aerolinea.tarifas.EstructuraTarifaria;
+import uniandes.dpoo.aerolinea.tarifas.IndiceClaseTarifa;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
 
+/**
+ * Esta clase representa un vuelo programado de la aerolínea, con los tiquetes que se han vendido para el vuelo y su lista de espera.
+ * 
+ * Todas las operaciones que cambian la ocupación del vuelo (vender, cancelar, atender la lista de espera) se sincronizan sobre el propio vuelo, de forma que las ventas
+ * de vuelos distintos no se bloquean entre sí.
+ * 
+ * El precio de cada tiquete es la tarifa normal del cliente (que depende de la temporada, la distancia y el tipo de cliente, y se calcula una sola vez por tipo de
+ * cliente) multiplicada por el multiplicador de la clase tarifaria abierta, si la ruta tiene clases tarifarias.
+ * 
+ * Los reportes y la persistencia no recorren los tiquetes del vuelo directamente sino una instantánea (ver InstantaneaVuelo), que se vuelve a copiar sólo si el vuelo
+ * cambió desde la última vez que se pidió.
+ * 
+ * Cada cambio en los tiquetes del vuelo se publica en el bus de eventos de la aerolínea (ver BusEventos). Las secuencias de los eventos se reclaman con el candado del
+ * vuelo, así que quedan en el orden en el que ocurrieron, pero los eventos se escriben en el bus después de soltar el candado: una proyección atrasada no detiene las
+ * ventas del vuelo mientras otros hilos esperan su candado.
+ * 
+ * Además del candado del vuelo, cada operación que cambia el vuelo toma el candado de cambios compartido de la aerolínea (ver setCandadoCambios). Los vuelos no se
+ * bloquean entre sí con él; sólo sirve para que la aerolínea pueda detener todos los cambios mientras toma una instantánea completa (ver
+ * Aerolinea.tomarInstantanea).
+ */
 public class Vuelos {
     private Avion avion;
     private String fecha;
     private Ruta ruta;
-    private Map<String, Tiquete> tiquetes;
+    private Map<Integer, Tiquete> tiquetes;
+    private boolean realizado;
+
+    /**
+     * Las solicitudes que están esperando a que se libere cupo en el vuelo, ordenadas según su prioridad (ver SolicitudEspera)
+     */
+    private PriorityQueue<SolicitudEspera> listaEspera;
+
+    /**
+     * La cantidad de solicitudes que han llegado a la lista de espera, usada para conservar el orden de llegada
+     */
+    private long solicitudesRecibidas;
+
+    /**
+     * La cantidad de asientos retenidos por reservas activas (ver GestorReservas). Cuentan contra el cupo del vuelo igual que los tiquetes vendidos.
+     */
+    private int asientosRetenidos;
+
+    /**
+     * Las tarifas normales del vuelo, indexadas por la prioridad del cliente (ver SolicitudEspera.calcularPrioridad), que determina completamente su tipo. Un 0 indica que
+     * la tarifa todavía no se ha calculado.
+     */
+    private int[] tarifasNormales;
+
+    /**
+     * La clase tarifaria abierta en el vuelo, o null si la ruta no tiene clases tarifarias
+     */
+    private IndiceClaseTarifa indiceClases;
+
+    /**
+     * La versión del vuelo. Aumenta cada vez que cambian los tiquetes del vuelo o su estado.
+     */
+    private long version;
+
+    /**
+     * La última instantánea que se tomó del vuelo, o null si todavía no se ha tomado ninguna
+     */
+    private InstantaneaVuelo instantanea;
+
+    /**
+     * El bus al que se publican las ventas, cancelaciones y el registro del vuelo como realizado, o null si el vuelo no pertenece a una aerolínea
+     */
+    private BusEventos busEventos;
+
+    /**
+     * La parte compartida del candado de cambios de la aerolínea, o null si el vuelo no pertenece a una aerolínea. Se toma antes que el candado del vuelo.
+     */
+    private volatile Lock candadoCambios;
+
+    /**
+     * Los eventos de la operación que tiene el candado del vuelo, que se publican cuando la operación suelta el candado
+     */
+    private List<EventoPendiente> eventosPendientes;
 
     public Vuelos(Ruta ruta, String fecha, Avion avion) {
         this.ruta = ruta;
         this.fecha = fecha;
         this.avion = avion;
-        this.tiquetes = new HashMap<>();
+        this.tiquetes = new ConcurrentHashMap<>();
+        this.listaEspera = new PriorityQueue<>();
+        this.tarifasNormales = new int[SolicitudEspera.PRIORIDAD_NATURAL + 1];
     }
 
     public Avion getAvion() {
@@ -29,27 +115,499 @@ public class Vuelos {
         return fecha;
     }
 
-    public static Ruta getRuta() {
+    public Ruta getRuta() {
        return ruta;
     }
 
+    /**
+     * Define el bus al que el vuelo publica sus eventos. La aerolínea lo hace cuando agrega el vuelo.
+     * @param busEventos
+     */
+    synchronized void setBusEventos(BusEventos busEventos) {
+        this.busEventos = busEventos;
+    }
+
+    /**
+     * Define el candado que toman todas las operaciones que cambian el vuelo, antes del candado del vuelo. La aerolínea lo hace cuando agrega el vuelo.
+     * @param candadoCambios La parte compartida del candado de cambios de la aerolínea
+     */
+    void setCandadoCambios(Lock candadoCambios) {
+        this.candadoCambios = candadoCambios;
+    }
+
+    /**
+     * Retorna la versión actual del vuelo (ver InstantaneaVuelo.getVersion)
+     */
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Registra un evento del vuelo para publicarlo cuando la operación actual suelte el candado, si el vuelo tiene un bus de eventos. Se llama con el candado del vuelo.
+     */
+    private void publicar(int tipo, String identificador, int codigoTiquete, int cantidad, long valor) {
+        if (busEventos != null) {
+            if (eventosPendientes == null) {
+                eventosPendientes = new ArrayList<>();
+            }
+            eventosPendientes.add(new EventoPendiente(tipo, identificador, codigoTiquete, cantidad, valor));
+        }
+    }
+
+    /**
+     * Ejecuta una operación que cambia el vuelo con el candado del vuelo, y después de soltarlo publica los eventos que produjo la operación.
+     * 
+     * Las secuencias de los eventos se reclaman antes de soltar el candado, aunque la operación termine con una excepción: una secuencia reclamada que no se publica
+     * detendría a todas las proyecciones del bus.
+     */
+    private <T, E extends Exception> T modificar(OperacionVuelo<T, E> operacion) throws E {
+        List<EventoPendiente> eventos = null;
+        Lock cambios = candadoCambios;
+        try {
+            if (cambios != null) {
+                cambios.lock();
+            }
+            try {
+                synchronized (this) {
+                    try {
+                        return operacion.ejecutar();
+                    } finally {
+                        eventos = tomarEventosPendientes();
+                    }
+                }
+            } finally {
+                if (cambios != null) {
+                    cambios.unlock();
+                }
+            }
+        } finally {
+            if (eventos != null) {
+                for (EventoPendiente evento : eventos) {
+                    busEventos.publicarTiquete(evento.secuencia, evento.tipo, ruta.getCodigoRuta(), fecha, evento.identificador, evento.codigoTiquete, evento.cantidad,
+                            evento.valor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reclama en el bus las secuencias de los eventos pendientes y los retira del vuelo. Se llama con el candado del vuelo.
+     * @return Los eventos, o null si no hay eventos pendientes
+     */
+    private List<EventoPendiente> tomarEventosPendientes() {
+        List<EventoPendiente> eventos = eventosPendientes;
+        if (eventos == null) {
+            return null;
+        }
+        eventosPendientes = null;
+        long secuencia = busEventos.reclamar(eventos.size());
+        for (EventoPendiente evento : eventos) {
+            evento.secuencia = secuencia++;
+        }
+        return eventos;
+    }
+
+    public synchronized boolean esRealizado() {
+        return realizado;
+    }
+
     public Collection<Tiquete> getTiquetes() {
-        return tiquetes.values();
+        return Collections.unmodifiableCollection(tiquetes.values());
+    }
+
+    /**
+     * Agrega al vuelo un tiquete que ya había sido vendido antes, por ejemplo al cargarlo de un archivo.
+     * @param tiquete El tiquete, que debe corresponder a este vuelo
+     */
+    public void agregarTiquete(Tiquete tiquete) {
+        modificar(() -> {
+            tiquetes.put(tiquete.getCodigoNumerico(), tiquete);
+            version++;
+            if (indiceClases != null) {
+                indiceClases.actualizar(tiquetes.size());
+            }
+            publicar(Evento.TIQUETE_CARGADO, tiquete.getCliente().getIdentificador(), tiquete.getCodigoNumerico(), tiquete.esUsado() ? 1 : 0, tiquete.getTarifa());
+            return null;
+        });
+    }
+
+    /**
+     * Indica si el vuelo tiene un tiquete con un cierto código, usado o sin usar
+     * @param codigoTiquete El código del tiquete
+     * @return
+     */
+    public boolean tieneTiquete(int codigoTiquete) {
+        return tiquetes.containsKey(codigoTiquete);
+    }
+
+    /**
+     * Indica si el vuelo tiene un tiquete con un cierto código, usado o sin usar
+     * @param codigoTiquete Los dígitos del código del tiquete
+     * @return Retorna false si el código no es válido
+     */
+    public boolean tieneTiquete(String codigoTiquete) {
+        int codigo = GeneradorTiquetes.leerCodigo(codigoTiquete);
+        return codigo >= 0 && tieneTiquete(codigo);
+    }
+
+    /**
+     * Retorna la cantidad máxima de tiquetes que se pueden vender para el vuelo: la capacidad del avión más el margen de sobreventa de la ruta
+     * @return
+     */
+    public int getCupoMaximo() {
+        return ruta.calcularCupoMaximo(avion.getCapacidad());
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes que todavía se pueden vender para el vuelo. Mientras haya solicitudes en la lista de espera no se puede vender ninguno: los
+     * asientos que se liberan quedan para ellas (ver puedeOcupar).
+     * @return
+     */
+    public synchronized int getCupoDisponible() {
+        return listaEspera.isEmpty() ? Math.max(0, getCupoMaximo() - ocupados()) : 0;
     }
 
+    public synchronized int getAsientosRetenidos() {
+        return asientosRetenidos;
+    }
+
+    /**
+     * Retorna la cantidad de asientos ocupados: los tiquetes vendidos más los asientos retenidos
+     */
+    private int ocupados() {
+        return tiquetes.size() + asientosRetenidos;
+    }
+
+    /**
+     * Indica si una venta o una retención directa puede ocupar una cantidad de asientos. Se llama con el candado del vuelo.
+     * 
+     * Mientras haya solicitudes en la lista de espera, ninguna venta ni retención directa puede ocupar asientos, aunque haya cupo: la primera solicitud puede estar
+     * esperando a que se liberen más asientos, y una compra posterior que tomara los que ya están libres la dejaría esperando para siempre. Las solicitudes se atienden
+     * con atender, que no pasa por aquí.
+     */
+    private boolean puedeOcupar(int cantidad) {
+        return !realizado && listaEspera.isEmpty() && ocupados() + cantidad <= getCupoMaximo();
+    }
+
+    /**
+     * Vende una cierta cantidad de tiquetes del vuelo a un cliente. Los tiquetes quedan asociados al vuelo y al cliente.
+     * @param cliente El cliente que compra los tiquetes
+     * @param cantidad La cantidad de tiquetes
+     * @return El valor total de los tiquetes vendidos
+     * @throws VueloSobrevendidoException Se lanza esta excepción si no hay suficiente cupo en el vuelo (incluyendo la sobreventa permitida) para todos los tiquetes, si
+     *         hay solicitudes en la lista de espera, o si el vuelo ya se realizó
+     */
     public int venderTiquetes(Cliente cliente, int cantidad) throws VueloSobrevendidoException {
-        if (tiquetes.size() + cantidad > avion.getCapacidad()) {
-            throw new VueloSobrevendidoException("No hay suficiente espacio en el vuelo para todos los pasajeros");
-        }
-        
-        int tarifa = ruta.calcularTarifa(cliente, fecha);
-        int valorTotal = tarifa * cantidad;
+        return modificar(() -> {
+            if (!puedeOcupar(cantidad)) {
+                throw new VueloSobrevendidoException(this);
+            }
+
+            return valorTotal(emitirTiquetes(cliente, cantidad));
+        });
+    }
 
+    /**
+     * Genera los tiquetes de una venta y los asocia al vuelo y al cliente. Quien lo llama ya verificó que hay cupo.
+     * 
+     * Cada tiquete se cobra según la clase tarifaria abierta en el momento de emitirlo, así que una venta de varios tiquetes puede quedar repartida en dos clases.
+     * 
+     * La venta queda registrada en la serie de ventas de la ruta, en el día de hoy. Cada tiquete recuerda ese día para descontarse de la serie si se cancela.
+     */
+    private List<Tiquete> emitirTiquetes(Cliente cliente, int cantidad) {
+        List<Tiquete> vendidos = new ArrayList<>(cantidad);
+        long hoy = LocalDate.now().toEpochDay();
+        long ingreso = 0;
         for (int i = 0; i < cantidad; i++) {
-            Tiquete tiquete = new Tiquete("", this, cliente, tarifa);
-            tiquetes.put(tiquete.getCodigo(), tiquete);
+            Tiquete tiquete = GeneradorTiquetes.generarTiquete(this, cliente, cotizar(cliente));
+            tiquete.setDiaVenta(hoy);
+            tiquetes.put(tiquete.getCodigoNumerico(), tiquete);
+            cliente.agregarTiquete(tiquete);
+            vendidos.add(tiquete);
+            ingreso += tiquete.getTarifa();
+            if (indiceClases != null) {
+                indiceClases.actualizar(tiquetes.size());
+            }
+            publicar(Evento.TIQUETE_VENDIDO, cliente.getIdentificador(), tiquete.getCodigoNumerico(), 1, tiquete.getTarifa());
+        }
+        version++;
+        ruta.getSerieVentas().registrar(hoy, cantidad, ingreso);
+        return vendidos;
+    }
+
+    private static int valorTotal(List<Tiquete> vendidos) {
+        int total = 0;
+        for (Tiquete tiquete : vendidos) {
+            total += tiquete.getTarifa();
         }
+        return total;
+    }
+
+    /**
+     * Calcula el precio que se le cobraría a un cliente por el siguiente tiquete de este vuelo
+     * @param cliente El cliente
+     * @return La tarifa normal del cliente, ajustada según la clase tarifaria abierta
+     */
+    public synchronized int cotizarTarifa(Cliente cliente) {
+        return cotizar(cliente);
+    }
+
+    private int cotizar(Cliente cliente) {
+        int tarifa = calcularTarifaNormal(cliente);
+        IndiceClaseTarifa indice = indiceClaseTarifaria();
+        return indice == null ? tarifa : indice.aplicar(tarifa);
+    }
+
+    /**
+     * Retorna la tarifa normal de un cliente en este vuelo, calculándola sólo la primera vez que se necesita para cada tipo de cliente
+     */
+    private int calcularTarifaNormal(Cliente cliente) {
+        int tipo = SolicitudEspera.calcularPrioridad(cliente);
+        int tarifa = tarifasNormales[tipo];
+        if (tarifa == 0) {
+            tarifa = CalculadoraTarifas.seleccionarPorFecha(fecha).calcularTarifa(this, cliente);
+            tarifasNormales[tipo] = tarifa;
+        }
+        return tarifa;
+    }
+
+    /**
+     * Retorna el índice de la clase tarifaria abierta. El índice se mantiene al día en cada venta y cancelación, y sólo se reconstruye si cambiaron las clases tarifarias
+     * de la ruta o el cupo del vuelo.
+     * @return El índice, o null si la ruta no tiene clases tarifarias
+     */
+    private IndiceClaseTarifa indiceClaseTarifaria() {
+        EstructuraTarifaria estructura = ruta.getEstructuraTarifaria();
+        if (estructura == null) {
+            indiceClases = null;
+        } else if (indiceClases == null || !indiceClases.corresponde(estructura, getCupoMaximo())) {
+            indiceClases = new IndiceClaseTarifa(estructura, getCupoMaximo(), tiquetes.size());
+        }
+        return indiceClases;
+    }
+
+    /**
+     * Retorna el nombre de la clase tarifaria abierta en el vuelo
+     * @return El nombre de la clase, o null si la ruta no tiene clases tarifarias
+     */
+    public synchronized String getClaseTarifaria() {
+        IndiceClaseTarifa indice = indiceClaseTarifaria();
+        return indice == null ? null : indice.getNombreClase();
+    }
+
+    /**
+     * Retiene asientos del vuelo para una reserva
+     * @param cantidad La cantidad de asientos
+     * @throws VueloSobrevendidoException Se lanza esta excepción si el vuelo no tiene cupo para los asientos, si hay solicitudes en la lista de espera, o si ya se
+     *         realizó
+     */
+    synchronized void retenerAsientos(int cantidad) throws VueloSobrevendidoException {
+        if (!puedeOcupar(cantidad)) {
+            throw new VueloSobrevendidoException(this);
+        }
+        asientosRetenidos += cantidad;
+    }
+
+    /**
+     * Vende los tiquetes de asientos que estaban retenidos por una reserva
+     * @param cliente El cliente de la reserva
+     * @param cantidad La cantidad de asientos retenidos
+     * @return El valor total de los tiquetes vendidos
+     * @throws VueloSobrevendidoException Se lanza esta excepción si el vuelo se realizó mientras los asientos estaban retenidos. En ese caso los asientos se liberan.
+     */
+    int confirmarAsientos(Cliente cliente, int cantidad) throws VueloSobrevendidoException {
+        return modificar(() -> {
+            asientosRetenidos -= cantidad;
+            if (realizado) {
+                throw new VueloSobrevendidoException(this);
+            }
+            return valorTotal(emitirTiquetes(cliente, cantidad));
+        });
+    }
+
+    /**
+     * Libera asientos que estaban retenidos por una reserva. El cupo liberado se usa de inmediato para atender la lista de espera.
+     * @param cantidad La cantidad de asientos
+     */
+    void liberarAsientos(int cantidad) {
+        modificar(() -> {
+            asientosRetenidos -= cantidad;
+            return atender();
+        });
+    }
+
+    /**
+     * Agrega una solicitud de tiquetes a la lista de espera del vuelo. Si en ese momento ya hay cupo para la solicitud (y no hay solicitudes con más prioridad
+     * esperando), la solicitud se atiende de inmediato.
+     * @param cliente El cliente que solicita los tiquetes
+     * @param cantidad La cantidad de tiquetes solicitados
+     * @return La solicitud, que se puede consultar después para saber si ya fue atendida
+     * @throws VueloSobrevendidoException Se lanza esta excepción si el vuelo ya se realizó, o si la cantidad es mayor que el cupo máximo del vuelo y por lo tanto la
+     *         solicitud nunca podría atenderse
+     */
+    public SolicitudEspera agregarAListaEspera(Cliente cliente, int cantidad) throws VueloSobrevendidoException {
+        return modificar(() -> {
+            if (realizado || cantidad > getCupoMaximo()) {
+                throw new VueloSobrevendidoException(this);
+            }
+            SolicitudEspera solicitud = new SolicitudEspera(cliente, cantidad, solicitudesRecibidas++);
+            listaEspera.add(solicitud);
+            atender();
+            return solicitud;
+        });
+    }
+
+    /**
+     * Atiende las solicitudes de la lista de espera, en orden de prioridad, mientras haya cupo para la primera de ellas.
+     * 
+     * Una solicitud que no cabe en el cupo disponible no se salta: las solicitudes con menos prioridad esperan hasta que ella se atienda.
+     * @return La cantidad de tiquetes vendidos a solicitudes de la lista de espera
+     */
+    public int atenderListaEspera() {
+        return modificar(this::atender);
+    }
+
+    /**
+     * Atiende la lista de espera (ver atenderListaEspera). Se llama con el candado del vuelo.
+     */
+    private int atender() {
+        int vendidos = 0;
+        SolicitudEspera siguiente = listaEspera.peek();
+        while (!realizado && siguiente != null && ocupados() + siguiente.getCantidad() <= getCupoMaximo()) {
+            listaEspera.poll();
+            Cliente cliente = siguiente.getCliente();
+            siguiente.marcarAtendida(emitirTiquetes(cliente, siguiente.getCantidad()));
+            vendidos += siguiente.getCantidad();
+            siguiente = listaEspera.peek();
+        }
+        return vendidos;
+    }
+
+    /**
+     * Retorna las solicitudes que están en la lista de espera, en el orden en el que se atenderían
+     * @return
+     */
+    public synchronized List<SolicitudEspera> getListaEspera() {
+        List<SolicitudEspera> solicitudes = new ArrayList<>(listaEspera);
+        Collections.sort(solicitudes);
+        return solicitudes;
+    }
+
+    /**
+     * Cancela un tiquete sin usar del vuelo. El cupo que se libera se usa de inmediato para atender la lista de espera.
+     * @param codigoTiquete Los dígitos del código del tiquete
+     * @return Retorna false si el vuelo no tiene un tiquete sin usar con ese código
+     */
+    public boolean cancelarTiquete(String codigoTiquete) {
+        int codigo = GeneradorTiquetes.leerCodigo(codigoTiquete);
+        return codigo >= 0 && cancelarTiquete(codigo);
+    }
+
+    /**
+     * Cancela un tiquete sin usar del vuelo. El cupo que se libera se usa de inmediato para atender la lista de espera.
+     * 
+     * Si el tiquete se vendió en esta aerolínea, la venta se descuenta de la serie de ventas de la ruta en el día en que se hizo.
+     * @param codigoTiquete El código del tiquete
+     * @return Retorna false si el vuelo no tiene un tiquete sin usar con ese código
+     */
+    public boolean cancelarTiquete(int codigoTiquete) {
+        return modificar(() -> {
+            Tiquete tiquete = tiquetes.get(codigoTiquete);
+            if (tiquete == null || tiquete.esUsado()) {
+                return false;
+            }
+            tiquetes.remove(codigoTiquete);
+            tiquete.getCliente().removerTiquete(tiquete);
+            version++;
+            if (indiceClases != null) {
+                indiceClases.actualizar(tiquetes.size());
+            }
+            if (tiquete.getDiaVenta() != Tiquete.SIN_DIA_VENTA) {
+                ruta.getSerieVentas().anular(tiquete.getDiaVenta(), 1, tiquete.getTarifa());
+            }
+            publicar(Evento.TIQUETE_CANCELADO, tiquete.getCliente().getIdentificador(), codigoTiquete, 1, tiquete.getTarifa());
+            atender();
+            return true;
+        });
+    }
+
+    /**
+     * Registra que el vuelo fue realizado: marca como usados todos sus tiquetes y los mueve, cliente por cliente, a la lista de tiquetes usados. Las solicitudes que
+     * seguían en la lista de espera se marcan como vencidas.
+     * 
+     * Los tiquetes se agrupan por cliente para que cada cliente se actualice una sola vez, con todos sus tiquetes de este vuelo.
+     * @return La cantidad de tiquetes que se marcaron como usados. Si el vuelo ya se había registrado como realizado, retorna 0.
+     */
+    public int registrarComoRealizado() {
+        return modificar(this::registrarRealizado);
+    }
+
+    private int registrarRealizado() {
+        if (realizado) {
+            return 0;
+        }
+        realizado = true;
+        for (SolicitudEspera solicitud : listaEspera) {
+            solicitud.marcarVencida();
+        }
+        listaEspera.clear();
+        version++;
 
-        return valorTotal;
+        Map<Cliente, List<Tiquete>> porCliente = new HashMap<>();
+        int usados = 0;
+        for (Tiquete tiquete : tiquetes.values()) {
+            if (!tiquete.esUsado()) {
+                tiquete.marcarComoUsado();
+                porCliente.computeIfAbsent(tiquete.getCliente(), c -> new ArrayList<>()).add(tiquete);
+                usados++;
+            }
+        }
+        for (Map.Entry<Cliente, List<Tiquete>> entrada : porCliente.entrySet()) {
+            entrada.getKey().usarTiquetes(entrada.getValue());
+        }
+        publicar(Evento.VUELO_REALIZADO, null, -1, usados, 0);
+        return usados;
+    }
+
+    /**
+     * Retorna el estado actual del vuelo como una instantánea inmutable. Si el vuelo no ha cambiado desde la última instantánea, se retorna la misma.
+     * @return
+     */
+    public synchronized InstantaneaVuelo getInstantanea() {
+        if (instantanea == null || instantanea.getVersion() != version) {
+            instantanea = new InstantaneaVuelo(this, version, realizado, tiquetes.values().toArray(new Tiquete[0]));
+        }
+        return instantanea;
+    }
+
+    /**
+     * Una operación que cambia el vuelo y se ejecuta con su candado (ver modificar)
+     */
+    private interface OperacionVuelo<T, E extends Exception> {
+        T ejecutar() throws E;
+    }
+
+    /**
+     * Un evento del vuelo que todavía no se ha publicado en el bus
+     */
+    private static final class EventoPendiente {
+        private final int tipo;
+        private final String identificador;
+        private final int codigoTiquete;
+        private final int cantidad;
+        private final long valor;
+
+        /**
+         * La secuencia reclamada para el evento. Se asigna con el candado del vuelo, antes de publicarlo.
+         */
+        private long secuencia;
+
+        private EventoPendiente(int tipo, String identificador, int codigoTiquete, int cantidad, long valor) {
+            this.tipo = tipo;
+            this.identificador = identificador;
+            this.codigoTiquete = codigoTiquete;
+            this.cantidad = cantidad;
+            this.valor = valor;
+        }
     }
 }
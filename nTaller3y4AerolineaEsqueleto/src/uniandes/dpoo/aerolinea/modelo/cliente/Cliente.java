@@ -1,23 +1,19 @@
 package uniandes.dpoo.aerolinea.modelo.cliente;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-
-import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
-
-import java.util.*;
-
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
 
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
 
 public abstract class Cliente {
-    private List<Tiquete> tiquetesSinUsar;
+    private Set<Tiquete> tiquetesSinUsar;
     private List<Tiquete> tiquetesUsados;
 
     public Cliente() {
-        tiquetesSinUsar = new ArrayList<>();
+        tiquetesSinUsar = new LinkedHashSet<>();
         tiquetesUsados = new ArrayList<>();
     }
 
@@ -25,11 +21,24 @@ public abstract class Cliente {
 
     public abstract String getIdentificador();
 
-    public void agregarTiquete(Tiquete tiquete) {
-        tiquetesSinUsar.add(tiquete);
+    public synchronized void agregarTiquete(Tiquete tiquete) {
+        if (tiquete.esUsado()) {
+            tiquetesUsados.add(tiquete);
+        } else {
+            tiquetesSinUsar.add(tiquete);
+        }
+    }
+
+    /**
+     * Quita un tiquete sin usar del cliente, por ejemplo porque el tiquete se canceló
+     * @param tiquete El tiquete que se quiere quitar
+     * @return Retorna false si el tiquete no estaba entre los tiquetes sin usar del cliente
+     */
+    public synchronized boolean removerTiquete(Tiquete tiquete) {
+        return tiquetesSinUsar.remove(tiquete);
     }
 
-    public int calcularValorTotalTiquetes() {
+    public synchronized int calcularValorTotalTiquetes() {
         int total = 0;
         for (Tiquete tiquete : tiquetesSinUsar) {
             total += tiquete.getTarifa();
@@ -37,11 +46,24 @@ public abstract class Cliente {
         return total;
     }
 
-    public void usarTiquetes() {
+    public synchronized void usarTiquetes() {
         for (Tiquete tiquete : tiquetesSinUsar) {
             tiquete.marcarComoUsado();
             tiquetesUsados.add(tiquete);
         }
         tiquetesSinUsar.clear();
     }
+
+    /**
+     * Mueve los tiquetes dados de la lista de tiquetes sin usar a la de tiquetes usados. Los demás tiquetes del cliente no se modifican.
+     * @param tiquetes Los tiquetes del cliente que ya se usaron, normalmente los de un mismo vuelo
+     */
+    public synchronized void usarTiquetes(Collection<Tiquete> tiquetes) {
+        for (Tiquete tiquete : tiquetes) {
+            if (tiquetesSinUsar.remove(tiquete)) {
+                tiquete.marcarComoUsado();
+                tiquetesUsados.add(tiquete);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -7,12 +7,67 @@ import org.json.JSONObject;
  */
 public class ClienteCorporativo extends Cliente
 {
-    // TODO completar
 	public static final java.lang.String CORPORATIVO = "Corporativo"; 
 	public static final int	GRANDE	= 1;
 	public static final int	MEDIANA	= 2;
 	public static final int	PEQUENA	= 3;
 
+    /**
+     * El nombre de la empresa, que también sirve como identificador del cliente
+     */
+    private String nombreEmpresa;
+
+    /**
+     * El tamaño de la empresa. Debe ser GRANDE, MEDIANA o PEQUENA.
+     */
+    private int tamanoEmpresa;
+
+    /**
+     * Construye un nuevo cliente corporativo
+     * @param nombreEmpresa El nombre de la empresa
+     * @param tamano El tamaño de la empresa: GRANDE, MEDIANA o PEQUENA
+     * @throws IllegalArgumentException Se lanza esta excepción si el tamaño no es uno de los tamaños válidos
+     */
+    public ClienteCorporativo( String nombreEmpresa, int tamano )
+    {
+        super( );
+        if( !esTamanoValido( tamano ) )
+            throw new IllegalArgumentException( "El tamaño " + tamano + " de la empresa '" + nombreEmpresa + "' no es válido" );
+        this.nombreEmpresa = nombreEmpresa;
+        this.tamanoEmpresa = tamano;
+    }
+
+    /**
+     * Revisa si un número corresponde a uno de los tamaños de empresa
+     * @param tamano El número
+     * @return Retorna true si el número es GRANDE, MEDIANA o PEQUENA
+     */
+    public static boolean esTamanoValido( int tamano )
+    {
+        return tamano >= GRANDE && tamano <= PEQUENA;
+    }
+
+    public String getNombreEmpresa( )
+    {
+        return nombreEmpresa;
+    }
+
+    public int getTamanoEmpresa( )
+    {
+        return tamanoEmpresa;
+    }
+
+    @Override
+    public String getTipoCliente( )
+    {
+        return CORPORATIVO;
+    }
+
+    @Override
+    public String getIdentificador( )
+    {
+        return nombreEmpresa;
+    }
 
     /**
      * Crea un nuevo objeto de tipo a partir de un objeto JSON.
@@ -20,6 +75,7 @@ public class ClienteCorporativo extends Cliente
      * El objeto JSON debe tener dos atributos: nombreEmpresa (una cadena) y tamanoEmpresa (un número).
      * @param cliente El objeto JSON que contiene la información
      * @return El nuevo objeto inicializado con la información
+     * @throws IllegalArgumentException Se lanza esta excepción si el tamaño de la empresa no es válido
      */
     public static ClienteCorporativo cargarDesdeJSON( JSONObject cliente )
     {
@@ -37,7 +93,7 @@ public class ClienteCorporativo extends Cliente
         JSONObject jobject = new JSONObject( );
         jobject.put( "nombreEmpresa", this.nombreEmpresa );
         jobject.put( "tamanoEmpresa", this.tamanoEmpresa );
-        jobject.put( "tipo", CORPORATIVO );
+        jobject.put( "tipoCliente", CORPORATIVO );
         return jobject;
     }
 }
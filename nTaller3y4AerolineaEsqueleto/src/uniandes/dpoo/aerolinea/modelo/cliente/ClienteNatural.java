@@ -0,0 +1,37 @@
+package uniandes.dpoo.aerolinea.modelo.cliente;
+
+/**
+ * Esta clase se usa para representar a los clientes de la aerolínea que son personas naturales
+ */
+public class ClienteNatural extends Cliente
+{
+    public static final String NATURAL = "Natural";
+
+    /**
+     * El nombre del cliente, que también sirve como su identificador
+     */
+    private String nombre;
+
+    public ClienteNatural( String nombre )
+    {
+        super( );
+        this.nombre = nombre;
+    }
+
+    public String getNombre( )
+    {
+        return nombre;
+    }
+
+    @Override
+    public String getTipoCliente( )
+    {
+        return NATURAL;
+    }
+
+    @Override
+    public String getIdentificador( )
+    {
+        return nombre;
+    }
+}
@@ -0,0 +1,268 @@
+package uniandes.dpoo.aerolinea.modelo.cliente;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Esta clase guarda los clientes de la aerolínea, sin importar si son naturales o corporativos, y permite encontrarlos de dos formas: por su identificador, en tiempo
+ * constante, y por el comienzo de su nombre (el nombre de la persona o de la empresa), para autocompletar mientras se escribe.
+ *
+ * Para la búsqueda por prefijo se mantiene un índice ordenado. Cada cliente aparece en el índice una vez por cada palabra de su nombre, con el nombre normalizado a
+ * partir de esa palabra (en minúsculas y sin tildes): 'Juan Gómez' aparece como 'juan gomez' y como 'gomez', y se puede encontrar escribiendo 'ju', 'Gó' o 'gom'. A
+ * cada llave se le agrega el identificador para que dos clientes cuyos nombres sólo se diferencian en las tildes o las mayúsculas no se pisen.
+ *
+ * El índice se guarda en dos arreglos ordenados (las llaves y los clientes), que ocupan mucho menos que un árbol con un nodo por llave. Las llaves de los clientes que
+ * se van agregando se acumulan en un árbol pequeño, y cuando éste crece hasta una octava parte de los arreglos se mezcla con ellos en un solo recorrido. Así el índice
+ * se construye a medida que se cargan los clientes, sin ordenarlo todo de nuevo, y el costo de las mezclas se reparte entre todas las inserciones. Las búsquedas
+ * recorren los dos al tiempo.
+ *
+ * La consulta por identificador no se bloquea nunca. Las búsquedas por prefijo pueden hacerse al mismo tiempo entre ellas, y sólo esperan mientras otro hilo agrega un
+ * cliente.
+ */
+public class DirectorioClientes
+{
+    /**
+     * El caracter que separa el nombre normalizado del identificador dentro de las llaves del índice. Es menor que cualquier caracter de un nombre, así que todas las
+     * llaves de un mismo nombre quedan juntas y antes de las de los nombres que lo extienden.
+     */
+    private static final char SEPARADOR = '\u0000';
+
+    /**
+     * La cantidad de llaves pendientes a partir de la cual siempre se mezclan con los arreglos del índice, aunque éstos sean pequeños
+     */
+    private static final int MINIMO_PENDIENTES = 1024;
+
+    /**
+     * Los clientes, según su identificador
+     */
+    private final Map<String, Cliente> clientes;
+
+    /**
+     * Las llaves del índice para las búsquedas por prefijo, ordenadas. Cada llave es un nombre normalizado (desde alguna de sus palabras), el separador y el
+     * identificador del cliente.
+     */
+    private String[] llaves;
+
+    /**
+     * El cliente de cada llave del índice
+     */
+    private Cliente[] valores;
+
+    /**
+     * Las llaves que todavía no se han mezclado con los arreglos del índice. Si una llave está en los dos, el cliente que vale es el de este árbol.
+     */
+    private final TreeMap<String, Cliente> pendientes;
+
+    /**
+     * El candado que protege el índice (los arreglos y las llaves pendientes)
+     */
+    private final ReadWriteLock candado;
+
+    public DirectorioClientes( )
+    {
+        clientes = new ConcurrentHashMap<String, Cliente>( );
+        llaves = new String[0];
+        valores = new Cliente[0];
+        pendientes = new TreeMap<String, Cliente>( );
+        candado = new ReentrantReadWriteLock( );
+    }
+
+    /**
+     * Agrega un cliente al directorio. Si ya había un cliente con el mismo identificador, el nuevo cliente lo reemplaza.
+     * @param cliente El cliente, de cualquier tipo
+     */
+    public void agregar( Cliente cliente )
+    {
+        String identificador = cliente.getIdentificador( );
+        List<String> nuevas = calcularLlaves( identificador );
+        candado.writeLock( ).lock( );
+        try
+        {
+            clientes.put( identificador, cliente );
+            // Las llaves sólo dependen del identificador, así que las de un cliente reemplazado son las mismas y sólo cambia su valor
+            for( String llave : nuevas )
+                pendientes.put( llave, cliente );
+            if( pendientes.size( ) >= Math.max( MINIMO_PENDIENTES, llaves.length / 8 ) )
+                mezclarPendientes( );
+        }
+        finally
+        {
+            candado.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Mezcla las llaves pendientes con los arreglos del índice. Se debe llamar con el candado de escritura.
+     */
+    private void mezclarPendientes( )
+    {
+        String[] nuevasLlaves = new String[llaves.length + pendientes.size( )];
+        Cliente[] nuevosValores = new Cliente[nuevasLlaves.length];
+        int i = 0;
+        int cantidad = 0;
+        for( Map.Entry<String, Cliente> pendiente : pendientes.entrySet( ) )
+        {
+            while( i < llaves.length && llaves[ i ].compareTo( pendiente.getKey( ) ) < 0 )
+            {
+                nuevasLlaves[ cantidad ] = llaves[ i ];
+                nuevosValores[ cantidad++ ] = valores[ i++ ];
+            }
+            if( i < llaves.length && llaves[ i ].equals( pendiente.getKey( ) ) )
+                i++;
+            nuevasLlaves[ cantidad ] = pendiente.getKey( );
+            nuevosValores[ cantidad++ ] = pendiente.getValue( );
+        }
+        System.arraycopy( llaves, i, nuevasLlaves, cantidad, llaves.length - i );
+        System.arraycopy( valores, i, nuevosValores, cantidad, llaves.length - i );
+        cantidad += llaves.length - i;
+
+        llaves = cantidad == nuevasLlaves.length ? nuevasLlaves : Arrays.copyOf( nuevasLlaves, cantidad );
+        valores = cantidad == nuevosValores.length ? nuevosValores : Arrays.copyOf( nuevosValores, cantidad );
+        pendientes.clear( );
+    }
+
+    public boolean existe( String identificador )
+    {
+        return clientes.containsKey( identificador );
+    }
+
+    /**
+     * Busca un cliente
+     * @param identificador El identificador del cliente
+     * @return El cliente, o null si no está en el directorio
+     */
+    public Cliente get( String identificador )
+    {
+        return clientes.get( identificador );
+    }
+
+    public int getCantidadClientes( )
+    {
+        return clientes.size( );
+    }
+
+    /**
+     * Retorna todos los clientes del directorio. La colección no se puede modificar, y refleja los clientes que se agreguen después.
+     * @return
+     */
+    public Collection<Cliente> getClientes( )
+    {
+        return Collections.unmodifiableCollection( clientes.values( ) );
+    }
+
+    /**
+     * Busca los clientes que tienen alguna palabra de su nombre que empieza por el prefijo dado. No se distinguen mayúsculas ni tildes.
+     * @param prefijo El comienzo del nombre. Puede tener varias palabras, por ejemplo 'gomez ma'.
+     * @param cantidad La cantidad máxima de clientes que se retornan
+     * @return Los clientes encontrados, en orden alfabético según la parte del nombre que coincidió con el prefijo. Cada cliente aparece una sola vez.
+     */
+    public List<Cliente> buscarPorPrefijo( String prefijo, int cantidad )
+    {
+        List<Cliente> encontrados = new ArrayList<Cliente>( );
+        String normalizado = normalizar( prefijo );
+        if( normalizado.isEmpty( ) || cantidad <= 0 )
+            return encontrados;
+
+        candado.readLock( ).lock( );
+        try
+        {
+            // Las llaves que empiezan por el prefijo están juntas a partir de la primera llave que no es menor que él, tanto en los arreglos como en las pendientes
+            int i = Arrays.binarySearch( llaves, normalizado );
+            if( i < 0 )
+                i = -i - 1;
+            Iterator<Map.Entry<String, Cliente>> iterador = pendientes.tailMap( normalizado, true ).entrySet( ).iterator( );
+            Map.Entry<String, Cliente> pendiente = siguientePendiente( iterador, normalizado );
+            while( encontrados.size( ) < cantidad )
+            {
+                boolean quedanLlaves = i < llaves.length && llaves[ i ].startsWith( normalizado );
+                Cliente cliente;
+                if( pendiente != null && ( !quedanLlaves || pendiente.getKey( ).compareTo( llaves[ i ] ) <= 0 ) )
+                {
+                    if( quedanLlaves && pendiente.getKey( ).equals( llaves[ i ] ) )
+                        i++;
+                    cliente = pendiente.getValue( );
+                    pendiente = siguientePendiente( iterador, normalizado );
+                }
+                else if( quedanLlaves )
+                {
+                    cliente = valores[ i++ ];
+                }
+                else
+                {
+                    break;
+                }
+
+                // Un cliente puede coincidir por varias de sus palabras; la cantidad de resultados es pequeña, así que basta con revisar la lista
+                if( !encontrados.contains( cliente ) )
+                    encontrados.add( cliente );
+            }
+        }
+        finally
+        {
+            candado.readLock( ).unlock( );
+        }
+        return encontrados;
+    }
+
+    private static Map.Entry<String, Cliente> siguientePendiente( Iterator<Map.Entry<String, Cliente>> iterador, String prefijo )
+    {
+        if( !iterador.hasNext( ) )
+            return null;
+        Map.Entry<String, Cliente> pendiente = iterador.next( );
+        return pendiente.getKey( ).startsWith( prefijo ) ? pendiente : null;
+    }
+
+    /**
+     * Calcula las llaves con las que un cliente aparece en el índice: una por cada palabra de su nombre normalizado
+     */
+    private static List<String> calcularLlaves( String identificador )
+    {
+        String nombre = normalizar( identificador );
+        List<String> llaves = new ArrayList<String>( 2 );
+        for( int i = 0; i < nombre.length( ); i++ )
+        {
+            if( i == 0 || nombre.charAt( i - 1 ) == ' ' )
+                llaves.add( nombre.substring( i ) + SEPARADOR + identificador );
+        }
+        return llaves;
+    }
+
+    /**
+     * Normaliza un nombre para el índice: le quita las tildes y los demás signos diacríticos, lo pasa a minúsculas y deja un solo espacio entre sus palabras
+     */
+    static String normalizar( String nombre )
+    {
+        String sinTildes = Normalizer.normalize( nombre, Normalizer.Form.NFD );
+        StringBuilder normalizado = new StringBuilder( sinTildes.length( ) );
+        boolean espacio = false;
+        for( int i = 0; i < sinTildes.length( ); i++ )
+        {
+            char c = sinTildes.charAt( i );
+            if( Character.getType( c ) == Character.NON_SPACING_MARK )
+                continue;
+            if( Character.isWhitespace( c ) || c == SEPARADOR )
+            {
+                espacio = normalizado.length( ) > 0;
+            }
+            else
+            {
+                if( espacio )
+                    normalizado.append( ' ' );
+                espacio = false;
+                normalizado.append( c );
+            }
+        }
+        return normalizado.toString( ).toLowerCase( Locale.ROOT );
+    }
+}
@@ -0,0 +1,283 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uniandes.dpoo.aerolinea.exceptions.CargaInconsistenteException;
+import uniandes.dpoo.aerolinea.exceptions.ClienteRepetidoException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+
+/**
+ * Esta clase carga los clientes y tiquetes de una aerolínea que están repartidos en varios archivos, por ejemplo un archivo por mes.
+ *
+ * La carga tiene dos fases:
+ * <ol>
+ * <li>Los archivos se leen al mismo tiempo, con a lo sumo cierta cantidad de hilos, y el contenido de cada uno queda en un LoteTiquetes. En esta fase no se toca la
+ * aerolínea: si algún archivo no se puede leer, la carga se detiene sin haber agregado nada.</li>
+ * <li>Los lotes se agregan a la aerolínea desde un solo hilo, en el orden de los nombres de los archivos: primero los clientes de todos los archivos y después los
+ * tiquetes de todos los archivos, de forma que un tiquete puede ser de un cliente que aparece en otro archivo.</li>
+ * </ol>
+ *
+ * Como los lotes siempre se agregan en el mismo orden, los conflictos entre archivos se resuelven siempre igual: se queda el primero y los demás se reportan. Un tiquete
+ * con el código de un tiquete de un archivo anterior se reporta como tiquete repetido. Un cliente que aparece en varios archivos con los mismos datos es el mismo cliente,
+ * porque es normal que un cliente compre en varios meses; si aparece con datos distintos (otro tipo, u otro tamaño de empresa) se reporta como ClienteRepetidoException.
+ * Un cliente repetido dentro de un mismo archivo, o que ya existía en la aerolínea, se reporta igual que en la carga de un solo archivo. Todas las inconsistencias se
+ * reportan al final en una CargaInconsistenteException, marcadas con el nombre de su archivo.
+ *
+ * Los archivos de formatos que no implementan ILectorTiquetes no se pueden leer en la primera fase: se cargan directamente con su IPersistenciaTiquetes durante la
+ * segunda fase, en su lugar entre los tiquetes de los demás archivos.
+ *
+ * Las series de ventas que acompañan a un archivo (ver PersistenciaSeriesVentas) se cargan justo después de sus tiquetes, y sólo si el archivo no tuvo
+ * inconsistencias. Los problemas con las series se reportan junto con las demás inconsistencias.
+ */
+public class CargaArchivosTiquetes
+{
+    private CargaArchivosTiquetes( )
+    {
+    }
+
+    /**
+     * Busca los archivos de tiquetes de una ubicación. Nunca se incluyen los archivos de series de ventas (ver PersistenciaSeriesVentas) ni los archivos ocultos.
+     * @param ubicacion Un directorio, del que se toman todos los archivos, o una ruta cuyo último elemento es un patrón de tipo glob, por ejemplo
+     *        'datos/tiquetes-2024-*.json'
+     * @return Los archivos, ordenados por nombre
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el directorio o si no hay ningún archivo
+     */
+    public static List<Path> buscarArchivos( String ubicacion ) throws IOException
+    {
+        Path ruta = Paths.get( ubicacion );
+        Path directorio;
+        PathMatcher patron;
+        if( Files.isDirectory( ruta ) )
+        {
+            directorio = ruta;
+            patron = null;
+        }
+        else
+        {
+            directorio = ruta.getParent( ) == null ? Paths.get( "." ) : ruta.getParent( );
+            patron = FileSystems.getDefault( ).getPathMatcher( "glob:" + ruta.getFileName( ) );
+        }
+
+        List<Path> archivos = new ArrayList<Path>( );
+        try( DirectoryStream<Path> contenido = Files.newDirectoryStream( directorio ) )
+        {
+            for( Path archivo : contenido )
+            {
+                String nombre = archivo.getFileName( ).toString( );
+                if( Files.isRegularFile( archivo ) && !nombre.startsWith( "." ) && !nombre.endsWith( PersistenciaSeriesVentas.EXTENSION )
+                        && ( patron == null || patron.matches( archivo.getFileName( ) ) ) )
+                    archivos.add( archivo );
+            }
+        }
+        if( archivos.isEmpty( ) )
+            throw new IOException( "No se encontraron archivos de tiquetes en " + ubicacion );
+        Collections.sort( archivos );
+        return archivos;
+    }
+
+    /**
+     * Carga los clientes y tiquetes de todos los archivos de una ubicación. Si junto a un archivo está su archivo de series de ventas, también se cargan las series.
+     * @param ubicacion Un directorio o un patrón de archivos (ver buscarArchivos)
+     * @param tipoArchivo El tipo de los archivos. Con CentralPersistencia.AUTO el tipo se detecta para cada archivo por separado.
+     * @param aerolinea La aerolínea, que ya debe tener sus rutas y sus vuelos
+     * @param hilos La cantidad máxima de archivos que se leen al mismo tiempo
+     * @return La cantidad de archivos cargados
+     * @throws TipoInvalidoException Se lanza esta excepción si el tipo no es válido o si no se reconoce el formato de algún archivo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo algún archivo. En ese caso no se agrega nada a la aerolínea.
+     * @throws InformacionInconsistenteException Se lanza esta excepción con todas las inconsistencias encontradas. Los clientes y tiquetes consistentes sí se cargan.
+     */
+    public static int cargarTiquetes( String ubicacion, String tipoArchivo, Aerolinea aerolinea, int hilos )
+            throws TipoInvalidoException, IOException, InformacionInconsistenteException
+    {
+        if( hilos <= 0 )
+            throw new IllegalArgumentException( "La cantidad de hilos debe ser positiva" );
+        List<Path> archivos = buscarArchivos( ubicacion );
+        List<IPersistenciaTiquetes> formatos = new ArrayList<IPersistenciaTiquetes>( );
+        for( Path archivo : archivos )
+            formatos.add( CentralPersistencia.getPersistenciaTiquetes( tipoArchivo, archivo.toString( ) ) );
+
+        // Primera fase: leer los archivos en paralelo. Un lote null indica un archivo que se carga en la segunda fase con su formato.
+        List<LoteTiquetes> lotes = new ArrayList<LoteTiquetes>( );
+        ExecutorService pool = Executors.newFixedThreadPool( Math.min( hilos, archivos.size( ) ) );
+        try
+        {
+            List<Future<LoteTiquetes>> lecturas = new ArrayList<Future<LoteTiquetes>>( );
+            for( int i = 0; i < archivos.size( ); i++ )
+            {
+                final String archivo = archivos.get( i ).toString( );
+                final IPersistenciaTiquetes formato = formatos.get( i );
+                if( formato instanceof ILectorTiquetes )
+                {
+                    lecturas.add( pool.submit( ( ) -> {
+                        LoteTiquetes lote = new LoteTiquetes( archivo );
+                        ( ( ILectorTiquetes )formato ).leerTiquetes( archivo, lote );
+                        return lote;
+                    } ) );
+                }
+                else
+                {
+                    lecturas.add( null );
+                }
+            }
+            // Se espera en el orden de los archivos, así que si varios fallan siempre se reporta el primero
+            for( int i = 0; i < lecturas.size( ); i++ )
+                lotes.add( lecturas.get( i ) == null ? null : esperar( lecturas.get( i ), archivos.get( i ) ) );
+        }
+        finally
+        {
+            pool.shutdownNow( );
+        }
+
+        // Segunda fase: agregar los lotes en orden. Se cuentan las inconsistencias de cada archivo para saber si se cargan sus series de ventas.
+        CargadorTiquetes cargador = new CargadorTiquetes( aerolinea );
+        Map<String, LoteTiquetes> origenes = new HashMap<String, LoteTiquetes>( );
+        int[] erroresArchivo = new int[lotes.size( )];
+        for( int i = 0; i < lotes.size( ); i++ )
+        {
+            LoteTiquetes lote = lotes.get( i );
+            if( lote != null )
+            {
+                int antes = cargador.getCantidadErrores( );
+                cargador.setArchivo( lote.getArchivo( ) );
+                for( String error : lote.getErrores( ) )
+                    cargador.registrarError( error );
+                for( Cliente cliente : lote.getClientes( ) )
+                    agregarCliente( cargador, origenes, lote, cliente );
+                erroresArchivo[ i ] = cargador.getCantidadErrores( ) - antes;
+            }
+        }
+        for( int i = 0; i < lotes.size( ); i++ )
+        {
+            String archivo = archivos.get( i ).toString( );
+            int antes = cargador.getCantidadErrores( );
+            cargador.setArchivo( archivo );
+            if( lotes.get( i ) != null )
+                lotes.get( i ).agregarTiquetes( cargador );
+            else
+                cargarConFormato( cargador, formatos.get( i ), archivo, aerolinea );
+            erroresArchivo[ i ] += cargador.getCantidadErrores( ) - antes;
+            cargarSeries( cargador, archivo, aerolinea, erroresArchivo[ i ] == 0 );
+            // El lote ya no se necesita
+            lotes.set( i, null );
+        }
+        cargador.setArchivo( null );
+        cargador.terminar( );
+        return archivos.size( );
+    }
+
+    /**
+     * Agrega un cliente de un lote, revisando si otro archivo ya tenía un cliente con el mismo identificador
+     * @param origenes El lote del que se agregó cada cliente
+     */
+    private static void agregarCliente( CargadorTiquetes cargador, Map<String, LoteTiquetes> origenes, LoteTiquetes lote, Cliente cliente )
+    {
+        String identificador = cliente.getIdentificador( );
+        LoteTiquetes origen = origenes.get( identificador );
+        if( origen != null && origen != lote )
+        {
+            if( !mismosDatos( cargador.getCliente( identificador ), cliente ) )
+                cargador.registrarError( new ClienteRepetidoException( cliente.getTipoCliente( ), identificador ).getMessage( ) + " en " + origen.getArchivo( ) );
+            return;
+        }
+        if( cargador.agregarCliente( cliente ) )
+            origenes.put( identificador, lote );
+    }
+
+    private static boolean mismosDatos( Cliente cliente, Cliente otro )
+    {
+        if( !cliente.getTipoCliente( ).equals( otro.getTipoCliente( ) ) )
+            return false;
+        if( cliente instanceof ClienteCorporativo && otro instanceof ClienteCorporativo )
+            return ( ( ClienteCorporativo )cliente ).getTamanoEmpresa( ) == ( ( ClienteCorporativo )otro ).getTamanoEmpresa( );
+        return true;
+    }
+
+    /**
+     * Carga un archivo cuyo formato no se puede leer en un lote. Las inconsistencias del archivo se pasan al cargador para reportarlas con las de los demás archivos.
+     */
+    private static void cargarConFormato( CargadorTiquetes cargador, IPersistenciaTiquetes formato, String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        try
+        {
+            formato.cargarTiquetes( archivo, aerolinea );
+        }
+        catch( CargaInconsistenteException e )
+        {
+            for( String error : e.getErrores( ) )
+                cargador.registrarError( error );
+        }
+        catch( InformacionInconsistenteException e )
+        {
+            cargador.registrarError( e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Carga las series de ventas que acompañan a un archivo, si existen. Los problemas con las series se pasan al cargador para reportarlos con las demás
+     * inconsistencias.
+     * @param tiquetesCargados Indica si los tiquetes del archivo se cargaron sin inconsistencias. Si no, las series no se cargan.
+     */
+    private static void cargarSeries( CargadorTiquetes cargador, String archivo, Aerolinea aerolinea, boolean tiquetesCargados )
+    {
+        String archivoSeries = PersistenciaSeriesVentas.getArchivoSeries( archivo );
+        if( !Files.isRegularFile( Paths.get( archivoSeries ) ) )
+            return;
+        cargador.setArchivo( archivoSeries );
+        if( !tiquetesCargados )
+        {
+            cargador.registrarError( "Las series de ventas no se cargaron porque el archivo de tiquetes tuvo inconsistencias" );
+            return;
+        }
+        try
+        {
+            PersistenciaSeriesVentas.cargarSeries( archivoSeries, aerolinea );
+        }
+        catch( CargaInconsistenteException e )
+        {
+            for( String error : e.getErrores( ) )
+                cargador.registrarError( error );
+        }
+        catch( InformacionInconsistenteException | IOException e )
+        {
+            cargador.registrarError( e.getMessage( ) );
+        }
+    }
+
+    private static LoteTiquetes esperar( Future<LoteTiquetes> lectura, Path archivo ) throws IOException
+    {
+        try
+        {
+            return lectura.get( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Se interrumpió la lectura de los archivos de tiquetes" );
+        }
+        catch( ExecutionException e )
+        {
+            if( e.getCause( ) instanceof IOException )
+                throw ( IOException )e.getCause( );
+            throw new IOException( "No se pudo leer el archivo " + archivo + ": " + e.getCause( ).getMessage( ), e.getCause( ) );
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniandes.dpoo.aerolinea.exceptions.CargaInconsistenteException;
+import uniandes.dpoo.aerolinea.exceptions.ClienteRepetidoException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase se encarga de agregar a una aerolínea los clientes y tiquetes que se leen de un archivo, sin importar el formato del archivo.
+ *
+ * Al construirse, el cargador arma una sola vez un mapa con los vuelos de la aerolínea (por código de ruta y fecha) y otro con sus clientes, de forma que cada tiquete se
+ * resuelve con búsquedas en tablas de hash. Cada tiquete se agrega tanto a su vuelo como a su cliente.
+ *
+ * Cuando un registro es inconsistente, el cargador no se detiene: el problema se anota y se sigue con el siguiente registro. Al terminar la carga se debe llamar a
+ * terminar, que lanza una excepción con todas las inconsistencias encontradas.
+ *
+ * Un cargador no debe usarse desde varios hilos al mismo tiempo.
+ */
+class CargadorTiquetes implements IReceptorTiquetes
+{
+    private final Aerolinea aerolinea;
+
+    /**
+     * Los vuelos de la aerolínea. Las llaves se construyen con llaveVuelo.
+     */
+    private final Map<String, Vuelos> vuelos;
+
+    /**
+     * Los clientes de la aerolínea, incluyendo los que se van cargando. Las llaves son los identificadores de los clientes.
+     */
+    private final Map<String, Cliente> clientes;
+
+    /**
+     * Las inconsistencias encontradas hasta el momento
+     */
+    private final List<String> errores;
+
+    /**
+     * La cantidad de tiquetes que se han agregado a la aerolínea
+     */
+    private int tiquetesCargados;
+
+    /**
+     * El nombre del archivo que se está cargando, que se antepone a las inconsistencias cuando se cargan varios archivos con el mismo cargador, o null
+     */
+    private String archivo;
+
+    public CargadorTiquetes( Aerolinea aerolinea )
+    {
+        this.aerolinea = aerolinea;
+        this.errores = new ArrayList<String>( );
+
+        Map<String, Vuelos> mapaVuelos = new HashMap<String, Vuelos>( );
+        for( Vuelos vuelo : aerolinea.getVuelos( ) )
+            mapaVuelos.put( llaveVuelo( vuelo.getRuta( ).getCodigoRuta( ), vuelo.getFecha( ) ), vuelo );
+        this.vuelos = mapaVuelos;
+
+        Map<String, Cliente> mapaClientes = new HashMap<String, Cliente>( );
+        for( Cliente cliente : aerolinea.getClientes( ) )
+            mapaClientes.put( cliente.getIdentificador( ), cliente );
+        this.clientes = mapaClientes;
+    }
+
+    private static String llaveVuelo( String codigoRuta, String fecha )
+    {
+        return codigoRuta + "|" + fecha;
+    }
+
+    /**
+     * Agrega un cliente a la aerolínea, si no existía otro con el mismo identificador
+     * @param nuevoCliente El cliente leído del archivo
+     * @return Retorna false si el cliente estaba repetido. En ese caso la inconsistencia queda anotada.
+     */
+    @Override
+    public boolean agregarCliente( Cliente nuevoCliente )
+    {
+        String identificador = nuevoCliente.getIdentificador( );
+        if( clientes.containsKey( identificador ) )
+        {
+            registrarError( new ClienteRepetidoException( nuevoCliente.getTipoCliente( ), identificador ).getMessage( ) );
+            return false;
+        }
+        clientes.put( identificador, nuevoCliente );
+        aerolinea.agregarCliente( nuevoCliente );
+        return true;
+    }
+
+    /**
+     * Construye un tiquete con la información leída del archivo y lo agrega al vuelo y al cliente correspondientes
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param fecha La fecha del vuelo
+     * @param codigoTiquete Los dígitos del código del tiquete, que no puede estar repetido
+     * @param tarifa El valor que se pagó por el tiquete
+     * @param usado Indica si el tiquete ya fue usado
+     * @param identificadorCliente El identificador del cliente que compró el tiquete
+     * @return Retorna false si la información era inconsistente. En ese caso la inconsistencia queda anotada.
+     */
+    @Override
+    public boolean agregarTiquete( String codigoRuta, String fecha, String codigoTiquete, int tarifa, boolean usado, String identificadorCliente )
+    {
+        int codigo = GeneradorTiquetes.leerCodigo( codigoTiquete );
+        if( codigo < 0 )
+        {
+            registrarError( "El código de tiquete '" + codigoTiquete + "' no es válido" );
+            return false;
+        }
+        return agregarTiquete( codigoRuta, fecha, codigo, tarifa, usado, identificadorCliente );
+    }
+
+    /**
+     * Construye un tiquete con la información leída del archivo y lo agrega al vuelo y al cliente correspondientes
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param fecha La fecha del vuelo
+     * @param codigoTiquete El código del tiquete, entre 0 y 9999999, que no puede estar repetido
+     * @param tarifa El valor que se pagó por el tiquete
+     * @param usado Indica si el tiquete ya fue usado
+     * @param identificadorCliente El identificador del cliente que compró el tiquete
+     * @return Retorna false si la información era inconsistente. En ese caso la inconsistencia queda anotada.
+     */
+    @Override
+    public boolean agregarTiquete( String codigoRuta, String fecha, int codigoTiquete, int tarifa, boolean usado, String identificadorCliente )
+    {
+        if( codigoTiquete < 0 || codigoTiquete >= GeneradorTiquetes.CANTIDAD_CODIGOS )
+        {
+            registrarError( "El código de tiquete '" + codigoTiquete + "' no es válido" );
+            return false;
+        }
+
+        Vuelos elVuelo = vuelos.get( llaveVuelo( codigoRuta, fecha ) );
+        if( elVuelo == null )
+        {
+            if( aerolinea.getRuta( codigoRuta ) == null )
+                registrarError( new InformacionInconsistenteTiqueteException( "ruta", codigoRuta ).getMessage( ) );
+            else
+                registrarError( new InformacionInconsistenteTiqueteException( "vuelo", codigoRuta + " en " + fecha ).getMessage( ) );
+            return false;
+        }
+
+        Cliente elCliente = clientes.get( identificadorCliente );
+        if( elCliente == null )
+        {
+            registrarError( new InformacionInconsistenteTiqueteException( "cliente", identificadorCliente ).getMessage( ) );
+            return false;
+        }
+
+        Tiquete nuevoTiquete = new Tiquete( codigoTiquete, elVuelo, elCliente, tarifa );
+        if( !GeneradorTiquetes.registrarTiquete( nuevoTiquete ) )
+        {
+            registrarError( new InformacionInconsistenteTiqueteException( "tiquete", nuevoTiquete.getCodigo( ), false ).getMessage( ) );
+            return false;
+        }
+        if( usado )
+            nuevoTiquete.marcarComoUsado( );
+
+        elVuelo.agregarTiquete( nuevoTiquete );
+        elCliente.agregarTiquete( nuevoTiquete );
+        tiquetesCargados++;
+        return true;
+    }
+
+    /**
+     * Busca un cliente de la aerolínea, incluyendo los que se han cargado
+     * @param identificador El identificador del cliente
+     * @return El cliente, o null si no existe
+     */
+    public Cliente getCliente( String identificador )
+    {
+        return clientes.get( identificador );
+    }
+
+    /**
+     * Indica de qué archivo vienen los clientes y tiquetes que se agregan a partir de este momento. Las inconsistencias que se anoten se marcan con el nombre del
+     * archivo.
+     * @param archivo El nombre del archivo, o null para no marcar las inconsistencias
+     */
+    public void setArchivo( String archivo )
+    {
+        this.archivo = archivo;
+    }
+
+    /**
+     * Anota una inconsistencia encontrada durante la carga
+     * @param error La descripción de la inconsistencia
+     */
+    @Override
+    public void registrarError( String error )
+    {
+        errores.add( archivo == null ? error : archivo + ": " + error );
+    }
+
+    /**
+     * Retorna la cantidad de inconsistencias que se han anotado
+     * @return
+     */
+    public int getCantidadErrores( )
+    {
+        return errores.size( );
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes que se han agregado a la aerolínea
+     * @return
+     */
+    public int getTiquetesCargados( )
+    {
+        return tiquetesCargados;
+    }
+
+    /**
+     * Termina la carga, reportando las inconsistencias encontradas
+     * @throws CargaInconsistenteException Se lanza esta excepción si se encontró al menos una inconsistencia
+     */
+    public void terminar( ) throws CargaInconsistenteException
+    {
+        if( !errores.isEmpty( ) )
+            throw new CargaInconsistenteException( errores );
+    }
+}
@@ -1,7 +1,19 @@
 package uniandes.dpoo.aerolinea.persistencia;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
 /**
- * Esta clase cumple el rol de una fábrica de componentes que se encargan de manejar la persistencia de una aerolínea y de sus tiquetes
+ * Esta clase cumple el rol de una fábrica de componentes que se encargan de manejar la persistencia de una aerolínea y de sus tiquetes.
+ *
+ * Los formatos disponibles se mantienen en dos registros, uno para la persistencia de la aerolínea y otro para la de los tiquetes. Los formatos que vienen con la
+ * aplicación se registran al cargar la clase, y se pueden registrar formatos adicionales con registrarPersistenciaAerolinea y registrarPersistenciaTiquetes.
+ *
+ * Cuando se usa el tipo AUTO, el formato se escoge a partir de los primeros bytes del archivo.
  */
 public class CentralPersistencia
 {
@@ -10,49 +22,242 @@ public class CentralPersistencia
      */
     public static final String JSON = "JSON";
 
+    /**
+     * La cadena utilizada para identificar a la persistencia que lee y escribe los archivos JSON de tiquetes por partes, sin construir el documento completo en memoria.
+     * Los archivos son los mismos del tipo JSON, así que este tipo no se detecta con AUTO: se debe pedir explícitamente.
+     */
+    public static final String JSON_STREAMING = "JSONStreaming";
+
     /**
      * La cadena utilizada para identificar a los archivos en texto plano
      */
     public static final String PLAIN = "PlainText";
 
+    /**
+     * La cadena utilizada para identificar a los archivos de tiquetes comprimidos por bloques
+     */
+    public static final String COMPRIMIDO = "Comprimido";
+
+    /**
+     * La cadena utilizada para identificar a los archivos de tiquetes binarios sin comprimir
+     */
+    public static final String BINARIO = "Binario";
+
+    /**
+     * La cadena utilizada para identificar a los archivos de tiquetes en formato CSV
+     */
+    public static final String CSV = "CSV";
+
+    /**
+     * La cadena utilizada para indicar que el formato de un archivo se debe detectar a partir de su contenido
+     */
+    public static final String AUTO = "Auto";
+
+    /**
+     * La cantidad de bytes del comienzo de un archivo que se le entregan a los detectores de formato
+     */
+    private static final int BYTES_ENCABEZADO = 64;
+
+    /**
+     * Los formatos registrados para la persistencia de la aerolínea, en el orden en el que se consultan para detectar el formato de un archivo
+     */
+    private static final List<FormatoPersistencia<IPersistenciaAerolinea>> formatosAerolinea = new CopyOnWriteArrayList<FormatoPersistencia<IPersistenciaAerolinea>>( );
+
+    /**
+     * Los formatos registrados para la persistencia de los tiquetes, en el orden en el que se consultan para detectar el formato de un archivo
+     */
+    private static final List<FormatoPersistencia<IPersistenciaTiquetes>> formatosTiquetes = new CopyOnWriteArrayList<FormatoPersistencia<IPersistenciaTiquetes>>( );
+
+    static
+    {
+        registrarPersistenciaAerolinea( PLAIN, PersistenciaAerolineaPlaintext::new, PersistenciaAerolineaPlaintext::reconoce );
+        registrarPersistenciaTiquetes( JSON, PersistenciaTiquetesJson::new, CentralPersistencia::esJson );
+        registrarPersistenciaTiquetes( JSON_STREAMING, PersistenciaTiquetesJsonStreaming::new, null );
+        registrarPersistenciaTiquetes( BINARIO, PersistenciaTiquetesBinaria::new, PersistenciaTiquetesBinaria::reconoce );
+        registrarPersistenciaTiquetes( COMPRIMIDO, PersistenciaTiquetesComprimida::new, PersistenciaTiquetesComprimida::reconoce );
+        registrarPersistenciaTiquetes( CSV, PersistenciaTiquetesCsv::new, PersistenciaTiquetesCsv::reconoce );
+    }
+
+    // ************************************************************************************
+    //
+    // Registro de formatos
+    //
+    // ************************************************************************************
+
+    /**
+     * Registra un formato para la persistencia de la aerolínea. Si ya había un formato con el mismo tipo, se reemplaza.
+     * @param tipoArchivo El nombre del formato
+     * @param fabrica El objeto que construye las instancias de la persistencia
+     * @param detector El objeto que reconoce los archivos en el formato, o null si el formato no se puede detectar automáticamente
+     */
+    public static void registrarPersistenciaAerolinea( String tipoArchivo, Supplier<? extends IPersistenciaAerolinea> fabrica, IDetectorFormato detector )
+    {
+        registrar( formatosAerolinea, new FormatoPersistencia<IPersistenciaAerolinea>( tipoArchivo, fabrica, detector ) );
+    }
+
+    /**
+     * Registra un formato para la persistencia de los tiquetes. Si ya había un formato con el mismo tipo, se reemplaza.
+     * @param tipoArchivo El nombre del formato
+     * @param fabrica El objeto que construye las instancias de la persistencia
+     * @param detector El objeto que reconoce los archivos en el formato, o null si el formato no se puede detectar automáticamente
+     */
+    public static void registrarPersistenciaTiquetes( String tipoArchivo, Supplier<? extends IPersistenciaTiquetes> fabrica, IDetectorFormato detector )
+    {
+        registrar( formatosTiquetes, new FormatoPersistencia<IPersistenciaTiquetes>( tipoArchivo, fabrica, detector ) );
+    }
+
+    private static synchronized <T> void registrar( List<FormatoPersistencia<T>> formatos, FormatoPersistencia<T> nuevo )
+    {
+        for( int i = 0; i < formatos.size( ); i++ )
+        {
+            if( formatos.get( i ).getTipo( ).equals( nuevo.getTipo( ) ) )
+            {
+                formatos.set( i, nuevo );
+                return;
+            }
+        }
+        formatos.add( nuevo );
+    }
+
+    // ************************************************************************************
+    //
+    // Fábricas
+    //
+    // ************************************************************************************
+
     /**
      * Este método retorna una nueva instancia de una clase capaz de cargar y salvar los datos de una aerolínea.
-     * 
-     * Las clases concretas que se pueden retornar son PersistenciaAerolineaJson y PersistenciaAerolineaPlaintext
-     * 
+     *
      * @param tipoArchivo El tipo del archivo que será usado para cargar la información de la aerolínea
      * @return El objeto que debería usarse para cargar y salvar la información
-     * @throws TipoInvalidoException Se lanza esta excepción si se utiliza un tipo de archivo que no es válido
+     * @throws TipoInvalidoException Se lanza esta excepción si se utiliza un tipo de archivo que no está registrado
      */
-    public static IPersistenciaTiquetes getPersistenciaAerolinea( String tipoArchivo ) throws TipoInvalidoException
+    public static IPersistenciaAerolinea getPersistenciaAerolinea( String tipoArchivo ) throws TipoInvalidoException
     {
-        // TODO implementar
-    	 switch (tipoArchivo) {
-         case JSON:
-             return (IPersistenciaTiquetes) new PersistenciaAerolineaPlaintext();
-         case PLAIN:
-             return (IPersistenciaTiquetes) new PersistenciaAerolineaPlaintext();
-         default:
-             throw new TipoInvalidoException("Tipo de archivo no válido: " + tipoArchivo);
-     }
- }
+        return buscar( formatosAerolinea, tipoArchivo ).crearPersistencia( );
+    }
 
-    
+    /**
+     * Este método retorna una nueva instancia de una clase capaz de cargar y salvar los datos de una aerolínea, detectando el formato del archivo si el tipo es AUTO
+     * @param tipoArchivo El tipo del archivo, o AUTO
+     * @param archivo El archivo que se va a cargar. Sólo se usa si el tipo es AUTO.
+     * @return El objeto que debería usarse para cargar la información
+     * @throws TipoInvalidoException Se lanza esta excepción si el tipo no está registrado, o si no se pudo reconocer el formato del archivo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el encabezado del archivo
+     */
+    public static IPersistenciaAerolinea getPersistenciaAerolinea( String tipoArchivo, String archivo ) throws TipoInvalidoException, IOException
+    {
+        if( AUTO.equals( tipoArchivo ) )
+            return detectar( formatosAerolinea, archivo ).crearPersistencia( );
+        return getPersistenciaAerolinea( tipoArchivo );
+    }
 
     /**
      * Este método retorna una nueva instancia de una clase capaz de cargar y salvar los datos de los tiquetes de una aerolínea
-     * 
-     * La única clase concreta que se puede retornar es PersistenciaTiquetesJson
-     * 
+     *
      * @param tipoArchivo El tipo del archivo que será usado para cargar la información de los tiquetes
      * @return  El objeto que debería usarse para cargar y salvar la información
-     * @throws TipoInvalidoException Se lanza esta excepción si se utiliza un tipo de archivo que no es válido
+     * @throws TipoInvalidoException Se lanza esta excepción si se utiliza un tipo de archivo que no está registrado
      */
     public static IPersistenciaTiquetes getPersistenciaTiquetes( String tipoArchivo ) throws TipoInvalidoException
     {
-        if( JSON.equals( tipoArchivo ) )
-            return new PersistenciaTiquetesJson( );
-        else
-            throw new TipoInvalidoException( tipoArchivo );
+        return buscar( formatosTiquetes, tipoArchivo ).crearPersistencia( );
+    }
+
+    /**
+     * Este método retorna una nueva instancia de una clase capaz de cargar y salvar los datos de los tiquetes, detectando el formato del archivo si el tipo es AUTO
+     * @param tipoArchivo El tipo del archivo, o AUTO
+     * @param archivo El archivo que se va a cargar. Sólo se usa si el tipo es AUTO.
+     * @return El objeto que debería usarse para cargar la información
+     * @throws TipoInvalidoException Se lanza esta excepción si el tipo no está registrado, o si no se pudo reconocer el formato del archivo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el encabezado del archivo
+     */
+    public static IPersistenciaTiquetes getPersistenciaTiquetes( String tipoArchivo, String archivo ) throws TipoInvalidoException, IOException
+    {
+        if( AUTO.equals( tipoArchivo ) )
+            return detectar( formatosTiquetes, archivo ).crearPersistencia( );
+        return getPersistenciaTiquetes( tipoArchivo );
+    }
+
+    /**
+     * Detecta el formato de un archivo de tiquetes a partir de sus primeros bytes
+     * @param archivo La ruta al archivo
+     * @return El tipo del archivo
+     * @throws TipoInvalidoException Se lanza esta excepción si ninguno de los formatos registrados reconoce el archivo
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public static String detectarTipoTiquetes( String archivo ) throws TipoInvalidoException, IOException
+    {
+        return detectar( formatosTiquetes, archivo ).getTipo( );
+    }
+
+    private static <T> FormatoPersistencia<T> buscar( List<FormatoPersistencia<T>> formatos, String tipoArchivo ) throws TipoInvalidoException
+    {
+        for( FormatoPersistencia<T> formato : formatos )
+        {
+            if( formato.getTipo( ).equals( tipoArchivo ) )
+                return formato;
+        }
+        throw new TipoInvalidoException( tipoArchivo );
+    }
+
+    private static <T> FormatoPersistencia<T> detectar( List<FormatoPersistencia<T>> formatos, String archivo ) throws TipoInvalidoException, IOException
+    {
+        byte[] encabezado = new byte[BYTES_ENCABEZADO];
+        int longitud = 0;
+        try( InputStream in = new FileInputStream( archivo ) )
+        {
+            int leidos = in.read( encabezado, 0, encabezado.length );
+            while( leidos > 0 )
+            {
+                longitud += leidos;
+                leidos = in.read( encabezado, longitud, encabezado.length - longitud );
+            }
+        }
+
+        for( FormatoPersistencia<T> formato : formatos )
+        {
+            if( formato.reconoce( encabezado, longitud ) )
+                return formato;
+        }
+        throw new TipoInvalidoException( AUTO + " (" + archivo + ")" );
+    }
+
+    // ************************************************************************************
+    //
+    // Detectores de los formatos que vienen con la aplicación
+    //
+    // ************************************************************************************
+
+    /**
+     * Reconoce un archivo JSON: después de una posible marca de orden de bytes (BOM) y de espacios en blanco, el primer caracter debe ser '{'
+     */
+    private static boolean esJson( byte[] encabezado, int longitud )
+    {
+        int i = 0;
+        if( longitud >= 3 && ( encabezado[ 0 ] & 0xFF ) == 0xEF && ( encabezado[ 1 ] & 0xFF ) == 0xBB && ( encabezado[ 2 ] & 0xFF ) == 0xBF )
+            i = 3;
+        while( i < longitud && ( encabezado[ i ] == ' ' || encabezado[ i ] == '\t' || encabezado[ i ] == '\r' || encabezado[ i ] == '\n' ) )
+            i++;
+        return i < longitud && encabezado[ i ] == '{';
+    }
+
+    /**
+     * Revisa si el encabezado de un archivo empieza con una cierta secuencia de bytes
+     * @param encabezado Los primeros bytes del archivo
+     * @param longitud La cantidad de bytes válidos dentro del encabezado
+     * @param firma La secuencia de bytes esperada
+     * @return Retorna true si el archivo empieza con la firma
+     */
+    static boolean empiezaCon( byte[] encabezado, int longitud, byte[] firma )
+    {
+        if( longitud < firma.length )
+            return false;
+        for( int i = 0; i < firma.length; i++ )
+        {
+            if( encabezado[ i ] != firma[ i ] )
+                return false;
+        }
+        return true;
     }
 }
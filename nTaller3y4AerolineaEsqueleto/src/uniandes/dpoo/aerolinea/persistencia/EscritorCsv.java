@@ -0,0 +1,132 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Escribe un archivo de registros separados por un caracter (como un archivo CSV) sobre un buffer de bytes propio. Los números se escriben dígito por dígito
+ * directamente en el buffer.
+ *
+ * Los campos que contienen el separador, comillas o saltos de línea se escriben entre comillas dobles, de forma que LectorCsv los pueda leer.
+ */
+class EscritorCsv implements AutoCloseable
+{
+    private final OutputStream salida;
+    private final byte[] buffer;
+    private final byte separador;
+    private int posicion;
+    private boolean primerCampo = true;
+
+    public EscritorCsv( OutputStream salida, int capacidad, byte separador )
+    {
+        this.salida = salida;
+        this.buffer = new byte[capacidad];
+        this.separador = separador;
+    }
+
+    private void asegurar( int bytes ) throws IOException
+    {
+        if( posicion + bytes > buffer.length )
+        {
+            salida.write( buffer, 0, posicion );
+            posicion = 0;
+        }
+    }
+
+    private void separador( ) throws IOException
+    {
+        if( !primerCampo )
+        {
+            asegurar( 1 );
+            buffer[ posicion++ ] = separador;
+        }
+        primerCampo = false;
+    }
+
+    public void campo( byte valor ) throws IOException
+    {
+        separador( );
+        asegurar( 1 );
+        buffer[ posicion++ ] = valor;
+    }
+
+    public void campo( int entero ) throws IOException
+    {
+        separador( );
+        asegurar( 11 );
+        long valor = entero;
+        if( valor < 0 )
+        {
+            buffer[ posicion++ ] = '-';
+            valor = -valor;
+        }
+        int digitos = 1;
+        for( long v = valor / 10; v > 0; v /= 10 )
+            digitos++;
+        for( int i = posicion + digitos - 1; i >= posicion; i-- )
+        {
+            buffer[ i ] = ( byte )( '0' + valor % 10 );
+            valor /= 10;
+        }
+        posicion += digitos;
+    }
+
+    /**
+     * Escribe un código de tiquete con sus 7 dígitos, incluyendo los ceros a la izquierda
+     */
+    public void campoCodigoTiquete( int codigo ) throws IOException
+    {
+        separador( );
+        asegurar( GeneradorTiquetes.DIGITOS_CODIGO );
+        GeneradorTiquetes.escribirCodigo( codigo, buffer, posicion );
+        posicion += GeneradorTiquetes.DIGITOS_CODIGO;
+    }
+
+    public void campo( String valor ) throws IOException
+    {
+        separador( );
+        boolean requiereComillas = false;
+        for( int i = 0; i < valor.length( ) && !requiereComillas; i++ )
+        {
+            char c = valor.charAt( i );
+            requiereComillas = c == separador || c == '"' || c == '\n' || c == '\r';
+        }
+        if( requiereComillas )
+            valor = "\"" + valor.replace( "\"", "\"\"" ) + "\"";
+
+        byte[] bytes = valor.getBytes( StandardCharsets.UTF_8 );
+        if( bytes.length > buffer.length )
+        {
+            asegurar( buffer.length );
+            salida.write( bytes );
+            return;
+        }
+        asegurar( bytes.length );
+        System.arraycopy( bytes, 0, buffer, posicion, bytes.length );
+        posicion += bytes.length;
+    }
+
+    public void finLinea( ) throws IOException
+    {
+        asegurar( 1 );
+        buffer[ posicion++ ] = '\n';
+        primerCampo = true;
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        try
+        {
+            salida.write( buffer, 0, posicion );
+            posicion = 0;
+        }
+        finally
+        {
+            salida.close( );
+        }
+    }
+}
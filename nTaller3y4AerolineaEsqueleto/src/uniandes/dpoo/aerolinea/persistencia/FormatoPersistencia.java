@@ -0,0 +1,58 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.util.function.Supplier;
+
+/**
+ * Esta clase agrupa la información que CentralPersistencia tiene sobre un formato de archivo registrado: su nombre, cómo se construye el objeto que lo carga y lo salva,
+ * y cómo se reconoce un archivo en ese formato.
+ * @param <T> El tipo de persistencia (IPersistenciaTiquetes o IPersistenciaAerolinea)
+ */
+public class FormatoPersistencia<T>
+{
+    /**
+     * El nombre del formato, por ejemplo CentralPersistencia.JSON
+     */
+    private String tipo;
+
+    /**
+     * El objeto que construye nuevas instancias de la persistencia
+     */
+    private Supplier<? extends T> fabrica;
+
+    /**
+     * El objeto que reconoce los archivos en este formato. Puede ser null si el formato no se puede detectar automáticamente.
+     */
+    private IDetectorFormato detector;
+
+    public FormatoPersistencia( String tipo, Supplier<? extends T> fabrica, IDetectorFormato detector )
+    {
+        this.tipo = tipo;
+        this.fabrica = fabrica;
+        this.detector = detector;
+    }
+
+    public String getTipo( )
+    {
+        return tipo;
+    }
+
+    /**
+     * Construye una nueva instancia de la persistencia de este formato
+     * @return
+     */
+    public T crearPersistencia( )
+    {
+        return fabrica.get( );
+    }
+
+    /**
+     * Revisa si un archivo está en este formato a partir de su encabezado
+     * @param encabezado Los primeros bytes del archivo
+     * @param longitud La cantidad de bytes válidos dentro del arreglo
+     * @return Retorna true si el archivo parece estar en este formato. Si el formato no tiene detector, siempre retorna false.
+     */
+    public boolean reconoce( byte[] encabezado, int longitud )
+    {
+        return detector != null && detector.reconoce( encabezado, longitud );
+    }
+}
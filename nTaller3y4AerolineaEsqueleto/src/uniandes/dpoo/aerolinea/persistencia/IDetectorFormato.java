@@ -0,0 +1,15 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+/**
+ * Esta interfaz la implementan los objetos capaces de reconocer si un archivo está en un cierto formato, a partir de sus primeros bytes
+ */
+public interface IDetectorFormato
+{
+    /**
+     * Revisa si el encabezado de un archivo corresponde al formato
+     * @param encabezado Los primeros bytes del archivo
+     * @param longitud La cantidad de posiciones del arreglo que tienen bytes del archivo. Puede ser menor que el tamaño del arreglo si el archivo es muy corto.
+     * @return Retorna true si el archivo parece estar en el formato
+     */
+    public boolean reconoce( byte[] encabezado, int longitud );
+}
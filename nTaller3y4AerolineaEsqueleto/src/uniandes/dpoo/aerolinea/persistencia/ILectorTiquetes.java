@@ -0,0 +1,20 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.IOException;
+
+/**
+ * Los formatos de persistencia de tiquetes que saben leer un archivo sin agregar su contenido directamente a una aerolínea.
+ *
+ * CargaArchivosTiquetes usa esta interfaz para leer varios archivos al mismo tiempo; los archivos de formatos que no la implementan se cargan uno a uno con
+ * IPersistenciaTiquetes.cargarTiquetes.
+ */
+interface ILectorTiquetes
+{
+    /**
+     * Lee los clientes y tiquetes de un archivo y los envía a un receptor, en el orden en el que están en el archivo
+     * @param archivo La ruta al archivo
+     * @param receptor El receptor de los clientes y tiquetes. Las inconsistencias del archivo se le reportan a él.
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public void leerTiquetes( String archivo, IReceptorTiquetes receptor ) throws IOException;
+}
@@ -0,0 +1,49 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+
+/**
+ * Un lugar al que los formatos de persistencia envían los clientes y tiquetes que leen de un archivo, a medida que los leen.
+ *
+ * CargadorTiquetes los agrega de una vez a la aerolínea, mientras que LoteTiquetes sólo los guarda para agregarlos después, lo que permite leer varios archivos al
+ * tiempo (ver CargaArchivosTiquetes).
+ */
+interface IReceptorTiquetes
+{
+    /**
+     * Recibe un cliente leído del archivo
+     * @param nuevoCliente El cliente
+     * @return Retorna false si el cliente no se aceptó. En ese caso la inconsistencia queda anotada.
+     */
+    public boolean agregarCliente( Cliente nuevoCliente );
+
+    /**
+     * Recibe la información de un tiquete leído del archivo
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param fecha La fecha del vuelo
+     * @param codigoTiquete Los dígitos del código del tiquete
+     * @param tarifa El valor que se pagó por el tiquete
+     * @param usado Indica si el tiquete ya fue usado
+     * @param identificadorCliente El identificador del cliente que compró el tiquete
+     * @return Retorna false si el tiquete no se aceptó. En ese caso la inconsistencia queda anotada.
+     */
+    public boolean agregarTiquete( String codigoRuta, String fecha, String codigoTiquete, int tarifa, boolean usado, String identificadorCliente );
+
+    /**
+     * Recibe la información de un tiquete leído del archivo
+     * @param codigoRuta El código de la ruta del vuelo
+     * @param fecha La fecha del vuelo
+     * @param codigoTiquete El código del tiquete, entre 0 y 9999999
+     * @param tarifa El valor que se pagó por el tiquete
+     * @param usado Indica si el tiquete ya fue usado
+     * @param identificadorCliente El identificador del cliente que compró el tiquete
+     * @return Retorna false si el tiquete no se aceptó. En ese caso la inconsistencia queda anotada.
+     */
+    public boolean agregarTiquete( String codigoRuta, String fecha, int codigoTiquete, int tarifa, boolean usado, String identificadorCliente );
+
+    /**
+     * Anota una inconsistencia encontrada durante la lectura
+     * @param error La descripción de la inconsistencia
+     */
+    public void registrarError( String error );
+}
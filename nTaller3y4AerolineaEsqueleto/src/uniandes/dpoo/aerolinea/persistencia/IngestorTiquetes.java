@@ -0,0 +1,535 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import uniandes.dpoo.aerolinea.exceptions.CargaInconsistenteException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase recibe lotes de tiquetes en JSON (por ejemplo, los que envían los socios) y los agrega a una aerolínea en un proceso de cuatro etapas que trabajan al mismo
+ * tiempo:
+ * <ol>
+ * <li>Análisis: convierte el texto de cada lote en registros.</li>
+ * <li>Validación: busca la ruta, el vuelo y el cliente de cada registro.</li>
+ * <li>Asignación: registra el código del tiquete en GeneradorTiquetes, o le asigna uno nuevo si el registro no trae código.</li>
+ * <li>Registro: agrega cada tiquete a su vuelo y a su cliente.</li>
+ * </ol>
+ * Cada etapa tiene sus propios hilos (la cantidad se configura por etapa) y recibe su trabajo por un buffer de tamaño limitado. Cuando una etapa se atrasa, su buffer se
+ * llena y la etapa anterior espera, hasta llegar a quien envía los lotes (ver enviar). Así la memoria que usa el proceso queda limitada por el tamaño de los buffers sin
+ * importar qué tan rápido lleguen los lotes.
+ *
+ * Entre las etapas los registros viajan en bloques de a lo sumo TAMANO_BLOQUE registros, para no pagar el costo de los buffers por cada tiquete.
+ *
+ * Un lote puede ser un objeto con la llave 'tiquetes' (como los archivos de PersistenciaTiquetesJson, cuyos clientes se ignoran) o directamente un arreglo de tiquetes,
+ * con las mismas llaves que usa PersistenciaTiquetesJson. Los registros inconsistentes se descartan y se anotan, igual que en la carga de un archivo; al final, terminar
+ * reporta todas las inconsistencias.
+ */
+public class IngestorTiquetes
+{
+    /**
+     * La cantidad máxima de registros que viajan juntos entre dos etapas
+     */
+    public static final int TAMANO_BLOQUE = 256;
+
+    /**
+     * La cantidad máxima de inconsistencias que se guardan. Las demás sólo se cuentan.
+     */
+    public static final int MAXIMO_ERRORES = 1000;
+
+    /**
+     * El elemento que indica a un hilo de una etapa que ya no va a llegar más trabajo
+     */
+    private static final Object FIN = new Object( );
+
+    private final Aerolinea aerolinea;
+
+    private final Etapa analisis;
+
+    private final Etapa validacion;
+
+    private final Etapa asignacion;
+
+    private final Etapa registro;
+
+    /**
+     * Llega a 0 cuando la última etapa terminó
+     */
+    private final CountDownLatch terminado;
+
+    private final AtomicLong recibidos;
+
+    private final AtomicLong registrados;
+
+    private final AtomicLong rechazados;
+
+    /**
+     * Las primeras inconsistencias encontradas. Se protege con su propio candado.
+     */
+    private final List<String> errores;
+
+    private volatile boolean cerrado;
+
+    /**
+     * Ordena los envíos con el cierre. Quien envía un lote tiene el candado de lectura mientras revisa que el proceso siga abierto y pone el lote en el buffer, y terminar
+     * tiene el candado de escritura mientras cierra el proceso y avisa a la primera etapa. Así ningún lote puede quedar en el buffer después del aviso de cierre, donde
+     * nadie lo procesaría.
+     */
+    private final ReadWriteLock candado;
+
+    /**
+     * Construye el proceso y arranca sus hilos
+     * @param aerolinea La aerolínea a la que se agregan los tiquetes. Ya debe tener las rutas, los vuelos y los clientes.
+     * @param capacidad La cantidad de elementos (lotes en la primera etapa, bloques en las demás) que caben en el buffer de cada etapa
+     * @param hilosAnalisis La cantidad de hilos de la etapa de análisis
+     * @param hilosValidacion La cantidad de hilos de la etapa de validación
+     * @param hilosAsignacion La cantidad de hilos de la etapa de asignación
+     * @param hilosRegistro La cantidad de hilos de la etapa de registro
+     */
+    public IngestorTiquetes( Aerolinea aerolinea, int capacidad, int hilosAnalisis, int hilosValidacion, int hilosAsignacion, int hilosRegistro )
+    {
+        this.aerolinea = aerolinea;
+        this.terminado = new CountDownLatch( 1 );
+        this.recibidos = new AtomicLong( );
+        this.registrados = new AtomicLong( );
+        this.rechazados = new AtomicLong( );
+        this.errores = new ArrayList<String>( );
+        this.candado = new ReentrantReadWriteLock( );
+
+        this.registro = new Etapa( "registro", capacidad, hilosRegistro, null, this::registrar );
+        this.asignacion = new Etapa( "asignacion", capacidad, hilosAsignacion, registro, this::asignar );
+        this.validacion = new Etapa( "validacion", capacidad, hilosValidacion, asignacion, this::validar );
+        this.analisis = new Etapa( "analisis", capacidad, hilosAnalisis, validacion, this::analizar );
+        registro.iniciar( );
+        asignacion.iniciar( );
+        validacion.iniciar( );
+        analisis.iniciar( );
+    }
+
+    /**
+     * Construye el proceso con un hilo por etapa
+     */
+    public IngestorTiquetes( Aerolinea aerolinea, int capacidad )
+    {
+        this( aerolinea, capacidad, 1, 1, 1, 1 );
+    }
+
+    /**
+     * Envía un lote de tiquetes al proceso. Si el buffer de la primera etapa está lleno, espera hasta que haya espacio.
+     * @param lote El texto JSON del lote
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     */
+    public void enviar( String lote ) throws InterruptedException
+    {
+        candado.readLock( ).lock( );
+        try
+        {
+            verificarAbierto( );
+            analisis.entrada.put( lote );
+        }
+        finally
+        {
+            candado.readLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Envía un lote de tiquetes al proceso, esperando a lo sumo un tiempo dado a que haya espacio en el buffer de la primera etapa
+     * @param lote El texto JSON del lote
+     * @param espera El tiempo máximo de espera
+     * @param unidad La unidad del tiempo de espera
+     * @return Retorna false si se acabó el tiempo sin que hubiera espacio. En ese caso el lote no se envió.
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     */
+    public boolean enviar( String lote, long espera, TimeUnit unidad ) throws InterruptedException
+    {
+        candado.readLock( ).lock( );
+        try
+        {
+            verificarAbierto( );
+            return analisis.entrada.offer( lote, espera, unidad );
+        }
+        finally
+        {
+            candado.readLock( ).unlock( );
+        }
+    }
+
+    private void verificarAbierto( )
+    {
+        if( cerrado )
+            throw new IllegalStateException( "El proceso ya no recibe lotes" );
+    }
+
+    /**
+     * Deja de recibir lotes y espera a que se procesen todos los que ya se enviaron, incluidos los de envíos que estaban esperando espacio en el buffer
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     * @throws CargaInconsistenteException Se lanza esta excepción si algún registro era inconsistente. Los demás registros sí se agregaron a la aerolínea.
+     */
+    public void terminar( ) throws InterruptedException, CargaInconsistenteException
+    {
+        candado.writeLock( ).lock( );
+        try
+        {
+            if( !cerrado )
+            {
+                cerrado = true;
+                analisis.cerrar( );
+            }
+        }
+        finally
+        {
+            candado.writeLock( ).unlock( );
+        }
+        terminado.await( );
+        synchronized( errores )
+        {
+            if( !errores.isEmpty( ) )
+            {
+                List<String> reporte = new ArrayList<String>( errores );
+                if( rechazados.get( ) > errores.size( ) )
+                    reporte.add( "... y " + ( rechazados.get( ) - errores.size( ) ) + " inconsistencias más" );
+                throw new CargaInconsistenteException( reporte );
+            }
+        }
+    }
+
+    /**
+     * Detiene todos los hilos sin esperar a que terminen los lotes pendientes. Los tiquetes que ya se habían registrado se quedan en la aerolínea.
+     */
+    public void cancelar( )
+    {
+        cerrado = true;
+        analisis.interrumpir( );
+        validacion.interrumpir( );
+        asignacion.interrumpir( );
+        registro.interrumpir( );
+        terminado.countDown( );
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes que se han leído de los lotes
+     * @return
+     */
+    public long getRecibidos( )
+    {
+        return recibidos.get( );
+    }
+
+    /**
+     * Retorna la cantidad de tiquetes que ya se agregaron a la aerolínea
+     * @return
+     */
+    public long getRegistrados( )
+    {
+        return registrados.get( );
+    }
+
+    /**
+     * Retorna la cantidad de inconsistencias encontradas (tiquetes descartados y lotes que no se pudieron leer)
+     * @return
+     */
+    public long getRechazados( )
+    {
+        return rechazados.get( );
+    }
+
+    /**
+     * Retorna la cantidad de elementos que están esperando en el buffer de cada etapa: análisis, validación, asignación y registro
+     * @return
+     */
+    public int[] getPendientes( )
+    {
+        return new int[]{ analisis.entrada.size( ), validacion.entrada.size( ), asignacion.entrada.size( ), registro.entrada.size( ) };
+    }
+
+    public List<String> getErrores( )
+    {
+        synchronized( errores )
+        {
+            return Collections.unmodifiableList( new ArrayList<String>( errores ) );
+        }
+    }
+
+    private void registrarError( String error )
+    {
+        rechazados.incrementAndGet( );
+        synchronized( errores )
+        {
+            if( errores.size( ) < MAXIMO_ERRORES )
+                errores.add( error );
+        }
+    }
+
+    // ************************************************************************************
+    //
+    // Las etapas
+    //
+    // ************************************************************************************
+
+    /**
+     * Etapa de análisis: convierte un lote en bloques de registros
+     */
+    private void analizar( Object elemento ) throws InterruptedException
+    {
+        JSONArray tiquetes;
+        try
+        {
+            Object raiz = new JSONTokener( ( String )elemento ).nextValue( );
+            if( raiz instanceof JSONArray )
+                tiquetes = ( JSONArray )raiz;
+            else if( raiz instanceof JSONObject )
+                tiquetes = ( ( JSONObject )raiz ).getJSONArray( "tiquetes" );
+            else
+                throw new JSONException( "El lote no es un objeto ni un arreglo" );
+        }
+        catch( JSONException e )
+        {
+            registrarError( "Lote inválido: " + e.getMessage( ) );
+            return;
+        }
+
+        Registro[] bloque = new Registro[Math.min( TAMANO_BLOQUE, tiquetes.length( ) )];
+        int cantidad = 0;
+        for( int i = 0; i < tiquetes.length( ); i++ )
+        {
+            recibidos.incrementAndGet( );
+            try
+            {
+                JSONObject tiquete = tiquetes.getJSONObject( i );
+                Registro nuevo = new Registro( );
+                nuevo.codigoRuta = tiquete.getString( PersistenciaTiquetesJson.CODIGO_RUTA );
+                nuevo.fecha = tiquete.getString( PersistenciaTiquetesJson.FECHA );
+                nuevo.codigoTiquete = tiquete.has( PersistenciaTiquetesJson.CODIGO_TIQUETE ) ? tiquete.get( PersistenciaTiquetesJson.CODIGO_TIQUETE ).toString( ) : null;
+                nuevo.tarifa = tiquete.getInt( PersistenciaTiquetesJson.TARIFA );
+                nuevo.usado = tiquete.optBoolean( PersistenciaTiquetesJson.USADO, false );
+                nuevo.identificadorCliente = tiquete.getString( PersistenciaTiquetesJson.CLIENTE );
+                bloque[ cantidad++ ] = nuevo;
+            }
+            catch( JSONException e )
+            {
+                registrarError( "Tiquete inválido: " + e.getMessage( ) );
+            }
+            if( cantidad == bloque.length )
+            {
+                validacion.entrada.put( bloque );
+                bloque = new Registro[Math.min( TAMANO_BLOQUE, tiquetes.length( ) - i - 1 )];
+                cantidad = 0;
+            }
+        }
+        if( cantidad > 0 )
+            validacion.entrada.put( compactar( bloque, cantidad ) );
+    }
+
+    /**
+     * Etapa de validación: busca el vuelo y el cliente de cada registro, y descarta los registros que no los tienen
+     */
+    private void validar( Object elemento ) throws InterruptedException
+    {
+        Registro[] bloque = ( Registro[] )elemento;
+        int validos = 0;
+        for( Registro actual : bloque )
+        {
+            actual.vuelo = aerolinea.getVuelo( actual.codigoRuta, actual.fecha );
+            actual.cliente = aerolinea.getCliente( actual.identificadorCliente );
+            if( actual.vuelo == null )
+            {
+                if( aerolinea.getRuta( actual.codigoRuta ) == null )
+                    registrarError( new InformacionInconsistenteTiqueteException( "ruta", actual.codigoRuta ).getMessage( ) );
+                else
+                    registrarError( new InformacionInconsistenteTiqueteException( "vuelo", actual.codigoRuta + " en " + actual.fecha ).getMessage( ) );
+            }
+            else if( actual.cliente == null )
+                registrarError( new InformacionInconsistenteTiqueteException( "cliente", actual.identificadorCliente ).getMessage( ) );
+            else if( actual.codigoTiquete != null && GeneradorTiquetes.leerCodigo( actual.codigoTiquete ) < 0 )
+                registrarError( "El código de tiquete '" + actual.codigoTiquete + "' no es válido" );
+            else
+                bloque[ validos++ ] = actual;
+        }
+        if( validos > 0 )
+            asignacion.entrada.put( compactar( bloque, validos ) );
+    }
+
+    /**
+     * Etapa de asignación: crea el tiquete de cada registro con un código que no se haya usado antes
+     */
+    private void asignar( Object elemento ) throws InterruptedException
+    {
+        Registro[] bloque = ( Registro[] )elemento;
+        int asignados = 0;
+        for( Registro actual : bloque )
+        {
+            if( actual.codigoTiquete == null )
+            {
+                actual.tiquete = GeneradorTiquetes.generarTiquete( actual.vuelo, actual.cliente, actual.tarifa );
+            }
+            else
+            {
+                actual.tiquete = new Tiquete( GeneradorTiquetes.leerCodigo( actual.codigoTiquete ), actual.vuelo, actual.cliente, actual.tarifa );
+                if( !GeneradorTiquetes.registrarTiquete( actual.tiquete ) )
+                {
+                    registrarError( new InformacionInconsistenteTiqueteException( "tiquete", actual.tiquete.getCodigo( ), false ).getMessage( ) );
+                    continue;
+                }
+            }
+            bloque[ asignados++ ] = actual;
+        }
+        if( asignados > 0 )
+            registro.entrada.put( compactar( bloque, asignados ) );
+    }
+
+    /**
+     * Etapa de registro: agrega cada tiquete a su vuelo y a su cliente
+     */
+    private void registrar( Object elemento )
+    {
+        for( Registro actual : ( Registro[] )elemento )
+        {
+            if( actual.usado )
+                actual.tiquete.marcarComoUsado( );
+            actual.vuelo.agregarTiquete( actual.tiquete );
+            actual.cliente.agregarTiquete( actual.tiquete );
+            registrados.incrementAndGet( );
+        }
+    }
+
+    private static Registro[] compactar( Registro[] bloque, int cantidad )
+    {
+        if( cantidad == bloque.length )
+            return bloque;
+        Registro[] compacto = new Registro[cantidad];
+        System.arraycopy( bloque, 0, compacto, 0, cantidad );
+        return compacto;
+    }
+
+    /**
+     * Un tiquete a medida que pasa por las etapas. Cada etapa llena los atributos que le corresponden.
+     */
+    private static final class Registro
+    {
+        private String codigoRuta;
+        private String fecha;
+        private String codigoTiquete;
+        private int tarifa;
+        private boolean usado;
+        private String identificadorCliente;
+
+        private Vuelos vuelo;
+        private Cliente cliente;
+        private Tiquete tiquete;
+    }
+
+    /**
+     * El trabajo que hace una etapa con cada elemento de su buffer. Para pasar el resultado a la siguiente etapa, lo pone en el buffer de esa etapa.
+     */
+    private interface Procesador
+    {
+        void procesar( Object elemento ) throws InterruptedException;
+    }
+
+    /**
+     * Una etapa: un buffer de tamaño limitado y un grupo de hilos que procesan sus elementos. Cuando el último hilo de una etapa termina, cierra la siguiente.
+     */
+    private final class Etapa
+    {
+        private final String nombre;
+
+        private final BlockingQueue<Object> entrada;
+
+        private final Etapa siguiente;
+
+        private final Procesador procesador;
+
+        private final Thread[] hilos;
+
+        private final AtomicInteger activos;
+
+        private Etapa( String nombre, int capacidad, int cantidadHilos, Etapa siguiente, Procesador procesador )
+        {
+            if( cantidadHilos <= 0 )
+                throw new IllegalArgumentException( "La etapa " + nombre + " debe tener al menos un hilo" );
+            this.nombre = nombre;
+            this.entrada = new ArrayBlockingQueue<Object>( capacidad );
+            this.siguiente = siguiente;
+            this.procesador = procesador;
+            this.hilos = new Thread[cantidadHilos];
+            this.activos = new AtomicInteger( cantidadHilos );
+            for( int i = 0; i < cantidadHilos; i++ )
+            {
+                hilos[ i ] = new Thread( this::trabajar, "ingestor-" + nombre + "-" + i );
+                hilos[ i ].setDaemon( true );
+            }
+        }
+
+        private void iniciar( )
+        {
+            for( Thread hilo : hilos )
+                hilo.start( );
+        }
+
+        private void trabajar( )
+        {
+            try
+            {
+                Object elemento = entrada.take( );
+                while( elemento != FIN )
+                {
+                    try
+                    {
+                        procesador.procesar( elemento );
+                    }
+                    catch( RuntimeException e )
+                    {
+                        registrarError( "Error en la etapa de " + nombre + ": " + e );
+                    }
+                    elemento = entrada.take( );
+                }
+                if( activos.decrementAndGet( ) == 0 )
+                {
+                    if( siguiente != null )
+                        siguiente.cerrar( );
+                    else
+                        terminado.countDown( );
+                }
+            }
+            catch( InterruptedException e )
+            {
+                // El proceso se canceló
+            }
+        }
+
+        /**
+         * Avisa a cada hilo de la etapa que no va a llegar más trabajo. Los elementos que ya estaban en el buffer se procesan antes del aviso.
+         */
+        private void cerrar( ) throws InterruptedException
+        {
+            for( int i = 0; i < hilos.length; i++ )
+                entrada.put( FIN );
+        }
+
+        private void interrumpir( )
+        {
+            for( Thread hilo : hilos )
+                hilo.interrupt( );
+        }
+    }
+}
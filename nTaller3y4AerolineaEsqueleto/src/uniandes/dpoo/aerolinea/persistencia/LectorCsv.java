@@ -0,0 +1,365 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Esta clase lee un archivo CSV (o, en general, de registros separados por un caracter) línea por línea directamente sobre los bytes del archivo.
+ *
+ * El archivo se lee por bloques en un buffer de bytes, y para cada línea sólo se calculan las posiciones donde empieza y termina cada campo. Los campos se convierten en
+ * cadenas o en números únicamente cuando se piden, y los números se interpretan directamente a partir de los bytes. No se usan expresiones regulares ni String.split.
+ *
+ * Los campos pueden estar entre comillas dobles (con las comillas internas duplicadas), como en el formato CSV estándar.
+ */
+class LectorCsv implements Closeable
+{
+    private static final byte COMILLAS = '"';
+
+    /**
+     * El caracter que separa los campos de cada línea
+     */
+    private final byte separador;
+
+    /**
+     * El canal del que se leen los bytes
+     */
+    private final ReadableByteChannel canal;
+
+    /**
+     * El buffer donde están los bytes leídos que todavía no se han procesado
+     */
+    private byte[] buffer;
+
+    /**
+     * La posición dentro del buffer donde empieza la siguiente línea
+     */
+    private int posicion;
+
+    /**
+     * La cantidad de bytes válidos dentro del buffer
+     */
+    private int limite;
+
+    /**
+     * Indica si ya se leyó todo el canal
+     */
+    private boolean finArchivo;
+
+    /**
+     * Las posiciones donde empieza y termina (sin incluir) cada campo de la línea actual
+     */
+    private int[] inicios;
+    private int[] fines;
+
+    /**
+     * Indica, para cada campo de la línea actual, si estaba entre comillas
+     */
+    private boolean[] conComillas;
+
+    /**
+     * La cantidad de campos de la línea actual
+     */
+    private int cantidadCampos;
+
+    /**
+     * El número de la línea actual, contando desde 1
+     */
+    private int numeroLinea;
+
+    /**
+     * El último valor convertido en cadena para cada campo. Se reutiliza cuando el siguiente valor del mismo campo tiene exactamente los mismos bytes, lo cual es muy
+     * común en las columnas con rutas, fechas y clientes.
+     */
+    private String[] ultimosValores;
+    private byte[][] ultimosBytes;
+
+    public LectorCsv( ReadableByteChannel canal, int capacidad, byte separador )
+    {
+        this.canal = canal;
+        this.separador = separador;
+        this.buffer = new byte[capacidad];
+        this.inicios = new int[16];
+        this.fines = new int[16];
+        this.conComillas = new boolean[16];
+        this.ultimosValores = new String[16];
+        this.ultimosBytes = new byte[16][];
+    }
+
+    /**
+     * Avanza a la siguiente línea que no esté vacía
+     * @return Retorna false si ya no hay más líneas
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     */
+    public boolean siguienteLinea( ) throws IOException
+    {
+        while( true )
+        {
+            int finLinea = buscarFinLinea( );
+            if( finLinea < 0 )
+                return false;
+
+            numeroLinea++;
+            int siguiente = finLinea < limite ? finLinea + 1 : finLinea;
+            int fin = finLinea;
+            if( fin > posicion && buffer[ fin - 1 ] == '\r' )
+                fin--;
+            boolean vacia = fin == posicion;
+            if( !vacia )
+                separarCampos( posicion, fin );
+            posicion = siguiente;
+            if( !vacia )
+                return true;
+        }
+    }
+
+    /**
+     * Busca la posición del salto de línea que termina la línea actual, leyendo más datos del canal si es necesario. Los saltos de línea entre comillas no cuentan.
+     * @return La posición del salto de línea, o 'limite' si el archivo termina sin salto de línea, o -1 si ya no hay más líneas
+     */
+    private int buscarFinLinea( ) throws IOException
+    {
+        int i = posicion;
+        boolean entreComillas = false;
+        while( true )
+        {
+            while( i < limite )
+            {
+                byte b = buffer[ i ];
+                if( b == COMILLAS )
+                    entreComillas = !entreComillas;
+                else if( b == '\n' && !entreComillas )
+                    return i;
+                i++;
+            }
+            if( finArchivo )
+                return posicion < limite ? limite : -1;
+
+            // La línea no cabe en lo que queda del buffer: se mueve al comienzo y se leen más datos
+            int avance = i - posicion;
+            rellenar( );
+            i = posicion + avance;
+        }
+    }
+
+    /**
+     * Mueve los bytes pendientes al comienzo del buffer (agrandándolo si ya estaba lleno) y lee más datos del canal
+     */
+    private void rellenar( ) throws IOException
+    {
+        int pendientes = limite - posicion;
+        if( pendientes == buffer.length )
+            buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+        else if( posicion > 0 )
+            System.arraycopy( buffer, posicion, buffer, 0, pendientes );
+        posicion = 0;
+        limite = pendientes;
+
+        ByteBuffer destino = ByteBuffer.wrap( buffer, limite, buffer.length - limite );
+        int leidos = canal.read( destino );
+        while( leidos == 0 )
+            leidos = canal.read( destino );
+        if( leidos < 0 )
+            finArchivo = true;
+        else
+            limite += leidos;
+    }
+
+    /**
+     * Calcula las posiciones de los campos de una línea
+     */
+    private void separarCampos( int desde, int hasta )
+    {
+        cantidadCampos = 0;
+        int i = desde;
+        while( true )
+        {
+            if( cantidadCampos == inicios.length )
+                crecer( );
+
+            if( i < hasta && buffer[ i ] == COMILLAS )
+            {
+                int inicio = i + 1;
+                int j = inicio;
+                while( j < hasta )
+                {
+                    if( buffer[ j ] == COMILLAS )
+                    {
+                        if( j + 1 < hasta && buffer[ j + 1 ] == COMILLAS )
+                            j += 2;
+                        else
+                            break;
+                    }
+                    else
+                        j++;
+                }
+                inicios[ cantidadCampos ] = inicio;
+                fines[ cantidadCampos ] = j;
+                conComillas[ cantidadCampos ] = true;
+                cantidadCampos++;
+                i = j + 1;
+                while( i < hasta && buffer[ i ] != separador )
+                    i++;
+            }
+            else
+            {
+                int j = i;
+                while( j < hasta && buffer[ j ] != separador )
+                    j++;
+                inicios[ cantidadCampos ] = i;
+                fines[ cantidadCampos ] = j;
+                conComillas[ cantidadCampos ] = false;
+                cantidadCampos++;
+                i = j;
+            }
+
+            if( i >= hasta )
+                return;
+            i++; // el separador
+        }
+    }
+
+    private void crecer( )
+    {
+        int nuevo = inicios.length * 2;
+        inicios = Arrays.copyOf( inicios, nuevo );
+        fines = Arrays.copyOf( fines, nuevo );
+        conComillas = Arrays.copyOf( conComillas, nuevo );
+        ultimosValores = Arrays.copyOf( ultimosValores, nuevo );
+        ultimosBytes = Arrays.copyOf( ultimosBytes, nuevo );
+    }
+
+    public int getCantidadCampos( )
+    {
+        return cantidadCampos;
+    }
+
+    public int getNumeroLinea( )
+    {
+        return numeroLinea;
+    }
+
+    /**
+     * Retorna el primer byte de un campo, o 0 si el campo está vacío
+     * @param campo La posición del campo, contando desde 0
+     * @return
+     */
+    public byte getPrimerByte( int campo )
+    {
+        verificarCampo( campo );
+        return inicios[ campo ] < fines[ campo ] ? buffer[ inicios[ campo ] ] : 0;
+    }
+
+    /**
+     * Retorna el valor de un campo como una cadena
+     * @param campo La posición del campo, contando desde 0
+     * @return
+     */
+    public String getCadena( int campo )
+    {
+        verificarCampo( campo );
+        int inicio = inicios[ campo ];
+        int longitud = fines[ campo ] - inicio;
+
+        byte[] anterior = ultimosBytes[ campo ];
+        if( anterior != null && anterior.length == longitud && iguales( anterior, inicio ) )
+            return ultimosValores[ campo ];
+
+        String valor;
+        if( conComillas[ campo ] )
+            valor = new String( buffer, inicio, longitud, StandardCharsets.UTF_8 ).replace( "\"\"", "\"" );
+        else
+            valor = new String( buffer, inicio, longitud, StandardCharsets.UTF_8 );
+        ultimosBytes[ campo ] = Arrays.copyOfRange( buffer, inicio, fines[ campo ] );
+        ultimosValores[ campo ] = valor;
+        return valor;
+    }
+
+    private boolean iguales( byte[] valor, int inicio )
+    {
+        for( int i = 0; i < valor.length; i++ )
+        {
+            if( buffer[ inicio + i ] != valor[ i ] )
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retorna el valor de un campo como un número entero, interpretándolo directamente a partir de los bytes
+     * @param campo La posición del campo, contando desde 0
+     * @return
+     * @throws NumberFormatException Se lanza esta excepción si el campo no es un número entero válido
+     */
+    public int getEntero( int campo )
+    {
+        verificarCampo( campo );
+        int i = inicios[ campo ];
+        int fin = fines[ campo ];
+        boolean negativo = i < fin && buffer[ i ] == '-';
+        if( negativo )
+            i++;
+        if( i >= fin )
+            throw new NumberFormatException( "Campo numérico vacío en la línea " + numeroLinea );
+
+        long valor = 0;
+        for( ; i < fin; i++ )
+        {
+            int digito = buffer[ i ] - '0';
+            if( digito < 0 || digito > 9 )
+                throw new NumberFormatException( "Valor no numérico en la línea " + numeroLinea + ": " + getCadena( campo ) );
+            valor = valor * 10 + digito;
+            if( valor > Integer.MAX_VALUE + 1L )
+                throw new NumberFormatException( "Valor demasiado grande en la línea " + numeroLinea );
+        }
+        valor = negativo ? -valor : valor;
+        if( valor > Integer.MAX_VALUE )
+            throw new NumberFormatException( "Valor demasiado grande en la línea " + numeroLinea );
+        return ( int )valor;
+    }
+
+    /**
+     * Retorna el valor de un campo como un número decimal
+     * @param campo La posición del campo, contando desde 0
+     * @return
+     * @throws NumberFormatException Se lanza esta excepción si el campo no es un número decimal válido
+     */
+    public double getDecimal( int campo )
+    {
+        String valor = getCadena( campo );
+        try
+        {
+            return Double.parseDouble( valor );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new NumberFormatException( "Valor no numérico en la línea " + numeroLinea + ": " + valor );
+        }
+    }
+
+    /**
+     * Retorna el valor de un campo como un booleano. Los valores 'true' y '1' son verdaderos; cualquier otro valor es falso.
+     * @param campo La posición del campo, contando desde 0
+     * @return
+     */
+    public boolean getBooleano( int campo )
+    {
+        byte primero = getPrimerByte( campo );
+        return primero == 't' || primero == 'T' || primero == '1';
+    }
+
+    private void verificarCampo( int campo )
+    {
+        if( campo >= cantidadCampos )
+            throw new IllegalArgumentException( "La línea " + numeroLinea + " tiene " + cantidadCampos + " campos y se esperaban al menos " + ( campo + 1 ) );
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        canal.close( );
+    }
+}
@@ -0,0 +1,457 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Esta clase lee un documento JSON por partes, sin construir el árbol completo del documento en memoria.
+ *
+ * Quien usa el lector recorre el documento con iniciarObjeto/siguienteLlave e iniciarArreglo/siguienteElemento, y lee cada valor con leerValor o lo descarta con
+ * omitirValor. Sólo los valores que se leen con leerValor se convierten en objetos: las cadenas en String, los números en Integer, Long o Double, los booleanos en
+ * Boolean, null en JSONObject.NULL, y los objetos y arreglos anidados en JSONObject y JSONArray.
+ *
+ * Los errores de sintaxis se reportan con una IOException que indica la línea del documento donde se encontraron.
+ */
+class LectorJson implements Closeable
+{
+    private final Reader lector;
+
+    /**
+     * El buffer donde están los caracteres leídos que todavía no se han procesado
+     */
+    private final char[] buffer;
+
+    /**
+     * La posición dentro del buffer del siguiente caracter
+     */
+    private int posicion;
+
+    /**
+     * La cantidad de caracteres válidos dentro del buffer
+     */
+    private int limite;
+
+    /**
+     * El número de la línea actual, contando desde 1
+     */
+    private int numeroLinea = 1;
+
+    /**
+     * Indica, para el objeto o arreglo que se está recorriendo, si todavía no se ha leído ningún elemento. Sirve para saber si antes del siguiente elemento debe haber una
+     * coma.
+     */
+    private boolean primero;
+
+    /**
+     * Se usa para construir las cadenas y los números
+     */
+    private final StringBuilder texto = new StringBuilder( );
+
+    public LectorJson( Reader lector, int capacidad )
+    {
+        this.lector = lector;
+        this.buffer = new char[capacidad];
+    }
+
+    public int getNumeroLinea( )
+    {
+        return numeroLinea;
+    }
+
+    // ************************************************************************************
+    //
+    // Recorrido
+    //
+    // ************************************************************************************
+
+    /**
+     * Consume el comienzo de un objeto ('{')
+     * @throws IOException Se lanza esta excepción si el siguiente valor no es un objeto
+     */
+    public void iniciarObjeto( ) throws IOException
+    {
+        esperar( '{' );
+        primero = true;
+    }
+
+    /**
+     * Lee la llave del siguiente atributo del objeto que se está recorriendo, y consume los ':' que la separan de su valor
+     * @return La llave, o null si el objeto ya no tiene más atributos. En ese caso se consume el final del objeto ('}').
+     * @throws IOException Se lanza esta excepción si el documento está mal formado
+     */
+    public String siguienteLlave( ) throws IOException
+    {
+        int c = siguienteNoBlanco( );
+        if( c == '}' )
+        {
+            posicion++;
+            primero = false;
+            return null;
+        }
+        if( !primero )
+        {
+            esperar( ',' );
+            c = siguienteNoBlanco( );
+        }
+        primero = false;
+        if( c != '"' )
+            throw error( "se esperaba el nombre de un atributo" );
+        posicion++;
+        String llave = leerCadena( );
+        esperar( ':' );
+        return llave;
+    }
+
+    /**
+     * Consume el comienzo de un arreglo ('[')
+     * @throws IOException Se lanza esta excepción si el siguiente valor no es un arreglo
+     */
+    public void iniciarArreglo( ) throws IOException
+    {
+        esperar( '[' );
+        primero = true;
+    }
+
+    /**
+     * Avanza hasta el siguiente elemento del arreglo que se está recorriendo. Después de llamar este método, el elemento se debe leer con leerValor, omitirValor o
+     * iniciarObjeto.
+     * @return Retorna false si el arreglo ya no tiene más elementos. En ese caso se consume el final del arreglo (']').
+     * @throws IOException Se lanza esta excepción si el documento está mal formado
+     */
+    public boolean siguienteElemento( ) throws IOException
+    {
+        int c = siguienteNoBlanco( );
+        if( c == ']' )
+        {
+            posicion++;
+            primero = false;
+            return false;
+        }
+        if( !primero )
+        {
+            esperar( ',' );
+            siguienteNoBlanco( );
+        }
+        primero = false;
+        return true;
+    }
+
+    /**
+     * Revisa que después del valor principal del documento sólo haya espacios en blanco
+     * @throws IOException Se lanza esta excepción si hay algo más en el documento
+     */
+    public void terminar( ) throws IOException
+    {
+        if( siguienteNoBlanco( ) != -1 )
+            throw error( "hay contenido después del final del documento" );
+    }
+
+    // ************************************************************************************
+    //
+    // Valores
+    //
+    // ************************************************************************************
+
+    /**
+     * Lee el siguiente valor del documento
+     * @return El valor, convertido como se explica en la descripción de la clase
+     * @throws IOException Se lanza esta excepción si el documento está mal formado
+     */
+    public Object leerValor( ) throws IOException
+    {
+        return valor( true );
+    }
+
+    /**
+     * Lee el siguiente valor del documento sin conservarlo. Los objetos y arreglos anidados se recorren sin construirlos.
+     * @throws IOException Se lanza esta excepción si el documento está mal formado
+     */
+    public void omitirValor( ) throws IOException
+    {
+        valor( false );
+    }
+
+    /**
+     * Lee el siguiente valor del documento
+     * @param conservar Indica si se debe construir el objeto que representa el valor
+     * @return El valor, o null si no se debía conservar
+     */
+    private Object valor( boolean conservar ) throws IOException
+    {
+        int c = siguienteNoBlanco( );
+        switch( c )
+        {
+            case '"':
+                posicion++;
+                if( conservar )
+                    return leerCadena( );
+                omitirCadena( );
+                return null;
+            case '{':
+            {
+                JSONObject objeto = conservar ? new JSONObject( ) : null;
+                iniciarObjeto( );
+                String llave = siguienteLlave( );
+                while( llave != null )
+                {
+                    Object valor = valor( conservar );
+                    if( conservar )
+                        objeto.put( llave, valor );
+                    primero = false;
+                    llave = siguienteLlave( );
+                }
+                return objeto;
+            }
+            case '[':
+            {
+                JSONArray arreglo = conservar ? new JSONArray( ) : null;
+                iniciarArreglo( );
+                while( siguienteElemento( ) )
+                {
+                    Object valor = valor( conservar );
+                    if( conservar )
+                        arreglo.put( valor );
+                    primero = false;
+                }
+                return arreglo;
+            }
+            case 't':
+                esperarPalabra( "true" );
+                return Boolean.TRUE;
+            case 'f':
+                esperarPalabra( "false" );
+                return Boolean.FALSE;
+            case 'n':
+                esperarPalabra( "null" );
+                return JSONObject.NULL;
+            case -1:
+                throw error( "el documento terminó antes de tiempo" );
+            default:
+                if( c == '-' || ( c >= '0' && c <= '9' ) )
+                    return leerNumero( );
+                throw error( "caracter inesperado '" + ( char )c + "'" );
+        }
+    }
+
+    /**
+     * Lee una cadena. La comilla inicial ya se consumió.
+     */
+    private String leerCadena( ) throws IOException
+    {
+        // Camino rápido: la cadena completa está en el buffer y no tiene secuencias de escape
+        for( int i = posicion; i < limite; i++ )
+        {
+            char c = buffer[ i ];
+            if( c == '"' )
+            {
+                String cadena = new String( buffer, posicion, i - posicion );
+                posicion = i + 1;
+                return cadena;
+            }
+            if( c == '\\' || c == '\n' )
+                break;
+        }
+
+        texto.setLength( 0 );
+        while( true )
+        {
+            int c = siguiente( );
+            if( c == -1 )
+                throw error( "una cadena no se cerró" );
+            if( c == '"' )
+                return texto.toString( );
+            if( c == '\n' )
+                throw error( "una cadena tiene un salto de línea" );
+            if( c != '\\' )
+            {
+                texto.append( ( char )c );
+                continue;
+            }
+            c = siguiente( );
+            switch( c )
+            {
+                case '"':
+                case '\\':
+                case '/':
+                    texto.append( ( char )c );
+                    break;
+                case 'b':
+                    texto.append( '\b' );
+                    break;
+                case 'f':
+                    texto.append( '\f' );
+                    break;
+                case 'n':
+                    texto.append( '\n' );
+                    break;
+                case 'r':
+                    texto.append( '\r' );
+                    break;
+                case 't':
+                    texto.append( '\t' );
+                    break;
+                case 'u':
+                {
+                    int valor = 0;
+                    for( int i = 0; i < 4; i++ )
+                    {
+                        int digito = Character.digit( siguiente( ), 16 );
+                        if( digito < 0 )
+                            throw error( "secuencia \\u inválida" );
+                        valor = valor * 16 + digito;
+                    }
+                    texto.append( ( char )valor );
+                    break;
+                }
+                default:
+                    throw error( "secuencia de escape inválida" );
+            }
+        }
+    }
+
+    /**
+     * Consume una cadena sin construirla. La comilla inicial ya se consumió.
+     */
+    private void omitirCadena( ) throws IOException
+    {
+        while( true )
+        {
+            int c = siguiente( );
+            if( c == -1 )
+                throw error( "una cadena no se cerró" );
+            if( c == '"' )
+                return;
+            if( c == '\n' )
+                throw error( "una cadena tiene un salto de línea" );
+            if( c == '\\' && siguiente( ) == -1 )
+                throw error( "una cadena no se cerró" );
+        }
+    }
+
+    private Number leerNumero( ) throws IOException
+    {
+        texto.setLength( 0 );
+        boolean decimal = false;
+        while( true )
+        {
+            int c = mirar( );
+            if( c >= '0' && c <= '9' || c == '-' || c == '+' )
+                texto.append( ( char )c );
+            else if( c == '.' || c == 'e' || c == 'E' )
+            {
+                texto.append( ( char )c );
+                decimal = true;
+            }
+            else
+                break;
+            posicion++;
+        }
+        String numero = texto.toString( );
+        try
+        {
+            if( decimal )
+                return Double.valueOf( numero );
+            long valor = Long.parseLong( numero );
+            if( valor >= Integer.MIN_VALUE && valor <= Integer.MAX_VALUE )
+                return Integer.valueOf( ( int )valor );
+            return Long.valueOf( valor );
+        }
+        catch( NumberFormatException e )
+        {
+            throw error( "el número '" + numero + "' no es válido" );
+        }
+    }
+
+    // ************************************************************************************
+    //
+    // Caracteres
+    //
+    // ************************************************************************************
+
+    private void esperar( char esperado ) throws IOException
+    {
+        int c = siguienteNoBlanco( );
+        if( c != esperado )
+            throw error( "se esperaba '" + esperado + "'" );
+        posicion++;
+    }
+
+    private void esperarPalabra( String palabra ) throws IOException
+    {
+        for( int i = 0; i < palabra.length( ); i++ )
+        {
+            if( siguiente( ) != palabra.charAt( i ) )
+                throw error( "se esperaba '" + palabra + "'" );
+        }
+    }
+
+    /**
+     * Salta los espacios en blanco y retorna el siguiente caracter sin consumirlo
+     * @return El caracter, o -1 si se llegó al final del documento
+     */
+    private int siguienteNoBlanco( ) throws IOException
+    {
+        while( true )
+        {
+            int c = mirar( );
+            if( c == '\n' )
+                numeroLinea++;
+            else if( c != ' ' && c != '\t' && c != '\r' && c != 0xFEFF )
+                return c;
+            posicion++;
+        }
+    }
+
+    /**
+     * Retorna el siguiente caracter sin consumirlo
+     * @return El caracter, o -1 si se llegó al final del documento
+     */
+    private int mirar( ) throws IOException
+    {
+        if( posicion == limite && !llenar( ) )
+            return -1;
+        return buffer[ posicion ];
+    }
+
+    /**
+     * Consume y retorna el siguiente caracter
+     * @return El caracter, o -1 si se llegó al final del documento
+     */
+    private int siguiente( ) throws IOException
+    {
+        if( posicion == limite && !llenar( ) )
+            return -1;
+        return buffer[ posicion++ ];
+    }
+
+    private boolean llenar( ) throws IOException
+    {
+        int leidos = lector.read( buffer, 0, buffer.length );
+        while( leidos == 0 )
+            leidos = lector.read( buffer, 0, buffer.length );
+        if( leidos < 0 )
+        {
+            posicion = 0;
+            limite = 0;
+            return false;
+        }
+        posicion = 0;
+        limite = leidos;
+        return true;
+    }
+
+    private IOException error( String mensaje )
+    {
+        return new IOException( "JSON mal formado en la línea " + numeroLinea + ": " + mensaje );
+    }
+
+    @Override
+    public void close( ) throws IOException
+    {
+        lector.close( );
+    }
+}
@@ -0,0 +1,170 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Los clientes y tiquetes leídos de un archivo que todavía no se han agregado a la aerolínea.
+ *
+ * Un lote no consulta la aerolínea, así que se pueden llenar varios lotes al mismo tiempo, uno por archivo, y agregarlos después en orden con un CargadorTiquetes (ver
+ * CargaArchivosTiquetes). Los tiquetes se guardan por columnas, y los códigos de ruta, las fechas y los identificadores de clientes, que se repiten en muchos tiquetes,
+ * se guardan una sola vez por lote.
+ *
+ * Un lote no debe llenarse desde varios hilos al mismo tiempo.
+ */
+class LoteTiquetes implements IReceptorTiquetes
+{
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    /**
+     * El nombre del archivo del que se leyó el lote
+     */
+    private final String archivo;
+
+    /**
+     * Los clientes del archivo, en el orden en el que aparecen
+     */
+    private final List<Cliente> clientes;
+
+    /**
+     * Las inconsistencias que se encontraron al leer el archivo
+     */
+    private final List<String> errores;
+
+    /**
+     * Las cadenas del lote, para que los valores repetidos de las columnas compartan un solo objeto
+     */
+    private final Map<String, String> cadenas;
+
+    private String[] rutas;
+
+    private String[] fechas;
+
+    private String[] identificadoresClientes;
+
+    private int[] codigos;
+
+    private int[] tarifas;
+
+    private final BitSet usados;
+
+    private int cantidadTiquetes;
+
+    public LoteTiquetes( String archivo )
+    {
+        this.archivo = archivo;
+        this.clientes = new ArrayList<Cliente>( );
+        this.errores = new ArrayList<String>( );
+        this.cadenas = new HashMap<String, String>( );
+        this.rutas = new String[CAPACIDAD_INICIAL];
+        this.fechas = new String[CAPACIDAD_INICIAL];
+        this.identificadoresClientes = new String[CAPACIDAD_INICIAL];
+        this.codigos = new int[CAPACIDAD_INICIAL];
+        this.tarifas = new int[CAPACIDAD_INICIAL];
+        this.usados = new BitSet( );
+    }
+
+    public String getArchivo( )
+    {
+        return archivo;
+    }
+
+    public List<Cliente> getClientes( )
+    {
+        return clientes;
+    }
+
+    public List<String> getErrores( )
+    {
+        return errores;
+    }
+
+    public int getCantidadTiquetes( )
+    {
+        return cantidadTiquetes;
+    }
+
+    /**
+     * Guarda un cliente. Los clientes repetidos se detectan cuando el lote se agrega a la aerolínea.
+     * @return Siempre retorna true
+     */
+    @Override
+    public boolean agregarCliente( Cliente nuevoCliente )
+    {
+        clientes.add( nuevoCliente );
+        return true;
+    }
+
+    /**
+     * Guarda la información de un tiquete
+     * @return Retorna false si el código no es válido. En ese caso la inconsistencia queda anotada.
+     */
+    @Override
+    public boolean agregarTiquete( String codigoRuta, String fecha, String codigoTiquete, int tarifa, boolean usado, String identificadorCliente )
+    {
+        int codigo = GeneradorTiquetes.leerCodigo( codigoTiquete );
+        if( codigo < 0 )
+        {
+            registrarError( "El código de tiquete '" + codigoTiquete + "' no es válido" );
+            return false;
+        }
+        return agregarTiquete( codigoRuta, fecha, codigo, tarifa, usado, identificadorCliente );
+    }
+
+    /**
+     * Guarda la información de un tiquete. Las inconsistencias (rutas, vuelos o clientes que no existen, códigos fuera de rango o repetidos) se detectan cuando el lote
+     * se agrega a la aerolínea.
+     * @return Siempre retorna true
+     */
+    @Override
+    public boolean agregarTiquete( String codigoRuta, String fecha, int codigoTiquete, int tarifa, boolean usado, String identificadorCliente )
+    {
+        if( cantidadTiquetes == codigos.length )
+        {
+            int capacidad = 2 * cantidadTiquetes;
+            rutas = Arrays.copyOf( rutas, capacidad );
+            fechas = Arrays.copyOf( fechas, capacidad );
+            identificadoresClientes = Arrays.copyOf( identificadoresClientes, capacidad );
+            codigos = Arrays.copyOf( codigos, capacidad );
+            tarifas = Arrays.copyOf( tarifas, capacidad );
+        }
+        rutas[ cantidadTiquetes ] = compartir( codigoRuta );
+        fechas[ cantidadTiquetes ] = compartir( fecha );
+        identificadoresClientes[ cantidadTiquetes ] = compartir( identificadorCliente );
+        codigos[ cantidadTiquetes ] = codigoTiquete;
+        tarifas[ cantidadTiquetes ] = tarifa;
+        if( usado )
+            usados.set( cantidadTiquetes );
+        cantidadTiquetes++;
+        return true;
+    }
+
+    private String compartir( String cadena )
+    {
+        String compartida = cadenas.putIfAbsent( cadena, cadena );
+        return compartida == null ? cadena : compartida;
+    }
+
+    @Override
+    public void registrarError( String error )
+    {
+        errores.add( error );
+    }
+
+    /**
+     * Agrega los tiquetes del lote a la aerolínea, en el mismo orden en el que estaban en el archivo
+     * @param cargador El cargador de la aerolínea, que ya debe conocer a los clientes de los tiquetes
+     */
+    public void agregarTiquetes( CargadorTiquetes cargador )
+    {
+        for( int i = 0; i < cantidadTiquetes; i++ )
+            cargador.agregarTiquete( rutas[ i ], fechas[ i ], codigos[ i ], tarifas[ i ], usados.get( i ), identificadoresClientes[ i ] );
+    }
+}
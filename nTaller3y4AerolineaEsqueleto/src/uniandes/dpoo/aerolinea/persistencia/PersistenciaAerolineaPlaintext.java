@@ -1,25 +1,304 @@
 package uniandes.dpoo.aerolinea.persistencia;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uniandes.dpoo.aerolinea.exceptions.AeropuertoDuplicadoException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
 import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.Avion;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
 
 /**
- * Esta clase no está implementada - y no debería implementarse como parte del taller.
- * 
- * Su objetivo es sólo ilustrar que podría haber varias implementaciones de la misma interfaz, y que durante la ejecución alguien podría decidir cuál de estas implementaciones
- * usar.
+ * Esta clase guarda la estructura de la aerolínea (aeropuertos, aviones, rutas y vuelos) en un archivo de texto plano, con un registro por línea.
+ *
+ * La primera línea del archivo es el encabezado '#aerolinea-plaintext'. En cada una de las demás líneas los campos están separados por ';' y el primer campo indica el
+ * tipo de registro:
+ * <ul>
+ * <li>AEROPUERTO;codigo;nombre;ciudad;latitud;longitud</li>
+ * <li>AVION;nombre;capacidad</li>
+ * <li>RUTA;codigoRuta;codigoOrigen;codigoDestino;horaSalida;horaLlegada</li>
+ * <li>VUELO;codigoRuta;fecha;nombreAvion</li>
+ * </ul>
+ * Las líneas que empiezan por '#' después del encabezado son comentarios. Un registro sólo puede referirse a registros que aparecieron antes en el archivo (o que ya
+ * existían en la aerolínea), y por eso al salvar se escriben primero los aeropuertos, luego los aviones, las rutas y finalmente los vuelos.
+ *
+ * El archivo se carga en una sola pasada: cada registro se agrega a la aerolínea apenas se lee, así que los índices de la aerolínea se van construyendo mientras se lee el
+ * archivo.
+ *
+ * Como los códigos de los aeropuertos son únicos en toda la aplicación, un registro AEROPUERTO cuyo código ya tiene un aeropuerto con los mismos datos (por ejemplo, porque
+ * el archivo ya se había cargado en otra aerolínea) reutiliza ese aeropuerto. Si la carga falla, se liberan los códigos de los aeropuertos que se crearon durante la carga.
  */
 public class PersistenciaAerolineaPlaintext implements IPersistenciaAerolinea
 {
-    @Override
-    public void cargarAerolinea( String archivo, Aerolinea aerolinea )
+    /**
+     * La primera línea de cualquier archivo en este formato
+     */
+    public static final String ENCABEZADO = "#aerolinea-plaintext";
+
+    private static final byte[] FIRMA = ENCABEZADO.getBytes( StandardCharsets.US_ASCII );
+
+    public static final byte SEPARADOR = ';';
+    private static final byte COMENTARIO = '#';
+
+    public static final String AEROPUERTO = "AEROPUERTO";
+    public static final String AVION = "AVION";
+    public static final String RUTA = "RUTA";
+    public static final String VUELO = "VUELO";
+
+    /**
+     * El tamaño de los buffers de lectura y escritura
+     */
+    private static final int TAMANO_BUFFER = 1 << 16;
+
+    /**
+     * Revisa si un archivo está en este formato a partir de sus primeros bytes
+     * @param encabezado Los primeros bytes del archivo
+     * @param longitud La cantidad de bytes válidos dentro del encabezado
+     * @return Retorna true si el archivo empieza con el encabezado del formato
+     */
+    public static boolean reconoce( byte[] encabezado, int longitud )
     {
-        // No está implementado (y no es necesario para el taller)
+        return CentralPersistencia.empiezaCon( encabezado, longitud, FIRMA );
     }
 
+    /**
+     * Carga la estructura de la aerolínea a partir de un archivo de texto plano
+     * @param archivo La ruta al archivo que contiene la información que se va a cargar
+     * @param aerolinea La aerolínea dentro de la cual debe almacenarse la información
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo
+     * @throws InformacionInconsistenteException Se lanza esta excepción si hay información inconsistente dentro del archivo, o entre el archivo y el estado de la aerolínea
+     */
     @Override
-    public void salvarAerolinea( String archivo, Aerolinea aerolinea )
+    public void cargarAerolinea( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        Map<String, Aeropuerto> aeropuertos = buscarAeropuertos( aerolinea );
+        Map<String, Avion> aviones = new HashMap<String, Avion>( );
+        for( Avion avion : aerolinea.getAviones( ) )
+            aviones.put( avion.getNombre( ), avion );
+
+        Set<String> codigosArchivo = new HashSet<String>( );
+        List<Aeropuerto> creados = new ArrayList<Aeropuerto>( );
+        boolean exito = false;
+        try( LectorCsv lector = new LectorCsv( FileChannel.open( Paths.get( archivo ), StandardOpenOption.READ ), TAMANO_BUFFER, SEPARADOR ) )
+        {
+            if( !lector.siguienteLinea( ) || !ENCABEZADO.equals( lector.getCadena( 0 ) ) )
+                throw new IOException( "El archivo " + archivo + " no tiene el encabezado " + ENCABEZADO );
+
+            while( lector.siguienteLinea( ) )
+            {
+                if( lector.getPrimerByte( 0 ) == COMENTARIO )
+                    continue;
+
+                try
+                {
+                    String tipoRegistro = lector.getCadena( 0 );
+                    switch( tipoRegistro )
+                    {
+                        case AEROPUERTO:
+                            cargarAeropuerto( lector, aeropuertos, codigosArchivo, creados );
+                            break;
+                        case AVION:
+                            cargarAvion( lector, aerolinea, aviones );
+                            break;
+                        case RUTA:
+                            cargarRuta( lector, aerolinea, aeropuertos );
+                            break;
+                        case VUELO:
+                            cargarVuelo( lector, aerolinea, aviones );
+                            break;
+                        default:
+                            throw new InformacionInconsistenteException( "Tipo de registro desconocido en la línea " + lector.getNumeroLinea( ) + ": " + tipoRegistro );
+                    }
+                }
+                catch( IllegalArgumentException e )
+                {
+                    // Incluye NumberFormatException
+                    throw new InformacionInconsistenteException( e.getMessage( ) );
+                }
+            }
+            exito = true;
+        }
+        finally
+        {
+            if( !exito )
+            {
+                for( Aeropuerto aeropuerto : creados )
+                    Aeropuerto.liberarCodigo( aeropuerto );
+            }
+        }
+    }
+
+    /**
+     * Construye un mapa con los aeropuertos que ya conoce la aerolínea a través de sus rutas
+     */
+    private static Map<String, Aeropuerto> buscarAeropuertos( Aerolinea aerolinea )
+    {
+        Map<String, Aeropuerto> aeropuertos = new LinkedHashMap<String, Aeropuerto>( );
+        for( Ruta ruta : aerolinea.getRutas( ) )
+        {
+            aeropuertos.put( ruta.getOrigen( ).getCodigo( ), ruta.getOrigen( ) );
+            aeropuertos.put( ruta.getDestino( ).getCodigo( ), ruta.getDestino( ) );
+        }
+        return aeropuertos;
+    }
+
+    /**
+     * Carga un registro AEROPUERTO. Si ya existe un aeropuerto con el mismo código y los mismos datos, se reutiliza.
+     * @param aeropuertos Los aeropuertos que se pueden usar en las rutas, por código
+     * @param codigosArchivo Los códigos de los aeropuertos que han aparecido en el archivo, que no se pueden repetir
+     * @param creados Los aeropuertos que se han creado durante la carga
+     */
+    private static void cargarAeropuerto( LectorCsv lector, Map<String, Aeropuerto> aeropuertos, Set<String> codigosArchivo, List<Aeropuerto> creados )
+            throws InformacionInconsistenteException
+    {
+        String codigo = lector.getCadena( 1 );
+        String nombre = lector.getCadena( 2 );
+        String ciudad = lector.getCadena( 3 );
+        double latitud = lector.getDecimal( 4 );
+        double longitud = lector.getDecimal( 5 );
+        if( !codigosArchivo.add( codigo ) )
+            throw new InformacionInconsistenteException( new AeropuertoDuplicadoException( codigo ).getMessage( ) + " (línea " + lector.getNumeroLinea( ) + ")" );
+
+        Aeropuerto existente = aeropuertos.get( codigo );
+        if( existente == null )
+            existente = Aeropuerto.buscarAeropuerto( codigo );
+        if( existente != null )
+        {
+            if( !existente.getNombre( ).equals( nombre ) || !existente.getNombreCiudad( ).equals( ciudad ) || existente.getLatitud( ) != latitud
+                    || existente.getLongitud( ) != longitud )
+                throw new InformacionInconsistenteException( "El aeropuerto '" + codigo + "' ya existe con otros datos (línea " + lector.getNumeroLinea( ) + ")" );
+            aeropuertos.put( codigo, existente );
+            return;
+        }
+
+        try
+        {
+            Aeropuerto nuevoAeropuerto = new Aeropuerto( nombre, codigo, ciudad, latitud, longitud );
+            creados.add( nuevoAeropuerto );
+            aeropuertos.put( codigo, nuevoAeropuerto );
+        }
+        catch( AeropuertoDuplicadoException e )
+        {
+            // Otro hilo creó un aeropuerto con el mismo código entre la búsqueda y la creación
+            throw new InformacionInconsistenteException( e.getMessage( ) + " (línea " + lector.getNumeroLinea( ) + ")" );
+        }
+    }
+
+    private static void cargarAvion( LectorCsv lector, Aerolinea aerolinea, Map<String, Avion> aviones ) throws InformacionInconsistenteException
     {
-        // No está implementado (y no es necesario para el taller)
+        String nombre = lector.getCadena( 1 );
+        if( aviones.containsKey( nombre ) )
+            throw new InformacionInconsistenteException( "El avión '" + nombre + "' está repetido (línea " + lector.getNumeroLinea( ) + ")" );
+
+        Avion nuevoAvion = new Avion( nombre, lector.getEntero( 2 ) );
+        aviones.put( nombre, nuevoAvion );
+        aerolinea.agregarAvion( nuevoAvion );
+    }
+
+    private static void cargarRuta( LectorCsv lector, Aerolinea aerolinea, Map<String, Aeropuerto> aeropuertos ) throws InformacionInconsistenteException
+    {
+        String codigoRuta = lector.getCadena( 1 );
+        if( aerolinea.getRuta( codigoRuta ) != null )
+            throw new InformacionInconsistenteException( "La ruta '" + codigoRuta + "' está repetida (línea " + lector.getNumeroLinea( ) + ")" );
+
+        Aeropuerto origen = buscarAeropuerto( lector, aeropuertos, lector.getCadena( 2 ) );
+        Aeropuerto destino = buscarAeropuerto( lector, aeropuertos, lector.getCadena( 3 ) );
+        aerolinea.agregarRuta( new Ruta( origen, destino, lector.getCadena( 4 ), lector.getCadena( 5 ), codigoRuta ) );
     }
 
+    private static Aeropuerto buscarAeropuerto( LectorCsv lector, Map<String, Aeropuerto> aeropuertos, String codigo ) throws InformacionInconsistenteException
+    {
+        Aeropuerto aeropuerto = aeropuertos.get( codigo );
+        if( aeropuerto == null )
+            throw new InformacionInconsistenteException( "El aeropuerto '" + codigo + "' no existe (línea " + lector.getNumeroLinea( ) + ")" );
+        return aeropuerto;
+    }
+
+    private static void cargarVuelo( LectorCsv lector, Aerolinea aerolinea, Map<String, Avion> aviones ) throws InformacionInconsistenteException
+    {
+        String codigoRuta = lector.getCadena( 1 );
+        Ruta ruta = aerolinea.getRuta( codigoRuta );
+        if( ruta == null )
+            throw new InformacionInconsistenteException( "La ruta '" + codigoRuta + "' no existe (línea " + lector.getNumeroLinea( ) + ")" );
+
+        String fecha = lector.getCadena( 2 );
+        if( aerolinea.getVuelo( codigoRuta, fecha ) != null )
+            throw new InformacionInconsistenteException( "El vuelo " + codigoRuta + " en " + fecha + " está repetido (línea " + lector.getNumeroLinea( ) + ")" );
+
+        String nombreAvion = lector.getCadena( 3 );
+        Avion avion = aviones.get( nombreAvion );
+        if( avion == null )
+            throw new InformacionInconsistenteException( "El avión '" + nombreAvion + "' no existe (línea " + lector.getNumeroLinea( ) + ")" );
+
+        aerolinea.agregarVuelo( new Vuelos( ruta, fecha, avion ) );
+    }
+
+    /**
+     * Salva en un archivo de texto plano la estructura de la aerolínea
+     * @param archivo La ruta al archivo donde debe quedar almacenada la información
+     * @param aerolinea La aerolínea que tiene la información que se quiere almacenar
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    @Override
+    public void salvarAerolinea( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        try( EscritorCsv escritor = new EscritorCsv( new FileOutputStream( archivo ), TAMANO_BUFFER, SEPARADOR ) )
+        {
+            escritor.campo( ENCABEZADO );
+            escritor.finLinea( );
+
+            for( Aeropuerto aeropuerto : buscarAeropuertos( aerolinea ).values( ) )
+            {
+                escritor.campo( AEROPUERTO );
+                escritor.campo( aeropuerto.getCodigo( ) );
+                escritor.campo( aeropuerto.getNombre( ) );
+                escritor.campo( aeropuerto.getNombreCiudad( ) );
+                escritor.campo( Double.toString( aeropuerto.getLatitud( ) ) );
+                escritor.campo( Double.toString( aeropuerto.getLongitud( ) ) );
+                escritor.finLinea( );
+            }
+
+            for( Avion avion : aerolinea.getAviones( ) )
+            {
+                escritor.campo( AVION );
+                escritor.campo( avion.getNombre( ) );
+                escritor.campo( avion.getCapacidad( ) );
+                escritor.finLinea( );
+            }
+
+            for( Ruta ruta : aerolinea.getRutas( ) )
+            {
+                escritor.campo( RUTA );
+                escritor.campo( ruta.getCodigoRuta( ) );
+                escritor.campo( ruta.getOrigen( ).getCodigo( ) );
+                escritor.campo( ruta.getDestino( ).getCodigo( ) );
+                escritor.campo( ruta.getHoraSalida( ) );
+                escritor.campo( ruta.getHoraLlegada( ) );
+                escritor.finLinea( );
+            }
+
+            for( Vuelos vuelo : aerolinea.getVuelos( ) )
+            {
+                escritor.campo( VUELO );
+                escritor.campo( vuelo.getRuta( ).getCodigoRuta( ) );
+                escritor.campo( vuelo.getFecha( ) );
+                escritor.campo( vuelo.getAvion( ).getNombre( ) );
+                escritor.finLinea( );
+            }
+        }
+    }
 }
@@ -0,0 +1,135 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.exceptions.CargaInconsistenteException;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.SerieVentas;
+
+/**
+ * Esta clase guarda las series de ventas de las rutas (ver SerieVentas) en un archivo que acompaña al archivo de tiquetes. Los archivos de tiquetes no tienen la fecha
+ * en la que se vendió cada tiquete, así que las series no se pueden reconstruir a partir de ellos.
+ *
+ * El archivo de las series de un archivo de tiquetes tiene el mismo nombre con la extensión '.ventas' al final (ver getArchivoSeries). Es un archivo CSV cuya primera
+ * línea es el encabezado '#aerolinea-ventas-csv', y cada una de las demás líneas tiene las ventas de una ruta en un día: codigoRuta,fecha,tiquetes,ingresos.
+ */
+public class PersistenciaSeriesVentas
+{
+    /**
+     * La primera línea del archivo
+     */
+    public static final String ENCABEZADO = "#aerolinea-ventas-csv";
+
+    /**
+     * La extensión que se le agrega al nombre del archivo de tiquetes
+     */
+    public static final String EXTENSION = ".ventas";
+
+    private static final byte SEPARADOR = ',';
+
+    private static final int TAMANO_BUFFER = 1 << 16;
+
+    private PersistenciaSeriesVentas( )
+    {
+    }
+
+    /**
+     * Retorna el nombre del archivo de series que acompaña a un archivo de tiquetes
+     * @param archivoTiquetes El nombre del archivo de tiquetes
+     * @return
+     */
+    public static String getArchivoSeries( String archivoTiquetes )
+    {
+        return archivoTiquetes + EXTENSION;
+    }
+
+    /**
+     * Salva las series de ventas de todas las rutas de la aerolínea
+     * @param archivo El nombre del archivo de series
+     * @param aerolinea La aerolínea
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    public static void salvarSeries( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        try( EscritorCsv escritor = new EscritorCsv( new FileOutputStream( archivo ), TAMANO_BUFFER, SEPARADOR ) )
+        {
+            escritor.campo( ENCABEZADO );
+            escritor.finLinea( );
+            for( Ruta ruta : aerolinea.getRutas( ) )
+            {
+                SerieVentas serie = ruta.getSerieVentas( );
+                for( long dia : serie.getDiasConVentas( ) )
+                {
+                    escritor.campo( ruta.getCodigoRuta( ) );
+                    escritor.campo( LocalDate.ofEpochDay( dia ).toString( ) );
+                    escritor.campo( serie.getTiquetes( dia ) );
+                    escritor.campo( Long.toString( serie.getIngresos( dia ) ) );
+                    escritor.finLinea( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Carga las series de ventas de un archivo. Las ventas de cada día del archivo reemplazan las que tenía la serie de la ruta para ese día, así que cargar dos veces
+     * el mismo archivo deja las series igual que cargarlo una vez.
+     * @param archivo El nombre del archivo de series
+     * @param aerolinea La aerolínea, que ya debe tener sus rutas
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo o si no tiene el encabezado
+     * @throws InformacionInconsistenteException Se lanza esta excepción si alguna línea tiene una ruta que no existe o datos inválidos. Las demás líneas sí se cargan.
+     */
+    public static void cargarSeries( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        List<String> errores = new ArrayList<String>( );
+        try( LectorCsv lector = new LectorCsv( FileChannel.open( Paths.get( archivo ), StandardOpenOption.READ ), TAMANO_BUFFER, SEPARADOR ) )
+        {
+            if( !lector.siguienteLinea( ) || !ENCABEZADO.equals( lector.getCadena( 0 ) ) )
+                throw new IOException( "El archivo " + archivo + " no tiene el encabezado " + ENCABEZADO );
+
+            while( lector.siguienteLinea( ) )
+            {
+                try
+                {
+                    Ruta ruta = aerolinea.getRuta( lector.getCadena( 0 ) );
+                    if( ruta == null )
+                        errores.add( "La ruta " + lector.getCadena( 0 ) + " de la línea " + lector.getNumeroLinea( ) + " no existe" );
+                    else
+                        ruta.getSerieVentas( ).reemplazar( LocalDate.parse( lector.getCadena( 1 ) ), lector.getEntero( 2 ), Long.parseLong( lector.getCadena( 3 ) ) );
+                }
+                catch( RuntimeException e )
+                {
+                    // Incluye NumberFormatException y DateTimeParseException. La línea se descarta y se sigue con la siguiente.
+                    errores.add( "Línea " + lector.getNumeroLinea( ) + " inválida: " + e.getMessage( ) );
+                }
+            }
+        }
+        if( !errores.isEmpty( ) )
+            throw new CargaInconsistenteException( errores );
+    }
+
+    /**
+     * Carga las series de ventas que acompañan a un archivo de tiquetes, si existen. Se debe llamar después de cargar los tiquetes del archivo, para que las series sólo
+     * se carguen si los tiquetes se cargaron.
+     * @param archivoTiquetes El nombre del archivo de tiquetes
+     * @param aerolinea La aerolínea
+     * @return Retorna false si el archivo de tiquetes no tiene un archivo de series
+     */
+    public static boolean cargarSeriesDeTiquetes( String archivoTiquetes, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        String archivo = getArchivoSeries( archivoTiquetes );
+        if( !Files.isRegularFile( Paths.get( archivo ) ) )
+            return false;
+        cargarSeries( archivo, aerolinea );
+        return true;
+    }
+}
@@ -0,0 +1,201 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaAerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaVuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase guarda los clientes y los tiquetes de la aerolínea en un archivo binario sin comprimir, que se lee y se escribe de forma secuencial.
+ *
+ * El archivo empieza con la firma 'ATQB' y un número de versión. Después vienen la cantidad de clientes y los clientes, y luego la cantidad de vuelos y, para cada vuelo,
+ * su código de ruta, su fecha, la cantidad de tiquetes y los tiquetes. Cada tiquete tiene su código, su tarifa, si fue usado, y la posición de su cliente en la lista de
+ * clientes del archivo (o -1 seguido del identificador, si el cliente no está en la lista).
+ *
+ * A diferencia de PersistenciaTiquetesComprimida, el archivo no se organiza en bloques: los registros se leen y se entregan al receptor uno por uno, sin guardar nada más
+ * que la lista de identificadores de los clientes.
+ */
+public class PersistenciaTiquetesBinaria implements IPersistenciaTiquetes, ILectorTiquetes
+{
+    /**
+     * Los bytes con los que empieza cualquier archivo de este formato
+     */
+    static final byte[] FIRMA = { 'A', 'T', 'Q', 'B' };
+
+    /**
+     * La versión del formato que produce esta clase
+     */
+    private static final int VERSION = 1;
+
+    private static final int TIPO_NATURAL = 0;
+    private static final int TIPO_CORPORATIVO = 1;
+
+    /**
+     * La posición de cliente que indica que el identificador del cliente viene a continuación
+     */
+    private static final int CLIENTE_EXTERNO = -1;
+
+    /**
+     * El tamaño de los buffers de lectura y escritura
+     */
+    private static final int TAMANO_BUFFER = 1 << 16;
+
+    /**
+     * Revisa si un archivo está en este formato a partir de sus primeros bytes
+     * @param encabezado Los primeros bytes del archivo
+     * @param longitud La cantidad de bytes válidos dentro del encabezado
+     * @return Retorna true si el archivo empieza con la firma del formato
+     */
+    public static boolean reconoce( byte[] encabezado, int longitud )
+    {
+        return CentralPersistencia.empiezaCon( encabezado, longitud, FIRMA );
+    }
+
+    @Override
+    public void salvarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        InstantaneaAerolinea instantanea = aerolinea.tomarInstantanea( );
+        try( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( archivo ), TAMANO_BUFFER ) ) )
+        {
+            out.write( FIRMA );
+            out.writeInt( VERSION );
+
+            List<Cliente> clientes = instantanea.getClientes( );
+            Map<String, Integer> posiciones = new HashMap<String, Integer>( );
+            out.writeInt( clientes.size( ) );
+            for( Cliente cliente : clientes )
+            {
+                posiciones.put( cliente.getIdentificador( ), posiciones.size( ) );
+                if( ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
+                {
+                    out.writeByte( TIPO_NATURAL );
+                    out.writeUTF( cliente.getIdentificador( ) );
+                }
+                else
+                {
+                    ClienteCorporativo cc = ( ClienteCorporativo )cliente;
+                    out.writeByte( TIPO_CORPORATIVO );
+                    out.writeUTF( cc.getNombreEmpresa( ) );
+                    out.writeByte( cc.getTamanoEmpresa( ) );
+                }
+            }
+
+            List<InstantaneaVuelo> vuelos = instantanea.getVuelos( );
+            out.writeInt( vuelos.size( ) );
+            for( InstantaneaVuelo vuelo : vuelos )
+            {
+                out.writeUTF( vuelo.getRuta( ).getCodigoRuta( ) );
+                out.writeUTF( vuelo.getFecha( ) );
+                out.writeInt( vuelo.getCantidadTiquetes( ) );
+                for( int i = 0; i < vuelo.getCantidadTiquetes( ); i++ )
+                {
+                    Tiquete tiquete = vuelo.getTiquete( i );
+                    out.writeInt( tiquete.getCodigoNumerico( ) );
+                    out.writeInt( tiquete.getTarifa( ) );
+                    out.writeBoolean( vuelo.esUsado( i ) );
+                    String identificador = tiquete.getCliente( ).getIdentificador( );
+                    Integer posicion = posiciones.get( identificador );
+                    if( posicion != null )
+                        out.writeInt( posicion );
+                    else
+                    {
+                        out.writeInt( CLIENTE_EXTERNO );
+                        out.writeUTF( identificador );
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cargarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        CargadorTiquetes cargador = new CargadorTiquetes( aerolinea );
+        leerTiquetes( archivo, cargador );
+        cargador.terminar( );
+    }
+
+    @Override
+    public void leerTiquetes( String archivo, IReceptorTiquetes receptor ) throws IOException
+    {
+        try( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( archivo ), TAMANO_BUFFER ) ) )
+        {
+            byte[] firma = new byte[FIRMA.length];
+            in.readFully( firma );
+            if( !CentralPersistencia.empiezaCon( firma, firma.length, FIRMA ) )
+                throw new IOException( "El archivo " + archivo + " no es un archivo binario de tiquetes" );
+            int version = in.readInt( );
+            if( version != VERSION )
+                throw new IOException( "Versión no soportada del archivo binario de tiquetes: " + version );
+
+            String[] clientes = new String[leerCantidad( in )];
+            for( int i = 0; i < clientes.length; i++ )
+            {
+                int tipo = in.readByte( );
+                Cliente nuevoCliente;
+                if( tipo == TIPO_NATURAL )
+                    nuevoCliente = new ClienteNatural( in.readUTF( ) );
+                else if( tipo == TIPO_CORPORATIVO )
+                    nuevoCliente = new ClienteCorporativo( in.readUTF( ), leerTamanoEmpresa( in ) );
+                else
+                    throw new IOException( "El archivo binario de tiquetes está dañado" );
+                clientes[ i ] = nuevoCliente.getIdentificador( );
+                receptor.agregarCliente( nuevoCliente );
+            }
+
+            int cantidadVuelos = leerCantidad( in );
+            for( int v = 0; v < cantidadVuelos; v++ )
+            {
+                String codigoRuta = in.readUTF( );
+                String fecha = in.readUTF( );
+                int cantidadTiquetes = leerCantidad( in );
+                for( int i = 0; i < cantidadTiquetes; i++ )
+                {
+                    int codigo = in.readInt( );
+                    int tarifa = in.readInt( );
+                    boolean usado = in.readBoolean( );
+                    int posicion = in.readInt( );
+                    String cliente;
+                    if( posicion == CLIENTE_EXTERNO )
+                        cliente = in.readUTF( );
+                    else if( posicion >= 0 && posicion < clientes.length )
+                        cliente = clientes[ posicion ];
+                    else
+                        throw new IOException( "El archivo binario de tiquetes está dañado" );
+                    receptor.agregarTiquete( codigoRuta, fecha, codigo, tarifa, usado, cliente );
+                }
+            }
+        }
+    }
+
+    private static int leerTamanoEmpresa( DataInputStream in ) throws IOException
+    {
+        int tamano = in.readByte( );
+        if( !ClienteCorporativo.esTamanoValido( tamano ) )
+            throw new IOException( "El archivo binario de tiquetes está dañado" );
+        return tamano;
+    }
+
+    private static int leerCantidad( DataInputStream in ) throws IOException
+    {
+        int cantidad = in.readInt( );
+        if( cantidad < 0 )
+            throw new IOException( "El archivo binario de tiquetes está dañado" );
+        return cantidad;
+    }
+}
@@ -0,0 +1,538 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaAerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaVuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase guarda los clientes y los tiquetes de la aerolínea en un archivo binario comprimido.
+ *
+ * El archivo empieza con la firma 'ATQZ' y un número de versión. Después viene un bloque con todos los clientes y luego una secuencia de bloques de tiquetes, cada uno
+ * con a lo sumo una cierta cantidad de tiquetes. La secuencia termina con un bloque de longitud -1. En el archivo, cada bloque tiene la forma [longitud original]
+ * [longitud comprimida][datos comprimidos con Deflate].
+ *
+ * Dentro de un bloque de tiquetes la información se organiza por columnas: primero los diccionarios de códigos de ruta, fechas y clientes del bloque, y luego una columna
+ * para cada atributo (índices en los diccionarios, códigos, tarifas y un bit por tiquete para indicar si fue usado). Como los bloques son independientes, se comprimen
+ * y se descomprimen en paralelo.
+ */
+public class PersistenciaTiquetesComprimida implements IPersistenciaTiquetes, ILectorTiquetes
+{
+    /**
+     * Los bytes con los que empieza cualquier archivo de este formato
+     */
+    static final byte[] FIRMA = { 'A', 'T', 'Q', 'Z' };
+
+    /**
+     * La versión del formato que produce esta clase
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * La cantidad de tiquetes por bloque que se usa si no se indica otra
+     */
+    public static final int TIQUETES_POR_BLOQUE = 8192;
+
+    private static final int TIPO_NATURAL = 0;
+    private static final int TIPO_CORPORATIVO = 1;
+
+    /**
+     * La longitud con la que se marca el final de la secuencia de bloques
+     */
+    private static final int FIN_BLOQUES = -1;
+
+    /**
+     * La cantidad máxima de tiquetes que se guardan en un bloque
+     */
+    private final int tiquetesPorBloque;
+
+    /**
+     * La cantidad de hilos que comprimen y descomprimen bloques
+     */
+    private final int hilos;
+
+    public PersistenciaTiquetesComprimida( )
+    {
+        this( TIQUETES_POR_BLOQUE, Runtime.getRuntime( ).availableProcessors( ) );
+    }
+
+    public PersistenciaTiquetesComprimida( int tiquetesPorBloque, int hilos )
+    {
+        this.tiquetesPorBloque = tiquetesPorBloque;
+        this.hilos = Math.max( 1, hilos );
+    }
+
+    /**
+     * Revisa si un archivo está en este formato a partir de sus primeros bytes
+     * @param encabezado Los primeros bytes del archivo
+     * @param longitud La cantidad de bytes válidos dentro del encabezado
+     * @return Retorna true si el archivo empieza con la firma del formato
+     */
+    public static boolean reconoce( byte[] encabezado, int longitud )
+    {
+        return CentralPersistencia.empiezaCon( encabezado, longitud, FIRMA );
+    }
+
+    // ************************************************************************************
+    //
+    // Salvar
+    //
+    // ************************************************************************************
+
+    @Override
+    public void salvarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool( hilos );
+        try( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( archivo ), 1 << 16 ) ) )
+        {
+            out.write( FIRMA );
+            out.writeInt( VERSION );
+            InstantaneaAerolinea instantanea = aerolinea.tomarInstantanea( );
+            escribirBloque( out, comprimir( serializarClientes( instantanea.getClientes( ) ) ) );
+
+            // Los bloques se comprimen en paralelo, pero se escriben en orden. Para no tener todo el archivo en memoria, sólo se permiten unos cuantos bloques pendientes.
+            List<Tiquete> tiquetes = new ArrayList<Tiquete>( instantanea.getCantidadTiquetes( ) );
+            final boolean[] usados = new boolean[instantanea.getCantidadTiquetes( )];
+            for( InstantaneaVuelo vuelo : instantanea.getVuelos( ) )
+            {
+                for( int i = 0; i < vuelo.getCantidadTiquetes( ); i++ )
+                {
+                    usados[ tiquetes.size( ) ] = vuelo.esUsado( i );
+                    tiquetes.add( vuelo.getTiquete( i ) );
+                }
+            }
+            Deque<Future<BloqueComprimido>> pendientes = new ArrayDeque<Future<BloqueComprimido>>( );
+            for( int inicio = 0; inicio < tiquetes.size( ); inicio += tiquetesPorBloque )
+            {
+                final int primero = inicio;
+                final List<Tiquete> lote = tiquetes.subList( inicio, Math.min( tiquetes.size( ), inicio + tiquetesPorBloque ) );
+                pendientes.add( pool.submit( ( ) -> comprimir( serializarTiquetes( lote, usados, primero ) ) ) );
+                if( pendientes.size( ) >= 2 * hilos )
+                    escribirBloque( out, esperar( pendientes.poll( ) ) );
+            }
+            while( !pendientes.isEmpty( ) )
+                escribirBloque( out, esperar( pendientes.poll( ) ) );
+            out.writeInt( FIN_BLOQUES );
+        }
+        finally
+        {
+            pool.shutdownNow( );
+        }
+    }
+
+    /**
+     * Construye la representación binaria (sin comprimir) de los clientes
+     */
+    private static byte[] serializarClientes( Collection<Cliente> clientes ) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+        DataOutputStream out = new DataOutputStream( bytes );
+        List<Cliente> lista = new ArrayList<Cliente>( clientes );
+        out.writeInt( lista.size( ) );
+        for( Cliente cliente : lista )
+        {
+            if( ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
+            {
+                out.writeByte( TIPO_NATURAL );
+                out.writeUTF( cliente.getIdentificador( ) );
+            }
+            else
+            {
+                ClienteCorporativo cc = ( ClienteCorporativo )cliente;
+                out.writeByte( TIPO_CORPORATIVO );
+                out.writeUTF( cc.getNombreEmpresa( ) );
+                out.writeByte( cc.getTamanoEmpresa( ) );
+            }
+        }
+        out.flush( );
+        return bytes.toByteArray( );
+    }
+
+    /**
+     * Construye la representación binaria (sin comprimir) de un bloque de tiquetes, organizada por columnas
+     * @param lote Los tiquetes del bloque
+     * @param usados Para todos los tiquetes de la instantánea, si estaban usados
+     * @param primero La posición en la instantánea del primer tiquete del bloque
+     */
+    private static byte[] serializarTiquetes( List<Tiquete> lote, boolean[] usados, int primero ) throws IOException
+    {
+        int cantidad = lote.size( );
+        Map<String, Integer> rutas = new LinkedHashMap<String, Integer>( );
+        Map<String, Integer> fechas = new LinkedHashMap<String, Integer>( );
+        Map<String, Integer> clientes = new LinkedHashMap<String, Integer>( );
+        int[] indiceRuta = new int[cantidad];
+        int[] indiceFecha = new int[cantidad];
+        int[] indiceCliente = new int[cantidad];
+        for( int i = 0; i < cantidad; i++ )
+        {
+            Tiquete tiquete = lote.get( i );
+            indiceRuta[ i ] = indice( rutas, tiquete.getVuelo( ).getRuta( ).getCodigoRuta( ) );
+            indiceFecha[ i ] = indice( fechas, tiquete.getVuelo( ).getFecha( ) );
+            indiceCliente[ i ] = indice( clientes, tiquete.getCliente( ).getIdentificador( ) );
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( cantidad * 16 );
+        DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( cantidad );
+        escribirDiccionario( out, rutas );
+        escribirDiccionario( out, fechas );
+        escribirDiccionario( out, clientes );
+        for( int i = 0; i < cantidad; i++ )
+            escribirVarint( out, indiceRuta[ i ] );
+        for( int i = 0; i < cantidad; i++ )
+            escribirVarint( out, indiceFecha[ i ] );
+        for( int i = 0; i < cantidad; i++ )
+            escribirVarint( out, indiceCliente[ i ] );
+        for( int i = 0; i < cantidad; i++ )
+            out.writeInt( lote.get( i ).getCodigoNumerico( ) );
+        for( int i = 0; i < cantidad; i++ )
+            out.writeInt( lote.get( i ).getTarifa( ) );
+        byte[] bitsUsados = new byte[( cantidad + 7 ) / 8];
+        for( int i = 0; i < cantidad; i++ )
+        {
+            if( usados[ primero + i ] )
+                bitsUsados[ i >> 3 ] |= 1 << ( i & 7 );
+        }
+        out.write( bitsUsados );
+        out.flush( );
+        return bytes.toByteArray( );
+    }
+
+    private static int indice( Map<String, Integer> diccionario, String valor )
+    {
+        Integer indice = diccionario.get( valor );
+        if( indice == null )
+        {
+            indice = diccionario.size( );
+            diccionario.put( valor, indice );
+        }
+        return indice;
+    }
+
+    private static void escribirDiccionario( DataOutputStream out, Map<String, Integer> diccionario ) throws IOException
+    {
+        escribirVarint( out, diccionario.size( ) );
+        for( String valor : diccionario.keySet( ) )
+            out.writeUTF( valor );
+    }
+
+    private static void escribirBloque( DataOutputStream out, BloqueComprimido bloque ) throws IOException
+    {
+        out.writeInt( bloque.longitudOriginal );
+        out.writeInt( bloque.datos.length );
+        out.write( bloque.datos );
+    }
+
+    // ************************************************************************************
+    //
+    // Cargar
+    //
+    // ************************************************************************************
+
+    @Override
+    public void cargarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        CargadorTiquetes cargador = new CargadorTiquetes( aerolinea );
+        leerTiquetes( archivo, cargador );
+        cargador.terminar( );
+    }
+
+    @Override
+    public void leerTiquetes( String archivo, IReceptorTiquetes cargador ) throws IOException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool( hilos );
+        try( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( archivo ), 1 << 16 ) ) )
+        {
+            byte[] firma = new byte[FIRMA.length];
+            in.readFully( firma );
+            if( !CentralPersistencia.empiezaCon( firma, firma.length, FIRMA ) )
+                throw new IOException( "El archivo " + archivo + " no es un archivo comprimido de tiquetes" );
+            int version = in.readInt( );
+            if( version != VERSION )
+                throw new IOException( "Versión no soportada del archivo comprimido de tiquetes: " + version );
+
+            BloqueComprimido bloqueClientes = leerBloque( in );
+            if( bloqueClientes == null )
+                throw new EOFException( "El archivo " + archivo + " no tiene el bloque de clientes" );
+            cargarClientes( cargador, descomprimir( bloqueClientes ) );
+
+            // Los bloques se leen del disco en orden y se descomprimen en paralelo. Los tiquetes se registran en la aerolínea en el mismo orden en el que estaban en el
+            // archivo.
+            Deque<Future<BloqueTiquetes>> pendientes = new ArrayDeque<Future<BloqueTiquetes>>( );
+            BloqueComprimido bloque = leerBloque( in );
+            while( bloque != null )
+            {
+                final BloqueComprimido actual = bloque;
+                pendientes.add( pool.submit( ( ) -> deserializarTiquetes( descomprimir( actual ) ) ) );
+                if( pendientes.size( ) >= 2 * hilos )
+                    registrarTiquetes( cargador, esperar( pendientes.poll( ) ) );
+                bloque = leerBloque( in );
+            }
+            while( !pendientes.isEmpty( ) )
+                registrarTiquetes( cargador, esperar( pendientes.poll( ) ) );
+        }
+        finally
+        {
+            pool.shutdownNow( );
+        }
+    }
+
+    /**
+     * Lee el siguiente bloque del archivo
+     * @return El bloque, o null si se llegó a la marca de fin de los bloques
+     */
+    private static BloqueComprimido leerBloque( DataInputStream in ) throws IOException
+    {
+        int longitudOriginal = in.readInt( );
+        if( longitudOriginal == FIN_BLOQUES )
+            return null;
+        int longitudComprimida = in.readInt( );
+        if( longitudOriginal < 0 || longitudComprimida < 0 )
+            throw new IOException( "El archivo comprimido de tiquetes está dañado" );
+        byte[] datos = new byte[longitudComprimida];
+        in.readFully( datos );
+        return new BloqueComprimido( longitudOriginal, datos );
+    }
+
+    private static void cargarClientes( IReceptorTiquetes cargador, byte[] datos ) throws IOException
+    {
+        DataInputStream in = new DataInputStream( new ByteArrayInputStream( datos ) );
+        int cantidad = in.readInt( );
+        for( int i = 0; i < cantidad; i++ )
+        {
+            int tipo = in.readByte( );
+            Cliente nuevoCliente;
+            if( tipo == TIPO_NATURAL )
+                nuevoCliente = new ClienteNatural( in.readUTF( ) );
+            else
+                nuevoCliente = new ClienteCorporativo( in.readUTF( ), leerTamanoEmpresa( in ) );
+            cargador.agregarCliente( nuevoCliente );
+        }
+    }
+
+    private static int leerTamanoEmpresa( DataInputStream in ) throws IOException
+    {
+        int tamano = in.readByte( );
+        if( !ClienteCorporativo.esTamanoValido( tamano ) )
+            throw new IOException( "El archivo comprimido de tiquetes está dañado" );
+        return tamano;
+    }
+
+    /**
+     * Reconstruye la información de un bloque de tiquetes a partir de su representación binaria
+     */
+    private static BloqueTiquetes deserializarTiquetes( byte[] datos ) throws IOException
+    {
+        DataInputStream in = new DataInputStream( new ByteArrayInputStream( datos ) );
+        BloqueTiquetes bloque = new BloqueTiquetes( in.readInt( ) );
+        String[] rutas = leerDiccionario( in );
+        String[] fechas = leerDiccionario( in );
+        String[] clientes = leerDiccionario( in );
+        for( int i = 0; i < bloque.cantidad; i++ )
+            bloque.rutas[ i ] = rutas[ leerVarint( in ) ];
+        for( int i = 0; i < bloque.cantidad; i++ )
+            bloque.fechas[ i ] = fechas[ leerVarint( in ) ];
+        for( int i = 0; i < bloque.cantidad; i++ )
+            bloque.clientes[ i ] = clientes[ leerVarint( in ) ];
+        for( int i = 0; i < bloque.cantidad; i++ )
+            bloque.codigos[ i ] = in.readInt( );
+        for( int i = 0; i < bloque.cantidad; i++ )
+            bloque.tarifas[ i ] = in.readInt( );
+        bloque.usados = new byte[( bloque.cantidad + 7 ) / 8];
+        in.readFully( bloque.usados );
+        return bloque;
+    }
+
+    private static String[] leerDiccionario( DataInputStream in ) throws IOException
+    {
+        String[] valores = new String[leerVarint( in )];
+        for( int i = 0; i < valores.length; i++ )
+            valores[ i ] = in.readUTF( );
+        return valores;
+    }
+
+    /**
+     * Registra en la aerolínea los tiquetes de un bloque, en el mismo orden en el que estaban en el archivo
+     */
+    private static void registrarTiquetes( IReceptorTiquetes cargador, BloqueTiquetes bloque )
+    {
+        for( int i = 0; i < bloque.cantidad; i++ )
+        {
+            boolean usado = ( bloque.usados[ i >> 3 ] & ( 1 << ( i & 7 ) ) ) != 0;
+            cargador.agregarTiquete( bloque.rutas[ i ], bloque.fechas[ i ], bloque.codigos[ i ], bloque.tarifas[ i ], usado, bloque.clientes[ i ] );
+        }
+    }
+
+    // ************************************************************************************
+    //
+    // Compresión y utilidades
+    //
+    // ************************************************************************************
+
+    private static BloqueComprimido comprimir( byte[] datos )
+    {
+        Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION );
+        try
+        {
+            deflater.setInput( datos );
+            deflater.finish( );
+            ByteArrayOutputStream comprimido = new ByteArrayOutputStream( datos.length / 4 + 64 );
+            byte[] buffer = new byte[8192];
+            while( !deflater.finished( ) )
+            {
+                int n = deflater.deflate( buffer );
+                comprimido.write( buffer, 0, n );
+            }
+            return new BloqueComprimido( datos.length, comprimido.toByteArray( ) );
+        }
+        finally
+        {
+            deflater.end( );
+        }
+    }
+
+    private static byte[] descomprimir( BloqueComprimido bloque ) throws IOException
+    {
+        Inflater inflater = new Inflater( );
+        try
+        {
+            inflater.setInput( bloque.datos );
+            byte[] datos = new byte[bloque.longitudOriginal];
+            int leidos = 0;
+            while( leidos < datos.length )
+            {
+                int n = inflater.inflate( datos, leidos, datos.length - leidos );
+                if( n == 0 && ( inflater.finished( ) || inflater.needsInput( ) || inflater.needsDictionary( ) ) )
+                    throw new IOException( "El archivo comprimido de tiquetes está dañado" );
+                leidos += n;
+            }
+            return datos;
+        }
+        catch( DataFormatException e )
+        {
+            throw new IOException( "El archivo comprimido de tiquetes está dañado", e );
+        }
+        finally
+        {
+            inflater.end( );
+        }
+    }
+
+    private static void escribirVarint( DataOutputStream out, int valor ) throws IOException
+    {
+        while( ( valor & ~0x7F ) != 0 )
+        {
+            out.writeByte( ( valor & 0x7F ) | 0x80 );
+            valor >>>= 7;
+        }
+        out.writeByte( valor );
+    }
+
+    private static int leerVarint( DataInputStream in ) throws IOException
+    {
+        int valor = 0;
+        int desplazamiento = 0;
+        while( true )
+        {
+            int b = in.readUnsignedByte( );
+            valor |= ( b & 0x7F ) << desplazamiento;
+            if( ( b & 0x80 ) == 0 )
+                return valor;
+            desplazamiento += 7;
+            if( desplazamiento > 28 )
+                throw new IOException( "El archivo comprimido de tiquetes está dañado" );
+        }
+    }
+
+    /**
+     * Espera a que termine una tarea de compresión o descompresión y retorna su resultado, convirtiendo sus errores en IOException
+     */
+    private static <T> T esperar( Future<T> tarea ) throws IOException
+    {
+        try
+        {
+            return tarea.get( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Se interrumpió el procesamiento del archivo comprimido" );
+        }
+        catch( ExecutionException e )
+        {
+            if( e.getCause( ) instanceof IOException )
+                throw ( IOException )e.getCause( );
+            throw new IOException( e.getCause( ) );
+        }
+    }
+
+    /**
+     * Un bloque tal como queda en el archivo: los datos comprimidos y la longitud que tenían antes de comprimirse
+     */
+    private static class BloqueComprimido
+    {
+        private final int longitudOriginal;
+        private final byte[] datos;
+
+        public BloqueComprimido( int longitudOriginal, byte[] datos )
+        {
+            this.longitudOriginal = longitudOriginal;
+            this.datos = datos;
+        }
+    }
+
+    /**
+     * La información de un bloque de tiquetes, ya descomprimida y con los diccionarios resueltos
+     */
+    private static class BloqueTiquetes
+    {
+        private final int cantidad;
+        private final String[] rutas;
+        private final String[] fechas;
+        private final String[] clientes;
+        private final int[] codigos;
+        private final int[] tarifas;
+        private byte[] usados;
+
+        public BloqueTiquetes( int cantidad )
+        {
+            this.cantidad = cantidad;
+            this.rutas = new String[cantidad];
+            this.fechas = new String[cantidad];
+            this.clientes = new String[cantidad];
+            this.codigos = new int[cantidad];
+            this.tarifas = new int[cantidad];
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaAerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaVuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase guarda los clientes y los tiquetes de la aerolínea en un archivo CSV, que es el formato que usan los sistemas de los socios para intercambiar tiquetes.
+ *
+ * La primera línea del archivo es el encabezado '#aerolinea-tiquetes-csv'. Cada una de las demás líneas es un registro, y su primer campo indica el tipo de registro:
+ * <ul>
+ * <li>C,tipoCliente,identificador[,tamanoEmpresa] para los clientes</li>
+ * <li>T,codigoRuta,fecha,codigoTiquete,tarifa,usado,cliente para los tiquetes</li>
+ * </ul>
+ * Al salvar, todos los clientes se escriben antes que los tiquetes. Al cargar, un tiquete sólo puede referirse a clientes que aparecieron antes en el archivo o que ya
+ * existían en la aerolínea.
+ */
+public class PersistenciaTiquetesCsv implements IPersistenciaTiquetes, ILectorTiquetes
+{
+    /**
+     * La primera línea de cualquier archivo en este formato
+     */
+    public static final String ENCABEZADO = "#aerolinea-tiquetes-csv";
+
+    private static final byte[] FIRMA = ENCABEZADO.getBytes( StandardCharsets.US_ASCII );
+
+    public static final byte SEPARADOR = ',';
+
+    public static final byte REGISTRO_CLIENTE = 'C';
+    public static final byte REGISTRO_TIQUETE = 'T';
+
+    /**
+     * El tamaño de los buffers de lectura y escritura
+     */
+    private static final int TAMANO_BUFFER = 1 << 18;
+
+    /**
+     * Revisa si un archivo está en este formato a partir de sus primeros bytes
+     * @param encabezado Los primeros bytes del archivo
+     * @param longitud La cantidad de bytes válidos dentro del encabezado
+     * @return Retorna true si el archivo empieza con el encabezado del formato
+     */
+    public static boolean reconoce( byte[] encabezado, int longitud )
+    {
+        return CentralPersistencia.empiezaCon( encabezado, longitud, FIRMA );
+    }
+
+    @Override
+    public void cargarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        CargadorTiquetes cargador = new CargadorTiquetes( aerolinea );
+        leerTiquetes( archivo, cargador );
+        cargador.terminar( );
+    }
+
+    @Override
+    public void leerTiquetes( String archivo, IReceptorTiquetes cargador ) throws IOException
+    {
+        try( LectorCsv lector = new LectorCsv( FileChannel.open( Paths.get( archivo ), StandardOpenOption.READ ), TAMANO_BUFFER, SEPARADOR ) )
+        {
+            if( !lector.siguienteLinea( ) || !ENCABEZADO.equals( lector.getCadena( 0 ) ) )
+                throw new IOException( "El archivo " + archivo + " no tiene el encabezado " + ENCABEZADO );
+
+            while( lector.siguienteLinea( ) )
+            {
+                try
+                {
+                    byte tipoRegistro = lector.getPrimerByte( 0 );
+                    if( tipoRegistro == REGISTRO_CLIENTE )
+                        cargarCliente( cargador, lector );
+                    else if( tipoRegistro == REGISTRO_TIQUETE )
+                        cargarTiquete( cargador, lector );
+                    else
+                        cargador.registrarError( "Tipo de registro desconocido en la línea " + lector.getNumeroLinea( ) );
+                }
+                catch( IllegalArgumentException e )
+                {
+                    // Incluye NumberFormatException. La línea se descarta y se sigue con la siguiente.
+                    cargador.registrarError( e.getMessage( ) );
+                }
+            }
+        }
+    }
+
+    private static void cargarCliente( IReceptorTiquetes cargador, LectorCsv lector )
+    {
+        String tipoCliente = lector.getCadena( 1 );
+        Cliente nuevoCliente;
+        if( ClienteNatural.NATURAL.equals( tipoCliente ) )
+            nuevoCliente = new ClienteNatural( lector.getCadena( 2 ) );
+        else
+        {
+            int tamano = lector.getEntero( 3 );
+            if( !ClienteCorporativo.esTamanoValido( tamano ) )
+            {
+                cargador.registrarError( "El tamaño de empresa " + tamano + " no es válido en la línea " + lector.getNumeroLinea( ) );
+                return;
+            }
+            nuevoCliente = new ClienteCorporativo( lector.getCadena( 2 ), tamano );
+        }
+        cargador.agregarCliente( nuevoCliente );
+    }
+
+    private static void cargarTiquete( IReceptorTiquetes cargador, LectorCsv lector )
+    {
+        String codigoRuta = lector.getCadena( 1 );
+        String fechaVuelo = lector.getCadena( 2 );
+        int codigoTiquete = lector.getEntero( 3 );
+        int tarifa = lector.getEntero( 4 );
+        boolean tiqueteUsado = lector.getBooleano( 5 );
+        String identificadorCliente = lector.getCadena( 6 );
+        cargador.agregarTiquete( codigoRuta, fechaVuelo, codigoTiquete, tarifa, tiqueteUsado, identificadorCliente );
+    }
+
+    @Override
+    public void salvarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        try( EscritorCsv escritor = new EscritorCsv( new FileOutputStream( archivo ), TAMANO_BUFFER, SEPARADOR ) )
+        {
+            escritor.campo( ENCABEZADO );
+            escritor.finLinea( );
+
+            InstantaneaAerolinea instantanea = aerolinea.tomarInstantanea( );
+            for( Cliente cliente : instantanea.getClientes( ) )
+            {
+                escritor.campo( REGISTRO_CLIENTE );
+                escritor.campo( cliente.getTipoCliente( ) );
+                escritor.campo( cliente.getIdentificador( ) );
+                if( !ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
+                    escritor.campo( ( ( ClienteCorporativo )cliente ).getTamanoEmpresa( ) );
+                escritor.finLinea( );
+            }
+
+            for( InstantaneaVuelo vuelo : instantanea.getVuelos( ) )
+            {
+                for( int i = 0; i < vuelo.getCantidadTiquetes( ); i++ )
+                {
+                    Tiquete tiquete = vuelo.getTiquete( i );
+                    escritor.campo( REGISTRO_TIQUETE );
+                    escritor.campo( vuelo.getRuta( ).getCodigoRuta( ) );
+                    escritor.campo( vuelo.getFecha( ) );
+                    escritor.campoCodigoTiquete( tiquete.getCodigoNumerico( ) );
+                    escritor.campo( tiquete.getTarifa( ) );
+                    escritor.campo( vuelo.esUsado( i ) ? "true" : "false" );
+                    escritor.campo( tiquete.getCliente( ).getIdentificador( ) );
+                    escritor.finLinea( );
+                }
+            }
+        }
+    }
+}
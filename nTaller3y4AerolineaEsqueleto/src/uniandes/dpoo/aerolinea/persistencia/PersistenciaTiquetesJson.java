@@ -2,35 +2,34 @@ package uniandes.dpoo.aerolinea.persistencia;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import uniandes.dpoo.aerolinea.exceptions.ClienteRepetidoException;
 import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
-import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteTiqueteException;
 import uniandes.dpoo.aerolinea.modelo.Aerolinea;
-import uniandes.dpoo.aerolinea.modelo.Ruta;
-import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaAerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaVuelo;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
 import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
-import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
 import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
 
-public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
+public class PersistenciaTiquetesJson implements IPersistenciaTiquetes, ILectorTiquetes
 {
 
-    private static final String NOMBRE_CLIENTE = "nombre";
-    private static final String TIPO_CLIENTE = "tipoCliente";
-    private static final String CLIENTE = "cliente";
-    private static final String USADO = "usado";
-    private static final String TARIFA = "tarifa";
-    private static final String CODIGO_TIQUETE = "codigoTiquete";
-    private static final String FECHA = "fecha";
-    private static final String CODIGO_RUTA = "codigoRuta";
+    public static final String NOMBRE_CLIENTE = "nombre";
+    public static final String TIPO_CLIENTE = "tipoCliente";
+    public static final String CLIENTE = "cliente";
+    public static final String USADO = "usado";
+    public static final String TARIFA = "tarifa";
+    public static final String CODIGO_TIQUETE = "codigoTiquete";
+    public static final String FECHA = "fecha";
+    public static final String CODIGO_RUTA = "codigoRuta";
 
     /**
      * Carga la información de los clientes y tiquetes vendidos por la aerolínea, y actualiza la estructura de objetos que se encuentra dentro de la aerolínea
@@ -42,15 +41,26 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
     @Override
     public void cargarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
     {
-        String jsonCompleto = new String( Files.readAllBytes( new File( archivo ).toPath( ) ) );
+        CargadorTiquetes cargador = new CargadorTiquetes( aerolinea );
+        leerTiquetes( archivo, cargador );
+        cargador.terminar( );
+    }
+
+    @Override
+    public void leerTiquetes( String archivo, IReceptorTiquetes receptor ) throws IOException
+    {
+        String jsonCompleto = new String( Files.readAllBytes( new File( archivo ).toPath( ) ), StandardCharsets.UTF_8 );
         JSONObject raiz = new JSONObject( jsonCompleto );
 
-        cargarClientes( aerolinea, raiz.getJSONArray( "clientes" ) );
-        cargarTiquetes( aerolinea, raiz.getJSONArray( "tiquetes" ) );
+        cargarClientes( receptor, raiz.getJSONArray( "clientes" ) );
+        cargarTiquetes( receptor, raiz.getJSONArray( "tiquetes" ) );
     }
 
     /**
-     * Salva en un archivo toda la información sobre los clientes y los tiquetes vendidos por la aerolínea
+     * Salva en un archivo toda la información sobre los clientes y los tiquetes vendidos por la aerolínea.
+     * 
+     * La información se toma de una instantánea de la aerolínea (ver Aerolinea.tomarInstantanea), que es un estado en el que la aerolínea realmente estuvo, así que
+     * el archivo queda consistente aunque se sigan vendiendo tiquetes mientras se salva.
      * @param archivo La ruta al archivo donde debe quedar almacenada la información
      * @param aerolinea La aerolínea que tiene la información que se quiere almacenar
      * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
@@ -59,56 +69,66 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
     public void salvarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException
     {
         JSONObject jobject = new JSONObject( );
+        InstantaneaAerolinea instantanea = aerolinea.tomarInstantanea( );
 
         // Salvar clientes
-        salvarClientes( aerolinea, jobject );
+        salvarClientes( instantanea, jobject );
 
         // Salvar tiquetes
-        salvarTiquetes( aerolinea, jobject );
+        salvarTiquetes( instantanea, jobject );
 
-        // Escribir la estructura JSON en un archivo
-        PrintWriter pw = new PrintWriter( archivo );
-        jobject.write( pw, 2, 0 );
-        pw.close( );
+        // Escribir la estructura JSON en un archivo, en UTF-8 como PersistenciaTiquetesJsonStreaming
+        try( Writer escritor = Files.newBufferedWriter( new File( archivo ).toPath( ), StandardCharsets.UTF_8 ) )
+        {
+            jobject.write( escritor, 2, 0 );
+        }
     }
 
     /**
-     * Carga los clientes de la aerolínea a partir de un archivo JSON
-     * @param aerolinea La aerolínea donde deben quedar los clientes
+     * Carga los clientes de la aerolínea a partir de un archivo JSON.
+     * 
+     * Si alguno de los clientes tiene el mismo identificador que otro cliente, si le falta algún atributo o tiene un atributo con un tipo equivocado, o si un cliente
+     * corporativo tiene un tamaño de empresa inválido, el problema queda anotado en el receptor y se sigue con el siguiente cliente.
+     * @param cargador El receptor de los clientes, normalmente el cargador que los agrega a la aerolínea
      * @param jClientes El elemento JSON donde está la información de los clientes
-     * @throws ClienteRepetidoException Lanza esta excepción si alguno de los clientes que se van a cargar tiene el mismo identificador que otro cliente
      */
-    private void cargarClientes( Aerolinea aerolinea, JSONArray jClientes ) throws ClienteRepetidoException
+    private void cargarClientes( IReceptorTiquetes cargador, JSONArray jClientes )
     {
         int numClientes = jClientes.length( );
         for( int i = 0; i < numClientes; i++ )
         {
-            JSONObject cliente = jClientes.getJSONObject( i );
-            String tipoCliente = cliente.getString( TIPO_CLIENTE );
             Cliente nuevoCliente = null;
-            // En las siguientes líneas se utilizan dos estrategias para implementar la carga de objetos: en la primera estrategia, la carga de los objetos
-            // lo hace alguien externo al objeto que se carga; en la segunda estrategia, los objetos saben cargarse.
-            // En general es una mala idea mezclar las dos estrategias: acá lo hacemos para ilustrar las dos posibilidades y mostrar las ventajas y desventajas de cada una.
-            // Lo que sí es recomendable es seleccionar una estrategia y usarla consistentemente para cargar y salvar.
-            if( ClienteNatural.NATURAL.equals( tipoCliente ) )
+            try
             {
-                // 1. En esta estrategia, en ESTA clase se realiza todo lo que tiene que ver con cargar objetos de la clase ClienteNatural
-                // Al revisar el código de la clase ClienteNatural, no hay nada que tenga que ver con cargar o salvar.
-                // En este caso, la persistencia es una preocupación transversal de la que no se ocupa la clase ClienteNatural
-                String nombre = cliente.getString( NOMBRE_CLIENTE );
-                nuevoCliente = new ClienteNatural( nombre );
+                JSONObject cliente = jClientes.getJSONObject( i );
+                String tipoCliente = cliente.getString( TIPO_CLIENTE );
+                // En las siguientes líneas se utilizan dos estrategias para implementar la carga de objetos: en la primera estrategia, la carga de los objetos
+                // lo hace alguien externo al objeto que se carga; en la segunda estrategia, los objetos saben cargarse.
+                // En general es una mala idea mezclar las dos estrategias: acá lo hacemos para ilustrar las dos posibilidades y mostrar las ventajas y desventajas de
+                // cada una.
+                // Lo que sí es recomendable es seleccionar una estrategia y usarla consistentemente para cargar y salvar.
+                if( ClienteNatural.NATURAL.equals( tipoCliente ) )
+                {
+                    // 1. En esta estrategia, en ESTA clase se realiza todo lo que tiene que ver con cargar objetos de la clase ClienteNatural
+                    // Al revisar el código de la clase ClienteNatural, no hay nada que tenga que ver con cargar o salvar.
+                    // En este caso, la persistencia es una preocupación transversal de la que no se ocupa la clase ClienteNatural
+                    String nombre = cliente.getString( NOMBRE_CLIENTE );
+                    nuevoCliente = new ClienteNatural( nombre );
+                }
+                else
+                {
+                    // 2. En esta estrategia, en la clase ClienteCorporativo se realiza una parte de lo que tiene que ver con cargar objetos de la clase ClienteCorporativo.
+                    // La clase ClienteCorporativo tiene un método para cargar y otro para salvar.
+                    // En este caso, la persistencia es una preocupación de la cual se ocupa la clase ClienteCorporativo
+                    nuevoCliente = ClienteCorporativo.cargarDesdeJSON( cliente );
+                }
             }
-            else
+            catch( JSONException | IllegalArgumentException e )
             {
-                // 2. En esta estrategia, en la clase ClienteCorporativo se realiza una parte de lo que tiene que ver con cargar objetos de la clase ClienteCorporativo.
-                // La clase ClienteCorporativo tiene un método para cargar y otro para salvar.
-                // En este caso, la persistencia es una preocupación de la cual se ocupa la clase ClienteCorporativo
-                nuevoCliente = ClienteCorporativo.cargarDesdeJSON( cliente );
+                cargador.registrarError( "El cliente número " + ( i + 1 ) + " no es válido: " + e.getMessage( ) );
+                continue;
             }
-            if( !aerolinea.existeCliente( nuevoCliente.getIdentificador( ) ) )
-                aerolinea.agregarCliente( nuevoCliente );
-            else
-                throw new ClienteRepetidoException( nuevoCliente.getTipoCliente( ), nuevoCliente.getIdentificador( ) );
+            cargador.agregarCliente( nuevoCliente );
         }
     }
 
@@ -116,13 +136,13 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
      * Salva la información de los clientes de la aerolínea dentro del objeto json que se recibe por parámetro.
      * 
      * La información de los clientes queda dentro de la llave 'clientes'
-     * @param aerolinea La aerolínea que tiene la información
+     * @param instantanea La instantánea de la aerolínea que tiene la información
      * @param jobject El objeto JSON donde debe quedar la información de los clientes
      */
-    private void salvarClientes( Aerolinea aerolinea, JSONObject jobject )
+    private void salvarClientes( InstantaneaAerolinea instantanea, JSONObject jobject )
     {
         JSONArray jClientes = new JSONArray( );
-        for( Cliente cliente : aerolinea.getClientes( ) )
+        for( Cliente cliente : instantanea.getClientes( ) )
         {
             // Acá también se utilizaron dos estrategias para salvar los clientes.
             // Para los clientes naturales, esta clase extrae la información de los objetos y la organiza para que luego sea salvada.
@@ -130,6 +150,7 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
             if( ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
             {
                 JSONObject jCliente = new JSONObject( );
+                jCliente.put( TIPO_CLIENTE, ClienteNatural.NATURAL );
                 jCliente.put( NOMBRE_CLIENTE, cliente.getIdentificador( ) );
                 jClientes.put( jCliente );
             }
@@ -145,49 +166,42 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
     }
 
     /**
-     * Carga los tiquetes de la aerolínea a partir de un archivo JSON
-     * @param aerolinea La aerolínea donde deben quedar los tiquetes
+     * Carga los tiquetes de la aerolínea a partir de un archivo JSON.
+     * 
+     * Si la información de alguno de los tiquetes no es consistente con el resto de elementos de la aerolínea (ej. es un tiquete para un vuelo que no existe, o fue
+     * comprado por un cliente que no existe, etc.), o si le falta algún atributo o tiene un atributo con un tipo equivocado, el problema queda anotado en el receptor y se
+     * sigue con el siguiente tiquete.
+     * @param cargador El receptor de los tiquetes, normalmente el cargador que los agrega a sus vuelos y a sus clientes
      * @param jTiquetes El elemento JSON donde está la información de los tiquetes
-     * @throws InformacionInconsistenteTiqueteException Lanza esta excepción si la información de alguno de los tiquetes no es consistente con el resto de elementos de la
-     *         aerolínea (ej. es un tiquete para un vuelo que no existe, o fue comprado por un cliente que no existe, etc.)
      */
-    private void cargarTiquetes( Aerolinea aerolinea, JSONArray jTiquetes ) throws InformacionInconsistenteTiqueteException
+    private void cargarTiquetes( IReceptorTiquetes cargador, JSONArray jTiquetes )
     {
         int numTiquetes = jTiquetes.length( );
         for( int i = 0; i < numTiquetes; i++ )
         {
-            JSONObject tiquete = jTiquetes.getJSONObject( i );
-
-            // Extraer y validar la información del tiquete
-            String codigoRuta = tiquete.getString( CODIGO_RUTA );
-            Ruta laRuta = aerolinea.getRuta( codigoRuta );
-            if( laRuta == null )
-                throw new InformacionInconsistenteTiqueteException( "ruta", codigoRuta );
-
-            String fechaVuelo = tiquete.getString( FECHA );
-            Vuelo elVuelo = aerolinea.getVuelo( codigoRuta, fechaVuelo );
-            if( elVuelo == null )
-                throw new InformacionInconsistenteTiqueteException( "vuelo", codigoRuta + " en " + fechaVuelo );
-
-            String codigoTiquete = tiquete.getString( CODIGO_TIQUETE );
-            boolean existe = GeneradorTiquetes.validarTiquete( codigoTiquete );
-
-            if( existe )
-                throw new InformacionInconsistenteTiqueteException( "tiquete", codigoTiquete, false );
-
-            int tarifa = tiquete.getInt( TARIFA );
-            boolean tiqueteUsado = tiquete.getBoolean( USADO );
-
-            String identificadorCliente = tiquete.getString( CLIENTE );
-            Cliente elCliente = aerolinea.getCliente( identificadorCliente );
-            if( elCliente == null )
-                throw new InformacionInconsistenteTiqueteException( "cliente", identificadorCliente );
-
-            // Construir y registrar el tiquete
-            Tiquete nuevoTiquete = new Tiquete( codigoTiquete, elVuelo, elCliente, tarifa );
-            if( tiqueteUsado )
-                nuevoTiquete.marcarComoUsado( );
-            GeneradorTiquetes.registrarTiquete( nuevoTiquete );
+            String codigoRuta;
+            String fecha;
+            String codigoTiquete;
+            int tarifa;
+            boolean usado;
+            String cliente;
+            try
+            {
+                JSONObject tiquete = jTiquetes.getJSONObject( i );
+                codigoRuta = tiquete.getString( CODIGO_RUTA );
+                fecha = tiquete.getString( FECHA );
+                codigoTiquete = tiquete.getString( CODIGO_TIQUETE );
+                tarifa = tiquete.getInt( TARIFA );
+                usado = tiquete.getBoolean( USADO );
+                cliente = tiquete.getString( CLIENTE );
+            }
+            catch( JSONException e )
+            {
+                cargador.registrarError( "El tiquete número " + ( i + 1 ) + " no es válido: " + e.getMessage( ) );
+                continue;
+            }
+            // El receptor se llama fuera del try, para no confundir sus propias excepciones con un tiquete mal formado
+            cargador.agregarTiquete( codigoRuta, fecha, codigoTiquete, tarifa, usado, cliente );
         }
     }
 
@@ -195,23 +209,27 @@ public class PersistenciaTiquetesJson implements IPersistenciaTiquetes
      * Salva la información de los tiquetes de la aerolínea dentro del objeto json que se recibe por parámetro.
      * 
      * La información de los tiquetes queda dentro de la llave 'tiquetes'
-     * @param aerolinea La aerolínea que tiene la información
+     * @param instantanea La instantánea de la aerolínea que tiene la información
      * @param jobject El objeto JSON donde debe quedar la información de los tiquetes
      */
-    private void salvarTiquetes( Aerolinea aerolinea, JSONObject jobject )
+    private void salvarTiquetes( InstantaneaAerolinea instantanea, JSONObject jobject )
     {
         JSONArray jTiquetes = new JSONArray( );
-        for( Tiquete tiquete : aerolinea.getTiquetes( ) )
+        for( InstantaneaVuelo vuelo : instantanea.getVuelos( ) )
         {
-            JSONObject jTiquete = new JSONObject( );
-            jTiquete.put( CODIGO_TIQUETE, tiquete.getCodigo( ) );
-            jTiquete.put( CODIGO_RUTA, tiquete.getVuelo( ).getRuta( ).getCodigoRuta( ) );
-            jTiquete.put( FECHA, tiquete.getVuelo( ).getFecha( ) );
-            jTiquete.put( TARIFA, tiquete.getTarifa( ) );
-            jTiquete.put( USADO, tiquete.esUsado( ) );
-            jTiquete.put( CLIENTE, tiquete.getCliente( ).getIdentificador( ) );
-
-            jTiquetes.put( jTiquete );
+            for( int i = 0; i < vuelo.getCantidadTiquetes( ); i++ )
+            {
+                Tiquete tiquete = vuelo.getTiquete( i );
+                JSONObject jTiquete = new JSONObject( );
+                jTiquete.put( CODIGO_TIQUETE, tiquete.getCodigo( ) );
+                jTiquete.put( CODIGO_RUTA, vuelo.getRuta( ).getCodigoRuta( ) );
+                jTiquete.put( FECHA, vuelo.getFecha( ) );
+                jTiquete.put( TARIFA, tiquete.getTarifa( ) );
+                jTiquete.put( USADO, vuelo.esUsado( i ) );
+                jTiquete.put( CLIENTE, tiquete.getCliente( ).getIdentificador( ) );
+
+                jTiquetes.put( jTiquete );
+            }
         }
         jobject.put( "tiquetes", jTiquetes );
     }
@@ -0,0 +1,295 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaAerolinea;
+import uniandes.dpoo.aerolinea.modelo.InstantaneaVuelo;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase carga y salva los clientes y tiquetes en el mismo formato JSON que PersistenciaTiquetesJson, pero sin construir el documento completo en memoria.
+ *
+ * Al cargar, el archivo se recorre con un LectorJson y cada cliente y cada tiquete se le entrega al receptor apenas se termina de leer. Al salvar, los registros se
+ * escriben uno por uno a medida que se recorre la instantánea de la aerolínea. Así, la memoria que se usa no depende del tamaño del archivo.
+ *
+ * Los archivos son intercambiables con los de PersistenciaTiquetesJson. Si en un archivo la lista de tiquetes aparece antes que la de clientes, el archivo se recorre dos
+ * veces: en la primera se cargan los clientes y en la segunda los tiquetes.
+ */
+public class PersistenciaTiquetesJsonStreaming implements IPersistenciaTiquetes, ILectorTiquetes
+{
+    private static final String CLIENTES = "clientes";
+    private static final String TIQUETES = "tiquetes";
+    private static final String NOMBRE_EMPRESA = "nombreEmpresa";
+    private static final String TAMANO_EMPRESA = "tamanoEmpresa";
+
+    /**
+     * El tamaño de los buffers de lectura y escritura, en caracteres
+     */
+    private static final int TAMANO_BUFFER = 1 << 16;
+
+    @Override
+    public void cargarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException, InformacionInconsistenteException
+    {
+        CargadorTiquetes cargador = new CargadorTiquetes( aerolinea );
+        leerTiquetes( archivo, cargador );
+        cargador.terminar( );
+    }
+
+    @Override
+    public void leerTiquetes( String archivo, IReceptorTiquetes receptor ) throws IOException
+    {
+        if( leer( archivo, receptor, true ) )
+            leer( archivo, receptor, false );
+    }
+
+    /**
+     * Recorre el archivo una vez
+     * @param archivo La ruta al archivo
+     * @param receptor El receptor de los clientes y tiquetes
+     * @param conClientes Indica si se deben cargar los clientes. Si es false, sólo se cargan los tiquetes.
+     * @return Retorna true si se omitieron los tiquetes porque aparecieron antes que los clientes
+     * @throws IOException Se lanza esta excepción si hay problemas leyendo el archivo, si está mal formado o si le falta alguna de las dos listas
+     */
+    private boolean leer( String archivo, IReceptorTiquetes receptor, boolean conClientes ) throws IOException
+    {
+        boolean hayClientes = false;
+        boolean hayTiquetes = false;
+        boolean tiquetesOmitidos = false;
+        try( LectorJson lector = new LectorJson( new InputStreamReader( new FileInputStream( archivo ), StandardCharsets.UTF_8 ), TAMANO_BUFFER ) )
+        {
+            lector.iniciarObjeto( );
+            String llave = lector.siguienteLlave( );
+            while( llave != null )
+            {
+                if( CLIENTES.equals( llave ) )
+                {
+                    hayClientes = true;
+                    if( conClientes )
+                        leerClientes( lector, receptor );
+                    else
+                        lector.omitirValor( );
+                }
+                else if( TIQUETES.equals( llave ) )
+                {
+                    hayTiquetes = true;
+                    if( conClientes && !hayClientes )
+                    {
+                        tiquetesOmitidos = true;
+                        lector.omitirValor( );
+                    }
+                    else
+                        leerTiquetes( lector, receptor );
+                }
+                else
+                    lector.omitirValor( );
+                llave = lector.siguienteLlave( );
+            }
+            lector.terminar( );
+        }
+        if( !hayClientes || !hayTiquetes )
+            throw new IOException( "El archivo " + archivo + " no tiene la lista de " + ( hayClientes ? TIQUETES : CLIENTES ) );
+        return tiquetesOmitidos;
+    }
+
+    /**
+     * Lee la lista de clientes. Cada cliente es un objeto pequeño, así que se lee completo y se interpreta igual que en PersistenciaTiquetesJson.
+     */
+    private static void leerClientes( LectorJson lector, IReceptorTiquetes receptor ) throws IOException
+    {
+        lector.iniciarArreglo( );
+        while( lector.siguienteElemento( ) )
+        {
+            int linea = lector.getNumeroLinea( );
+            Object valor = lector.leerValor( );
+            if( !( valor instanceof JSONObject ) )
+            {
+                receptor.registrarError( "El cliente de la línea " + linea + " no es un objeto" );
+                continue;
+            }
+            JSONObject cliente = ( JSONObject )valor;
+            try
+            {
+                Cliente nuevoCliente;
+                if( ClienteNatural.NATURAL.equals( cliente.getString( PersistenciaTiquetesJson.TIPO_CLIENTE ) ) )
+                    nuevoCliente = new ClienteNatural( cliente.getString( PersistenciaTiquetesJson.NOMBRE_CLIENTE ) );
+                else
+                    nuevoCliente = ClienteCorporativo.cargarDesdeJSON( cliente );
+                receptor.agregarCliente( nuevoCliente );
+            }
+            catch( JSONException | IllegalArgumentException e )
+            {
+                receptor.registrarError( "El cliente de la línea " + linea + " no es válido: " + e.getMessage( ) );
+            }
+        }
+    }
+
+    /**
+     * Lee la lista de tiquetes. Los atributos de cada tiquete se leen directamente, sin construir un objeto JSON por tiquete.
+     */
+    private static void leerTiquetes( LectorJson lector, IReceptorTiquetes receptor ) throws IOException
+    {
+        lector.iniciarArreglo( );
+        while( lector.siguienteElemento( ) )
+        {
+            int linea = lector.getNumeroLinea( );
+            String codigoRuta = null;
+            String fecha = null;
+            String codigoTiquete = null;
+            Integer tarifa = null;
+            Boolean usado = null;
+            String cliente = null;
+
+            lector.iniciarObjeto( );
+            String llave = lector.siguienteLlave( );
+            while( llave != null )
+            {
+                Object valor = lector.leerValor( );
+                switch( llave )
+                {
+                    case PersistenciaTiquetesJson.CODIGO_RUTA:
+                        codigoRuta = valor instanceof String ? ( String )valor : null;
+                        break;
+                    case PersistenciaTiquetesJson.FECHA:
+                        fecha = valor instanceof String ? ( String )valor : null;
+                        break;
+                    case PersistenciaTiquetesJson.CODIGO_TIQUETE:
+                        codigoTiquete = valor instanceof String ? ( String )valor : null;
+                        break;
+                    case PersistenciaTiquetesJson.TARIFA:
+                        tarifa = leerEntero( valor );
+                        break;
+                    case PersistenciaTiquetesJson.USADO:
+                        usado = valor instanceof Boolean ? ( Boolean )valor : null;
+                        break;
+                    case PersistenciaTiquetesJson.CLIENTE:
+                        cliente = valor instanceof String ? ( String )valor : null;
+                        break;
+                    default:
+                        break;
+                }
+                llave = lector.siguienteLlave( );
+            }
+
+            if( codigoRuta == null || fecha == null || codigoTiquete == null || tarifa == null || usado == null || cliente == null )
+                receptor.registrarError( "Al tiquete de la línea " + linea + " le falta algún atributo o tiene un atributo con un tipo equivocado" );
+            else
+                receptor.agregarTiquete( codigoRuta, fecha, codigoTiquete, tarifa, usado, cliente );
+        }
+    }
+
+    /**
+     * Convierte un valor en un entero aceptando lo mismo que JSONObject.getInt en PersistenciaTiquetesJson: cualquier número con un valor entero (por ejemplo 250000.0)
+     * y las cadenas que representan uno. A diferencia de getInt, un número con decimales o que no cabe en un int no se trunca.
+     * @return El entero, o null si el valor no es un entero
+     */
+    private static Integer leerEntero( Object valor )
+    {
+        try
+        {
+            if( valor instanceof Integer )
+                return ( Integer )valor;
+            if( valor instanceof Number || valor instanceof String )
+                return new BigDecimal( valor.toString( ) ).intValueExact( );
+        }
+        catch( NumberFormatException | ArithmeticException e )
+        {
+            // El valor no es un entero
+        }
+        return null;
+    }
+
+    /**
+     * Salva en un archivo toda la información sobre los clientes y los tiquetes vendidos por la aerolínea, escribiendo un registro a la vez.
+     *
+     * La información se toma de una instantánea de la aerolínea (ver Aerolinea.tomarInstantanea), que es un estado en el que la aerolínea realmente estuvo, así que
+     * el archivo queda consistente aunque se sigan vendiendo tiquetes mientras se salva.
+     * @param archivo La ruta al archivo donde debe quedar almacenada la información
+     * @param aerolinea La aerolínea que tiene la información que se quiere almacenar
+     * @throws IOException Se lanza esta excepción si hay problemas escribiendo el archivo
+     */
+    @Override
+    public void salvarTiquetes( String archivo, Aerolinea aerolinea ) throws IOException
+    {
+        InstantaneaAerolinea instantanea = aerolinea.tomarInstantanea( );
+        try( Writer out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( archivo ), StandardCharsets.UTF_8 ), TAMANO_BUFFER ) )
+        {
+            out.write( "{\n  \"" + CLIENTES + "\": [" );
+            boolean primero = true;
+            for( Cliente cliente : instantanea.getClientes( ) )
+            {
+                out.write( primero ? "\n    {" : ",\n    {" );
+                primero = false;
+                if( ClienteNatural.NATURAL.equals( cliente.getTipoCliente( ) ) )
+                {
+                    atributo( out, PersistenciaTiquetesJson.TIPO_CLIENTE, ClienteNatural.NATURAL, true );
+                    atributo( out, PersistenciaTiquetesJson.NOMBRE_CLIENTE, cliente.getIdentificador( ), false );
+                }
+                else
+                {
+                    ClienteCorporativo cc = ( ClienteCorporativo )cliente;
+                    atributo( out, PersistenciaTiquetesJson.TIPO_CLIENTE, ClienteCorporativo.CORPORATIVO, true );
+                    atributo( out, NOMBRE_EMPRESA, cc.getNombreEmpresa( ), false );
+                    out.write( ", \"" + TAMANO_EMPRESA + "\": " );
+                    out.write( Integer.toString( cc.getTamanoEmpresa( ) ) );
+                }
+                out.write( '}' );
+            }
+            out.write( "\n  ],\n  \"" + TIQUETES + "\": [" );
+
+            primero = true;
+            for( InstantaneaVuelo vuelo : instantanea.getVuelos( ) )
+            {
+                String codigoRuta = JSONObject.quote( vuelo.getRuta( ).getCodigoRuta( ) );
+                String fecha = JSONObject.quote( vuelo.getFecha( ) );
+                for( int i = 0; i < vuelo.getCantidadTiquetes( ); i++ )
+                {
+                    Tiquete tiquete = vuelo.getTiquete( i );
+                    out.write( primero ? "\n    {" : ",\n    {" );
+                    primero = false;
+                    atributo( out, PersistenciaTiquetesJson.CODIGO_TIQUETE, tiquete.getCodigo( ), true );
+                    out.write( ", \"" + PersistenciaTiquetesJson.CODIGO_RUTA + "\": " );
+                    out.write( codigoRuta );
+                    out.write( ", \"" + PersistenciaTiquetesJson.FECHA + "\": " );
+                    out.write( fecha );
+                    out.write( ", \"" + PersistenciaTiquetesJson.TARIFA + "\": " );
+                    out.write( Integer.toString( tiquete.getTarifa( ) ) );
+                    out.write( ", \"" + PersistenciaTiquetesJson.USADO + "\": " );
+                    out.write( vuelo.esUsado( i ) ? "true" : "false" );
+                    atributo( out, PersistenciaTiquetesJson.CLIENTE, tiquete.getCliente( ).getIdentificador( ), false );
+                    out.write( '}' );
+                }
+            }
+            out.write( "\n  ]\n}\n" );
+        }
+    }
+
+    /**
+     * Escribe un atributo de tipo cadena dentro de un objeto
+     * @param primero Indica si es el primer atributo del objeto, en cuyo caso no se escribe la coma que lo separa del anterior
+     */
+    private static void atributo( Writer out, String llave, String valor, boolean primero ) throws IOException
+    {
+        if( !primero )
+            out.write( ", " );
+        out.write( '"' );
+        out.write( llave );
+        out.write( "\": " );
+        out.write( JSONObject.quote( valor ) );
+    }
+}
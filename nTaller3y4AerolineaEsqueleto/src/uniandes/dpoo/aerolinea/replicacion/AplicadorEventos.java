@@ -0,0 +1,142 @@
+package uniandes.dpoo.aerolinea.replicacion;
+
+import uniandes.dpoo.aerolinea.eventos.Evento;
+import uniandes.dpoo.aerolinea.eventos.IProyeccion;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Avion;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta proyección aplica sobre una aerolínea los eventos que se produjeron en otra, para que la primera llegue al mismo estado. La usa el seguidor de la replicación, y
+ * también sirve para reconstruir una aerolínea a partir de un diario de eventos.
+ *
+ * Aplicar un evento que ya se había aplicado no cambia nada (un avión, un cliente, un vuelo o un tiquete que ya existe no se vuelve a agregar), así que la aerolínea puede
+ * empezar con los mismos archivos que cargó la aerolínea original y recibir después todos sus eventos, incluidos los de esa carga.
+ *
+ * Las rutas no viajan completas en los eventos, así que deben existir de antemano: normalmente la aerolínea se carga con el mismo archivo que la original. Los eventos que
+ * no se pueden aplicar (una ruta, un vuelo o un cliente que no existen) se cuentan y se ignoran.
+ *
+ * Los tiquetes se agregan con el código que traen y no se registran en el generador de tiquetes, porque esta aerolínea nunca vende por su cuenta.
+ */
+public class AplicadorEventos implements IProyeccion
+{
+    private final Aerolinea aerolinea;
+
+    /**
+     * La cantidad de eventos que no se pudieron aplicar. Sólo la modifica el hilo que aplica los eventos.
+     */
+    private volatile long omitidos;
+
+    public AplicadorEventos( Aerolinea aerolinea )
+    {
+        this.aerolinea = aerolinea;
+    }
+
+    public long getEventosOmitidos( )
+    {
+        return omitidos;
+    }
+
+    @Override
+    public void aplicar( Evento evento )
+    {
+        boolean aplicado;
+        switch( evento.getTipo( ) )
+        {
+            case Evento.RUTA_AGREGADA:
+                aplicado = aerolinea.getRuta( evento.getCodigoRuta( ) ) != null;
+                break;
+            case Evento.AVION_AGREGADO:
+                if( buscarAvion( evento.getIdentificador( ) ) == null )
+                    aerolinea.agregarAvion( new Avion( evento.getIdentificador( ), evento.getCantidad( ) ) );
+                aplicado = true;
+                break;
+            case Evento.CLIENTE_AGREGADO:
+                aplicarCliente( evento );
+                aplicado = true;
+                break;
+            case Evento.VUELO_PROGRAMADO:
+                aplicado = aplicarVuelo( evento );
+                break;
+            case Evento.TIQUETE_VENDIDO:
+            case Evento.TIQUETE_CARGADO:
+                aplicado = aplicarTiquete( evento );
+                break;
+            case Evento.TIQUETE_CANCELADO:
+                Vuelos vueloCancelacion = aerolinea.getVuelo( evento.getCodigoRuta( ), evento.getFecha( ) );
+                if( vueloCancelacion != null )
+                    vueloCancelacion.cancelarTiquete( evento.getCodigoTiquete( ) );
+                aplicado = vueloCancelacion != null;
+                break;
+            case Evento.VUELO_REALIZADO:
+                Vuelos vueloRealizado = aerolinea.getVuelo( evento.getCodigoRuta( ), evento.getFecha( ) );
+                if( vueloRealizado != null )
+                    vueloRealizado.registrarComoRealizado( );
+                aplicado = vueloRealizado != null;
+                break;
+            default:
+                aplicado = false;
+        }
+        if( !aplicado )
+            omitidos++;
+    }
+
+    private Avion buscarAvion( String nombre )
+    {
+        for( Avion avion : aerolinea.getAviones( ) )
+        {
+            if( avion.getNombre( ).equals( nombre ) )
+                return avion;
+        }
+        return null;
+    }
+
+    private void aplicarCliente( Evento evento )
+    {
+        if( aerolinea.existeCliente( evento.getIdentificador( ) ) )
+            return;
+        if( ClienteCorporativo.CORPORATIVO.equals( evento.getDetalle( ) ) )
+            aerolinea.agregarCliente( new ClienteCorporativo( evento.getIdentificador( ), evento.getCantidad( ) ) );
+        else
+            aerolinea.agregarCliente( new ClienteNatural( evento.getIdentificador( ) ) );
+    }
+
+    private boolean aplicarVuelo( Evento evento )
+    {
+        if( aerolinea.getVuelo( evento.getCodigoRuta( ), evento.getFecha( ) ) != null )
+            return true;
+        Ruta ruta = aerolinea.getRuta( evento.getCodigoRuta( ) );
+        if( ruta == null )
+            return false;
+        Avion avion = buscarAvion( evento.getIdentificador( ) );
+        if( avion == null )
+        {
+            avion = new Avion( evento.getIdentificador( ), evento.getCantidad( ) );
+            aerolinea.agregarAvion( avion );
+        }
+        aerolinea.agregarVuelo( new Vuelos( ruta, evento.getFecha( ), avion ) );
+        return true;
+    }
+
+    private boolean aplicarTiquete( Evento evento )
+    {
+        Vuelos vuelo = aerolinea.getVuelo( evento.getCodigoRuta( ), evento.getFecha( ) );
+        Cliente cliente = aerolinea.getCliente( evento.getIdentificador( ) );
+        if( vuelo == null || cliente == null )
+            return false;
+        if( vuelo.tieneTiquete( evento.getCodigoTiquete( ) ) )
+            return true;
+
+        Tiquete tiquete = new Tiquete( evento.getCodigoTiquete( ), vuelo, cliente, ( int )evento.getValor( ) );
+        if( evento.getTipo( ) == Evento.TIQUETE_CARGADO && evento.getCantidad( ) == 1 )
+            tiquete.marcarComoUsado( );
+        vuelo.agregarTiquete( tiquete );
+        cliente.agregarTiquete( tiquete );
+        return true;
+    }
+}
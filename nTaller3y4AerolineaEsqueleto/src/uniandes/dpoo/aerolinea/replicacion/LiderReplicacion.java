@@ -0,0 +1,231 @@
+package uniandes.dpoo.aerolinea.replicacion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import uniandes.dpoo.aerolinea.eventos.BusEventos;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+
+/**
+ * Esta clase convierte a una aerolínea en el líder de un grupo de replicación.
+ *
+ * El líder suscribe un registro (RegistroReplicacion) al bus de eventos de la aerolínea, de forma que todas las ventas, cancelaciones y vuelos realizados quedan escritos
+ * en archivos de lotes. Cada seguidor que se conecta por TCP indica el último evento que ya aplicó, y un hilo del líder le envía el registro a partir de ese punto
+ * (buscándolo en el índice del registro, sin recorrer los lotes anteriores) y después los lotes nuevos a medida que se escriben. Como el registro está en disco, un
+ * seguidor que se desconecta puede volver a conectarse y seguir donde iba.
+ *
+ * Cuando no hay lotes nuevos, el líder envía un latido cada INTERVALO_LATIDO milisegundos para que los seguidores conozcan su última secuencia y puedan medir su retraso.
+ * La secuencia que se envía es la del último evento escrito en el registro, así que los eventos que se publicaron antes de crear el líder (por ejemplo, los de la carga
+ * inicial) no cuentan como retraso.
+ *
+ * Los seguidores confirman los eventos que van aplicando. Con compactarRegistro se borran los segmentos del registro que ya aplicaron todos los seguidores conectados; un
+ * seguidor que se conecte después pidiendo eventos que ya se borraron recibe un aviso de que está desfasado (ver ProtocoloReplicacion).
+ *
+ * El registro sólo tiene los eventos publicados después de crear el líder. Los seguidores deben empezar con el mismo estado que tenía la aerolínea en ese momento, por
+ * ejemplo cargando los mismos archivos.
+ */
+public class LiderReplicacion implements Closeable
+{
+    /**
+     * El tiempo máximo, en milisegundos, que el líder pasa sin enviarle nada a un seguidor
+     */
+    public static final long INTERVALO_LATIDO = 1000;
+
+    private final BusEventos bus;
+
+    private final RegistroReplicacion registro;
+
+    private final ServerSocket servidor;
+
+    private final List<Seguidor> conexiones;
+
+    private volatile boolean activo;
+
+    /**
+     * Empieza a replicar una aerolínea
+     * @param aerolinea La aerolínea
+     * @param archivoRegistro El nombre del registro de eventos (ver RegistroReplicacion). Si ya había segmentos con ese nombre, se reemplazan.
+     * @param puerto El puerto en el que se reciben las conexiones de los seguidores. Si es 0, se usa cualquier puerto libre (ver getPuerto).
+     * @throws IOException Se lanza esta excepción si no se puede crear el registro o abrir el puerto
+     */
+    public LiderReplicacion( Aerolinea aerolinea, String archivoRegistro, int puerto ) throws IOException
+    {
+        this.bus = aerolinea.getBusEventos( );
+        this.registro = new RegistroReplicacion( archivoRegistro );
+        this.servidor = new ServerSocket( puerto );
+        this.conexiones = new CopyOnWriteArrayList<Seguidor>( );
+        this.activo = true;
+        bus.suscribir( registro );
+
+        Thread hilo = new Thread( this::aceptarSeguidores, "replicacion-lider" );
+        hilo.setDaemon( true );
+        hilo.start( );
+    }
+
+    public int getPuerto( )
+    {
+        return servidor.getLocalPort( );
+    }
+
+    public int getCantidadSeguidores( )
+    {
+        return conexiones.size( );
+    }
+
+    /**
+     * Retorna la secuencia del último evento que ya está en el registro, o -1 si no hay ninguno
+     * @return
+     */
+    public long getSecuenciaRegistrada( )
+    {
+        return registro.getUltimaSecuencia( );
+    }
+
+    /**
+     * Borra los segmentos del registro cuyos eventos ya confirmaron todos los seguidores conectados. Si no hay seguidores conectados, no se borra nada.
+     *
+     * Un seguidor que no esté conectado en este momento puede quedar desfasado si todavía necesitaba esos eventos.
+     * @return La cantidad de bytes que se liberaron
+     */
+    public long compactarRegistro( )
+    {
+        if( conexiones.isEmpty( ) )
+            return 0;
+        long minimo = Long.MAX_VALUE;
+        for( Seguidor seguidor : conexiones )
+            minimo = Math.min( minimo, seguidor.confirmada );
+        return registro.compactar( minimo );
+    }
+
+    private void aceptarSeguidores( )
+    {
+        while( activo )
+        {
+            try
+            {
+                Socket conexion = servidor.accept( );
+                conexion.setTcpNoDelay( true );
+                Seguidor seguidor = new Seguidor( conexion );
+                Thread hilo = new Thread( ( ) -> atenderSeguidor( seguidor ), "replicacion-envio-" + conexion.getPort( ) );
+                hilo.setDaemon( true );
+                hilo.start( );
+            }
+            catch( IOException e )
+            {
+                // Si el líder no se cerró, el problema fue con una sola conexión y se sigue esperando
+            }
+        }
+    }
+
+    /**
+     * Envía el registro a un seguidor, desde el evento que el seguidor indique, hasta que el seguidor se desconecte o el líder se cierre
+     */
+    private void atenderSeguidor( Seguidor seguidor )
+    {
+        try( Socket socket = seguidor.socket )
+        {
+            DataInputStream entrada = new DataInputStream( new BufferedInputStream( socket.getInputStream( ) ) );
+            DataOutputStream salida = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream( ), 1 << 16 ) );
+            long desde = entrada.readLong( );
+            if( !registro.tieneEventosDesde( desde ) )
+            {
+                salida.writeLong( registro.getUltimaSecuencia( ) );
+                ProtocoloReplicacion.escribirEncabezado( salida, ProtocoloReplicacion.TAMANO_ENCABEZADO, desde + 1, ProtocoloReplicacion.DESFASADO,
+                        System.currentTimeMillis( ) );
+                salida.flush( );
+                return;
+            }
+            seguidor.confirmada = desde;
+            conexiones.add( seguidor );
+
+            try( RegistroReplicacion.Lector lector = registro.abrirLector( desde ) )
+            {
+                while( activo )
+                {
+                    leerConfirmaciones( entrada, seguidor );
+                    long disponibles = registro.esperarDatos( lector.getPosicion( ), INTERVALO_LATIDO );
+                    if( disponibles == lector.getPosicion( ) )
+                    {
+                        salida.writeLong( registro.getUltimaSecuencia( ) );
+                        ProtocoloReplicacion.escribirEncabezado( salida, ProtocoloReplicacion.TAMANO_ENCABEZADO, registro.getUltimaSecuencia( ) + 1, 0,
+                                System.currentTimeMillis( ) );
+                    }
+                    while( lector.siguienteLote( ) )
+                    {
+                        if( lector.getUltimaSecuenciaLote( ) <= desde )
+                            continue;
+                        // Si el seguidor está muy atrasado, este ciclo puede enviar muchos lotes: las confirmaciones se leen en cada uno para que el seguidor nunca
+                        // se quede esperando a que el líder las lea mientras el líder espera a que el seguidor lea los lotes
+                        leerConfirmaciones( entrada, seguidor );
+                        salida.writeLong( registro.getUltimaSecuencia( ) );
+                        salida.writeInt( lector.getLongitud( ) );
+                        salida.write( lector.getLote( ), 0, lector.getLongitud( ) );
+                    }
+                    salida.flush( );
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            // El seguidor se desconectó: cuando vuelva a conectarse indicará desde dónde debe seguir
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        finally
+        {
+            conexiones.remove( seguidor );
+        }
+    }
+
+    /**
+     * Lee, sin esperar, las confirmaciones que el seguidor ya envió
+     */
+    private static void leerConfirmaciones( DataInputStream entrada, Seguidor seguidor ) throws IOException
+    {
+        while( entrada.available( ) >= 8 )
+            seguidor.confirmada = entrada.readLong( );
+    }
+
+    /**
+     * Deja de replicar: cierra las conexiones de los seguidores y el registro
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        activo = false;
+        servidor.close( );
+        for( Seguidor seguidor : conexiones )
+            seguidor.socket.close( );
+        bus.cancelarSuscripcion( registro );
+        registro.close( );
+    }
+
+    /**
+     * La conexión con un seguidor
+     */
+    private static class Seguidor
+    {
+        private final Socket socket;
+
+        /**
+         * La secuencia del último evento que el seguidor confirmó haber aplicado
+         */
+        private volatile long confirmada;
+
+        private Seguidor( Socket socket )
+        {
+            this.socket = socket;
+            this.confirmada = -1;
+        }
+    }
+}
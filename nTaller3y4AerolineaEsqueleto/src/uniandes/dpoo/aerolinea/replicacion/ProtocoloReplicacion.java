@@ -0,0 +1,96 @@
+package uniandes.dpoo.aerolinea.replicacion;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import uniandes.dpoo.aerolinea.eventos.Evento;
+
+/**
+ * Esta clase agrupa el formato de los lotes de eventos que el líder escribe en su registro y envía a los seguidores.
+ *
+ * Un lote tiene un encabezado y los eventos, uno tras otro:
+ * <ul>
+ * <li>La longitud del resto del lote en bytes (int)</li>
+ * <li>La secuencia del primer evento del lote (long). Los demás eventos tienen las secuencias siguientes.</li>
+ * <li>La cantidad de eventos (int). Un lote sin eventos es un latido: sólo sirve para que el seguidor sepa que el líder sigue vivo. Un lote con cantidad DESFASADO
+ * indica que el registro del líder ya no tiene los eventos que el seguidor necesita; después de él, el líder cierra la conexión.</li>
+ * <li>El momento en el que el líder escribió el lote, en milisegundos desde 1970 (long)</li>
+ * </ul>
+ * Cada evento se escribe como su tipo (byte), los cuatro textos (código de la ruta, fecha, identificador y detalle, cada uno precedido por un boolean que indica si no es
+ * null) con writeUTF, el código del tiquete (int, -1 si no es un evento de un tiquete), la cantidad
+ * (int) y el valor (long).
+ *
+ * Por la conexión, el seguidor envía primero la secuencia del último evento que ya aplicó (long, -1 si no ha aplicado ninguno). Después el líder envía, una y otra vez,
+ * la secuencia del último evento de su registro (long) seguida de un lote. Después de aplicar un lote con eventos, el seguidor confirma la secuencia del último evento
+ * que aplicó (long).
+ */
+public final class ProtocoloReplicacion
+{
+    /**
+     * El tamaño del encabezado de un lote sin contar el int de la longitud
+     */
+    public static final int TAMANO_ENCABEZADO = 8 + 4 + 8;
+
+    /**
+     * La cantidad de eventos de un lote que indica que el seguidor está desfasado
+     */
+    public static final int DESFASADO = -1;
+
+    private ProtocoloReplicacion( )
+    {
+    }
+
+    public static void escribirEncabezado( DataOutput salida, int longitud, long primeraSecuencia, int cantidad, long marcaTiempo ) throws IOException
+    {
+        salida.writeInt( longitud );
+        salida.writeLong( primeraSecuencia );
+        salida.writeInt( cantidad );
+        salida.writeLong( marcaTiempo );
+    }
+
+    public static void escribirEvento( DataOutput salida, Evento evento ) throws IOException
+    {
+        salida.writeByte( evento.getTipo( ) );
+        escribirTexto( salida, evento.getCodigoRuta( ) );
+        escribirTexto( salida, evento.getFecha( ) );
+        escribirTexto( salida, evento.getIdentificador( ) );
+        escribirTexto( salida, evento.getDetalle( ) );
+        salida.writeInt( evento.getCodigoTiquete( ) );
+        salida.writeInt( evento.getCantidad( ) );
+        salida.writeLong( evento.getValor( ) );
+    }
+
+    private static void escribirTexto( DataOutput salida, String texto ) throws IOException
+    {
+        salida.writeBoolean( texto != null );
+        if( texto != null )
+            salida.writeUTF( texto );
+    }
+
+    /**
+     * Lee un evento y lo deja en una entrada
+     * @param entrada El lugar de donde se lee, ubicado al principio del evento
+     * @param secuencia La secuencia del evento, que no está en los datos sino que se calcula a partir del encabezado del lote
+     * @param evento La entrada donde queda el evento
+     */
+    public static void leerEvento( DataInput entrada, long secuencia, Evento evento ) throws IOException
+    {
+        int tipo = entrada.readByte( );
+        String codigoRuta = leerTexto( entrada );
+        String fecha = leerTexto( entrada );
+        String identificador = leerTexto( entrada );
+        String detalle = leerTexto( entrada );
+        int codigoTiquete = entrada.readInt( );
+        int cantidad = entrada.readInt( );
+        long valor = entrada.readLong( );
+        if( Evento.getNombreTipo( tipo ) == null )
+            throw new IOException( "Tipo de evento desconocido en el lote: " + tipo );
+        evento.llenar( secuencia, tipo, codigoRuta, fecha, identificador, detalle, codigoTiquete, cantidad, valor );
+    }
+
+    private static String leerTexto( DataInput entrada ) throws IOException
+    {
+        return entrada.readBoolean( ) ? entrada.readUTF( ) : null;
+    }
+}
@@ -0,0 +1,558 @@
+package uniandes.dpoo.aerolinea.replicacion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.eventos.Evento;
+import uniandes.dpoo.aerolinea.eventos.IProyeccion;
+
+/**
+ * Esta proyección escribe los eventos del líder en el registro que se envía a los seguidores, agrupados en lotes con el formato de ProtocoloReplicacion.
+ *
+ * Cada lote de eventos que entrega el bus se convierte en un lote del registro (o en varios, si es muy grande). Un lote sólo cuenta como escrito cuando está completo en
+ * el archivo, así que quien lee el registro hasta getBytesEscritos nunca encuentra un lote a medias.
+ *
+ * El registro se divide en segmentos: archivos con el nombre del registro seguido de '.' y el número del segmento. Cuando un segmento llega a su tamaño máximo, los lotes
+ * siguientes se escriben en un segmento nuevo. Las posiciones dentro del registro (getBytesEscritos, Lector.getPosicion) cuentan los bytes de todos los segmentos
+ * escritos, incluidos los que ya se borraron.
+ *
+ * Para cada segmento se guarda en memoria un índice con la posición de un lote cada INTERVALO_INDICE bytes, así que un lector que empieza después de una secuencia (ver
+ * abrirLector) recorre a lo sumo unos pocos lotes que ya no necesita. Los segmentos cuyos eventos ya aplicaron todos los seguidores se pueden borrar con compactar.
+ */
+public class RegistroReplicacion implements IProyeccion, Closeable
+{
+    /**
+     * El tamaño máximo por defecto de un segmento, en bytes
+     */
+    public static final long TAMANO_SEGMENTO = 64L << 20;
+
+    /**
+     * El tamaño a partir del cual un lote se escribe aunque el bus todavía tenga eventos para entregar
+     */
+    private static final int TAMANO_MAXIMO_LOTE = 1 << 20;
+
+    /**
+     * La cantidad de bytes entre dos entradas del índice de un segmento
+     */
+    private static final int INTERVALO_INDICE = 1 << 16;
+
+    private final String archivo;
+
+    private final long tamanoSegmento;
+
+    /**
+     * Los segmentos que no se han borrado, en orden. El último es el que se está escribiendo. Se protege con el candado del registro.
+     */
+    private final List<Segmento> segmentos;
+
+    /**
+     * El archivo del segmento que se está escribiendo
+     */
+    private DataOutputStream salida;
+
+    /**
+     * Los eventos del lote que se está armando, ya codificados
+     */
+    private final ByteArrayOutputStream lote;
+
+    private final DataOutputStream datosLote;
+
+    private long primeraSecuencia;
+
+    private int cantidad;
+
+    /**
+     * La cantidad de bytes del registro que tienen lotes completos. Se protege con el candado del registro.
+     */
+    private long bytesEscritos;
+
+    /**
+     * La secuencia del último evento de los segmentos que se borraron, o -1 si no se ha borrado ninguno. Se protege con el candado del registro.
+     */
+    private long ultimaCompactada;
+
+    /**
+     * La secuencia del último evento escrito, o -1 si no se ha escrito ninguno
+     */
+    private volatile long ultimaSecuencia;
+
+    private volatile boolean cerrado;
+
+    /**
+     * El primer problema que hubo escribiendo el archivo, o null si no ha habido problemas. Después de un problema el registro deja de escribir.
+     */
+    private volatile IOException error;
+
+    /**
+     * Crea un registro nuevo con segmentos de TAMANO_SEGMENTO bytes. Si ya había segmentos con ese nombre, se borran.
+     * @param archivo El nombre del registro
+     * @throws IOException Se lanza esta excepción si no se puede crear el primer segmento
+     */
+    public RegistroReplicacion( String archivo ) throws IOException
+    {
+        this( archivo, TAMANO_SEGMENTO );
+    }
+
+    /**
+     * Crea un registro nuevo. Si ya había segmentos con ese nombre, se borran.
+     * @param archivo El nombre del registro
+     * @param tamanoSegmento El tamaño a partir del cual se empieza un segmento nuevo, en bytes
+     * @throws IOException Se lanza esta excepción si no se puede crear el primer segmento
+     */
+    public RegistroReplicacion( String archivo, long tamanoSegmento ) throws IOException
+    {
+        this.archivo = archivo;
+        this.tamanoSegmento = tamanoSegmento;
+        this.segmentos = new ArrayList<Segmento>( );
+        this.lote = new ByteArrayOutputStream( 1 << 16 );
+        this.datosLote = new DataOutputStream( lote );
+        this.ultimaSecuencia = -1;
+        this.ultimaCompactada = -1;
+        borrarSegmentos( );
+        empezarSegmento( );
+    }
+
+    /**
+     * Borra los segmentos que hayan quedado de un registro anterior con el mismo nombre. Después de compactarlo, sus segmentos no empiezan en el número 0.
+     */
+    private void borrarSegmentos( ) throws IOException
+    {
+        File base = new File( archivo ).getAbsoluteFile( );
+        String prefijo = base.getName( ) + ".";
+        File[] anteriores = base.getParentFile( ).listFiles( ( directorio, nombre ) -> nombre.startsWith( prefijo ) && nombre.length( ) > prefijo.length( )
+                && nombre.substring( prefijo.length( ) ).chars( ).allMatch( Character::isDigit ) );
+        if( anteriores == null )
+            return;
+        for( File anterior : anteriores )
+        {
+            if( !anterior.delete( ) )
+                throw new IOException( "No se pudo borrar el segmento " + anterior );
+        }
+    }
+
+    /**
+     * Retorna el nombre del registro. Los segmentos tienen este nombre seguido de '.' y su número.
+     * @return
+     */
+    public String getArchivo( )
+    {
+        return archivo;
+    }
+
+    private File getArchivoSegmento( int numero )
+    {
+        return new File( archivo + "." + numero );
+    }
+
+    public long getUltimaSecuencia( )
+    {
+        return ultimaSecuencia;
+    }
+
+    public IOException getError( )
+    {
+        return error;
+    }
+
+    public synchronized long getBytesEscritos( )
+    {
+        return bytesEscritos;
+    }
+
+    public synchronized int getCantidadSegmentos( )
+    {
+        return segmentos.size( );
+    }
+
+    @Override
+    public void aplicar( Evento evento )
+    {
+        if( error != null )
+            return;
+        try
+        {
+            if( cantidad == 0 )
+                primeraSecuencia = evento.getSecuencia( );
+            ProtocoloReplicacion.escribirEvento( datosLote, evento );
+            cantidad++;
+            if( lote.size( ) >= TAMANO_MAXIMO_LOTE )
+                escribirLote( );
+        }
+        catch( IOException e )
+        {
+            error = e;
+        }
+    }
+
+    @Override
+    public void finLote( )
+    {
+        if( error != null || cantidad == 0 )
+            return;
+        try
+        {
+            escribirLote( );
+        }
+        catch( IOException e )
+        {
+            error = e;
+        }
+    }
+
+    private void escribirLote( ) throws IOException
+    {
+        Segmento segmento;
+        synchronized( this )
+        {
+            segmento = segmentos.get( segmentos.size( ) - 1 );
+        }
+        if( bytesEscritos - segmento.inicio >= tamanoSegmento )
+        {
+            salida.close( );
+            empezarSegmento( );
+            synchronized( this )
+            {
+                segmento = segmentos.get( segmentos.size( ) - 1 );
+            }
+        }
+
+        int longitud = ProtocoloReplicacion.TAMANO_ENCABEZADO + lote.size( );
+        ProtocoloReplicacion.escribirEncabezado( salida, longitud, primeraSecuencia, cantidad, System.currentTimeMillis( ) );
+        lote.writeTo( salida );
+        salida.flush( );
+        long ultima = primeraSecuencia + cantidad - 1;
+        lote.reset( );
+        cantidad = 0;
+        synchronized( this )
+        {
+            segmento.agregarLote( bytesEscritos, ultimaSecuencia, ultima );
+            bytesEscritos += 4 + longitud;
+            ultimaSecuencia = ultima;
+            notifyAll( );
+        }
+    }
+
+    /**
+     * Crea el archivo de un segmento nuevo, que empieza en la posición actual del registro
+     */
+    private void empezarSegmento( ) throws IOException
+    {
+        synchronized( this )
+        {
+            int numero = segmentos.isEmpty( ) ? 0 : segmentos.get( segmentos.size( ) - 1 ).numero + 1;
+            Segmento segmento = new Segmento( numero, bytesEscritos );
+            salida = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( getArchivoSegmento( numero ) ), 1 << 16 ) );
+            segmentos.add( segmento );
+        }
+    }
+
+    /**
+     * Espera hasta que el registro tenga lotes completos más allá de una posición
+     * @param posicion La posición hasta la que ya se leyó el registro
+     * @param espera El tiempo máximo de espera, en milisegundos
+     * @return La cantidad de bytes del registro que tienen lotes completos. Si es igual a la posición, no llegaron lotes nuevos durante la espera o el registro se cerró.
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     */
+    public synchronized long esperarDatos( long posicion, long espera ) throws InterruptedException
+    {
+        long limite = System.currentTimeMillis( ) + espera;
+        long restante = espera;
+        while( bytesEscritos <= posicion && !cerrado && restante > 0 )
+        {
+            wait( restante );
+            restante = limite - System.currentTimeMillis( );
+        }
+        return bytesEscritos;
+    }
+
+    /**
+     * Indica si el registro todavía tiene todos los eventos posteriores a una secuencia
+     * @param secuencia La secuencia, o -1 para preguntar por todos los eventos
+     * @return Retorna false si algunos de esos eventos estaban en segmentos que ya se borraron
+     */
+    public synchronized boolean tieneEventosDesde( long secuencia )
+    {
+        return secuencia >= ultimaCompactada;
+    }
+
+    /**
+     * Abre un lector que recorre el registro a partir del primer lote que tiene eventos posteriores a una secuencia (o desde un lote un poco anterior, según el índice)
+     * @param secuencia La secuencia del último evento que no se necesita, o -1 para leer todos los eventos
+     * @return El lector
+     * @throws IOException Se lanza esta excepción si el registro ya no tiene los eventos posteriores a la secuencia (ver tieneEventosDesde) o si no se puede abrir el
+     *         segmento
+     */
+    public Lector abrirLector( long secuencia ) throws IOException
+    {
+        Segmento segmento;
+        long posicion;
+        synchronized( this )
+        {
+            if( !tieneEventosDesde( secuencia ) )
+                throw new IOException( "El registro ya no tiene los eventos posteriores a la secuencia " + secuencia );
+            int s = 0;
+            while( s < segmentos.size( ) - 1 && segmentos.get( s ).ultimaSecuencia <= secuencia )
+                s++;
+            segmento = segmentos.get( s );
+            posicion = segmento.buscar( secuencia );
+        }
+        return new Lector( segmento, posicion );
+    }
+
+    /**
+     * Borra los segmentos cuyos eventos tienen todos una secuencia menor o igual a una dada. El segmento que se está escribiendo nunca se borra.
+     *
+     * Los lectores que ya estaban leyendo un segmento borrado pueden terminar de leerlo en los sistemas que permiten borrar archivos abiertos; en los demás, el segmento
+     * no se puede borrar y se intenta de nuevo en la siguiente compactación.
+     * @param secuencia La secuencia hasta la que ya no se necesitan los eventos
+     * @return La cantidad de bytes que se liberaron
+     */
+    public synchronized long compactar( long secuencia )
+    {
+        long liberados = 0;
+        while( segmentos.size( ) > 1 )
+        {
+            Segmento segmento = segmentos.get( 0 );
+            if( segmento.ultimaSecuencia > secuencia || !getArchivoSegmento( segmento.numero ).delete( ) )
+                break;
+            segmentos.remove( 0 );
+            ultimaCompactada = Math.max( ultimaCompactada, segmento.ultimaSecuencia );
+            liberados += segmentos.get( 0 ).inicio - segmento.inicio;
+        }
+        return liberados;
+    }
+
+    /**
+     * Retorna el segmento que sigue a uno dado
+     * @return El segmento, o null si el segmento dado es el que se está escribiendo
+     */
+    private synchronized Segmento siguienteSegmento( Segmento segmento )
+    {
+        int posicion = segmentos.indexOf( segmento );
+        if( posicion < 0 )
+        {
+            // El segmento ya se borró: el siguiente es el primero que queda después de él
+            for( Segmento otro : segmentos )
+            {
+                if( otro.numero > segmento.numero )
+                    return otro;
+            }
+            return null;
+        }
+        return posicion + 1 < segmentos.size( ) ? segmentos.get( posicion + 1 ) : null;
+    }
+
+    /**
+     * Cierra el segmento que se está escribiendo. El registro debe haber dejado de recibir eventos (ver BusEventos.cancelarSuscripcion).
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        synchronized( this )
+        {
+            cerrado = true;
+            notifyAll( );
+        }
+        salida.close( );
+    }
+
+    /**
+     * Un segmento del registro y el índice de sus lotes
+     */
+    private static class Segmento
+    {
+        private final int numero;
+
+        /**
+         * La posición en el registro del primer byte del segmento
+         */
+        private final long inicio;
+
+        /**
+         * La secuencia del último evento del segmento, o -1 si el segmento no tiene lotes
+         */
+        private long ultimaSecuencia;
+
+        /**
+         * Las posiciones en el registro de algunos lotes del segmento, en orden
+         */
+        private long[] posiciones;
+
+        /**
+         * Para cada posición del índice, la secuencia del último evento que está antes de esa posición en el registro
+         */
+        private long[] anteriores;
+
+        private int cantidadIndice;
+
+        private Segmento( int numero, long inicio )
+        {
+            this.numero = numero;
+            this.inicio = inicio;
+            this.ultimaSecuencia = -1;
+            this.posiciones = new long[16];
+            this.anteriores = new long[16];
+        }
+
+        /**
+         * Registra un lote escrito en el segmento. Se llama con el candado del registro.
+         * @param posicion La posición del lote en el registro
+         * @param anterior La secuencia del último evento antes del lote
+         * @param ultima La secuencia del último evento del lote
+         */
+        private void agregarLote( long posicion, long anterior, long ultima )
+        {
+            if( cantidadIndice == 0 || posicion - posiciones[ cantidadIndice - 1 ] >= INTERVALO_INDICE )
+            {
+                if( cantidadIndice == posiciones.length )
+                {
+                    posiciones = Arrays.copyOf( posiciones, 2 * cantidadIndice );
+                    anteriores = Arrays.copyOf( anteriores, 2 * cantidadIndice );
+                }
+                posiciones[ cantidadIndice ] = posicion;
+                anteriores[ cantidadIndice ] = anterior;
+                cantidadIndice++;
+            }
+            ultimaSecuencia = ultima;
+        }
+
+        /**
+         * Busca en el índice la posición desde la que se debe leer el segmento para encontrar los eventos posteriores a una secuencia. Se llama con el candado del
+         * registro.
+         * @return La posición del último lote del índice que no tiene eventos posteriores a la secuencia antes de él, o el inicio del segmento
+         */
+        private long buscar( long secuencia )
+        {
+            int menor = 0;
+            int mayor = cantidadIndice - 1;
+            long posicion = inicio;
+            while( menor <= mayor )
+            {
+                int medio = ( menor + mayor ) >>> 1;
+                if( anteriores[ medio ] <= secuencia )
+                {
+                    posicion = posiciones[ medio ];
+                    menor = medio + 1;
+                }
+                else
+                    mayor = medio - 1;
+            }
+            return posicion;
+        }
+    }
+
+    /**
+     * Recorre los lotes del registro en orden, pasando de un segmento al siguiente
+     */
+    public class Lector implements Closeable
+    {
+        private Segmento segmento;
+
+        private DataInputStream entrada;
+
+        /**
+         * La posición en el registro del siguiente lote
+         */
+        private long posicion;
+
+        /**
+         * El final del segmento que se está leyendo, o -1 si todavía no se sabe (porque es el segmento que se está escribiendo)
+         */
+        private long finSegmento;
+
+        private byte[] lote;
+
+        private int longitud;
+
+        private Lector( Segmento segmento, long posicion ) throws IOException
+        {
+            this.lote = new byte[1 << 16];
+            abrir( segmento, posicion );
+        }
+
+        private void abrir( Segmento nuevo, long desde ) throws IOException
+        {
+            if( entrada != null )
+                entrada.close( );
+            FileInputStream archivoSegmento = new FileInputStream( getArchivoSegmento( nuevo.numero ) );
+            archivoSegmento.getChannel( ).position( desde - nuevo.inicio );
+            entrada = new DataInputStream( new BufferedInputStream( archivoSegmento, 1 << 16 ) );
+            segmento = nuevo;
+            posicion = desde;
+            finSegmento = -1;
+        }
+
+        public long getPosicion( )
+        {
+            return posicion;
+        }
+
+        /**
+         * Lee el siguiente lote, si ya está completo en el registro
+         * @return Retorna false si el registro todavía no tiene más lotes completos
+         * @throws IOException Se lanza esta excepción si hay problemas leyendo un segmento
+         */
+        public boolean siguienteLote( ) throws IOException
+        {
+            if( posicion >= getBytesEscritos( ) )
+                return false;
+            if( finSegmento < 0 )
+            {
+                Segmento siguiente = siguienteSegmento( segmento );
+                if( siguiente != null )
+                    finSegmento = siguiente.inicio;
+            }
+            if( posicion == finSegmento )
+                abrir( siguienteSegmento( segmento ), finSegmento );
+
+            longitud = entrada.readInt( );
+            if( lote.length < longitud )
+                lote = new byte[Math.max( longitud, 2 * lote.length )];
+            entrada.readFully( lote, 0, longitud );
+            posicion += 4 + longitud;
+            return true;
+        }
+
+        /**
+         * Retorna los bytes del último lote leído, sin el int de la longitud. Sólo son válidos los primeros getLongitud bytes.
+         * @return
+         */
+        public byte[] getLote( )
+        {
+            return lote;
+        }
+
+        public int getLongitud( )
+        {
+            return longitud;
+        }
+
+        /**
+         * Retorna la secuencia del último evento del último lote leído
+         * @return
+         */
+        public long getUltimaSecuenciaLote( )
+        {
+            ByteBuffer encabezado = ByteBuffer.wrap( lote );
+            return encabezado.getLong( 0 ) + encabezado.getInt( 8 ) - 1;
+        }
+
+        @Override
+        public void close( ) throws IOException
+        {
+            entrada.close( );
+        }
+    }
+}
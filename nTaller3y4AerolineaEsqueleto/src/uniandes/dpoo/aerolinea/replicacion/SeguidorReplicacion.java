@@ -0,0 +1,269 @@
+package uniandes.dpoo.aerolinea.replicacion;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+import uniandes.dpoo.aerolinea.eventos.Evento;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
+
+/**
+ * Esta clase mantiene una aerolínea como seguidora de un líder de replicación (ver LiderReplicacion).
+ *
+ * Un hilo de fondo se conecta al líder, le indica el último evento que ya aplicó, y aplica sobre la aerolínea (con AplicadorEventos) los lotes que recibe. Si la conexión
+ * se pierde, el hilo vuelve a intentarlo cada ESPERA_RECONEXION milisegundos y sigue desde donde iba. Si el líder ya borró del registro los eventos que el seguidor
+ * necesita (ver LiderReplicacion.compactarRegistro), el seguidor queda desfasado y deja de seguir al líder: la aerolínea se debe volver a cargar.
+ *
+ * La aerolínea del seguidor sólo debe modificarse a través de la replicación: las consultas (saldos, vuelos, reportes) se pueden hacer en cualquier momento y reflejan
+ * los eventos aplicados hasta ese momento. El retraso respecto al líder se puede consultar en eventos (getRetrasoEventos) y en tiempo (getRetrasoMilisegundos).
+ */
+public class SeguidorReplicacion implements Closeable
+{
+    /**
+     * El tiempo que se espera antes de volver a conectarse al líder, en milisegundos
+     */
+    public static final long ESPERA_RECONEXION = 1000;
+
+    private final Aerolinea aerolinea;
+
+    private final String servidor;
+
+    private final int puerto;
+
+    private final AplicadorEventos aplicador;
+
+    private final Thread hilo;
+
+    /**
+     * La secuencia del último evento del líder que se aplicó, o -1 si no se ha aplicado ninguno. Sólo la modifica el hilo del seguidor.
+     */
+    private volatile long ultimaAplicada;
+
+    /**
+     * La secuencia del último evento publicado en el líder, según el último lote recibido
+     */
+    private volatile long secuenciaLider;
+
+    /**
+     * El tiempo que pasó entre que el líder escribió el último lote con eventos y que el seguidor lo aplicó. Es 0 si el seguidor está al día.
+     */
+    private volatile long retrasoMilisegundos;
+
+    private volatile boolean conectado;
+
+    /**
+     * Indica si el líder informó que ya no tiene los eventos que necesita el seguidor
+     */
+    private volatile boolean desfasado;
+
+    private volatile boolean activo;
+
+    private volatile Socket socket;
+
+    /**
+     * Empieza a seguir a un líder
+     * @param aerolinea La aerolínea donde se aplican los eventos. Debe tener el mismo estado que tenía la aerolínea del líder cuando se creó el líder.
+     * @param servidor El nombre o la dirección de la máquina del líder
+     * @param puerto El puerto del líder
+     */
+    public SeguidorReplicacion( Aerolinea aerolinea, String servidor, int puerto )
+    {
+        this.aerolinea = aerolinea;
+        this.servidor = servidor;
+        this.puerto = puerto;
+        this.aplicador = new AplicadorEventos( aerolinea );
+        this.ultimaAplicada = -1;
+        this.secuenciaLider = -1;
+        this.activo = true;
+        this.hilo = new Thread( this::seguir, "replicacion-seguidor" );
+        hilo.setDaemon( true );
+        hilo.start( );
+    }
+
+    public Aerolinea getAerolinea( )
+    {
+        return aerolinea;
+    }
+
+    public boolean estaConectado( )
+    {
+        return conectado;
+    }
+
+    public boolean estaDesfasado( )
+    {
+        return desfasado;
+    }
+
+    public long getUltimaSecuenciaAplicada( )
+    {
+        return ultimaAplicada;
+    }
+
+    public long getSecuenciaLider( )
+    {
+        return secuenciaLider;
+    }
+
+    /**
+     * Retorna la cantidad de eventos que el líder ya publicó y que el seguidor todavía no ha aplicado
+     * @return
+     */
+    public long getRetrasoEventos( )
+    {
+        return Math.max( 0, secuenciaLider - ultimaAplicada );
+    }
+
+    public long getRetrasoMilisegundos( )
+    {
+        return retrasoMilisegundos;
+    }
+
+    public long getEventosOmitidos( )
+    {
+        return aplicador.getEventosOmitidos( );
+    }
+
+    /**
+     * Consulta el saldo pendiente de un cliente en la aerolínea del seguidor (ver Aerolinea.consultarSaldoPendienteCliente)
+     */
+    public String consultarSaldoPendienteCliente( String identificadorCliente )
+    {
+        return aerolinea.consultarSaldoPendienteCliente( identificadorCliente );
+    }
+
+    /**
+     * Busca un vuelo en la aerolínea del seguidor (ver Aerolinea.getVuelo)
+     */
+    public Vuelos getVuelo( String codigoRuta, String fechaVuelo )
+    {
+        return aerolinea.getVuelo( codigoRuta, fechaVuelo );
+    }
+
+    /**
+     * Espera hasta que el seguidor haya aplicado un evento del líder
+     * @param secuencia La secuencia del evento
+     * @param espera El tiempo máximo de espera, en milisegundos
+     * @return Retorna true si el evento ya se aplicó, o false si se acabó el tiempo
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     */
+    public boolean esperarSecuencia( long secuencia, long espera ) throws InterruptedException
+    {
+        long limite = System.currentTimeMillis( ) + espera;
+        while( ultimaAplicada < secuencia )
+        {
+            if( System.currentTimeMillis( ) >= limite )
+                return false;
+            Thread.sleep( 1 );
+        }
+        return true;
+    }
+
+    /**
+     * Espera hasta que el seguidor esté conectado y no tenga eventos pendientes según el último lote recibido
+     * @param espera El tiempo máximo de espera, en milisegundos
+     * @return Retorna true si el seguidor quedó al día, o false si se acabó el tiempo o el seguidor está desfasado
+     * @throws InterruptedException Se lanza esta excepción si el hilo se interrumpe mientras espera
+     */
+    public boolean esperarAlDia( long espera ) throws InterruptedException
+    {
+        long limite = System.currentTimeMillis( ) + espera;
+        while( !conectado || getRetrasoEventos( ) > 0 )
+        {
+            if( desfasado || System.currentTimeMillis( ) >= limite )
+                return false;
+            Thread.sleep( 1 );
+        }
+        return true;
+    }
+
+    private void seguir( )
+    {
+        while( activo )
+        {
+            try( Socket conexion = new Socket( servidor, puerto ) )
+            {
+                socket = conexion;
+                conexion.setTcpNoDelay( true );
+                recibir( conexion );
+            }
+            catch( IOException e )
+            {
+                // El líder no está disponible o la conexión se perdió: se vuelve a intentar
+            }
+            conectado = false;
+            if( activo )
+            {
+                try
+                {
+                    Thread.sleep( ESPERA_RECONEXION );
+                }
+                catch( InterruptedException e )
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void recibir( Socket conexion ) throws IOException
+    {
+        DataOutputStream salida = new DataOutputStream( conexion.getOutputStream( ) );
+        salida.writeLong( ultimaAplicada );
+        salida.flush( );
+        DataInputStream entrada = new DataInputStream( new BufferedInputStream( conexion.getInputStream( ), 1 << 16 ) );
+
+        Evento evento = new Evento( );
+        while( activo )
+        {
+            long lider = entrada.readLong( );
+            entrada.readInt( );
+            long primeraSecuencia = entrada.readLong( );
+            int cantidad = entrada.readInt( );
+            long marcaTiempo = entrada.readLong( );
+            if( cantidad == ProtocoloReplicacion.DESFASADO )
+            {
+                desfasado = true;
+                activo = false;
+                return;
+            }
+            for( int i = 0; i < cantidad; i++ )
+            {
+                ProtocoloReplicacion.leerEvento( entrada, primeraSecuencia + i, evento );
+                if( evento.getSecuencia( ) > ultimaAplicada )
+                {
+                    aplicador.aplicar( evento );
+                    ultimaAplicada = evento.getSecuencia( );
+                }
+            }
+            if( cantidad > 0 )
+            {
+                salida.writeLong( ultimaAplicada );
+                salida.flush( );
+            }
+            secuenciaLider = lider;
+            conectado = true;
+            if( ultimaAplicada >= lider )
+                retrasoMilisegundos = 0;
+            else if( cantidad > 0 )
+                retrasoMilisegundos = Math.max( 0, System.currentTimeMillis( ) - marcaTiempo );
+        }
+    }
+
+    /**
+     * Deja de seguir al líder
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        activo = false;
+        hilo.interrupt( );
+        Socket conexion = socket;
+        if( conexion != null )
+            conexion.close( );
+    }
+}
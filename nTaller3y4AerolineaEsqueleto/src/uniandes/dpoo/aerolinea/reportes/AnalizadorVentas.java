@@ -0,0 +1,308 @@
+package uniandes.dpoo.aerolinea.reportes;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import uniandes.dpoo.aerolinea.modelo.InstantaneaVuelo;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Esta clase calcula los reportes de ingresos y ocupación de una aerolínea.
+ *
+ * Todos los reportes se calculan con el mismo esquema: la lista de vuelos se divide en particiones que se procesan en paralelo dentro de un ForkJoinPool, y luego se
+ * combinan los resultados parciales. Dentro de cada partición los valores se acumulan en variables y arreglos de tipos primitivos, así que no se crea ningún objeto por
+ * cada tiquete que se recorre.
+ *
+ * Los reportes se calculan sobre instantáneas de los vuelos (ver InstantaneaAerolinea), así que se pueden calcular mientras se siguen vendiendo tiquetes.
+ */
+public class AnalizadorVentas
+{
+    /**
+     * La cantidad máxima de vuelos que procesa una tarea sin volver a dividirse
+     */
+    private static final int VUELOS_POR_TAREA = 64;
+
+    /**
+     * El pool de hilos donde se ejecutan las agregaciones
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Construye un analizador que usa el pool común de Java
+     */
+    public AnalizadorVentas( )
+    {
+        this( ForkJoinPool.commonPool( ) );
+    }
+
+    /**
+     * Construye un analizador que ejecuta las agregaciones en el pool dado
+     * @param pool
+     */
+    public AnalizadorVentas( ForkJoinPool pool )
+    {
+        this.pool = pool;
+    }
+
+    // ************************************************************************************
+    //
+    // Reportes
+    //
+    // ************************************************************************************
+
+    /**
+     * Calcula el total vendido en cada ruta
+     * @param vuelos Las instantáneas de los vuelos que se deben tener en cuenta
+     * @return Un mapa donde las llaves son los códigos de las rutas y los valores son la suma de las tarifas de los tiquetes vendidos en vuelos de esa ruta
+     */
+    public Map<String, Long> calcularIngresosPorRuta( Collection<InstantaneaVuelo> vuelos )
+    {
+        Map<String, long[]> parcial = agregar( vuelos, new AgregadorMapa( )
+        {
+            @Override
+            public void acumular( Map<String, long[]> acumulado, InstantaneaVuelo vuelo )
+            {
+                long total = 0;
+                for( Tiquete tiquete : vuelo.getTiquetes( ) )
+                    total += tiquete.getTarifa( );
+                sumar( acumulado, vuelo.getRuta( ).getCodigoRuta( ), total, 0 );
+            }
+        } );
+        return aTotales( parcial );
+    }
+
+    /**
+     * Calcula el total vendido a cada tipo de cliente
+     * @param vuelos Las instantáneas de los vuelos que se deben tener en cuenta
+     * @return Un mapa donde las llaves son los tipos de cliente y los valores son la suma de las tarifas de los tiquetes comprados por clientes de ese tipo
+     */
+    public Map<String, Long> calcularIngresosPorTipoCliente( Collection<InstantaneaVuelo> vuelos )
+    {
+        Map<String, long[]> parcial = agregar( vuelos, new AgregadorMapa( )
+        {
+            @Override
+            public void acumular( Map<String, long[]> acumulado, InstantaneaVuelo vuelo )
+            {
+                for( Tiquete tiquete : vuelo.getTiquetes( ) )
+                    sumar( acumulado, tiquete.getCliente( ).getTipoCliente( ), tiquete.getTarifa( ), 0 );
+            }
+        } );
+        return aTotales( parcial );
+    }
+
+    /**
+     * Calcula el total vendido en los vuelos que se realizan dentro de un rango de fechas
+     * @param vuelos Las instantáneas de los vuelos que se deben tener en cuenta
+     * @param fechaInicial La primera fecha del rango (incluida), en formato yyyy-MM-dd
+     * @param fechaFinal La última fecha del rango (incluida), en formato yyyy-MM-dd
+     * @return La suma de las tarifas de los tiquetes de los vuelos dentro del rango
+     */
+    public long calcularIngresos( Collection<InstantaneaVuelo> vuelos, final String fechaInicial, final String fechaFinal )
+    {
+        long[] total = agregar( vuelos, new AgregadorSuma( )
+        {
+            @Override
+            public void acumular( long[] acumulado, InstantaneaVuelo vuelo )
+            {
+                // Las fechas en formato yyyy-MM-dd se pueden comparar directamente como cadenas
+                String fecha = vuelo.getFecha( );
+                if( fecha.compareTo( fechaInicial ) < 0 || fecha.compareTo( fechaFinal ) > 0 )
+                    return;
+                for( Tiquete tiquete : vuelo.getTiquetes( ) )
+                    acumulado[ 0 ] += tiquete.getTarifa( );
+            }
+        } );
+        return total[ 0 ];
+    }
+
+    /**
+     * Calcula cuánto suman los tiquetes que ya se vendieron pero todavía no se han usado. Es el valor que la aerolínea le debe a sus clientes.
+     * @param vuelos Las instantáneas de los vuelos que se deben tener en cuenta
+     * @return La suma de las tarifas de los tiquetes sin usar
+     */
+    public long calcularPasivoTiquetesSinUsar( Collection<InstantaneaVuelo> vuelos )
+    {
+        long[] total = agregar( vuelos, new AgregadorSuma( )
+        {
+            @Override
+            public void acumular( long[] acumulado, InstantaneaVuelo vuelo )
+            {
+                for( int i = 0; i < vuelo.getCantidadTiquetes( ); i++ )
+                {
+                    if( !vuelo.esUsado( i ) )
+                        acumulado[ 0 ] += vuelo.getTiquete( i ).getTarifa( );
+                }
+            }
+        } );
+        return total[ 0 ];
+    }
+
+    /**
+     * Calcula la ocupación promedio de cada avión: la cantidad de tiquetes vendidos en todos sus vuelos dividida entre la cantidad de sillas que ofreció en esos vuelos.
+     * 
+     * La ocupación no se recorta: en las rutas con sobreventa un vuelo puede tener más tiquetes que sillas, y entonces la ocupación del avión puede ser mayor que 1.
+     * @param vuelos Las instantáneas de los vuelos que se deben tener en cuenta
+     * @return Un mapa donde las llaves son los nombres de los aviones y los valores son su ocupación, desde 0 (mayor que 1 si hubo sobreventa)
+     */
+    public Map<String, Double> calcularOcupacionPorAvion( Collection<InstantaneaVuelo> vuelos )
+    {
+        Map<String, long[]> parcial = agregar( vuelos, new AgregadorMapa( )
+        {
+            @Override
+            public void acumular( Map<String, long[]> acumulado, InstantaneaVuelo vuelo )
+            {
+                sumar( acumulado, vuelo.getAvion( ).getNombre( ), vuelo.getCantidadTiquetes( ), vuelo.getAvion( ).getCapacidad( ) );
+            }
+        } );
+
+        Map<String, Double> ocupacion = new HashMap<String, Double>( );
+        for( Map.Entry<String, long[]> entrada : parcial.entrySet( ) )
+        {
+            long[] valores = entrada.getValue( );
+            ocupacion.put( entrada.getKey( ), valores[ 1 ] == 0 ? 0.0 : ( double )valores[ 0 ] / valores[ 1 ] );
+        }
+        return ocupacion;
+    }
+
+    // ************************************************************************************
+    //
+    // Infraestructura de las agregaciones
+    //
+    // ************************************************************************************
+
+    /**
+     * Ejecuta una agregación sobre los vuelos dados, en paralelo
+     * @param vuelos Los vuelos sobre los que se hace la agregación
+     * @param agregador El objeto que sabe crear, actualizar y combinar los resultados parciales
+     * @return El resultado de la agregación
+     */
+    private <R> R agregar( Collection<InstantaneaVuelo> vuelos, Agregador<R> agregador )
+    {
+        InstantaneaVuelo[] arreglo = vuelos.toArray( new InstantaneaVuelo[0] );
+        return pool.invoke( new TareaAgregacion<R>( arreglo, 0, arreglo.length, agregador ) );
+    }
+
+    /**
+     * Convierte un mapa de acumuladores en un mapa con los totales (la primera posición de cada acumulador)
+     * @param parcial
+     * @return
+     */
+    private static Map<String, Long> aTotales( Map<String, long[]> parcial )
+    {
+        Map<String, Long> totales = new HashMap<String, Long>( );
+        for( Map.Entry<String, long[]> entrada : parcial.entrySet( ) )
+            totales.put( entrada.getKey( ), entrada.getValue( )[ 0 ] );
+        return totales;
+    }
+
+    /**
+     * Describe cómo se calcula una agregación: cómo se crea un resultado parcial vacío, cómo se le suma la información de un vuelo y cómo se combinan dos resultados
+     * parciales.
+     * @param <R> El tipo del resultado parcial
+     */
+    private interface Agregador<R>
+    {
+        R crear( );
+
+        void acumular( R acumulado, InstantaneaVuelo vuelo );
+
+        R combinar( R uno, R otro );
+    }
+
+    /**
+     * Un agregador cuyo resultado es un único número acumulado en la primera posición de un arreglo
+     */
+    private static abstract class AgregadorSuma implements Agregador<long[]>
+    {
+        @Override
+        public long[] crear( )
+        {
+            return new long[1];
+        }
+
+        @Override
+        public long[] combinar( long[] uno, long[] otro )
+        {
+            uno[ 0 ] += otro[ 0 ];
+            return uno;
+        }
+    }
+
+    /**
+     * Un agregador cuyo resultado es un mapa de acumuladores, donde cada acumulador tiene dos posiciones
+     */
+    private static abstract class AgregadorMapa implements Agregador<Map<String, long[]>>
+    {
+        @Override
+        public Map<String, long[]> crear( )
+        {
+            return new HashMap<String, long[]>( );
+        }
+
+        @Override
+        public Map<String, long[]> combinar( Map<String, long[]> uno, Map<String, long[]> otro )
+        {
+            for( Map.Entry<String, long[]> entrada : otro.entrySet( ) )
+                sumar( uno, entrada.getKey( ), entrada.getValue( )[ 0 ], entrada.getValue( )[ 1 ] );
+            return uno;
+        }
+
+        /**
+         * Suma los valores dados al acumulador asociado a la llave, creándolo si todavía no existía
+         */
+        protected static void sumar( Map<String, long[]> acumulado, String llave, long valor0, long valor1 )
+        {
+            long[] acumulador = acumulado.get( llave );
+            if( acumulador == null )
+            {
+                acumulador = new long[2];
+                acumulado.put( llave, acumulador );
+            }
+            acumulador[ 0 ] += valor0;
+            acumulador[ 1 ] += valor1;
+        }
+    }
+
+    /**
+     * La tarea que procesa un rango de vuelos. Si el rango es muy grande, se divide en dos mitades que se procesan en paralelo.
+     * @param <R> El tipo del resultado parcial
+     */
+    @SuppressWarnings("serial")
+    private static class TareaAgregacion<R> extends RecursiveTask<R>
+    {
+        private final InstantaneaVuelo[] vuelos;
+        private final int inicio;
+        private final int fin;
+        private final Agregador<R> agregador;
+
+        public TareaAgregacion( InstantaneaVuelo[] vuelos, int inicio, int fin, Agregador<R> agregador )
+        {
+            this.vuelos = vuelos;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.agregador = agregador;
+        }
+
+        @Override
+        protected R compute( )
+        {
+            if( fin - inicio <= VUELOS_POR_TAREA )
+            {
+                R resultado = agregador.crear( );
+                for( int i = inicio; i < fin; i++ )
+                    agregador.acumular( resultado, vuelos[ i ] );
+                return resultado;
+            }
+
+            int mitad = ( inicio + fin ) >>> 1;
+            TareaAgregacion<R> izquierda = new TareaAgregacion<R>( vuelos, inicio, mitad, agregador );
+            TareaAgregacion<R> derecha = new TareaAgregacion<R>( vuelos, mitad, fin, agregador );
+            izquierda.fork( );
+            R resultadoDerecha = derecha.compute( );
+            return agregador.combinar( izquierda.join( ), resultadoDerecha );
+        }
+    }
+}
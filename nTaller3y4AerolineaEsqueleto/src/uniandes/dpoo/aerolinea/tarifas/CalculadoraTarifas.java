@@ -0,0 +1,94 @@
+package uniandes.dpoo.aerolinea.tarifas;
+
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+
+/**
+ * Esta clase abstracta define el algoritmo general para calcular la tarifa de un tiquete: un costo base, menos un porcentaje de descuento, más los impuestos.
+ *
+ * Las subclases definen cómo se calculan el costo base y el descuento en cada temporada.
+ */
+public abstract class CalculadoraTarifas
+{
+    /**
+     * El porcentaje de impuestos que se cobra sobre el valor de cada tiquete
+     */
+    public static final double IMPUESTO = 0.28;
+
+    private static final CalculadoraTarifas TEMPORADA_BAJA = new CalculadoraTarifasTemporadaBaja( );
+    private static final CalculadoraTarifas TEMPORADA_ALTA = new CalculadoraTarifasTemporadaAlta( );
+
+    /**
+     * Selecciona la calculadora que corresponde a la temporada de una fecha: temporada baja de enero a mayo y de septiembre a noviembre, y temporada alta el resto del año
+     * @param fecha Una fecha en formato yyyy-MM-dd
+     * @return La calculadora de la temporada
+     */
+    public static CalculadoraTarifas seleccionarPorFecha( String fecha )
+    {
+        int mes = Integer.parseInt( fecha.substring( 5, 7 ) );
+        boolean temporadaAlta = mes == 6 || mes == 7 || mes == 8 || mes == 12;
+        return temporadaAlta ? TEMPORADA_ALTA : TEMPORADA_BAJA;
+    }
+
+    /**
+     * Calcula la tarifa que se le debe cobrar a un cliente por un tiquete de un vuelo
+     * @param vuelo El vuelo
+     * @param cliente El cliente que compra el tiquete
+     * @return El valor del tiquete, incluyendo los impuestos
+     */
+    public int calcularTarifa( Vuelos vuelo, Cliente cliente )
+    {
+        return calcularTarifa( calcularDistanciaVuelo( vuelo.getRuta( ) ), cliente );
+    }
+
+    /**
+     * Calcula la tarifa que se le debe cobrar a un cliente por un tiquete de un vuelo de cierta distancia
+     * @param distancia La distancia del vuelo, en kilómetros
+     * @param cliente El cliente que compra el tiquete. Sólo se usan su tipo y, si es corporativo, el tamaño de su empresa.
+     * @return El valor del tiquete, incluyendo los impuestos
+     */
+    public int calcularTarifa( int distancia, Cliente cliente )
+    {
+        int costoBase = calcularCostoBase( distancia, cliente );
+        double descuento = calcularPorcentajeDescuento( cliente );
+        int costoConDescuento = ( int )( costoBase * ( 1 - descuento ) );
+        return costoConDescuento + calcularValorImpuestos( costoConDescuento );
+    }
+
+    /**
+     * Calcula el costo base de un tiquete, antes de descuentos e impuestos
+     * @param distancia La distancia del vuelo, en kilómetros
+     * @param cliente El cliente que compra el tiquete
+     * @return El costo base
+     */
+    protected abstract int calcularCostoBase( int distancia, Cliente cliente );
+
+    /**
+     * Calcula el porcentaje de descuento que se le hace a un cliente
+     * @param cliente El cliente
+     * @return Un número entre 0 y 1
+     */
+    protected abstract double calcularPorcentajeDescuento( Cliente cliente );
+
+    /**
+     * Calcula la distancia que recorre un vuelo de una ruta
+     * @param ruta La ruta
+     * @return La distancia en kilómetros entre el origen y el destino de la ruta
+     */
+    protected int calcularDistanciaVuelo( Ruta ruta )
+    {
+        return Aeropuerto.calcularDistancia( ruta.getOrigen( ), ruta.getDestino( ) );
+    }
+
+    /**
+     * Calcula el valor de los impuestos sobre un costo
+     * @param costoBase El costo sobre el que se calculan los impuestos
+     * @return El valor de los impuestos
+     */
+    protected int calcularValorImpuestos( int costoBase )
+    {
+        return ( int )( costoBase * IMPUESTO );
+    }
+}
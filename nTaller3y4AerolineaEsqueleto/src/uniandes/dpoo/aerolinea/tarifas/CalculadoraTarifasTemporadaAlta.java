@@ -0,0 +1,23 @@
+package uniandes.dpoo.aerolinea.tarifas;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+
+/**
+ * Calcula las tarifas de temporada alta (junio, julio, agosto y diciembre): todos los clientes pagan lo mismo por kilómetro y no hay descuentos.
+ */
+public class CalculadoraTarifasTemporadaAlta extends CalculadoraTarifas
+{
+    protected static final int COSTO_POR_KM = 1000;
+
+    @Override
+    protected int calcularCostoBase( int distancia, Cliente cliente )
+    {
+        return distancia * COSTO_POR_KM;
+    }
+
+    @Override
+    protected double calcularPorcentajeDescuento( Cliente cliente )
+    {
+        return 0;
+    }
+}
@@ -0,0 +1,41 @@
+package uniandes.dpoo.aerolinea.tarifas;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+
+/**
+ * Calcula las tarifas de temporada baja (enero a mayo y septiembre a noviembre): los clientes corporativos pagan más por kilómetro, pero reciben un descuento que depende
+ * del tamaño de la empresa.
+ */
+public class CalculadoraTarifasTemporadaBaja extends CalculadoraTarifas
+{
+    protected static final int COSTO_POR_KM_NATURAL = 600;
+    protected static final int COSTO_POR_KM_CORPORATIVO = 900;
+    protected static final double DESCUENTO_PEQ = 0.02;
+    protected static final double DESCUENTO_MEDIANAS = 0.1;
+    protected static final double DESCUENTO_GRANDES = 0.2;
+
+    @Override
+    protected int calcularCostoBase( int distancia, Cliente cliente )
+    {
+        int costoPorKm = cliente instanceof ClienteCorporativo ? COSTO_POR_KM_CORPORATIVO : COSTO_POR_KM_NATURAL;
+        return distancia * costoPorKm;
+    }
+
+    @Override
+    protected double calcularPorcentajeDescuento( Cliente cliente )
+    {
+        if( !( cliente instanceof ClienteCorporativo ) )
+            return 0;
+
+        switch( ( ( ClienteCorporativo )cliente ).getTamanoEmpresa( ) )
+        {
+            case ClienteCorporativo.GRANDE:
+                return DESCUENTO_GRANDES;
+            case ClienteCorporativo.MEDIANA:
+                return DESCUENTO_MEDIANAS;
+            default:
+                return DESCUENTO_PEQ;
+        }
+    }
+}
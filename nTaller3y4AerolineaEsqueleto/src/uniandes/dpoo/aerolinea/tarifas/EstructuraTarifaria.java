@@ -0,0 +1,89 @@
+package uniandes.dpoo.aerolinea.tarifas;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase describe las clases tarifarias que se ofrecen en los vuelos de una ruta.
+ *
+ * Cada clase tiene un nombre, un multiplicador que se aplica sobre la tarifa normal del tiquete, y un umbral de ocupación (tiquetes vendidos sobre cupo del vuelo) a
+ * partir del cual la clase se cierra y se pasa a vender la siguiente. Las clases van de la más barata a la más cara; la última nunca se cierra.
+ *
+ * Los objetos de esta clase son inmutables, así que pueden compartirse entre todos los vuelos y todos los hilos.
+ */
+public class EstructuraTarifaria
+{
+    private final String[] nombres;
+    private final double[] umbrales;
+    private final double[] multiplicadores;
+
+    /**
+     * Construye una nueva estructura tarifaria
+     * @param nombres Los nombres de las clases, de la más barata a la más cara
+     * @param umbrales Para cada clase, la ocupación (entre 0 y 1) a partir de la cual se cierra. Deben ser crecientes. El umbral de la última clase se ignora.
+     * @param multiplicadores Para cada clase, el valor por el que se multiplica la tarifa normal. Deben ser positivos.
+     */
+    public EstructuraTarifaria( String[] nombres, double[] umbrales, double[] multiplicadores )
+    {
+        if( nombres.length == 0 || nombres.length != umbrales.length || nombres.length != multiplicadores.length )
+            throw new IllegalArgumentException( "Cada clase tarifaria debe tener un nombre, un umbral y un multiplicador" );
+        for( int i = 0; i < nombres.length; i++ )
+        {
+            if( multiplicadores[ i ] <= 0 )
+                throw new IllegalArgumentException( "El multiplicador de la clase " + nombres[ i ] + " debe ser positivo" );
+            if( i > 0 && i < nombres.length - 1 && umbrales[ i ] <= umbrales[ i - 1 ] )
+                throw new IllegalArgumentException( "Los umbrales de las clases tarifarias deben ser crecientes" );
+        }
+
+        this.nombres = nombres.clone( );
+        this.umbrales = umbrales.clone( );
+        this.multiplicadores = multiplicadores.clone( );
+    }
+
+    /**
+     * Construye la estructura tarifaria que se usa por defecto: cuatro clases que se cierran al 30%, 60% y 85% de ocupación
+     * @return
+     */
+    public static EstructuraTarifaria crearPorDefecto( )
+    {
+        return new EstructuraTarifaria( new String[]{ "Q", "M", "B", "Y" }, new double[]{ 0.3, 0.6, 0.85, 1 }, new double[]{ 0.8, 1.0, 1.3, 1.8 } );
+    }
+
+    public int getCantidadClases( )
+    {
+        return nombres.length;
+    }
+
+    public String getNombre( int clase )
+    {
+        return nombres[ clase ];
+    }
+
+    public double getUmbral( int clase )
+    {
+        return umbrales[ clase ];
+    }
+
+    public double getMultiplicador( int clase )
+    {
+        return multiplicadores[ clase ];
+    }
+
+    /**
+     * Convierte los umbrales de ocupación en cantidades de tiquetes para un vuelo con un cierto cupo
+     * @param cupo La cantidad máxima de tiquetes que se pueden vender en el vuelo
+     * @return Para cada clase menos la última, la cantidad de tiquetes vendidos a partir de la cual la clase se cierra
+     */
+    public int[] calcularLimites( int cupo )
+    {
+        int[] limites = new int[nombres.length - 1];
+        for( int i = 0; i < limites.length; i++ )
+            limites[ i ] = ( int )Math.ceil( umbrales[ i ] * cupo );
+        return limites;
+    }
+
+    @Override
+    public String toString( )
+    {
+        return "EstructuraTarifaria" + Arrays.toString( nombres );
+    }
+}
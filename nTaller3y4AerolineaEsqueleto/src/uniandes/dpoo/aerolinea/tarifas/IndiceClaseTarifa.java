@@ -0,0 +1,92 @@
+package uniandes.dpoo.aerolinea.tarifas;
+
+/**
+ * Esta clase mantiene la clase tarifaria que está abierta en un vuelo.
+ *
+ * Los umbrales de la estructura tarifaria se convierten una sola vez en cantidades de tiquetes para el cupo del vuelo. Después, cada vez que cambia la cantidad de tiquetes
+ * vendidos, la clase abierta se mueve hacia arriba (o hacia abajo, si se cancelaron tiquetes) comparando contra esas cantidades, así que consultar el precio de un tiquete
+ * nunca requiere recalcular nada.
+ *
+ * Esta clase no está sincronizada: quien la usa (el vuelo) debe protegerla.
+ */
+public class IndiceClaseTarifa
+{
+    private final EstructuraTarifaria estructura;
+
+    /**
+     * El cupo del vuelo para el que se calcularon los límites
+     */
+    private final int cupo;
+
+    /**
+     * Para cada clase menos la última, la cantidad de tiquetes vendidos a partir de la cual la clase se cierra
+     */
+    private final int[] limites;
+
+    /**
+     * La clase que está abierta
+     */
+    private int clase;
+
+    /**
+     * Construye el índice para un vuelo
+     * @param estructura La estructura tarifaria de la ruta del vuelo
+     * @param cupo El cupo del vuelo
+     * @param vendidos La cantidad de tiquetes que ya se han vendido en el vuelo
+     */
+    public IndiceClaseTarifa( EstructuraTarifaria estructura, int cupo, int vendidos )
+    {
+        this.estructura = estructura;
+        this.cupo = cupo;
+        this.limites = estructura.calcularLimites( cupo );
+        actualizar( vendidos );
+    }
+
+    /**
+     * Indica si el índice fue construido para una cierta estructura tarifaria y un cierto cupo
+     * @param otraEstructura La estructura tarifaria
+     * @param otroCupo El cupo
+     * @return
+     */
+    public boolean corresponde( EstructuraTarifaria otraEstructura, int otroCupo )
+    {
+        return estructura == otraEstructura && cupo == otroCupo;
+    }
+
+    /**
+     * Actualiza la clase abierta después de un cambio en la cantidad de tiquetes vendidos
+     * @param vendidos La cantidad de tiquetes vendidos en el vuelo
+     */
+    public void actualizar( int vendidos )
+    {
+        while( clase < limites.length && vendidos >= limites[ clase ] )
+            clase++;
+        while( clase > 0 && vendidos < limites[ clase - 1 ] )
+            clase--;
+    }
+
+    public int getClase( )
+    {
+        return clase;
+    }
+
+    public String getNombreClase( )
+    {
+        return estructura.getNombre( clase );
+    }
+
+    public double getMultiplicador( )
+    {
+        return estructura.getMultiplicador( clase );
+    }
+
+    /**
+     * Aplica el multiplicador de la clase abierta a una tarifa
+     * @param tarifaNormal La tarifa del tiquete sin clases tarifarias
+     * @return La tarifa en la clase abierta
+     */
+    public int aplicar( int tarifaNormal )
+    {
+        return ( int )Math.round( tarifaNormal * estructura.getMultiplicador( clase ) );
+    }
+}
@@ -1,73 +1,241 @@
 package uniandes.dpoo.aerolinea.tiquetes;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-import uniandes.dpoo.aerolinea.modelo.Vuelo;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 
 /**
  * Esta clase representa al módulo del sistema que es capaz de generar nuevos tiquetes, asignándole a cada uno un código único.
+ *
+ * Los códigos de los tiquetes son números entre 0 y 9999999, y se manejan como int dentro de todo el modelo. Sólo cuando un código se escribe o se lee de un archivo se
+ * convierte en la cadena de 7 dígitos (con ceros a la izquierda) que se muestra a los usuarios; los métodos escribirCodigo escriben los dígitos directamente en el
+ * destino, sin construir la cadena.
  */
 public class GeneradorTiquetes
 {
     /**
-     * Un conjunto con los códigos que ya han sido usados anteriormente para otros tiquetes.
-     * 
-     * Este conjunto se utiliza para no correr el riesgo de repetir un código.
+     * La cantidad de dígitos de un código de tiquete
      */
-    private static Set<String> codigos = new HashSet<String>( );
+    public static final int DIGITOS_CODIGO = 7;
 
     /**
-     * Construye un nuevo tiquete con los datos dados y con un identificador que corresponde a una cadena con 7 dígitos
+     * La cantidad de códigos distintos que existen (10^7)
+     */
+    public static final int CANTIDAD_CODIGOS = 10_000_000;
+
+    /**
+     * Los códigos que ya han sido usados anteriormente para otros tiquetes, como un arreglo de bits: el código c está usado si el bit c % 64 de la posición c / 64 está en
+     * 1.
+     *
+     * Este conjunto se utiliza para no correr el riesgo de repetir un código. Como se consulta y se modifica desde varios hilos durante las cargas y las ventas, los bits
+     * se marcan con operaciones atómicas. Ocupa 1.25MB sin importar cuántos tiquetes haya, y marcar un código no crea ningún objeto.
+     */
+    private static final AtomicLongArray codigos = new AtomicLongArray( CANTIDAD_CODIGOS / 64 + 1 );
+
+    /**
+     * La cantidad de códigos de cada bloque en el que se reparten los códigos entre franjas: 8 posiciones del arreglo de códigos, que ocupan una línea de caché
+     */
+    private static final int CODIGOS_BLOQUE = 512;
+
+    /**
+     * La cantidad de bloques de códigos
+     */
+    private static final int CANTIDAD_BLOQUES = ( CANTIDAD_CODIGOS + CODIGOS_BLOQUE - 1 ) / CODIGOS_BLOQUE;
+
+    /**
+     * La cantidad de códigos de su franja que se prueban antes de buscar un código entre todos los códigos
+     */
+    private static final int INTENTOS_FRANJA = 32;
+
+    /**
+     * La franja de códigos del hilo actual, como un arreglo con el número de la franja y la cantidad de franjas, o null si el hilo genera códigos entre todos los códigos
+     */
+    private static final ThreadLocal<int[]> franjaHilo = new ThreadLocal<int[]>( );
+
+    /**
+     * Hace que los tiquetes que genere el hilo actual tengan, mientras sea posible, códigos de una franja propia.
+     *
+     * Los códigos se reparten por bloques entre las franjas, así que dos hilos con franjas distintas nunca marcan códigos en la misma línea de caché. Lo usan los hilos
+     * de AerolineaParticionada para que las ventas de particiones distintas no compitan por el arreglo de códigos. Cuando la franja está casi llena, los códigos se
+     * buscan entre todos los códigos, como en cualquier otro hilo.
+     * @param franja El número de la franja, entre 0 y la cantidad de franjas menos 1
+     * @param cantidadFranjas La cantidad de franjas
+     */
+    public static void asignarFranja( int franja, int cantidadFranjas )
+    {
+        if( franja < 0 || franja >= cantidadFranjas )
+            throw new IllegalArgumentException( "La franja " + franja + " no es válida para " + cantidadFranjas + " franjas" );
+        franjaHilo.set( cantidadFranjas == 1 ? null : new int[]{ franja, cantidadFranjas } );
+    }
+
+    /**
+     * Construye un nuevo tiquete con los datos dados y con un código que no se ha usado antes
      * @param vuelo El vuelo al que está asociado el tiquete
      * @param cliente El ciente que compró el tiquete
      * @param tarifa El valor que se le cobró al cliente por el tiquete
      * @return El nuevo tiquete, inicializado con un código único
      */
-    public static Tiquete generarTiquete( Vuelo vuelo, Cliente cliente, int tarifa )
+    public static Tiquete generarTiquete( Vuelos vuelo, Cliente cliente, int tarifa )
     {
-        int numero = ( int ) ( Math.random( ) * 10e7 );
-        String codigo = "" + numero;
-        while( codigos.contains( codigo ) )
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current( );
+        int[] franja = franjaHilo.get( );
+        int codigo = franja == null ? -1 : generarEnFranja( franja[ 0 ], franja[ 1 ], aleatorio );
+        if( codigo < 0 )
         {
-            numero = ( int ) ( Math.random( ) * 10e7 );
-            codigo = "" + numero;
+            codigo = aleatorio.nextInt( CANTIDAD_CODIGOS );
+            while( !marcar( codigo ) )
+                codigo = aleatorio.nextInt( CANTIDAD_CODIGOS );
         }
+        return new Tiquete( codigo, vuelo, cliente, tarifa );
+    }
 
-        while( codigo.length( ) < 7 )
-            codigo = "0" + codigo;
+    /**
+     * Busca y marca un código libre en los bloques de una franja
+     * @return El código, o -1 si no se encontró un código libre después de INTENTOS_FRANJA intentos
+     */
+    private static int generarEnFranja( int franja, int cantidadFranjas, ThreadLocalRandom aleatorio )
+    {
+        int bloques = ( CANTIDAD_BLOQUES - franja + cantidadFranjas - 1 ) / cantidadFranjas;
+        for( int i = 0; i < INTENTOS_FRANJA; i++ )
+        {
+            int bloque = franja + aleatorio.nextInt( bloques ) * cantidadFranjas;
+            int codigo = bloque * CODIGOS_BLOQUE + aleatorio.nextInt( CODIGOS_BLOQUE );
+            if( codigo < CANTIDAD_CODIGOS && marcar( codigo ) )
+                return codigo;
+        }
+        return -1;
+    }
 
-        return new Tiquete( codigo, vuelo, cliente, tarifa );
+    /**
+     * Marca un código como usado
+     * @return Retorna false si el código ya estaba usado
+     */
+    private static boolean marcar( int codigo )
+    {
+        int posicion = codigo >>> 6;
+        long bit = 1L << codigo;
+        long actual = codigos.get( posicion );
+        while( ( actual & bit ) == 0 )
+        {
+            if( codigos.compareAndSet( posicion, actual, actual | bit ) )
+                return true;
+            actual = codigos.get( posicion );
+        }
+        return false;
     }
 
     /**
      * Registra que un cierto tiquete ya fue vendido, para que el generador de tiquetes no vaya a generar otro tiquete con el mismo código
      * @param unTiquete El tiquete existente
+     * @return Retorna false si ya se tenía registrado otro tiquete con el mismo código
+     */
+    public static boolean registrarTiquete( Tiquete unTiquete )
+    {
+        return marcar( unTiquete.getCodigoNumerico( ) );
+    }
+
+    /**
+     * Revisa si ya existe un tiquete con el código dado
+     * @param codigo El código que se quiere consultar
+     * @return Retorna true si ya se tenía registrado un tiquete con el código dado
      */
-    public static void registrarTiquete( Tiquete unTiquete )
+    public static boolean validarTiquete( int codigo )
     {
-        // TODO implementar
-    	unTiquete.setVendido(true);
+        return codigo >= 0 && codigo < CANTIDAD_CODIGOS && ( codigos.get( codigo >>> 6 ) & ( 1L << codigo ) ) != 0;
     }
 
     /**
      * Revisa si ya existe un tiquete con el código dado
-     * @param codigoTiquete El código que se quiere consultar
+     * @param codigoTiquete El código que se quiere consultar, como cadena
      * @return Retorna true si ya se tenía registrado un tiquete con el código dado
      */
     public static boolean validarTiquete( String codigoTiquete )
     {
-        // TODO implementar
-    	 for (Vuelo vuelo : vuelos) {
-             for (Tiquete tiquete : vuelo.getTiquetes()) {
-                 if (tiquete.getCodigo().equals(codigoTiquete)) {
-                     return true;  // Retorna true si se encuentra un tiquete con el código dado
-                 }
-             }
-         }
-         return false;  // Retorna false si no se encuentra ningún tiquete con el código dado
-     
-        return false;
+        return validarTiquete( leerCodigo( codigoTiquete ) );
+    }
+
+    // ************************************************************************************
+    //
+    // Conversión entre el código numérico y su representación de 7 dígitos
+    //
+    // ************************************************************************************
+
+    /**
+     * Convierte la representación de un código en el código numérico, sin crear objetos
+     * @param texto Los dígitos del código. Puede tener menos de 7 dígitos.
+     * @return El código, o -1 si el texto no es un código válido
+     */
+    public static int leerCodigo( CharSequence texto )
+    {
+        int longitud = texto.length( );
+        if( longitud == 0 || longitud > DIGITOS_CODIGO )
+            return -1;
+        int codigo = 0;
+        for( int i = 0; i < longitud; i++ )
+        {
+            char c = texto.charAt( i );
+            if( c < '0' || c > '9' )
+                return -1;
+            codigo = codigo * 10 + ( c - '0' );
+        }
+        return codigo;
+    }
+
+    /**
+     * Construye la representación de 7 dígitos de un código. Sólo se debe usar donde se necesita una cadena (mensajes, formatos de terceros); para escribir en un archivo
+     * es mejor usar escribirCodigo.
+     * @param codigo El código
+     * @return
+     */
+    public static String formatearCodigo( int codigo )
+    {
+        char[] digitos = new char[DIGITOS_CODIGO];
+        escribirCodigo( codigo, digitos, 0 );
+        return new String( digitos );
+    }
+
+    /**
+     * Escribe los 7 dígitos de un código en un arreglo de caracteres
+     * @param codigo El código
+     * @param destino El arreglo
+     * @param posicion La posición donde se escribe el primer dígito
+     */
+    public static void escribirCodigo( int codigo, char[] destino, int posicion )
+    {
+        for( int i = posicion + DIGITOS_CODIGO - 1; i >= posicion; i-- )
+        {
+            destino[ i ] = ( char )( '0' + codigo % 10 );
+            codigo /= 10;
+        }
+    }
+
+    /**
+     * Escribe los 7 dígitos de un código en un arreglo de bytes, por ejemplo el buffer de un archivo
+     * @param codigo El código
+     * @param destino El arreglo
+     * @param posicion La posición donde se escribe el primer dígito
+     */
+    public static void escribirCodigo( int codigo, byte[] destino, int posicion )
+    {
+        for( int i = posicion + DIGITOS_CODIGO - 1; i >= posicion; i-- )
+        {
+            destino[ i ] = ( byte )( '0' + codigo % 10 );
+            codigo /= 10;
+        }
+    }
+
+    /**
+     * Escribe los 7 dígitos de un código en un Writer, un dígito a la vez
+     * @param codigo El código
+     * @param destino El Writer
+     */
+    public static void escribirCodigo( int codigo, Writer destino ) throws IOException
+    {
+        for( int divisor = 1_000_000; divisor > 0; divisor /= 10 )
+            destino.write( '0' + codigo / divisor % 10 );
     }
 }
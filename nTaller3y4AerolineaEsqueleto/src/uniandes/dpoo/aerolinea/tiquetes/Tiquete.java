@@ -3,14 +3,28 @@ package uniandes.dpoo.aerolinea.tiquetes;
 import uniandes.dpoo.aerolinea.modelo.Vuelos;
 import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
 
+/**
+ * El código del tiquete se guarda como número; la cadena de 7 dígitos sólo se construye cuando alguien llama a getCodigo.
+ */
 public class Tiquete {
+    /**
+     * El valor de diaVenta para los tiquetes que no se vendieron en esta aerolínea
+     */
+    public static final long SIN_DIA_VENTA = Long.MIN_VALUE;
+
     private Cliente cliente;
     private Vuelos vuelo;
-    private String codigo;
+    private int codigo;
     private int tarifa;
     private boolean usado;
 
-    public Tiquete(String codigo, Vuelos vuelo, Cliente cliente, int tarifa) {
+    /**
+     * El día en que el tiquete se vendió y quedó registrado en la serie de ventas de su ruta (ver LocalDate.toEpochDay), o SIN_DIA_VENTA si el tiquete se cargó de un
+     * archivo o se recibió de otra aerolínea
+     */
+    private long diaVenta = SIN_DIA_VENTA;
+
+    public Tiquete(int codigo, Vuelos vuelo, Cliente cliente, int tarifa) {
         this.codigo = codigo;
         this.vuelo = vuelo;
         this.cliente = cliente;
@@ -19,8 +33,11 @@ public class Tiquete {
 
     public Cliente getCliente() { return cliente; }
     public Vuelos getVuelo() { return vuelo; }
-    public String getCodigo() { return codigo; }
+    public int getCodigoNumerico() { return codigo; }
+    public String getCodigo() { return GeneradorTiquetes.formatearCodigo(codigo); }
     public int getTarifa() { return tarifa; }
+    public long getDiaVenta() { return diaVenta; }
+    public void setDiaVenta(long diaVenta) { this.diaVenta = diaVenta; }
     
     public void marcarComoUsado() { usado = true; }
     public boolean esUsado() { return usado; }
@@ -0,0 +1,152 @@
+package uniandes.dpoo.aerolinea.utilidades;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Esta clase implementa un caché de tamaño limitado que, cuando se llena, desaloja el elemento que lleva más tiempo sin ser consultado (LRU).
+ *
+ * El caché lleva la cuenta de los aciertos, los fallos y los desalojos para que se pueda evaluar qué tan útil está siendo. Todos los métodos están sincronizados, así que
+ * el caché puede ser consultado por varios hilos al mismo tiempo.
+ * @param <K> El tipo de las llaves
+ * @param <V> El tipo de los valores
+ */
+public class CacheLRU<K, V>
+{
+    /**
+     * La cantidad máxima de elementos que puede tener el caché
+     */
+    private final int capacidad;
+
+    /**
+     * El mapa donde se guardan los elementos, ordenados desde el menos reciente hasta el más reciente
+     */
+    private final LinkedHashMap<K, V> elementos;
+
+    /**
+     * La cantidad de consultas que encontraron el elemento en el caché
+     */
+    private long aciertos;
+
+    /**
+     * La cantidad de consultas que no encontraron el elemento en el caché
+     */
+    private long fallos;
+
+    /**
+     * La cantidad de elementos que han sido desalojados porque el caché estaba lleno
+     */
+    private long desalojos;
+
+    /**
+     * Construye un nuevo caché vacío
+     * @param capacidad La cantidad máxima de elementos que puede tener el caché. Debe ser mayor que cero.
+     */
+    public CacheLRU( int capacidad )
+    {
+        if( capacidad <= 0 )
+            throw new IllegalArgumentException( "La capacidad del caché debe ser positiva" );
+
+        this.capacidad = capacidad;
+        this.elementos = new LinkedHashMap<K, V>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, V> eldest )
+            {
+                boolean desalojar = size( ) > CacheLRU.this.capacidad;
+                if( desalojar )
+                    desalojos++;
+                return desalojar;
+            }
+        };
+    }
+
+    /**
+     * Busca un elemento en el caché y, si lo encuentra, lo marca como el más reciente
+     * @param llave La llave del elemento buscado
+     * @return El elemento asociado a la llave, o null si no estaba en el caché
+     */
+    public synchronized V obtener( K llave )
+    {
+        V valor = elementos.get( llave );
+        if( valor != null )
+            aciertos++;
+        else
+            fallos++;
+        return valor;
+    }
+
+    /**
+     * Guarda un elemento en el caché. Si el caché queda con más elementos de los permitidos, se desaloja el menos reciente.
+     * @param llave La llave del elemento
+     * @param valor El elemento. No puede ser null.
+     */
+    public synchronized void guardar( K llave, V valor )
+    {
+        elementos.put( llave, valor );
+    }
+
+    /**
+     * Elimina un elemento del caché, si estaba
+     * @param llave La llave del elemento que se quiere eliminar
+     */
+    public synchronized void invalidar( K llave )
+    {
+        elementos.remove( llave );
+    }
+
+    /**
+     * Elimina todos los elementos del caché. Las estadísticas no se reinician.
+     */
+    public synchronized void limpiar( )
+    {
+        elementos.clear( );
+    }
+
+    /**
+     * Retorna la cantidad de elementos que hay actualmente en el caché
+     * @return
+     */
+    public synchronized int getTamano( )
+    {
+        return elementos.size( );
+    }
+
+    public int getCapacidad( )
+    {
+        return capacidad;
+    }
+
+    public synchronized long getAciertos( )
+    {
+        return aciertos;
+    }
+
+    public synchronized long getFallos( )
+    {
+        return fallos;
+    }
+
+    public synchronized long getDesalojos( )
+    {
+        return desalojos;
+    }
+
+    /**
+     * Calcula la proporción de consultas que encontraron el elemento en el caché
+     * @return Un número entre 0 y 1. Si no se ha hecho ninguna consulta, retorna 0.
+     */
+    public synchronized double getTasaAciertos( )
+    {
+        long consultas = aciertos + fallos;
+        return consultas == 0 ? 0 : ( double )aciertos / consultas;
+    }
+
+    @Override
+    public synchronized String toString( )
+    {
+        return "CacheLRU[tamaño=" + elementos.size( ) + "/" + capacidad + ", aciertos=" + aciertos + ", fallos=" + fallos + ", desalojos=" + desalojos + "]";
+    }
+}
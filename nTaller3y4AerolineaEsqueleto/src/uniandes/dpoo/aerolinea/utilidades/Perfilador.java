@@ -0,0 +1,252 @@
+package uniandes.dpoo.aerolinea.utilidades;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Esta clase mide el tiempo, el tiempo de CPU y la memoria asignada por cada una de las operaciones principales de la aerolínea (cargar y salvar tiquetes, programar
+ * vuelos, vender tiquetes, etc.), para saber en qué se va el tiempo sin conectar herramientas externas.
+ *
+ * Las operaciones se miden así:
+ *
+ * <pre>
+ * Perfilador.Medicion medicion = Perfilador.medir( "operacion" );
+ * try
+ * {
+ *     ...
+ * }
+ * finally
+ * {
+ *     Perfilador.terminar( medicion, registros );
+ * }
+ * </pre>
+ *
+ * Mientras no haya una grabación en curso (ver iniciar y detener), medir retorna null y terminar no hace nada, así que medir una operación sólo cuesta una lectura.
+ *
+ * El tiempo de CPU y la memoria asignada se toman del ThreadMXBean de la JVM y sólo incluyen el trabajo del hilo que ejecuta la operación: lo que hagan otros hilos por
+ * ella (por ejemplo, las proyecciones del bus de eventos) no se cuenta. Si la JVM no ofrece estas mediciones, se reportan en 0.
+ */
+public final class Perfilador
+{
+    /**
+     * La cantidad de ejecuciones más lentas que se guardan durante una grabación
+     */
+    public static final int EJECUCIONES_LENTAS = 10;
+
+    private static final int VECES = 0;
+    private static final int REGISTROS = 1;
+    private static final int NANOS = 2;
+    private static final int MAXIMO = 3;
+    private static final int CPU = 4;
+    private static final int BYTES = 5;
+
+    private static final ThreadMXBean HILOS = ManagementFactory.getThreadMXBean( );
+
+    /**
+     * El bean que sabe medir la memoria asignada por un hilo, o null si la JVM no lo ofrece
+     */
+    private static final com.sun.management.ThreadMXBean MEMORIA = HILOS instanceof com.sun.management.ThreadMXBean ? ( com.sun.management.ThreadMXBean )HILOS
+            : null;
+
+    private static volatile boolean activo;
+
+    /**
+     * Las estadísticas de cada operación durante la grabación. Cada arreglo tiene seis posiciones: la cantidad de ejecuciones, la cantidad de registros procesados, el
+     * tiempo total, el tiempo máximo, el tiempo de CPU (en nanosegundos) y los bytes asignados. Se protegen con el candado de la clase.
+     */
+    private static final Map<String, long[]> estadisticas = new HashMap<String, long[]>( );
+
+    /**
+     * Las ejecuciones más lentas de la grabación, con la más rápida de ellas a la cabeza. Se protege con el candado de la clase.
+     */
+    private static final PriorityQueue<Medicion> lentas = new PriorityQueue<Medicion>( EJECUCIONES_LENTAS + 1, Comparator.comparingLong( Medicion::getNanos ) );
+
+    private static long inicioGrabacion;
+
+    private static long finGrabacion;
+
+    private Perfilador( )
+    {
+    }
+
+    /**
+     * Empieza una grabación nueva, descartando los datos de la anterior
+     */
+    public static synchronized void iniciar( )
+    {
+        estadisticas.clear( );
+        lentas.clear( );
+        if( MEMORIA != null && MEMORIA.isThreadAllocatedMemorySupported( ) )
+            MEMORIA.setThreadAllocatedMemoryEnabled( true );
+        if( HILOS.isCurrentThreadCpuTimeSupported( ) )
+            HILOS.setThreadCpuTimeEnabled( true );
+        inicioGrabacion = System.nanoTime( );
+        finGrabacion = 0;
+        activo = true;
+    }
+
+    /**
+     * Termina la grabación. Los datos se conservan hasta que empiece la siguiente grabación.
+     */
+    public static synchronized void detener( )
+    {
+        if( activo )
+            finGrabacion = System.nanoTime( );
+        activo = false;
+    }
+
+    public static boolean estaActivo( )
+    {
+        return activo;
+    }
+
+    /**
+     * Empieza a medir una ejecución de una operación en el hilo actual
+     * @param operacion El nombre de la operación
+     * @return La medición, que se debe pasar a terminar cuando la operación acabe, o null si no hay una grabación en curso
+     */
+    public static Medicion medir( String operacion )
+    {
+        return activo ? new Medicion( operacion ) : null;
+    }
+
+    /**
+     * Termina de medir una ejecución y la suma a las estadísticas de su operación
+     * @param medicion La medición que retornó medir. Si es null no se hace nada.
+     * @param registros La cantidad de registros (tiquetes, vuelos, etc.) que procesó la ejecución
+     */
+    public static void terminar( Medicion medicion, long registros )
+    {
+        if( medicion == null )
+            return;
+        medicion.terminar( registros );
+        synchronized( Perfilador.class )
+        {
+            if( !activo )
+                return;
+            long[] datos = estadisticas.get( medicion.operacion );
+            if( datos == null )
+            {
+                datos = new long[6];
+                estadisticas.put( medicion.operacion, datos );
+            }
+            datos[ VECES ]++;
+            datos[ REGISTROS ] += registros;
+            datos[ NANOS ] += medicion.nanos;
+            datos[ MAXIMO ] = Math.max( datos[ MAXIMO ], medicion.nanos );
+            datos[ CPU ] += medicion.cpu;
+            datos[ BYTES ] += medicion.bytes;
+
+            lentas.add( medicion );
+            if( lentas.size( ) > EJECUCIONES_LENTAS )
+                lentas.poll( );
+        }
+    }
+
+    private static long cpuHiloActual( )
+    {
+        return HILOS.isCurrentThreadCpuTimeSupported( ) ? Math.max( 0, HILOS.getCurrentThreadCpuTime( ) ) : 0;
+    }
+
+    private static long bytesHiloActual( )
+    {
+        return MEMORIA != null && MEMORIA.isThreadAllocatedMemoryEnabled( ) ? Math.max( 0, MEMORIA.getThreadAllocatedBytes( Thread.currentThread( ).getId( ) ) ) : 0;
+    }
+
+    /**
+     * Imprime el resumen de la grabación: las estadísticas de cada operación ordenadas por tiempo total, las operaciones que más memoria asignaron y las ejecuciones más
+     * lentas
+     * @param salida El lugar donde se escribe el resumen
+     */
+    public static synchronized void imprimirResumen( PrintWriter salida )
+    {
+        long duracion = ( finGrabacion != 0 ? finGrabacion : System.nanoTime( ) ) - inicioGrabacion;
+        List<Map.Entry<String, long[]>> operaciones = new ArrayList<Map.Entry<String, long[]>>( estadisticas.entrySet( ) );
+
+        salida.println( "---------------------" );
+        salida.printf( "Perfil de las operaciones (%s, %.2f ms)%n", activo ? "grabando" : "detenido", duracion / 1e6 );
+        salida.println( "---------------------" );
+        salida.printf( "%-24s %8s %10s %12s %12s %12s %12s %12s%n", "operacion", "veces", "registros", "total(ms)", "prom(us)", "max(us)", "cpu(ms)", "asignado(KB)" );
+        operaciones.sort( ( a, b ) -> Long.compare( b.getValue( )[ NANOS ], a.getValue( )[ NANOS ] ) );
+        for( Map.Entry<String, long[]> entrada : operaciones )
+        {
+            long[] datos = entrada.getValue( );
+            salida.printf( "%-24s %8d %10d %12.2f %12.2f %12.2f %12.2f %12.1f%n", entrada.getKey( ), datos[ VECES ], datos[ REGISTROS ], datos[ NANOS ] / 1e6,
+                    datos[ NANOS ] / 1e3 / datos[ VECES ], datos[ MAXIMO ] / 1e3, datos[ CPU ] / 1e6, datos[ BYTES ] / 1024.0 );
+        }
+
+        salida.println( "Operaciones que más memoria asignaron:" );
+        operaciones.sort( ( a, b ) -> Long.compare( b.getValue( )[ BYTES ], a.getValue( )[ BYTES ] ) );
+        for( int i = 0; i < operaciones.size( ) && i < EJECUCIONES_LENTAS; i++ )
+        {
+            long[] datos = operaciones.get( i ).getValue( );
+            salida.printf( "  %-24s %12.1f KB (%.1f bytes por registro)%n", operaciones.get( i ).getKey( ), datos[ BYTES ] / 1024.0,
+                    datos[ REGISTROS ] == 0 ? 0.0 : ( double )datos[ BYTES ] / datos[ REGISTROS ] );
+        }
+
+        salida.println( "Ejecuciones más lentas:" );
+        List<Medicion> ordenadas = new ArrayList<Medicion>( lentas );
+        Collections.sort( ordenadas, Collections.reverseOrder( lentas.comparator( ) ) );
+        for( Medicion medicion : ordenadas )
+            salida.printf( "  %-24s %12.2f ms %10d registros  hilo %s%n", medicion.operacion, medicion.nanos / 1e6, medicion.registros, medicion.hilo );
+    }
+
+    /**
+     * Una ejecución de una operación
+     */
+    public static final class Medicion
+    {
+        private final String operacion;
+
+        private final String hilo;
+
+        private final long inicio;
+
+        private final long cpuInicio;
+
+        private final long bytesInicio;
+
+        private long nanos;
+
+        private long cpu;
+
+        private long bytes;
+
+        private long registros;
+
+        private Medicion( String operacion )
+        {
+            this.operacion = operacion;
+            this.hilo = Thread.currentThread( ).getName( );
+            this.bytesInicio = bytesHiloActual( );
+            this.cpuInicio = cpuHiloActual( );
+            this.inicio = System.nanoTime( );
+        }
+
+        private void terminar( long registros )
+        {
+            this.nanos = System.nanoTime( ) - inicio;
+            this.cpu = cpuHiloActual( ) - cpuInicio;
+            this.bytes = bytesHiloActual( ) - bytesInicio;
+            this.registros = registros;
+        }
+
+        public String getOperacion( )
+        {
+            return operacion;
+        }
+
+        public long getNanos( )
+        {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package uniandes.dpoo.aerolinea.utilidades;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Esta clase implementa una rueda de temporizadores con hash (hashed timing wheel), que permite manejar una cantidad muy grande de temporizadores de corta duración sin
+ * crear una tarea por cada uno.
+ *
+ * El tiempo se divide en ticks de duración fija, y la rueda tiene una cantidad fija de ranuras (una potencia de 2). Un temporizador que vence en el tick t queda en la
+ * ranura t módulo la cantidad de ranuras, junto con la cantidad de vueltas completas que le faltan a la rueda para llegar a ese tick. Programar y cancelar un temporizador
+ * toma tiempo constante, porque cada ranura es una lista doblemente encadenada y cada temporizador conoce su posición. Avanzar la rueda un tick sólo recorre una ranura.
+ *
+ * La rueda no tiene un reloj propio: alguien debe llamar periódicamente a avanzar con la hora actual. Los elementos vencidos se retornan en lugar de procesarse dentro de
+ * la rueda, para que quien los procese no tenga que hacerlo mientras tiene el candado de la rueda.
+ *
+ * Todos los métodos están sincronizados.
+ * @param <T> El tipo de los elementos asociados a los temporizadores
+ */
+public class RuedaTemporizadores<T>
+{
+    /**
+     * La duración de cada tick, en milisegundos
+     */
+    private final long duracionTick;
+
+    /**
+     * Las ranuras de la rueda. Cada ranura es el primer nodo de una lista doblemente encadenada, o null si la ranura está vacía.
+     */
+    private final Temporizador<T>[] ranuras;
+
+    /**
+     * La máscara que se usa para calcular la ranura de un tick (la cantidad de ranuras menos 1)
+     */
+    private final int mascara;
+
+    /**
+     * El momento (en milisegundos) que corresponde al tick 0
+     */
+    private final long inicio;
+
+    /**
+     * El siguiente tick que se va a procesar
+     */
+    private long tickActual;
+
+    /**
+     * La cantidad de temporizadores pendientes
+     */
+    private int cantidad;
+
+    /**
+     * Construye una nueva rueda vacía
+     * @param duracionTick La duración de cada tick en milisegundos. Es la precisión con la que vencen los temporizadores.
+     * @param cantidadRanuras La cantidad de ranuras de la rueda. Se redondea hacia arriba a una potencia de 2.
+     * @param inicio El momento, en milisegundos, en el que empieza a girar la rueda
+     */
+    @SuppressWarnings("unchecked")
+    public RuedaTemporizadores( long duracionTick, int cantidadRanuras, long inicio )
+    {
+        if( duracionTick <= 0 || cantidadRanuras <= 0 || cantidadRanuras > 1 << 30 )
+            throw new IllegalArgumentException( "La duración del tick y la cantidad de ranuras deben ser positivas" );
+
+        int tamano = Integer.highestOneBit( cantidadRanuras );
+        if( tamano < cantidadRanuras )
+            tamano <<= 1;
+
+        this.duracionTick = duracionTick;
+        this.ranuras = ( Temporizador<T>[] )new Temporizador<?>[tamano];
+        this.mascara = tamano - 1;
+        this.inicio = inicio;
+    }
+
+    /**
+     * Programa un nuevo temporizador
+     * @param elemento El elemento que se retornará cuando venza el temporizador
+     * @param vencimiento El momento, en milisegundos, en el que vence el temporizador. Si ya pasó, el temporizador vence en el siguiente tick.
+     * @return El temporizador, que se puede usar para cancelarlo
+     */
+    public synchronized Temporizador<T> programar( T elemento, long vencimiento )
+    {
+        long tickVencimiento = ( vencimiento - inicio + duracionTick - 1 ) / duracionTick;
+        if( tickVencimiento < tickActual )
+            tickVencimiento = tickActual;
+
+        Temporizador<T> temporizador = new Temporizador<T>( elemento, vencimiento );
+        temporizador.rondas = ( tickVencimiento - tickActual ) / ranuras.length;
+        temporizador.ranura = ( int )( tickVencimiento & mascara );
+        enlazar( temporizador );
+        cantidad++;
+        return temporizador;
+    }
+
+    /**
+     * Cancela un temporizador que todavía no ha vencido
+     * @param temporizador El temporizador
+     * @return Retorna false si el temporizador ya había vencido o ya había sido cancelado
+     */
+    public synchronized boolean cancelar( Temporizador<T> temporizador )
+    {
+        if( temporizador.ranura < 0 )
+            return false;
+        desenlazar( temporizador );
+        cantidad--;
+        return true;
+    }
+
+    /**
+     * Avanza la rueda hasta el momento dado, procesando todos los ticks que hayan terminado
+     * @param ahora El momento actual, en milisegundos
+     * @return Los elementos cuyos temporizadores vencieron, en el orden en el que vencieron
+     */
+    public synchronized List<T> avanzar( long ahora )
+    {
+        List<T> vencidos = new ArrayList<T>( );
+        long ultimoTick = ( ahora - inicio ) / duracionTick;
+        while( tickActual <= ultimoTick )
+        {
+            Temporizador<T> nodo = ranuras[ ( int )( tickActual & mascara ) ];
+            while( nodo != null )
+            {
+                Temporizador<T> siguiente = nodo.siguiente;
+                if( nodo.rondas == 0 )
+                {
+                    desenlazar( nodo );
+                    cantidad--;
+                    vencidos.add( nodo.elemento );
+                }
+                else
+                {
+                    nodo.rondas--;
+                }
+                nodo = siguiente;
+            }
+            tickActual++;
+        }
+        return vencidos;
+    }
+
+    /**
+     * Retorna la cantidad de temporizadores pendientes
+     * @return
+     */
+    public synchronized int getCantidad( )
+    {
+        return cantidad;
+    }
+
+    /**
+     * Retorna la duración de cada tick, en milisegundos
+     * @return
+     */
+    public long getDuracionTick( )
+    {
+        return duracionTick;
+    }
+
+    private void enlazar( Temporizador<T> temporizador )
+    {
+        Temporizador<T> primero = ranuras[ temporizador.ranura ];
+        temporizador.siguiente = primero;
+        if( primero != null )
+            primero.anterior = temporizador;
+        ranuras[ temporizador.ranura ] = temporizador;
+    }
+
+    private void desenlazar( Temporizador<T> temporizador )
+    {
+        if( temporizador.anterior != null )
+            temporizador.anterior.siguiente = temporizador.siguiente;
+        else
+            ranuras[ temporizador.ranura ] = temporizador.siguiente;
+        if( temporizador.siguiente != null )
+            temporizador.siguiente.anterior = temporizador.anterior;
+        temporizador.anterior = null;
+        temporizador.siguiente = null;
+        temporizador.ranura = -1;
+    }
+
+    /**
+     * Un temporizador dentro de la rueda. Es a la vez el nodo de la lista de su ranura.
+     * @param <T> El tipo del elemento asociado al temporizador
+     */
+    public static class Temporizador<T>
+    {
+        private final T elemento;
+        private final long vencimiento;
+        private long rondas;
+        private int ranura;
+        private Temporizador<T> anterior;
+        private Temporizador<T> siguiente;
+
+        private Temporizador( T elemento, long vencimiento )
+        {
+            this.elemento = elemento;
+            this.vencimiento = vencimiento;
+        }
+
+        public T getElemento( )
+        {
+            return elemento;
+        }
+
+        /**
+         * Retorna el momento, en milisegundos, en el que vence el temporizador
+         * @return
+         */
+        public long getVencimiento( )
+        {
+            return vencimiento;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package uniandes.dpoo.aerolinea;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteNatural;
+import uniandes.dpoo.aerolinea.persistencia.CentralPersistencia;
+import uniandes.dpoo.aerolinea.persistencia.PersistenciaAerolineaPlaintext;
+import uniandes.dpoo.aerolinea.persistencia.TipoInvalidoException;
+
+/**
+ * Esta clase construye la aerolínea pequeña que usan las pruebas.
+ *
+ * La estructura de la aerolínea se carga de un archivo en formato PersistenciaAerolineaPlaintext, así que se pueden construir varias aerolíneas iguales en la misma JVM:
+ * los aeropuertos del archivo se reutilizan en lugar de crearse de nuevo.
+ */
+public final class DatosPrueba
+{
+    /**
+     * Una ruta con un vuelo en un avión pequeño y otro en un avión grande
+     */
+    public static final String RUTA = "Q100";
+
+    /**
+     * Una ruta con un vuelo en un avión grande
+     */
+    public static final String OTRA_RUTA = "Q200";
+
+    /**
+     * La fecha del vuelo de RUTA en el avión pequeño y del vuelo de OTRA_RUTA
+     */
+    public static final String FECHA = "2030-02-10";
+
+    /**
+     * La fecha del vuelo de RUTA en el avión grande
+     */
+    public static final String FECHA_GRANDE = "2030-02-11";
+
+    /**
+     * La capacidad del avión pequeño
+     */
+    public static final int CAPACIDAD_PEQUENO = 4;
+
+    public static final String ANA = "Ana Pérez";
+    public static final String ANDRES = "Andrés Gómez";
+    public static final String LUIS = "Luis Gómez";
+    public static final String ANDES = "Andes Cargo";
+    public static final String CAFE = "Café del Sur";
+
+    private static final String[] LINEAS = { PersistenciaAerolineaPlaintext.ENCABEZADO,
+            "AEROPUERTO;QBO;Aeropuerto de prueba norte;Bogotá;4.7016;-74.1469",
+            "AEROPUERTO;QME;Aeropuerto de prueba centro;Medellín;6.1645;-75.4231",
+            "AEROPUERTO;QCA;Aeropuerto de prueba sur;Cali;3.5432;-76.3816",
+            "AVION;Prueba-4;" + CAPACIDAD_PEQUENO,
+            "AVION;Prueba-200;200",
+            "RUTA;" + RUTA + ";QBO;QME;0800;0900",
+            "RUTA;" + OTRA_RUTA + ";QME;QCA;1130;1225",
+            "VUELO;" + RUTA + ";" + FECHA + ";Prueba-4",
+            "VUELO;" + RUTA + ";" + FECHA_GRANDE + ";Prueba-200",
+            "VUELO;" + OTRA_RUTA + ";" + FECHA + ";Prueba-200" };
+
+    private DatosPrueba( )
+    {
+    }
+
+    /**
+     * Escribe el archivo con la estructura de la aerolínea de prueba
+     * @param directorio El directorio donde se escribe el archivo
+     * @return La ruta al archivo
+     */
+    public static Path escribirAerolinea( Path directorio ) throws IOException
+    {
+        Path archivo = directorio.resolve( "aerolinea.txt" );
+        Files.write( archivo, Arrays.asList( LINEAS ), StandardCharsets.UTF_8 );
+        return archivo;
+    }
+
+    /**
+     * Construye una aerolínea de prueba con sus rutas, aviones, vuelos y clientes, pero sin tiquetes
+     * @param directorio El directorio donde se escribe el archivo con la estructura de la aerolínea
+     * @return La aerolínea
+     */
+    public static Aerolinea crearAerolinea( Path directorio ) throws IOException, InformacionInconsistenteException, TipoInvalidoException
+    {
+        Aerolinea aerolinea = new Aerolinea( );
+        aerolinea.cargarAerolinea( escribirAerolinea( directorio ).toString( ), CentralPersistencia.PLAIN );
+        aerolinea.agregarCliente( new ClienteNatural( ANA ) );
+        aerolinea.agregarCliente( new ClienteNatural( ANDRES ) );
+        aerolinea.agregarCliente( new ClienteNatural( LUIS ) );
+        aerolinea.agregarCliente( new ClienteCorporativo( ANDES, ClienteCorporativo.GRANDE ) );
+        aerolinea.agregarCliente( new ClienteCorporativo( CAFE, ClienteCorporativo.PEQUENA ) );
+        return aerolinea;
+    }
+}
@@ -0,0 +1,160 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+
+/**
+ * Pruebas de las retenciones temporales de asientos.
+ *
+ * Salvo en la prueba del hilo de fondo, la rueda del gestor se avanza a mano con expirarVencidas, usando momentos calculados a partir del vencimiento de cada reserva.
+ */
+public class GestorReservasTest
+{
+    /**
+     * La duración de las reservas de las pruebas, en milisegundos. Es menor que una vuelta de la rueda del gestor.
+     */
+    private static final long DURACION = 2000;
+
+    /**
+     * Un margen mayor que la duración de un tick de la rueda
+     */
+    private static final long MARGEN = 500;
+
+    @TempDir
+    Path directorio;
+
+    private Aerolinea aerolinea;
+
+    private Vuelos vuelo;
+
+    private GestorReservas gestor;
+
+    @BeforeEach
+    public void crearGestor( ) throws Exception
+    {
+        aerolinea = DatosPrueba.crearAerolinea( directorio );
+        vuelo = aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA );
+        gestor = new GestorReservas( false );
+    }
+
+    @AfterEach
+    public void detenerGestor( )
+    {
+        gestor.detener( );
+    }
+
+    @Test
+    public void laReservaCuentaContraElCupo( ) throws Exception
+    {
+        ReservaAsientos reserva = retener( DatosPrueba.LUIS, 3 );
+        assertEquals( 3, vuelo.getAsientosRetenidos( ) );
+        assertEquals( 1, vuelo.getCupoDisponible( ) );
+        assertSame( reserva, gestor.getReserva( reserva.getIdentificador( ) ) );
+        assertThrows( VueloSobrevendidoException.class, ( ) -> aerolinea.venderTiquetes( DatosPrueba.ANA, DatosPrueba.FECHA, DatosPrueba.RUTA, 2 ) );
+        assertThrows( VueloSobrevendidoException.class, ( ) -> retener( DatosPrueba.ANA, 2 ) );
+        assertEquals( 1, gestor.getCantidadActivas( ) );
+    }
+
+    @Test
+    public void laReservaVencidaLiberaLosAsientos( ) throws Exception
+    {
+        ReservaAsientos reserva = retener( DatosPrueba.LUIS, 3 );
+
+        assertEquals( 0, gestor.expirarVencidas( reserva.getVencimiento( ) - MARGEN ) );
+        assertTrue( reserva.estaActiva( ) );
+
+        assertEquals( 1, gestor.expirarVencidas( reserva.getVencimiento( ) + MARGEN ) );
+        assertEquals( ReservaAsientos.VENCIDA, reserva.getEstado( ) );
+        assertEquals( 0, vuelo.getAsientosRetenidos( ) );
+        assertEquals( DatosPrueba.CAPACIDAD_PEQUENO, vuelo.getCupoDisponible( ) );
+        assertNull( gestor.getReserva( reserva.getIdentificador( ) ) );
+        assertEquals( 0, gestor.getCantidadActivas( ) );
+
+        // Una reserva vencida no se puede confirmar ni liberar
+        assertThrows( Exception.class, ( ) -> gestor.confirmar( reserva ) );
+        assertFalse( gestor.liberar( reserva ) );
+        assertTrue( vuelo.getTiquetes( ).isEmpty( ) );
+    }
+
+    @Test
+    public void laReservaConfirmadaNoVence( ) throws Exception
+    {
+        ReservaAsientos reserva = retener( DatosPrueba.LUIS, 2 );
+        assertTrue( gestor.confirmar( reserva ) > 0 );
+        assertEquals( ReservaAsientos.CONFIRMADA, reserva.getEstado( ) );
+        assertEquals( 0, vuelo.getAsientosRetenidos( ) );
+        assertEquals( 2, vuelo.getTiquetes( ).size( ) );
+
+        assertEquals( 0, gestor.expirarVencidas( reserva.getVencimiento( ) + MARGEN ) );
+        assertEquals( ReservaAsientos.CONFIRMADA, reserva.getEstado( ) );
+        assertEquals( 2, vuelo.getTiquetes( ).size( ) );
+        assertEquals( 2, vuelo.getCupoDisponible( ) );
+    }
+
+    @Test
+    public void laReservaLiberadaNoVence( ) throws Exception
+    {
+        ReservaAsientos reserva = retener( DatosPrueba.LUIS, 2 );
+        assertTrue( gestor.liberar( reserva ) );
+        assertEquals( ReservaAsientos.LIBERADA, reserva.getEstado( ) );
+        assertEquals( DatosPrueba.CAPACIDAD_PEQUENO, vuelo.getCupoDisponible( ) );
+
+        assertEquals( 0, gestor.expirarVencidas( reserva.getVencimiento( ) + MARGEN ) );
+        assertEquals( ReservaAsientos.LIBERADA, reserva.getEstado( ) );
+        assertEquals( DatosPrueba.CAPACIDAD_PEQUENO, vuelo.getCupoDisponible( ) );
+    }
+
+    @Test
+    public void laReservaVencidaAtiendeLaListaDeEspera( ) throws Exception
+    {
+        ReservaAsientos reserva = retener( DatosPrueba.LUIS, DatosPrueba.CAPACIDAD_PEQUENO );
+        SolicitudEspera solicitud = aerolinea.agregarAListaEspera( DatosPrueba.CAFE, DatosPrueba.FECHA, DatosPrueba.RUTA, 1 );
+        assertFalse( solicitud.estaAtendida( ) );
+
+        gestor.expirarVencidas( reserva.getVencimiento( ) + MARGEN );
+        assertTrue( solicitud.estaAtendida( ) );
+        assertEquals( DatosPrueba.CAPACIDAD_PEQUENO - 1, vuelo.getCupoDisponible( ) );
+    }
+
+    @Test
+    public void elHiloDeFondoVenceLasReservas( ) throws Exception
+    {
+        GestorReservas automatico = new GestorReservas( );
+        try
+        {
+            ReservaAsientos reserva = automatico.retener( vuelo, aerolinea.getCliente( DatosPrueba.LUIS ), 2, 200 );
+            long limite = System.currentTimeMillis( ) + 10000;
+            // El estado de la reserva cambia antes de que se liberen los asientos, así que se espera a los asientos
+            while( vuelo.getAsientosRetenidos( ) > 0 && System.currentTimeMillis( ) < limite )
+                Thread.sleep( 10 );
+            assertEquals( 0, vuelo.getAsientosRetenidos( ) );
+            assertEquals( ReservaAsientos.VENCIDA, reserva.getEstado( ) );
+            assertEquals( 0, automatico.getErroresVencimiento( ) );
+        }
+        finally
+        {
+            automatico.detener( );
+        }
+    }
+
+    private ReservaAsientos retener( String identificadorCliente, int cantidad ) throws VueloSobrevendidoException
+    {
+        Cliente cliente = aerolinea.getCliente( identificadorCliente );
+        return gestor.retener( vuelo, cliente, cantidad, DURACION );
+    }
+}
@@ -0,0 +1,151 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Pruebas de las instantáneas de la aerolínea
+ */
+public class InstantaneaAerolineaTest
+{
+    private static final int INSTANTANEAS = 300;
+
+    /**
+     * La cantidad de vuelos que se copian entre los dos vuelos por los que se mueven los tiquetes
+     */
+    private static final int VUELOS_INTERMEDIOS = 40;
+
+    /**
+     * La fecha del vuelo que se copia después de los vuelos intermedios
+     */
+    private static final String FECHA_ULTIMO = "2031-01-01";
+
+    @TempDir
+    Path directorio;
+
+    /**
+     * Cada cliente mueve su tiquete de un vuelo a otro cancelándolo antes de comprar el nuevo, así que la aerolínea nunca tiene dos tiquetes del mismo cliente. Una
+     * instantánea que copiara el primer vuelo antes de la cancelación y el segundo después de la compra mostraría los dos.
+     *
+     * Entre los dos vuelos se copian muchos vuelos en los que otro hilo vende y cancela todo el tiempo, para que copiarlos tome tiempo.
+     */
+    @Test
+    public void unaInstantaneaNoMezclaEstadosDeVuelosDistintos( ) throws Exception
+    {
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+        Vuelos grande = aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA_GRANDE );
+        List<Vuelos> intermedios = new ArrayList<Vuelos>( );
+        for( int i = 0; i < VUELOS_INTERMEDIOS; i++ )
+        {
+            Vuelos vuelo = new Vuelos( grande.getRuta( ), LocalDate.parse( DatosPrueba.FECHA_GRANDE ).plusDays( i + 1 ).toString( ), grande.getAvion( ) );
+            aerolinea.agregarVuelo( vuelo );
+            vuelo.venderTiquetes( aerolinea.getCliente( DatosPrueba.CAFE ), 150 );
+            intermedios.add( vuelo );
+        }
+        aerolinea.agregarVuelo( new Vuelos( grande.getRuta( ), FECHA_ULTIMO, grande.getAvion( ) ) );
+
+        AtomicBoolean activo = new AtomicBoolean( true );
+        AtomicReference<Throwable> error = new AtomicReference<Throwable>( );
+        List<Thread> hilos = new ArrayList<Thread>( );
+        List<String> viajeros = Arrays.asList( DatosPrueba.ANA, DatosPrueba.ANDRES, DatosPrueba.LUIS, DatosPrueba.ANDES );
+        for( String cliente : viajeros )
+            hilos.add( iniciar( ( ) -> mover( aerolinea, cliente, activo ), error ) );
+        hilos.add( iniciar( ( ) -> agitar( aerolinea, intermedios, activo ), error ) );
+
+        try
+        {
+            for( int i = 0; i < INSTANTANEAS && error.get( ) == null; i++ )
+            {
+                Map<String, Integer> porCliente = new HashMap<String, Integer>( );
+                for( Tiquete tiquete : aerolinea.tomarInstantanea( ).getTiquetes( ) )
+                {
+                    if( viajeros.contains( tiquete.getCliente( ).getIdentificador( ) ) )
+                        porCliente.merge( tiquete.getCliente( ).getIdentificador( ), 1, Integer::sum );
+                }
+                for( Map.Entry<String, Integer> tiquetes : porCliente.entrySet( ) )
+                    assertTrue( tiquetes.getValue( ) <= 1, "La instantánea tiene " + tiquetes.getValue( ) + " tiquetes de " + tiquetes.getKey( ) );
+            }
+        }
+        finally
+        {
+            activo.set( false );
+            for( Thread hilo : hilos )
+                hilo.join( );
+        }
+        assertEquals( null, error.get( ) );
+    }
+
+    private static Thread iniciar( Tarea tarea, AtomicReference<Throwable> error )
+    {
+        Thread hilo = new Thread( ( ) -> {
+            try
+            {
+                tarea.ejecutar( );
+            }
+            catch( Throwable e )
+            {
+                error.compareAndSet( null, e );
+            }
+        } );
+        hilo.start( );
+        return hilo;
+    }
+
+    /**
+     * Mueve el tiquete de un cliente entre un vuelo que se copia antes y otro que se copia después, hasta que se indique que pare
+     */
+    private static void mover( Aerolinea aerolinea, String cliente, AtomicBoolean activo ) throws Exception
+    {
+        String[][] vuelos = { { DatosPrueba.FECHA_GRANDE, DatosPrueba.RUTA }, { FECHA_ULTIMO, DatosPrueba.RUTA } };
+        int actual = 0;
+        aerolinea.venderTiquetes( cliente, vuelos[ actual ][ 0 ], vuelos[ actual ][ 1 ], 1 );
+        while( activo.get( ) )
+        {
+            Vuelos vuelo = aerolinea.getVuelo( vuelos[ actual ][ 1 ], vuelos[ actual ][ 0 ] );
+            for( Tiquete tiquete : vuelo.getTiquetes( ) )
+            {
+                if( tiquete.getCliente( ).getIdentificador( ).equals( cliente ) )
+                    vuelo.cancelarTiquete( tiquete.getCodigoNumerico( ) );
+            }
+            actual = 1 - actual;
+            aerolinea.venderTiquetes( cliente, vuelos[ actual ][ 0 ], vuelos[ actual ][ 1 ], 1 );
+        }
+    }
+
+    /**
+     * Vende y cancela tiquetes en los vuelos intermedios, para que cada instantánea tenga que volver a copiarlos
+     */
+    private static void agitar( Aerolinea aerolinea, List<Vuelos> vuelos, AtomicBoolean activo ) throws Exception
+    {
+        while( activo.get( ) )
+        {
+            for( Vuelos vuelo : vuelos )
+            {
+                vuelo.venderTiquetes( aerolinea.getCliente( DatosPrueba.CAFE ), 1 );
+                Tiquete tiquete = vuelo.getTiquetes( ).iterator( ).next( );
+                vuelo.cancelarTiquete( tiquete.getCodigoNumerico( ) );
+            }
+        }
+    }
+
+    private interface Tarea
+    {
+        void ejecutar( ) throws Exception;
+    }
+}
@@ -0,0 +1,160 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.exceptions.VueloSobrevendidoException;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Pruebas de la lista de espera de los vuelos: las solicitudes se atienden en orden de prioridad cuando se libera cupo, y vencen cuando el vuelo se realiza
+ */
+public class ListaEsperaTest
+{
+    @TempDir
+    Path directorio;
+
+    private Aerolinea aerolinea;
+
+    private Vuelos vuelo;
+
+    /**
+     * Construye la aerolínea de prueba y llena el vuelo del avión pequeño con tiquetes de Ana
+     */
+    @BeforeEach
+    public void llenarVuelo( ) throws Exception
+    {
+        aerolinea = DatosPrueba.crearAerolinea( directorio );
+        vuelo = aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA );
+        aerolinea.venderTiquetes( DatosPrueba.ANA, DatosPrueba.FECHA, DatosPrueba.RUTA, DatosPrueba.CAPACIDAD_PEQUENO );
+        assertEquals( 0, vuelo.getCupoDisponible( ) );
+    }
+
+    @Test
+    public void conCupoLaSolicitudSeAtiendeDeInmediato( ) throws Exception
+    {
+        SolicitudEspera solicitud = aerolinea.agregarAListaEspera( DatosPrueba.LUIS, DatosPrueba.FECHA_GRANDE, DatosPrueba.RUTA, 2 );
+        assertTrue( solicitud.estaAtendida( ) );
+        assertEquals( 2, solicitud.getTiquetes( ).size( ) );
+        assertTrue( aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA_GRANDE ).getListaEspera( ).isEmpty( ) );
+    }
+
+    @Test
+    public void seAtiendeSegunLaPrioridadDelCliente( ) throws Exception
+    {
+        SolicitudEspera natural = esperar( DatosPrueba.LUIS, 1 );
+        SolicitudEspera pequena = esperar( DatosPrueba.CAFE, 1 );
+        SolicitudEspera grande = esperar( DatosPrueba.ANDES, 1 );
+        assertEquals( Arrays.asList( grande, pequena, natural ), vuelo.getListaEspera( ) );
+
+        cancelarUnTiqueteDeAna( );
+        assertTrue( grande.estaAtendida( ) );
+        Tiquete tiquete = grande.getTiquetes( ).get( 0 );
+        assertSame( vuelo, tiquete.getVuelo( ) );
+        assertEquals( DatosPrueba.ANDES, tiquete.getCliente( ).getIdentificador( ) );
+        assertFalse( pequena.estaAtendida( ) );
+
+        cancelarUnTiqueteDeAna( );
+        assertTrue( pequena.estaAtendida( ) );
+        assertEquals( Arrays.asList( natural ), vuelo.getListaEspera( ) );
+    }
+
+    @Test
+    public void unaSolicitudQueNoCabeNoSeSalta( ) throws Exception
+    {
+        SolicitudEspera grande = esperar( DatosPrueba.ANDES, 2 );
+        SolicitudEspera natural = esperar( DatosPrueba.LUIS, 1 );
+
+        cancelarUnTiqueteDeAna( );
+        assertFalse( grande.estaAtendida( ) );
+        assertFalse( natural.estaAtendida( ) );
+        // El asiento libre queda para la lista de espera
+        assertEquals( 0, vuelo.getCupoDisponible( ) );
+
+        cancelarUnTiqueteDeAna( );
+        assertTrue( grande.estaAtendida( ) );
+        assertFalse( natural.estaAtendida( ) );
+    }
+
+    @Test
+    public void unaCompraDirectaNoSeAdelantaALaLista( ) throws Exception
+    {
+        SolicitudEspera grande = esperar( DatosPrueba.ANDES, 2 );
+        cancelarUnTiqueteDeAna( );
+        assertFalse( grande.estaAtendida( ) );
+
+        // Hay un asiento libre, pero la primera solicitud lo está esperando: ni una venta ni una retención directa pueden tomarlo
+        assertThrows( VueloSobrevendidoException.class, ( ) -> aerolinea.venderTiquetes( DatosPrueba.CAFE, DatosPrueba.FECHA, DatosPrueba.RUTA, 1 ) );
+        assertThrows( VueloSobrevendidoException.class, ( ) -> aerolinea.retenerAsientos( DatosPrueba.CAFE, DatosPrueba.FECHA, DatosPrueba.RUTA, 1 ) );
+
+        cancelarUnTiqueteDeAna( );
+        assertTrue( grande.estaAtendida( ) );
+        assertEquals( DatosPrueba.CAPACIDAD_PEQUENO, vuelo.getTiquetes( ).size( ) );
+
+        // Con la lista vacía se vuelve a vender directamente
+        cancelarUnTiqueteDeAna( );
+        aerolinea.venderTiquetes( DatosPrueba.CAFE, DatosPrueba.FECHA, DatosPrueba.RUTA, 1 );
+        assertEquals( DatosPrueba.CAPACIDAD_PEQUENO, vuelo.getTiquetes( ).size( ) );
+    }
+
+    @Test
+    public void masSobreventaAtiendeLaLista( ) throws Exception
+    {
+        SolicitudEspera natural = esperar( DatosPrueba.LUIS, 1 );
+        aerolinea.configurarSobreventa( DatosPrueba.RUTA, 0.25 );
+        assertTrue( natural.estaAtendida( ) );
+        assertEquals( DatosPrueba.CAPACIDAD_PEQUENO + 1, vuelo.getTiquetes( ).size( ) );
+    }
+
+    @Test
+    public void alRealizarseElVueloLasSolicitudesVencen( ) throws Exception
+    {
+        SolicitudEspera natural = esperar( DatosPrueba.LUIS, 1 );
+        aerolinea.registrarVueloRealizado( LocalDate.parse( DatosPrueba.FECHA ), DatosPrueba.RUTA );
+
+        assertTrue( natural.estaVencida( ) );
+        assertFalse( natural.estaAtendida( ) );
+        assertTrue( natural.getTiquetes( ).isEmpty( ) );
+        assertTrue( vuelo.getListaEspera( ).isEmpty( ) );
+        assertThrows( VueloSobrevendidoException.class, ( ) -> esperar( DatosPrueba.CAFE, 1 ) );
+    }
+
+    @Test
+    public void unaSolicitudMasGrandeQueElVueloSeRechaza( )
+    {
+        assertThrows( VueloSobrevendidoException.class, ( ) -> esperar( DatosPrueba.LUIS, DatosPrueba.CAPACIDAD_PEQUENO + 1 ) );
+        assertTrue( vuelo.getListaEspera( ).isEmpty( ) );
+    }
+
+    private SolicitudEspera esperar( String cliente, int cantidad ) throws Exception
+    {
+        SolicitudEspera solicitud = aerolinea.agregarAListaEspera( cliente, DatosPrueba.FECHA, DatosPrueba.RUTA, cantidad );
+        assertFalse( solicitud.estaAtendida( ) );
+        return solicitud;
+    }
+
+    private void cancelarUnTiqueteDeAna( ) throws Exception
+    {
+        for( Tiquete tiquete : vuelo.getTiquetes( ) )
+        {
+            if( tiquete.getCliente( ).getIdentificador( ).equals( DatosPrueba.ANA ) )
+            {
+                assertTrue( aerolinea.cancelarTiquete( DatosPrueba.FECHA, DatosPrueba.RUTA, tiquete.getCodigo( ) ) );
+                return;
+            }
+        }
+        throw new AssertionError( "Ana no tiene tiquetes en el vuelo" );
+    }
+}
@@ -0,0 +1,160 @@
+package uniandes.dpoo.aerolinea.modelo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Pruebas del anillo de ventas diarias de una ruta. Las series de las pruebas guardan una semana, así que es fácil darle la vuelta al anillo.
+ */
+public class SerieVentasTest
+{
+    private static final int CAPACIDAD = 7;
+
+    private static final LocalDate INICIO = LocalDate.parse( "2030-03-01" );
+
+    private final SerieVentas serie = new SerieVentas( CAPACIDAD );
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void lasVentasDelMismoDiaSeAcumulan( )
+    {
+        assertNull( serie.getUltimoDia( ) );
+        assertTrue( serie.registrar( INICIO, 2, 500 ) );
+        assertTrue( serie.registrar( INICIO, 3, 700 ) );
+        assertEquals( 5, serie.getTiquetes( dia( 0 ) ) );
+        assertEquals( 1200, serie.getIngresos( dia( 0 ) ) );
+        assertEquals( INICIO, serie.getUltimoDia( ) );
+    }
+
+    @Test
+    public void unDiaNuevoDescartaElQueOcupabaSuPosicion( )
+    {
+        for( int i = 0; i < CAPACIDAD; i++ )
+            assertTrue( serie.registrar( INICIO.plusDays( i ), i + 1, 100 ) );
+        assertEquals( 1, serie.getTiquetes( dia( 0 ) ) );
+
+        // El día CAPACIDAD ocupa la posición del día 0
+        assertTrue( serie.registrar( INICIO.plusDays( CAPACIDAD ), 10, 100 ) );
+        assertEquals( 0, serie.getTiquetes( dia( 0 ) ) );
+        assertEquals( 10, serie.getTiquetes( dia( CAPACIDAD ) ) );
+        assertEquals( INICIO.plusDays( CAPACIDAD ), serie.getUltimoDia( ) );
+        assertArrayEquals( new long[] { dia( 1 ), dia( 2 ), dia( 3 ), dia( 4 ), dia( 5 ), dia( 6 ), dia( 7 ) }, serie.getDiasConVentas( ) );
+
+        // Un día que ya salió de la serie no se registra, pero uno que todavía está sí
+        assertFalse( serie.registrar( INICIO, 1, 100 ) );
+        assertEquals( 0, serie.getTiquetes( dia( 0 ) ) );
+        assertTrue( serie.registrar( INICIO.plusDays( 1 ), 1, 100 ) );
+        assertEquals( 3, serie.getTiquetes( dia( 1 ) ) );
+    }
+
+    @Test
+    public void unSaltoMayorQueLaCapacidadDescartaTodosLosDias( )
+    {
+        serie.registrar( INICIO, 4, 400 );
+        serie.registrar( INICIO.plusDays( 2 ), 4, 400 );
+        serie.registrar( INICIO.plusDays( 30 ), 1, 100 );
+        assertArrayEquals( new long[] { dia( 30 ) }, serie.getDiasConVentas( ) );
+        assertEquals( 1, serie.sumarTiquetes( INICIO, INICIO.plusDays( 30 ) ) );
+    }
+
+    @Test
+    public void lasVentanasCuentanLosDiasSinVentas( )
+    {
+        serie.registrar( INICIO, 3, 300 );
+        serie.registrar( INICIO.plusDays( 2 ), 5, 500 );
+        serie.registrar( INICIO.plusDays( 3 ), 1, 100 );
+
+        assertEquals( 9, serie.sumarTiquetes( INICIO, INICIO.plusDays( 3 ) ) );
+        assertEquals( 600, serie.sumarIngresos( INICIO.plusDays( 1 ), INICIO.plusDays( 3 ) ) );
+        assertEquals( 9 / 4.0, serie.calcularPromedioTiquetes( INICIO.plusDays( 3 ), 4 ), 1e-9 );
+        assertEquals( 600 / 2.0, serie.calcularPromedioIngresos( INICIO.plusDays( 3 ), 2 ), 1e-9 );
+
+        // Los tiquetes por día de la ventana son 3, 0, 5 y 1
+        assertEquals( 1, serie.calcularPercentilTiquetes( INICIO, INICIO.plusDays( 3 ), 50 ) );
+        assertEquals( 5, serie.calcularPercentilTiquetes( INICIO, INICIO.plusDays( 3 ), 100 ) );
+        assertEquals( 0, serie.calcularPercentilTiquetes( INICIO, INICIO.plusDays( 3 ), 0 ) );
+        assertThrows( IllegalArgumentException.class, ( ) -> serie.calcularPercentilTiquetes( INICIO, INICIO.plusDays( 3 ), 101 ) );
+    }
+
+    @Test
+    public void unaVentanaMasLargaQueLaSerieSeRecorta( )
+    {
+        for( int i = 0; i < 3 * CAPACIDAD; i++ )
+            serie.registrar( INICIO.plusDays( i ), 2, 10 );
+        LocalDate ultimo = INICIO.plusDays( 3 * CAPACIDAD - 1 );
+        assertEquals( 2 * CAPACIDAD, serie.sumarTiquetes( INICIO, ultimo ) );
+        assertEquals( 2.0 * CAPACIDAD / 100, serie.calcularPromedioTiquetes( ultimo, 100 ), 1e-9 );
+    }
+
+    @Test
+    public void reemplazarNoSumaALasVentasDelDia( )
+    {
+        serie.registrar( INICIO, 2, 200 );
+        assertTrue( serie.reemplazar( INICIO, 5, 900 ) );
+        assertTrue( serie.reemplazar( INICIO, 5, 900 ) );
+        assertEquals( 5, serie.getTiquetes( dia( 0 ) ) );
+        assertEquals( 900, serie.getIngresos( dia( 0 ) ) );
+
+        assertTrue( serie.reemplazar( INICIO.plusDays( CAPACIDAD ), 1, 100 ) );
+        assertEquals( INICIO.plusDays( CAPACIDAD ), serie.getUltimoDia( ) );
+        assertFalse( serie.reemplazar( INICIO, 5, 900 ) );
+        assertEquals( 0, serie.getTiquetes( dia( 0 ) ) );
+    }
+
+    @Test
+    public void anularDescuentaSoloDeUnDiaGuardado( )
+    {
+        serie.registrar( INICIO, 3, 900 );
+        assertTrue( serie.anular( dia( 0 ), 1, 300 ) );
+        assertEquals( 2, serie.getTiquetes( dia( 0 ) ) );
+        assertEquals( 600, serie.getIngresos( dia( 0 ) ) );
+
+        // Un día sin ventas no queda con ventas negativas
+        assertFalse( serie.anular( dia( 1 ), 1, 300 ) );
+        assertEquals( 0, serie.getTiquetes( dia( 1 ) ) );
+        assertTrue( serie.anular( dia( 0 ), 5, 5000 ) );
+        assertEquals( 0, serie.getTiquetes( dia( 0 ) ) );
+        assertEquals( 0, serie.getIngresos( dia( 0 ) ) );
+
+        // Un día que ya salió de la serie no se toca
+        serie.registrar( INICIO.plusDays( CAPACIDAD ), 1, 100 );
+        assertFalse( serie.anular( dia( 0 ), 1, 100 ) );
+        assertEquals( 1, serie.getTiquetes( dia( CAPACIDAD ) ) );
+    }
+
+    @Test
+    public void cancelarUnTiqueteLoDescuentaDeLaSerieDeSuRuta( ) throws Exception
+    {
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+        SerieVentas ventas = aerolinea.consultarVentasRuta( DatosPrueba.RUTA );
+        long hoy = LocalDate.now( ).toEpochDay( );
+        int valor = aerolinea.venderTiquetes( DatosPrueba.ANA, DatosPrueba.FECHA_GRANDE, DatosPrueba.RUTA, 3 );
+        assertEquals( 3, ventas.getTiquetes( hoy ) );
+
+        Tiquete tiquete = aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA_GRANDE ).getTiquetes( ).iterator( ).next( );
+        assertEquals( hoy, tiquete.getDiaVenta( ) );
+        assertTrue( aerolinea.cancelarTiquete( DatosPrueba.FECHA_GRANDE, DatosPrueba.RUTA, tiquete.getCodigo( ) ) );
+        assertEquals( 2, ventas.getTiquetes( hoy ) );
+        assertEquals( valor - tiquete.getTarifa( ), ventas.getIngresos( hoy ) );
+    }
+
+    private static long dia( int desdeInicio )
+    {
+        return INICIO.plusDays( desdeInicio ).toEpochDay( );
+    }
+}
@@ -0,0 +1,116 @@
+package uniandes.dpoo.aerolinea.modelo.cliente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de la búsqueda de clientes por prefijo
+ */
+public class DirectorioClientesTest
+{
+    /**
+     * Una cantidad de clientes suficiente para que el índice tenga llaves mezcladas en los arreglos y llaves pendientes al mismo tiempo
+     */
+    private static final int MUCHOS_CLIENTES = 1500;
+
+    private DirectorioClientes directorio;
+
+    @BeforeEach
+    public void crearDirectorio( )
+    {
+        directorio = new DirectorioClientes( );
+        for( String identificador : Arrays.asList( "Juan Gómez", "María Gómez Martínez", "Marta Martínez", "Ana Pérez" ) )
+            directorio.agregar( new ClienteNatural( identificador ) );
+        directorio.agregar( new ClienteCorporativo( "Gomera Tours", ClienteCorporativo.PEQUENA ) );
+    }
+
+    @Test
+    public void seEncuentraPorCualquierPalabraSinImportarTildesNiMayusculas( )
+    {
+        assertEquals( Arrays.asList( "Gomera Tours", "Juan Gómez", "María Gómez Martínez" ), buscar( "GÓM", 10 ) );
+        assertEquals( Arrays.asList( "Juan Gómez", "María Gómez Martínez" ), buscar( "gomez", 10 ) );
+        assertEquals( Arrays.asList( "Ana Pérez" ), buscar( "  pe", 10 ) );
+        assertEquals( Arrays.asList( "Gomera Tours" ), buscar( "tou", 10 ) );
+    }
+
+    @Test
+    public void unPrefijoDeVariasPalabrasSigueElNombre( )
+    {
+        assertEquals( Arrays.asList( "María Gómez Martínez" ), buscar( "gomez  MA", 10 ) );
+        assertEquals( Arrays.asList( "María Gómez Martínez" ), buscar( "maria gomez m", 10 ) );
+        assertTrue( buscar( "juan m", 10 ).isEmpty( ) );
+    }
+
+    @Test
+    public void cadaClienteApareceUnaVezYSeRespetaLaCantidad( )
+    {
+        // Marta Martínez coincide por sus dos palabras, y María Gómez Martínez por la primera y la última
+        assertEquals( Arrays.asList( "María Gómez Martínez", "Marta Martínez" ), buscar( "mar", 10 ) );
+        assertEquals( Arrays.asList( "María Gómez Martínez" ), buscar( "mar", 1 ) );
+        assertTrue( buscar( "mar", 0 ).isEmpty( ) );
+        assertTrue( buscar( "", 10 ).isEmpty( ) );
+        assertTrue( buscar( "   ", 10 ).isEmpty( ) );
+        assertTrue( buscar( "zz", 10 ).isEmpty( ) );
+    }
+
+    @Test
+    public void unClienteReemplazadoSeEncuentraUnaVez( )
+    {
+        ClienteCorporativo nuevo = new ClienteCorporativo( "Gomera Tours", ClienteCorporativo.GRANDE );
+        directorio.agregar( nuevo );
+        assertEquals( 5, directorio.getCantidadClientes( ) );
+        assertSame( nuevo, directorio.get( "Gomera Tours" ) );
+        List<Cliente> encontrados = directorio.buscarPorPrefijo( "gomera", 10 );
+        assertEquals( 1, encontrados.size( ) );
+        assertSame( nuevo, encontrados.get( 0 ) );
+    }
+
+    @Test
+    public void conMuchosClientesSeBuscaEnElIndiceYEnLosPendientes( )
+    {
+        List<String> identificadores = new ArrayList<String>( );
+        for( int i = 0; i < MUCHOS_CLIENTES; i++ )
+            identificadores.add( String.format( "Cliente %04d", i ) );
+        Collections.shuffle( identificadores, new Random( 42 ) );
+
+        List<String> esperados = new ArrayList<String>( );
+        for( String identificador : identificadores )
+        {
+            directorio.agregar( new ClienteNatural( identificador ) );
+            if( identificador.startsWith( "Cliente 1" ) )
+                esperados.add( identificador );
+        }
+        Collections.sort( esperados );
+
+        assertEquals( MUCHOS_CLIENTES + 5, directorio.getCantidadClientes( ) );
+        assertEquals( esperados, buscar( "cliente 1", MUCHOS_CLIENTES ) );
+        assertEquals( esperados.subList( 0, 20 ), buscar( "CLIENTE 1", 20 ) );
+
+        // Por la segunda palabra, el número
+        List<String> porNumero = buscar( "14", MUCHOS_CLIENTES );
+        assertEquals( 100, porNumero.size( ) );
+        assertEquals( "Cliente 1400", porNumero.get( 0 ) );
+        assertEquals( "Cliente 1499", porNumero.get( 99 ) );
+
+        // Los clientes iniciales siguen encontrándose después de las mezclas
+        assertEquals( Arrays.asList( "Gomera Tours", "Juan Gómez", "María Gómez Martínez" ), buscar( "gom", 10 ) );
+    }
+
+    private List<String> buscar( String prefijo, int cantidad )
+    {
+        List<String> identificadores = new ArrayList<String>( );
+        for( Cliente cliente : directorio.buscarPorPrefijo( prefijo, cantidad ) )
+            identificadores.add( cliente.getIdentificador( ) );
+        return identificadores;
+    }
+}
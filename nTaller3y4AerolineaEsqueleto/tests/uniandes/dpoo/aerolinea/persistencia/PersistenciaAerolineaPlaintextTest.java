@@ -0,0 +1,107 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.exceptions.InformacionInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.Aeropuerto;
+import uniandes.dpoo.aerolinea.modelo.Avion;
+import uniandes.dpoo.aerolinea.modelo.Ruta;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
+
+/**
+ * Pruebas de la carga y el salvado de la estructura de la aerolínea en texto plano
+ */
+public class PersistenciaAerolineaPlaintextTest
+{
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void salvarYCargarEnOtraAerolineaConservaLaEstructura( ) throws Exception
+    {
+        Aerolinea original = DatosPrueba.crearAerolinea( directorio );
+        String copia = directorio.resolve( "copia.txt" ).toString( );
+        original.salvarAerolinea( copia, CentralPersistencia.PLAIN );
+
+        // La copia se carga en la misma JVM, donde ya existen los aeropuertos del archivo
+        Aerolinea cargada = new Aerolinea( );
+        cargada.cargarAerolinea( copia, CentralPersistencia.AUTO );
+
+        assertEquals( describir( original ), describir( cargada ) );
+        assertSame( original.getRuta( DatosPrueba.RUTA ).getOrigen( ), cargada.getRuta( DatosPrueba.RUTA ).getOrigen( ) );
+
+        String otraCopia = directorio.resolve( "otra-copia.txt" ).toString( );
+        cargada.salvarAerolinea( otraCopia, CentralPersistencia.PLAIN );
+        assertArrayEquals( Files.readAllBytes( directorio.resolve( "copia.txt" ) ), Files.readAllBytes( directorio.resolve( "otra-copia.txt" ) ) );
+    }
+
+    @Test
+    public void aeropuertoExistenteConOtrosDatosEsInconsistente( ) throws Exception
+    {
+        DatosPrueba.crearAerolinea( directorio );
+        Path archivo = escribir( "distinto.txt", "AEROPUERTO;QBO;Otro nombre;Bogotá;4.7016;-74.1469" );
+
+        Aerolinea aerolinea = new Aerolinea( );
+        assertThrows( InformacionInconsistenteException.class, ( ) -> aerolinea.cargarAerolinea( archivo.toString( ), CentralPersistencia.PLAIN ) );
+    }
+
+    @Test
+    public void cargaFallidaLiberaLosAeropuertosCreados( ) throws Exception
+    {
+        Path fallido = escribir( "fallido.txt", "AEROPUERTO;QZZ;Aeropuerto temporal;Pasto;1.3962;-77.2915", "RUTA;Q900;QZZ;QNO;0700;0800" );
+        Aerolinea aerolinea = new Aerolinea( );
+        assertThrows( InformacionInconsistenteException.class, ( ) -> aerolinea.cargarAerolinea( fallido.toString( ), CentralPersistencia.PLAIN ) );
+        assertNull( Aeropuerto.buscarAeropuerto( "QZZ" ) );
+
+        // Como el código quedó libre, otro archivo puede definir el aeropuerto con otros datos
+        Path corregido = escribir( "corregido.txt", "AEROPUERTO;QZZ;Antonio Nariño;Pasto;1.3962;-77.2915", "AEROPUERTO;QNO;Aeropuerto de prueba;Neiva;2.95;-75.29",
+                "RUTA;Q900;QZZ;QNO;0700;0800" );
+        Aerolinea otra = new Aerolinea( );
+        otra.cargarAerolinea( corregido.toString( ), CentralPersistencia.PLAIN );
+        assertNotNull( otra.getRuta( "Q900" ) );
+        assertEquals( "Antonio Nariño", Aeropuerto.buscarAeropuerto( "QZZ" ).getNombre( ) );
+    }
+
+    private Path escribir( String nombre, String... registros ) throws Exception
+    {
+        String[] lineas = new String[registros.length + 1];
+        lineas[ 0 ] = PersistenciaAerolineaPlaintext.ENCABEZADO;
+        System.arraycopy( registros, 0, lineas, 1, registros.length );
+        Path archivo = directorio.resolve( nombre );
+        Files.write( archivo, Arrays.asList( lineas ), StandardCharsets.UTF_8 );
+        return archivo;
+    }
+
+    /**
+     * Describe la estructura de una aerolínea sin depender del orden en el que la aerolínea entrega sus elementos
+     */
+    private static Map<String, String> describir( Aerolinea aerolinea )
+    {
+        Map<String, String> descripcion = new TreeMap<String, String>( );
+        for( Avion avion : aerolinea.getAviones( ) )
+            descripcion.put( "avion " + avion.getNombre( ), Integer.toString( avion.getCapacidad( ) ) );
+        for( Ruta ruta : aerolinea.getRutas( ) )
+            descripcion.put( "ruta " + ruta.getCodigoRuta( ), ruta.getOrigen( ).getCodigo( ) + "-" + ruta.getDestino( ).getCodigo( ) + " " + ruta.getHoraSalida( ) + "-"
+                    + ruta.getHoraLlegada( ) );
+        for( Vuelos vuelo : aerolinea.getVuelos( ) )
+            descripcion.put( "vuelo " + vuelo.getRuta( ).getCodigoRuta( ) + " " + vuelo.getFecha( ), vuelo.getAvion( ).getNombre( ) );
+        return descripcion;
+    }
+}
@@ -0,0 +1,89 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.exceptions.CargaInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.SerieVentas;
+
+/**
+ * Pruebas del archivo de series de ventas que acompaña a un archivo de tiquetes
+ */
+public class PersistenciaSeriesVentasTest
+{
+    private static final LocalDate DIA = LocalDate.parse( "2030-01-15" );
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void cargarDosVecesNoDuplicaLasVentas( ) throws Exception
+    {
+        Aerolinea original = DatosPrueba.crearAerolinea( directorio );
+        serie( original, DatosPrueba.RUTA ).registrar( DIA, 3, 750000 );
+        serie( original, DatosPrueba.RUTA ).registrar( DIA.plusDays( 2 ), 1, 250000 );
+        serie( original, DatosPrueba.OTRA_RUTA ).registrar( DIA, 2, 360000 );
+        String archivo = PersistenciaSeriesVentas.getArchivoSeries( directorio.resolve( "tiquetes.csv" ).toString( ) );
+        PersistenciaSeriesVentas.salvarSeries( archivo, original );
+
+        Aerolinea cargada = DatosPrueba.crearAerolinea( directorio );
+        PersistenciaSeriesVentas.cargarSeries( archivo, cargada );
+        PersistenciaSeriesVentas.cargarSeries( archivo, cargada );
+
+        for( String ruta : Arrays.asList( DatosPrueba.RUTA, DatosPrueba.OTRA_RUTA ) )
+        {
+            SerieVentas esperada = serie( original, ruta );
+            SerieVentas serie = serie( cargada, ruta );
+            assertEquals( esperada.getUltimoDia( ), serie.getUltimoDia( ) );
+            for( long dia : esperada.getDiasConVentas( ) )
+            {
+                assertEquals( esperada.getTiquetes( dia ), serie.getTiquetes( dia ) );
+                assertEquals( esperada.getIngresos( dia ), serie.getIngresos( dia ) );
+            }
+            assertEquals( esperada.getDiasConVentas( ).length, serie.getDiasConVentas( ).length );
+        }
+        assertEquals( 4, serie( cargada, DatosPrueba.RUTA ).sumarTiquetes( DIA, DIA.plusDays( 2 ) ) );
+    }
+
+    @Test
+    public void lasLineasInconsistentesSeReportanYLasDemasSeCargan( ) throws Exception
+    {
+        Path archivo = directorio.resolve( "series.ventas" );
+        Files.write( archivo, Arrays.asList( PersistenciaSeriesVentas.ENCABEZADO, "Q100,2030-01-15,3,750000", "Q999,2030-01-15,1,100", "Q200,15/01/2030,1,100",
+                "Q200,2030-01-15,muchos,100" ), StandardCharsets.UTF_8 );
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+
+        CargaInconsistenteException e = assertThrows( CargaInconsistenteException.class, ( ) -> PersistenciaSeriesVentas.cargarSeries( archivo.toString( ), aerolinea ) );
+        assertEquals( 3, e.getErrores( ).size( ), e.getErrores( ).toString( ) );
+        assertEquals( 3, serie( aerolinea, DatosPrueba.RUTA ).getTiquetes( DIA.toEpochDay( ) ) );
+        assertEquals( 0, serie( aerolinea, DatosPrueba.OTRA_RUTA ).getDiasConVentas( ).length );
+    }
+
+    @Test
+    public void unArchivoSinEncabezadoNoSeCarga( ) throws Exception
+    {
+        Path archivo = directorio.resolve( "series.ventas" );
+        Files.write( archivo, Arrays.asList( "Q100,2030-01-15,3,750000" ), StandardCharsets.UTF_8 );
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+
+        assertThrows( IOException.class, ( ) -> PersistenciaSeriesVentas.cargarSeries( archivo.toString( ), aerolinea ) );
+        assertEquals( 0, serie( aerolinea, DatosPrueba.RUTA ).getDiasConVentas( ).length );
+    }
+
+    private static SerieVentas serie( Aerolinea aerolinea, String codigoRuta )
+    {
+        return aerolinea.getRuta( codigoRuta ).getSerieVentas( );
+    }
+}
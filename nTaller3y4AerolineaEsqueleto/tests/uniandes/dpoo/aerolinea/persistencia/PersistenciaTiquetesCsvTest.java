@@ -0,0 +1,137 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.exceptions.CargaInconsistenteException;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Pruebas de la carga y el salvado de tiquetes en CSV.
+ *
+ * Los códigos de los tiquetes son únicos en toda la JVM (ver GeneradorTiquetes), así que cada prueba usa sus propios códigos y los archivos salvados se comparan
+ * leyéndolos con un ReceptorRegistros, sin cargarlos en una aerolínea.
+ */
+public class PersistenciaTiquetesCsvTest
+{
+    private static final String EMPRESA = "Transportes \"El Rápido\", S.A.";
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void salvarYLeerConservaLosRegistros( ) throws Exception
+    {
+        Path fixture = escribirTiquetes( "fixture.csv", 9100001 );
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+        aerolinea.cargarTiquetes( fixture.toString( ), CentralPersistencia.CSV );
+
+        ClienteCorporativo empresa = ( ClienteCorporativo )aerolinea.getCliente( EMPRESA );
+        assertEquals( ClienteCorporativo.MEDIANA, empresa.getTamanoEmpresa( ) );
+        assertEquals( 3, aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA ).getTiquetes( ).size( ) );
+        // El único tiquete usado del archivo es el de la empresa
+        for( Tiquete tiquete : aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA ).getTiquetes( ) )
+            assertEquals( tiquete.getCliente( ) == empresa, tiquete.esUsado( ) );
+
+        Path salvado = directorio.resolve( "salvado.csv" );
+        aerolinea.salvarTiquetes( salvado.toString( ), CentralPersistencia.CSV );
+
+        ReceptorRegistros original = leer( fixture );
+        ReceptorRegistros copia = leer( salvado );
+        assertTrue( copia.errores.isEmpty( ), copia.errores.toString( ) );
+        assertEquals( original.tiquetes, copia.tiquetes );
+        assertTrue( copia.clientes.containsAll( original.clientes ), copia.clientes.toString( ) );
+        // Además de los clientes del archivo, se salvan los que ya tenía la aerolínea
+        assertEquals( aerolinea.getClientes( ).size( ), copia.clientes.size( ) );
+    }
+
+    @Test
+    public void recargarEnLaMismaJvmReportaLosCodigosRepetidos( ) throws Exception
+    {
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+        aerolinea.cargarTiquetes( escribirTiquetes( "fixture.csv", 9100101 ).toString( ), CentralPersistencia.CSV );
+        Path salvado = directorio.resolve( "salvado.csv" );
+        aerolinea.salvarTiquetes( salvado.toString( ), CentralPersistencia.CSV );
+
+        // Los códigos siguen registrados por la primera aerolínea, así que ninguno de los tiquetes se puede cargar otra vez; los clientes sí se cargan
+        Aerolinea otra = new Aerolinea( );
+        otra.cargarAerolinea( DatosPrueba.escribirAerolinea( directorio ).toString( ), CentralPersistencia.PLAIN );
+        CargaInconsistenteException e = assertThrows( CargaInconsistenteException.class, ( ) -> otra.cargarTiquetes( salvado.toString( ), CentralPersistencia.AUTO ) );
+        assertEquals( 4, e.getErrores( ).size( ), e.getErrores( ).toString( ) );
+        assertTrue( otra.getTiquetes( ).isEmpty( ) );
+        assertEquals( aerolinea.getClientes( ).size( ), otra.getClientes( ).size( ) );
+    }
+
+    @Test
+    public void lineasInconsistentesSeReportanYLasDemasSeCargan( ) throws Exception
+    {
+        int codigo = buscarCodigosLibres( 9100201, 2 );
+        Path archivo = escribir( "inconsistente.csv", "C,Natural,Marta Ruiz", "T,Q100,2030-02-10," + codigo + ",250000,false,Marta Ruiz",
+                "T,Q999,2030-02-10," + ( codigo + 1 ) + ",250000,false,Marta Ruiz", "T,Q100,2030-02-10,9100203,mucho,false,Marta Ruiz",
+                "T,Q100,2030-02-10," + codigo + ",250000,false,Marta Ruiz" );
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+
+        CargaInconsistenteException e = assertThrows( CargaInconsistenteException.class, ( ) -> aerolinea.cargarTiquetes( archivo.toString( ), CentralPersistencia.AUTO ) );
+        assertEquals( 3, e.getErrores( ).size( ), e.getErrores( ).toString( ) );
+        assertEquals( 1, aerolinea.getTiquetes( ).size( ) );
+        assertFalse( GeneradorTiquetes.validarTiquete( codigo + 1 ) );
+    }
+
+    /**
+     * Escribe un archivo con dos clientes y cuatro tiquetes, con códigos consecutivos que ningún tiquete de la JVM usa, a partir del código dado
+     */
+    private Path escribirTiquetes( String nombre, int desde ) throws Exception
+    {
+        int primerCodigo = buscarCodigosLibres( desde, 4 );
+        String empresa = "\"" + EMPRESA.replace( "\"", "\"\"" ) + "\"";
+        return escribir( nombre, "C,Natural,Marta Ruiz", "C,Corporativo," + empresa + "," + ClienteCorporativo.MEDIANA,
+                "T,Q100,2030-02-10," + primerCodigo + ",250000,false,Marta Ruiz", "T,Q100,2030-02-10," + ( primerCodigo + 1 ) + ",250000,true," + empresa,
+                "T,Q100,2030-02-10," + ( primerCodigo + 2 ) + ",310000,false," + DatosPrueba.ANA, "T,Q200,2030-02-10," + ( primerCodigo + 3 ) + ",180000,false,Marta Ruiz" );
+    }
+
+    /**
+     * Busca, a partir de un código, una serie de códigos consecutivos que ningún tiquete de la JVM usa. Los códigos de los tiquetes que se venden son aleatorios, así que
+     * otras pruebas pueden haber usado los que se esperaban.
+     */
+    private static int buscarCodigosLibres( int desde, int cantidad )
+    {
+        int primerCodigo = desde;
+        for( int codigo = primerCodigo; codigo < primerCodigo + cantidad; codigo++ )
+        {
+            if( GeneradorTiquetes.validarTiquete( codigo ) )
+                primerCodigo = codigo + 1;
+        }
+        return primerCodigo;
+    }
+
+    private Path escribir( String nombre, String... registros ) throws Exception
+    {
+        List<String> lineas = new ArrayList<String>( );
+        lineas.add( PersistenciaTiquetesCsv.ENCABEZADO );
+        lineas.addAll( Arrays.asList( registros ) );
+        Path archivo = directorio.resolve( nombre );
+        Files.write( archivo, lineas, StandardCharsets.UTF_8 );
+        return archivo;
+    }
+
+    private static ReceptorRegistros leer( Path archivo ) throws Exception
+    {
+        return ReceptorRegistros.leer( new PersistenciaTiquetesCsv( ), archivo.toString( ) );
+    }
+}
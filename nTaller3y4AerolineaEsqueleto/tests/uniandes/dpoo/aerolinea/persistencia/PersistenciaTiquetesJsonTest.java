@@ -0,0 +1,95 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+
+/**
+ * Pruebas de los dos formatos JSON de tiquetes: el que construye el documento completo y el que lee y escribe un registro a la vez. Los dos deben poder leer los
+ * archivos del otro.
+ */
+public class PersistenciaTiquetesJsonTest
+{
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void losDosFormatosLeenLosArchivosDelOtro( ) throws Exception
+    {
+        Aerolinea aerolinea = DatosPrueba.crearAerolinea( directorio );
+        aerolinea.venderTiquetes( DatosPrueba.ANA, DatosPrueba.FECHA, DatosPrueba.RUTA, 2 );
+        aerolinea.venderTiquetes( DatosPrueba.ANDES, DatosPrueba.FECHA, DatosPrueba.OTRA_RUTA, 3 );
+
+        String documento = directorio.resolve( "documento.json" ).toString( );
+        String streaming = directorio.resolve( "streaming.json" ).toString( );
+        new PersistenciaTiquetesJson( ).salvarTiquetes( documento, aerolinea );
+        new PersistenciaTiquetesJsonStreaming( ).salvarTiquetes( streaming, aerolinea );
+
+        // Los nombres con tildes quedan en UTF-8, sin importar la codificación por defecto de la JVM
+        for( String archivo : Arrays.asList( documento, streaming ) )
+            assertTrue( new String( Files.readAllBytes( Paths.get( archivo ) ), StandardCharsets.UTF_8 ).contains( DatosPrueba.ANA ), archivo );
+
+        ReceptorRegistros esperado = ReceptorRegistros.leer( new PersistenciaTiquetesJson( ), documento );
+        assertTrue( esperado.errores.isEmpty( ), esperado.errores.toString( ) );
+        assertEquals( 5, esperado.tiquetes.size( ) );
+        assertEquals( aerolinea.getClientes( ).size( ), esperado.clientes.size( ) );
+        for( ILectorTiquetes lector : Arrays.asList( new PersistenciaTiquetesJson( ), new PersistenciaTiquetesJsonStreaming( ) ) )
+        {
+            for( String archivo : Arrays.asList( documento, streaming ) )
+            {
+                ReceptorRegistros leidos = ReceptorRegistros.leer( lector, archivo );
+                assertTrue( leidos.errores.isEmpty( ), leidos.errores.toString( ) );
+                assertEquals( esperado.clientes, leidos.clientes );
+                assertEquals( esperado.tiquetes, leidos.tiquetes );
+            }
+        }
+    }
+
+    @Test
+    public void laTarifaSeAceptaComoEnElDocumentoCompleto( ) throws Exception
+    {
+        Path archivo = directorio.resolve( "tarifas.json" );
+        Files.write( archivo, Arrays.asList( "{ \"clientes\": [], \"tiquetes\": [", tiquete( 1, "250000.0" ) + ",", tiquete( 2, "\"180000\"" ) + ",", tiquete( 3, "1.8e5" ) + ",",
+                tiquete( 4, "99.5" ) + ",", tiquete( 5, "3000000000" ), "] }" ), StandardCharsets.UTF_8 );
+
+        ReceptorRegistros leidos = ReceptorRegistros.leer( new PersistenciaTiquetesJsonStreaming( ), archivo.toString( ) );
+        assertEquals( Arrays.asList( "1 Q100 2030-02-10 250000 false Ana Pérez", "2 Q100 2030-02-10 180000 false Ana Pérez", "3 Q100 2030-02-10 180000 false Ana Pérez" ),
+                leidos.tiquetes );
+        // Las tarifas con decimales o que no caben en un int se reportan en lugar de truncarse
+        assertEquals( 2, leidos.errores.size( ), leidos.errores.toString( ) );
+    }
+
+    @Test
+    public void losRegistrosMalFormadosSeReportanYLosDemasSeLeen( ) throws Exception
+    {
+        Path archivo = directorio.resolve( "malformado.json" );
+        Files.write( archivo, Arrays.asList( "{ \"clientes\": [", "{ \"tipoCliente\": \"Natural\", \"nombre\": \"Eva Ruiz\" },", "{ \"tipoCliente\": \"Natural\" },",
+                "{ \"tipoCliente\": \"Corporativo\", \"nombreEmpresa\": \"Sin Tamaño\" },", "\"no es un objeto\"", "], \"tiquetes\": [", tiquete( 1, "100" ) + ",",
+                tiquete( 2, "\"cien\"" ) + ",", "{ \"codigoRuta\": \"Q100\" }", "] }" ), StandardCharsets.UTF_8 );
+
+        for( ILectorTiquetes lector : Arrays.asList( new PersistenciaTiquetesJson( ), new PersistenciaTiquetesJsonStreaming( ) ) )
+        {
+            ReceptorRegistros leidos = ReceptorRegistros.leer( lector, archivo.toString( ) );
+            assertEquals( Arrays.asList( "Natural Eva Ruiz" ), leidos.clientes );
+            assertEquals( Arrays.asList( "1 Q100 2030-02-10 100 false Ana Pérez" ), leidos.tiquetes );
+            assertEquals( 5, leidos.errores.size( ), leidos.errores.toString( ) );
+        }
+    }
+
+    private static String tiquete( int codigo, String tarifa )
+    {
+        return "{ \"codigoRuta\": \"" + DatosPrueba.RUTA + "\", \"fecha\": \"" + DatosPrueba.FECHA + "\", \"codigoTiquete\": \"" + codigo + "\", \"tarifa\": " + tarifa
+                + ", \"usado\": false, \"cliente\": \"" + DatosPrueba.ANA + "\" }";
+    }
+}
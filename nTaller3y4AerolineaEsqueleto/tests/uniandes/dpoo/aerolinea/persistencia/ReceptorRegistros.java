@@ -0,0 +1,61 @@
+package uniandes.dpoo.aerolinea.persistencia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.modelo.cliente.ClienteCorporativo;
+import uniandes.dpoo.aerolinea.tiquetes.GeneradorTiquetes;
+
+/**
+ * Un receptor que anota como texto los registros que lee un formato de tiquetes, sin cargarlos en una aerolínea.
+ *
+ * Los códigos de los tiquetes son únicos en toda la JVM (ver GeneradorTiquetes), así que las pruebas comparan los archivos leyéndolos con este receptor en lugar de
+ * cargarlos dos veces.
+ */
+class ReceptorRegistros implements IReceptorTiquetes
+{
+    final List<String> clientes = new ArrayList<String>( );
+    final List<String> tiquetes = new ArrayList<String>( );
+    final List<String> errores = new ArrayList<String>( );
+
+    /**
+     * Lee un archivo con un formato y ordena los registros leídos
+     */
+    static ReceptorRegistros leer( ILectorTiquetes lector, String archivo ) throws Exception
+    {
+        ReceptorRegistros registros = new ReceptorRegistros( );
+        lector.leerTiquetes( archivo, registros );
+        Collections.sort( registros.clientes );
+        Collections.sort( registros.tiquetes );
+        return registros;
+    }
+
+    @Override
+    public boolean agregarCliente( Cliente nuevoCliente )
+    {
+        String tamano = nuevoCliente instanceof ClienteCorporativo ? " " + ( ( ClienteCorporativo )nuevoCliente ).getTamanoEmpresa( ) : "";
+        clientes.add( nuevoCliente.getTipoCliente( ) + " " + nuevoCliente.getIdentificador( ) + tamano );
+        return true;
+    }
+
+    @Override
+    public boolean agregarTiquete( String codigoRuta, String fecha, String codigoTiquete, int tarifa, boolean usado, String identificadorCliente )
+    {
+        return agregarTiquete( codigoRuta, fecha, GeneradorTiquetes.leerCodigo( codigoTiquete ), tarifa, usado, identificadorCliente );
+    }
+
+    @Override
+    public boolean agregarTiquete( String codigoRuta, String fecha, int codigoTiquete, int tarifa, boolean usado, String identificadorCliente )
+    {
+        tiquetes.add( codigoTiquete + " " + codigoRuta + " " + fecha + " " + tarifa + " " + usado + " " + identificadorCliente );
+        return true;
+    }
+
+    @Override
+    public void registrarError( String error )
+    {
+        errores.add( error );
+    }
+}
@@ -0,0 +1,145 @@
+package uniandes.dpoo.aerolinea.replicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.aerolinea.DatosPrueba;
+import uniandes.dpoo.aerolinea.modelo.Aerolinea;
+import uniandes.dpoo.aerolinea.modelo.SolicitudEspera;
+import uniandes.dpoo.aerolinea.modelo.Vuelos;
+import uniandes.dpoo.aerolinea.modelo.cliente.Cliente;
+import uniandes.dpoo.aerolinea.tiquetes.Tiquete;
+
+/**
+ * Pruebas de la replicación entre un líder y sus seguidores, todos en la misma JVM.
+ *
+ * Las aerolíneas de los seguidores se construyen igual que la del líder, que es el estado que tenía el líder cuando se creó. Las aerolíneas de los seguidores no registran
+ * los códigos de los tiquetes en el generador (ver AplicadorEventos), así que pueden recibir los mismos tiquetes que vendió el líder.
+ */
+public class ReplicacionTest
+{
+    /**
+     * El tiempo máximo que se espera a que un seguidor aplique los eventos del líder, en milisegundos
+     */
+    private static final long ESPERA = 10000;
+
+    @TempDir
+    Path directorio;
+
+    private Aerolinea aerolinea;
+
+    private LiderReplicacion lider;
+
+    @BeforeEach
+    public void crearLider( ) throws Exception
+    {
+        aerolinea = crearAerolinea( "lider" );
+        lider = new LiderReplicacion( aerolinea, directorio.resolve( "registro" ).toString( ), 0 );
+    }
+
+    @AfterEach
+    public void cerrarLider( ) throws Exception
+    {
+        lider.close( );
+    }
+
+    @Test
+    public void elSeguidorAplicaLasOperacionesDelLider( ) throws Exception
+    {
+        try( SeguidorReplicacion seguidor = crearSeguidor( "seguidor" ) )
+        {
+            operar( );
+            esperarRegistro( seguidor );
+
+            assertEquals( describir( aerolinea ), describir( seguidor.getAerolinea( ) ) );
+            assertEquals( 0, seguidor.getEventosOmitidos( ) );
+            assertFalse( seguidor.estaDesfasado( ) );
+            for( Cliente cliente : aerolinea.getClientes( ) )
+                assertEquals( aerolinea.consultarSaldoPendienteCliente( cliente.getIdentificador( ) ), seguidor.consultarSaldoPendienteCliente( cliente.getIdentificador( ) ) );
+        }
+    }
+
+    @Test
+    public void unSeguidorTardioSeAlcanzaConElRegistro( ) throws Exception
+    {
+        operar( );
+        aerolinea.getBusEventos( ).esperarProyecciones( );
+        assertTrue( lider.getSecuenciaRegistrada( ) >= 0 );
+
+        // El seguidor se conecta cuando el líder ya escribió todas las operaciones, así que las recibe del registro en disco
+        try( SeguidorReplicacion tardio = crearSeguidor( "tardio" ) )
+        {
+            esperarRegistro( tardio );
+            assertEquals( describir( aerolinea ), describir( tardio.getAerolinea( ) ) );
+
+            aerolinea.venderTiquetes( DatosPrueba.ANDRES, DatosPrueba.FECHA_GRANDE, DatosPrueba.RUTA, 2 );
+            esperarRegistro( tardio );
+            assertEquals( describir( aerolinea ), describir( tardio.getAerolinea( ) ) );
+            assertTrue( tardio.esperarAlDia( ESPERA ) );
+        }
+    }
+
+    private SeguidorReplicacion crearSeguidor( String nombre ) throws Exception
+    {
+        return new SeguidorReplicacion( crearAerolinea( nombre ), "localhost", lider.getPuerto( ) );
+    }
+
+    private Aerolinea crearAerolinea( String nombre ) throws Exception
+    {
+        return DatosPrueba.crearAerolinea( Files.createDirectories( directorio.resolve( nombre ) ) );
+    }
+
+    /**
+     * Vende, cancela y atiende la lista de espera en la aerolínea del líder, y registra uno de los vuelos como realizado
+     */
+    private void operar( ) throws Exception
+    {
+        aerolinea.venderTiquetes( DatosPrueba.ANA, DatosPrueba.FECHA, DatosPrueba.RUTA, DatosPrueba.CAPACIDAD_PEQUENO );
+        aerolinea.venderTiquetes( DatosPrueba.ANDES, DatosPrueba.FECHA, DatosPrueba.OTRA_RUTA, 3 );
+        SolicitudEspera solicitud = aerolinea.agregarAListaEspera( DatosPrueba.LUIS, DatosPrueba.FECHA, DatosPrueba.RUTA, 1 );
+
+        Tiquete cancelado = aerolinea.getVuelo( DatosPrueba.RUTA, DatosPrueba.FECHA ).getTiquetes( ).iterator( ).next( );
+        assertTrue( aerolinea.cancelarTiquete( DatosPrueba.FECHA, DatosPrueba.RUTA, cancelado.getCodigo( ) ) );
+        assertTrue( solicitud.estaAtendida( ) );
+
+        aerolinea.registrarVueloRealizado( LocalDate.parse( DatosPrueba.FECHA ), DatosPrueba.OTRA_RUTA );
+    }
+
+    /**
+     * Espera a que el seguidor aplique todos los eventos que el líder ya publicó
+     */
+    private void esperarRegistro( SeguidorReplicacion seguidor ) throws Exception
+    {
+        aerolinea.getBusEventos( ).esperarProyecciones( );
+        assertTrue( seguidor.esperarSecuencia( lider.getSecuenciaRegistrada( ), ESPERA ), "El seguidor no alcanzó al líder" );
+    }
+
+    /**
+     * Describe los tiquetes de cada vuelo de una aerolínea y si el vuelo ya se realizó
+     */
+    private static Map<String, String> describir( Aerolinea aerolinea )
+    {
+        Map<String, String> descripcion = new TreeMap<String, String>( );
+        for( Vuelos vuelo : aerolinea.getVuelos( ) )
+        {
+            TreeSet<String> tiquetes = new TreeSet<String>( );
+            for( Tiquete tiquete : vuelo.getTiquetes( ) )
+                tiquetes.add( tiquete.getCodigo( ) + " " + tiquete.getCliente( ).getIdentificador( ) + " " + tiquete.getTarifa( ) + " " + tiquete.esUsado( ) );
+            descripcion.put( vuelo.getRuta( ).getCodigoRuta( ) + " " + vuelo.getFecha( ), vuelo.esRealizado( ) + " " + tiquetes );
+        }
+        return descripcion;
+    }
+}